@@ -0,0 +1,28 @@
+package ratpack.resilience4j;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given pattern, or all of them, once per thread count with allocation profiling.
+ */
+public class BenchmarkRunner {
+
+  private static final int[] THREADS = {1, 4, 16};
+
+  public static void main(String[] args) throws RunnerException {
+    String include = args.length > 0 ? args[0] : "ratpack\\.resilience4j\\..*Benchmark";
+    for (int threads : THREADS) {
+      Options options = new OptionsBuilder()
+        .include(include)
+        .threads(threads)
+        .addProfiler(GCProfiler.class)
+        .build();
+      new Runner(options).run();
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+import ratpack.func.Factory;
+import ratpack.func.Function;
+import ratpack.test.exec.ExecHarness;
+
+/**
+ * Runs a batch of {@link #BATCH} calls on a single execution. Starting an execution and waiting for it from another
+ * thread costs microseconds, so a benchmark that yields one execution per call mostly measures the harness; a batch
+ * makes the per-call cost visible. Benchmarks using it declare {@code @OperationsPerInvocation(DirectRunner.BATCH)}.
+ */
+final class DirectRunner implements Downstream<Integer> {
+
+  static final int BATCH = 1000;
+
+  private static final Upstream<Integer> VALUE = down -> down.success(1);
+
+  private final ExecHarness harness;
+  private int sum;
+
+  DirectRunner(ExecHarness harness) {
+    this.harness = harness;
+  }
+
+  /**
+   * Apply a transformer to a synchronous upstream and connect it to this downstream, without any promise in between,
+   * once per call of the batch.
+   *
+   * @param transformer the transformer under test
+   * @return the sum of the values of the batch
+   */
+  int transform(Function<? super Upstream<? extends Integer>, ? extends Upstream<Integer>> transformer) throws Exception {
+    return harness.yield(e -> Promise.sync(() -> {
+      sum = 0;
+      for (int i = 0; i < BATCH; i++) {
+        transformer.apply(VALUE).connect(this);
+      }
+      return sum;
+    })).getValueOrThrow();
+  }
+
+  /**
+   * Chain the promises of the batch one after the other on the execution, for code under test that only hands out
+   * promises.
+   *
+   * @param promises creates each promise of the batch
+   * @return the sum of the values of the batch
+   */
+  int chain(Factory<Promise<Integer>> promises) throws Exception {
+    return harness.yield(e -> next(promises, 0, 0)).getValueOrThrow();
+  }
+
+  private static Promise<Integer> next(Factory<Promise<Integer>> promises, int call, int sum) throws Exception {
+    return call == BATCH ? Promise.value(sum) : promises.create().flatMap(value -> next(promises, call + 1, sum + value));
+  }
+
+  @Override
+  public void success(Integer value) {
+    sum += value;
+  }
+
+  @Override
+  public void error(Throwable throwable) {
+    throw new IllegalStateException("benchmarked call failed", throwable);
+  }
+
+  @Override
+  public void complete() {
+    throw new IllegalStateException("benchmarked call completed without a value");
+  }
+
+}
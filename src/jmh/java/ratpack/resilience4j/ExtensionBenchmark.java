@@ -0,0 +1,88 @@
+package ratpack.resilience4j;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.retry.RetryConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ratpack.exec.Promise;
+import ratpack.test.exec.ExecHarness;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link RatpackResilience} extension methods, which create a new transformer for every promise,
+ * against an unwrapped promise. As in {@link TransformerBenchmark}, the {@code Direct} benchmarks chain a batch
+ * of promises on one execution, so that the cost of the extension is not hidden by the cost of starting an execution
+ * per promise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtensionBenchmark {
+
+  private ExecHarness harness;
+  private DirectRunner direct;
+  private CircuitBreaker circuitBreaker;
+  private RetryConfig retryConfig;
+
+  @Setup
+  public void setup() {
+    harness = ExecHarness.harness();
+    direct = new DirectRunner(harness);
+    circuitBreaker = CircuitBreaker.of("benchmark", CircuitBreakerConfig.ofDefaults());
+    retryConfig = RetryConfig.ofDefaults();
+  }
+
+  @TearDown
+  public void tearDown() {
+    harness.close();
+  }
+
+  @Benchmark
+  public Integer baseline() throws Exception {
+    return harness.yield(e -> Promise.value(1)).getValue();
+  }
+
+  @Benchmark
+  public Integer breaker() throws Exception {
+    return harness.yield(e -> RatpackResilience.breaker(Promise.value(1), circuitBreaker)).getValue();
+  }
+
+  @Benchmark
+  public Integer retry() throws Exception {
+    return harness.yield(e -> RatpackResilience.retry(Promise.value(1), "benchmark", retryConfig)).getValue();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int baselineDirect() throws Exception {
+    return direct.chain(() -> Promise.value(1));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int breakerDirect() throws Exception {
+    return direct.chain(() -> RatpackResilience.breaker(Promise.value(1), circuitBreaker));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int retryDirect() throws Exception {
+    return direct.chain(() -> RatpackResilience.retry(Promise.value(1), "benchmark", retryConfig));
+  }
+
+}
@@ -0,0 +1,120 @@
+package ratpack.resilience4j;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+import io.github.robwin.ratelimiter.RateLimiterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ratpack.exec.Promise;
+import ratpack.server.ServerConfig;
+import ratpack.test.exec.ExecHarness;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the Guice intercepted {@link CircuitBreak} and {@link RateLimit} paths, against a method of
+ * the same intercepted instance that carries no annotation. As in {@link TransformerBenchmark}, the {@code Direct}
+ * benchmarks chain a batch of calls on one execution, so that the cost of the interceptor is not hidden by the cost
+ * of starting an execution per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorBenchmark {
+
+  private ExecHarness harness;
+  private DirectRunner direct;
+  private Service service;
+
+  @Setup
+  public void setup() {
+    harness = ExecHarness.harness();
+    direct = new DirectRunner(harness);
+    // the module binds default registries, so they are overridden rather than bound again
+    Injector injector = Guice.createInjector(Modules.override(new ResilienceModule()).with(binder -> {
+      binder.bind(ServerConfig.class).toInstance(ServerConfig.embedded().build());
+      binder.bind(CircuitBreakerRegistry.class).toInstance(CircuitBreakerRegistry.of(CircuitBreakerConfig.ofDefaults()));
+      binder.bind(RateLimiterRegistry.class).toInstance(RateLimiterRegistry.of(RateLimiterConfig.custom()
+        .limitRefreshPeriod(Duration.ofMillis(1))
+        .limitForPeriod(Integer.MAX_VALUE)
+        .timeoutDuration(Duration.ZERO)
+        .build()));
+    }));
+    service = injector.getInstance(Service.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    harness.close();
+  }
+
+  @Benchmark
+  public Integer baseline() throws Exception {
+    return harness.yield(e -> service.plain()).getValue();
+  }
+
+  @Benchmark
+  public Integer circuitBreaker() throws Exception {
+    return harness.yield(e -> service.circuitBreaker()).getValue();
+  }
+
+  @Benchmark
+  public Integer rateLimiter() throws Exception {
+    return harness.yield(e -> service.rateLimiter()).getValue();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int baselineDirect() throws Exception {
+    return direct.chain(() -> service.plain());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int circuitBreakerDirect() throws Exception {
+    return direct.chain(() -> service.circuitBreaker());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int rateLimiterDirect() throws Exception {
+    return direct.chain(() -> service.rateLimiter());
+  }
+
+  public static class Service {
+
+    public Promise<Integer> plain() {
+      return Promise.value(1);
+    }
+
+    @CircuitBreak(name = "benchmark")
+    public Promise<Integer> circuitBreaker() {
+      return Promise.value(1);
+    }
+
+    @RateLimit(name = "benchmark")
+    public Promise<Integer> rateLimiter() {
+      return Promise.value(1);
+    }
+
+  }
+
+}
@@ -0,0 +1,109 @@
+package ratpack.resilience4j;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+import io.github.robwin.retry.RetryConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ratpack.exec.Promise;
+import ratpack.test.exec.ExecHarness;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of applying each transformer to a promise, against the same promise unwrapped. The plain
+ * benchmarks run one execution per promise, which costs far more than a transformer, so they show the cost in a
+ * whole round trip. The {@code Direct} ones apply the transformer to an upstream and connect a downstream, with no
+ * promise in between, a batch at a time on one execution through {@link DirectRunner}. Against
+ * {@code baselineDirect}, they show the per-call time and allocation of the transformer itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformerBenchmark {
+
+  private ExecHarness harness;
+  private DirectRunner direct;
+  private CircuitBreakerTransformer<Integer> circuitBreakerTransformer;
+  private RateLimiterTransformer<Integer> rateLimiterTransformer;
+  private RetryTransformer<Integer> retryTransformer;
+
+  @Setup
+  public void setup() {
+    harness = ExecHarness.harness();
+    direct = new DirectRunner(harness);
+    circuitBreakerTransformer = CircuitBreakerTransformer.of(CircuitBreaker.of("benchmark", CircuitBreakerConfig.ofDefaults()));
+    rateLimiterTransformer = RateLimiterTransformer.of(RateLimiter.of("benchmark", RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofMillis(1))
+      .limitForPeriod(Integer.MAX_VALUE)
+      .timeoutDuration(Duration.ZERO)
+      .build()));
+    retryTransformer = RetryTransformer.of("benchmark", RetryConfig.ofDefaults());
+  }
+
+  @TearDown
+  public void tearDown() {
+    harness.close();
+  }
+
+  @Benchmark
+  public Integer baseline() throws Exception {
+    return harness.yield(e -> Promise.value(1)).getValue();
+  }
+
+  @Benchmark
+  public Integer circuitBreaker() throws Exception {
+    return harness.yield(e -> Promise.value(1).transform(circuitBreakerTransformer)).getValue();
+  }
+
+  @Benchmark
+  public Integer rateLimiter() throws Exception {
+    return harness.yield(e -> Promise.value(1).transform(rateLimiterTransformer)).getValue();
+  }
+
+  @Benchmark
+  public Integer retry() throws Exception {
+    return harness.yield(e -> Promise.value(1).transform(retryTransformer)).getValue();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int baselineDirect() throws Exception {
+    return direct.transform(upstream -> down -> upstream.connect(down));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int circuitBreakerDirect() throws Exception {
+    return direct.transform(circuitBreakerTransformer);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int rateLimiterDirect() throws Exception {
+    return direct.transform(rateLimiterTransformer);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DirectRunner.BATCH)
+  public int retryDirect() throws Exception {
+    return direct.transform(retryTransformer);
+  }
+
+}
@@ -0,0 +1,42 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.internal.DefaultRecoveryFunction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation for marking a method of an annotated object as adaptively limited.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}AdaptiveLimit(name = "myLimiter")
+ *     public Promise&lt;String&gt; fancyName(String name) {
+ *         return Promise.value("Sir Captain " + name);
+ *     }
+ * </code></pre>
+ * <p/>
+ * each time the {@code #fancyName(String)} method is invoked, the method's execution will pass through an
+ * adaptive limiter, whose limit on concurrent calls follows the latency of previous calls.
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface AdaptiveLimit {
+  /**
+   * @return The name of the adaptive limiter. It will be looked up the adaptive limiter registry.
+   */
+  String name() default "";
+
+  /**
+   * The Function class that returns a fallback value. The default is a noop.
+   * @return
+   */
+  Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
+
+}
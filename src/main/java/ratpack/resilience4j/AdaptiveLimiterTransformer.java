@@ -0,0 +1,131 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+import ratpack.resilience4j.limit.AdaptiveLimiter;
+import ratpack.resilience4j.limit.LimitExceededException;
+import ratpack.resilience4j.metrics.CallMetrics;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+public class AdaptiveLimiterTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private final AdaptiveLimiter limiter;
+  private Function<Throwable, ? extends T> recoverer;
+  private CallMetrics metrics;
+
+  private AdaptiveLimiterTransformer(AdaptiveLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * The Promised value will pass through the adaptive limiter, which holds a permit until the upstream completes
+   * and then adjusts its limit to the measured latency.
+   * <p>
+   * When the limiter is at its limit the execution is rejected straight away with a {@link LimitExceededException}.
+   *
+   * @param limiter the adaptive limiter to use
+   * @return
+   */
+  public static <T> AdaptiveLimiterTransformer<T> of(AdaptiveLimiter limiter) {
+    return new AdaptiveLimiterTransformer<>(limiter);
+  }
+
+  /**
+   * Set a recovery function that will execute when the limiter is at its limit.
+   *
+   * @param recoverer the recovery function
+   * @return
+   */
+  public AdaptiveLimiterTransformer<T> recover(Function<Throwable, ? extends T> recoverer) {
+    this.recoverer = recoverer;
+    return this;
+  }
+
+  /**
+   * Record permitted calls and rejections of the limiter in the given metrics.
+   *
+   * @param metrics the metrics to record to
+   * @return
+   */
+  public AdaptiveLimiterTransformer<T> metrics(ResilienceMetrics metrics) {
+    this.metrics = metrics.adaptiveLimiter(limiter.getName());
+    return this;
+  }
+
+  @Override
+  public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    return down -> {
+      if (!limiter.tryAcquire()) {
+        if (metrics != null) {
+          metrics.onNotPermitted();
+        }
+        Throwable t = new LimitExceededException("AdaptiveLimiter " + limiter.getName() + " is at its limit of " + limiter.getLimit());
+        if (recoverer != null) {
+          try {
+            down.success(recoverer.apply(t));
+          } catch (Throwable t2) {
+            down.error(t2);
+          }
+        } else {
+          down.error(t);
+        }
+        return;
+      }
+      LimitedDownstream limited = new LimitedDownstream(down);
+      try {
+        upstream.connect(limited);
+      } catch (Throwable t) {
+        limited.error(t);
+      }
+    };
+  }
+
+  private final class LimitedDownstream implements Downstream<T> {
+
+    private final Downstream<? super T> down;
+    private final long start = System.nanoTime();
+    private boolean released;
+
+    private LimitedDownstream(Downstream<? super T> down) {
+      this.down = down;
+    }
+
+    @Override
+    public void success(T value) {
+      if (!released) {
+        released = true;
+        long nanos = System.nanoTime() - start;
+        limiter.onSuccess(nanos);
+        if (metrics != null) {
+          metrics.onSuccess(nanos);
+        }
+      }
+      down.success(value);
+    }
+
+    @Override
+    public void error(Throwable throwable) {
+      if (!released) {
+        released = true;
+        long nanos = System.nanoTime() - start;
+        limiter.onError(nanos, throwable);
+        if (metrics != null) {
+          metrics.onError(nanos);
+        }
+      }
+      down.error(throwable);
+    }
+
+    @Override
+    public void complete() {
+      if (!released) {
+        released = true;
+        limiter.release();
+      }
+      down.complete();
+    }
+  }
+
+}
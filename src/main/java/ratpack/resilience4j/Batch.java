@@ -0,0 +1,86 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.batch.BatchLoader;
+import ratpack.resilience4j.internal.DefaultKeyFunction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An annotation for marking a method of an annotated object as batched.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}Batch(loader = UsersLoader.class, maxBatchSize = 50, circuitBreaker = "users")
+ *     public Promise&lt;User&gt; user(String id) {
+ *         return Promise.value(null);
+ *     }
+ * </code></pre>
+ * <p/>
+ * concurrent invocations of the {@code #user(String)} method are gathered into batches, and each batch is loaded
+ * with one call to the loader, which passes through the circuit breaker once. The body of the method is not invoked;
+ * the value of each invocation is the value the loader returns for its key. Only methods declared to return a Promise are
+ * batched, other methods are invoked unchanged.
+ * <p/>
+ * Other policy annotations on the same method do not apply, since the promise of the method is never subscribed to.
+ * The policies of the batch are declared on this annotation instead.
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface Batch {
+  /**
+   * @return The name of the batcher. It will be looked up the batcher registry. The default uses a batcher
+   * per method.
+   */
+  String name() default "";
+
+  /**
+   * @return The loader of each batch. It is resolved from Guice, falling back to its no-arg constructor.
+   */
+  Class<? extends BatchLoader> loader();
+
+  /**
+   * The Function class that creates the key to load from the method arguments. The default uses the only argument,
+   * or the list of arguments if there are several.
+   * @return
+   */
+  Class<? extends KeyFunction> key() default DefaultKeyFunction.class;
+
+  /**
+   * @return The number of distinct keys at which a batch is loaded right away.
+   */
+  int maxBatchSize() default 100;
+
+  /**
+   * @return The maximum time the first key of a batch waits for other keys to join it.
+   */
+  long maxDelay() default 1;
+
+  /**
+   * @return The unit of {@link #maxDelay()}.
+   */
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+  /**
+   * @return The name of the circuit breaker each batch passes through. It will be looked up the circuit breaker registry.
+   */
+  String circuitBreaker() default "";
+
+  /**
+   * @return The name of the rate limiter each batch passes through. It will be looked up the rate limiter registry.
+   */
+  String rateLimiter() default "";
+
+  /**
+   * @return The name of a retry definition each batch is retried with, looked up in the retry config registry.
+   */
+  String retry() default "";
+
+}
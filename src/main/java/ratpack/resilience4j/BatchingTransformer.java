@@ -0,0 +1,48 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Upstream;
+import ratpack.func.Factory;
+import ratpack.func.Function;
+import ratpack.resilience4j.batch.Batcher;
+
+public class BatchingTransformer<K, V> implements Function<Upstream<? extends V>, Upstream<V>> {
+
+  private final Batcher<K, V> batcher;
+  private final Factory<? extends K> key;
+
+  private BatchingTransformer(Batcher<K, V> batcher, Factory<? extends K> key) {
+    this.batcher = batcher;
+    this.key = key;
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * The value of the transformed Promise is loaded by the next batch of the batcher, and its upstream is not
+   * subscribed to.
+   *
+   * @param batcher the batcher that gathers keys into batches
+   * @param key the key to load
+   * @return
+   */
+  public static <K, V> BatchingTransformer<K, V> of(Batcher<K, V> batcher, K key) {
+    return new BatchingTransformer<>(batcher, () -> key);
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * The key is created each time the Promise is subscribed to, for example from the current request.
+   *
+   * @param batcher the batcher that gathers keys into batches
+   * @param key the factory of the key to load
+   * @return
+   */
+  public static <K, V> BatchingTransformer<K, V> of(Batcher<K, V> batcher, Factory<? extends K> key) {
+    return new BatchingTransformer<>(batcher, key);
+  }
+
+  @Override
+  public Upstream<V> apply(Upstream<? extends V> upstream) throws Exception {
+    return down -> batcher.load(key.create()).connect(down);
+  }
+
+}
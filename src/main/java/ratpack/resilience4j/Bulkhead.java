@@ -0,0 +1,42 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.internal.DefaultRecoveryFunction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation for marking a method of an annotated object as bulkhead enabled.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}Bulkhead(name = "myBulkhead")
+ *     public Promise&lt;String&gt; fancyName(String name) {
+ *         return Promise.value("Sir Captain " + name);
+ *     }
+ * </code></pre>
+ * <p/>
+ * each time the {@code #fancyName(String)} method is invoked, the method's execution will pass through a
+ * bulkhead according to the given bulkhead policy.
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface Bulkhead {
+  /**
+   * @return The name of the bulkhead. It will be looked up the bulkhead registry.
+   */
+  String name() default "";
+
+  /**
+   * The Function class that returns a fallback value. The default is a noop.
+   * @return
+   */
+  Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
+
+}
@@ -0,0 +1,156 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+import ratpack.resilience4j.bulkhead.Bulkhead;
+import ratpack.resilience4j.bulkhead.BulkheadFullException;
+import ratpack.resilience4j.internal.MeasuredDownstream;
+import ratpack.resilience4j.metrics.CallMetrics;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+import java.util.concurrent.CompletableFuture;
+
+public class BulkheadTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private final Bulkhead bulkhead;
+  private Function<Throwable, ? extends T> recoverer;
+  private CallMetrics metrics;
+
+  private BulkheadTransformer(Bulkhead bulkhead) {
+    this.bulkhead = bulkhead;
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * The Promised value will pass through the bulkhead, which holds a permit until the upstream completes.
+   * <p>
+   * When the bulkhead is full the execution either queues for a permit, without holding a thread, or is rejected
+   * with a {@link BulkheadFullException}.
+   *
+   * @param bulkhead the bulkhead to use
+   * @return
+   */
+  public static <T> BulkheadTransformer<T> of(Bulkhead bulkhead) {
+    return new BulkheadTransformer<>(bulkhead);
+  }
+
+  /**
+   * Set a recovery function that will execute when the bulkhead is full.
+   *
+   * @param recoverer the recovery function
+   * @return
+   */
+  public BulkheadTransformer<T> recover(Function<Throwable, ? extends T> recoverer) {
+    this.recoverer = recoverer;
+    return this;
+  }
+
+  /**
+   * Record permitted calls and rejections of the bulkhead in the given metrics.
+   *
+   * @param metrics the metrics to record to
+   * @return
+   */
+  public BulkheadTransformer<T> metrics(ResilienceMetrics metrics) {
+    this.metrics = metrics.bulkhead(bulkhead.getName());
+    return this;
+  }
+
+  @Override
+  public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    return down -> {
+      Downstream<Boolean> permitted = new Downstream<Boolean>() {
+
+        @Override
+        public void success(Boolean permission) {
+          if (!permission) {
+            if (metrics != null) {
+              metrics.onNotPermitted();
+            }
+            Throwable t = new BulkheadFullException("Bulkhead " + bulkhead.getName() + " is full");
+            if (recoverer != null) {
+              try {
+                down.success(recoverer.apply(t));
+              } catch (Throwable t2) {
+                down.error(t2);
+              }
+            } else {
+              down.error(t);
+            }
+          } else {
+            PermitDownstream guarded = new PermitDownstream(metrics != null ? new MeasuredDownstream<>(metrics, down) : down);
+            try {
+              upstream.connect(guarded);
+            } catch (Throwable t) {
+              guarded.error(t);
+            }
+          }
+        }
+
+        @Override
+        public void error(Throwable throwable) {
+          down.error(throwable);
+        }
+
+        @Override
+        public void complete() {
+          down.complete();
+        }
+      };
+      CompletableFuture<Boolean> permission = bulkhead.acquire(Execution.current().getEventLoop());
+      if (permission.isDone()) {
+        permitted.success(permission.join());
+      } else {
+        Promise.<Boolean>async(d -> d.accept(permission)).connect(permitted);
+      }
+    };
+  }
+
+  /**
+   * Returns the permit on the first signal, and passes on only that signal, so an upstream that throws after it
+   * signalled neither returns the permit twice nor signals twice.
+   */
+  private final class PermitDownstream implements Downstream<T> {
+
+    private final Downstream<? super T> down;
+    private boolean released;
+
+    private PermitDownstream(Downstream<? super T> down) {
+      this.down = down;
+    }
+
+    @Override
+    public void success(T value) {
+      if (release()) {
+        down.success(value);
+      }
+    }
+
+    @Override
+    public void error(Throwable throwable) {
+      if (release()) {
+        down.error(throwable);
+      }
+    }
+
+    @Override
+    public void complete() {
+      if (release()) {
+        down.complete();
+      }
+    }
+
+    private boolean release() {
+      if (released) {
+        return false;
+      }
+      released = true;
+      bulkhead.release();
+      return true;
+    }
+  }
+
+}
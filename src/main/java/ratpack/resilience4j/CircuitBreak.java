@@ -1,6 +1,8 @@
 package ratpack.resilience4j;
 
+import ratpack.resilience4j.internal.DefaultKeyFunction;
 import ratpack.resilience4j.internal.DefaultRecoveryFunction;
+import ratpack.resilience4j.window.SlidingWindowType;
 
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
@@ -39,4 +41,25 @@ public @interface CircuitBreak {
    */
   Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
 
+  /**
+   * The Function class that selects a circuit breaker per key from the method arguments. The default uses a single
+   * circuit breaker for the name.
+   * @return
+   */
+  Class<? extends KeyFunction> key() default DefaultKeyFunction.class;
+
+  /**
+   * @return The name of a fallback cache, looked up in the fallback cache registry, that serves the last good result
+   * for the same arguments when the circuit is open or the call fails. Only applies to methods returning a Promise.
+   * The default does not cache results.
+   */
+  String fallbackCache() default "";
+
+  /**
+   * @return How the circuit breaker judges its calls. The default looks the circuit breaker up in the circuit breaker
+   * registry. {@link SlidingWindowType#TIME_BASED} looks it up in the sliding window circuit breaker registry instead,
+   * which judges the failed and slow calls of the last seconds. Keyed circuit breakers are always count based.
+   */
+  SlidingWindowType slidingWindow() default SlidingWindowType.COUNT_BASED;
+
 }
@@ -1,31 +1,82 @@
 package ratpack.resilience4j;
 
 import io.github.robwin.circuitbreaker.CircuitBreaker;
-import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
-import io.github.robwin.metrics.StopWatch;
 import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
 import ratpack.exec.Upstream;
+import ratpack.func.Factory;
 import ratpack.func.Function;
+import ratpack.resilience4j.fallback.FallbackCache;
+import ratpack.resilience4j.internal.CircuitBreakers;
+import ratpack.resilience4j.keyed.KeyedCircuitBreakerRegistry;
+import ratpack.resilience4j.metrics.CallMetrics;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+import java.time.Duration;
 
 public class CircuitBreakerTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
 
+  private static final Downstream<Object> DISCARD = new Downstream<Object>() {
+
+    @Override
+    public void success(Object value) {
+    }
+
+    @Override
+    public void error(Throwable throwable) {
+    }
+
+    @Override
+    public void complete() {
+    }
+  };
+
   private final CircuitBreaker circuitBreaker;
+  private final KeyedCircuitBreakerRegistry keyedRegistry;
+  private final String name;
+  private final Factory<?> key;
   private Function<Throwable, ? extends T> recoverer;
+  private CallMetrics metrics;
+  private FallbackCache<T> fallbackCache;
+  private Factory<?> fallbackKey;
 
-  private CircuitBreakerTransformer(CircuitBreaker circuitBreaker) {
+  private CircuitBreakerTransformer(CircuitBreaker circuitBreaker, KeyedCircuitBreakerRegistry keyedRegistry, String name, Factory<?> key) {
     this.circuitBreaker = circuitBreaker;
+    this.keyedRegistry = keyedRegistry;
+    this.name = name;
+    this.key = key;
   }
 
   /**
    * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
    * The Promised value will pass through the circuitbreaker, potentially causing it to open if the thresholds
    * for the circuit breaker are exceeded.
+   * <p>
+   * Calls rejected by an open circuit all fail with the same stackless {@link io.github.robwin.circuitbreaker.CircuitBreakerOpenException}
+   * instance, shared by every transformer of the circuit breaker, so rejecting a call does not build a new exception.
+   * <p>
+   * Pass a {@link ratpack.resilience4j.window.SlidingWindowCircuitBreaker} to judge calls over the last seconds
+   * rather than the last calls, counting slow calls as failures.
    *
    * @param circuitBreaker the circuit breaker to use
    * @return
    */
   public static <T> CircuitBreakerTransformer<T> of(CircuitBreaker circuitBreaker) {
-    return new CircuitBreakerTransformer<>(circuitBreaker);
+    return new CircuitBreakerTransformer<>(circuitBreaker, null, circuitBreaker.getName(), null);
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * Each time the promise is subscribed, the key is computed and the Promised value passes through the circuit
+   * breaker for that key.
+   *
+   * @param registry the registry holding a circuit breaker per key
+   * @param name the name of the circuit breaker whose config is used
+   * @param key the key function, called on the execution that subscribes to the promise
+   * @return
+   */
+  public static <T> CircuitBreakerTransformer<T> of(KeyedCircuitBreakerRegistry registry, String name, Factory<?> key) {
+    return new CircuitBreakerTransformer<>(null, registry, name, key);
   }
 
   /**
@@ -39,42 +90,64 @@ public class CircuitBreakerTransformer<T> implements Function<Upstream<? extends
     return this;
   }
 
+  /**
+   * Record calls, rejections and state transitions of the circuit breaker in the given metrics.
+   *
+   * @param metrics the metrics to record to
+   * @return
+   */
+  public CircuitBreakerTransformer<T> metrics(ResilienceMetrics metrics) {
+    this.metrics = metrics.circuitBreaker(name);
+    return this;
+  }
+
+  /**
+   * Record each successful value in the given cache, and serve the last good value for the key instead of failing
+   * when the circuit breaker is open or the call fails. The recovery function, if any, only applies when there is
+   * no cached value.
+   * <p>
+   * If the cache is configured to revalidate, a call admitted by a half open circuit breaker is answered with the
+   * cached value straight away, and the call itself runs in a forked execution to refresh the value and decide the
+   * state of the circuit breaker.
+   *
+   * @param fallbackCache the cache of last good values
+   * @param key the key function, called on the execution that subscribes to the promise
+   * @return
+   */
+  public CircuitBreakerTransformer<T> fallbackCache(FallbackCache<T> fallbackCache, Factory<?> key) {
+    this.fallbackCache = fallbackCache;
+    this.fallbackKey = key;
+    return this;
+  }
+
   @Override
   public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
     return down -> {
-      StopWatch stopWatch;
-      if (circuitBreaker.isCallPermitted()) {
-        stopWatch = StopWatch.start(circuitBreaker.getName());
-        upstream.connect(new Downstream<T>() {
-
-          @Override
-          public void success(T value) {
-            circuitBreaker.onSuccess(stopWatch.stop().getProcessingDuration());
-            down.success(value);
-          }
-
-          @Override
-          public void error(Throwable throwable) {
-            circuitBreaker.onError(stopWatch.stop().getProcessingDuration(), throwable);
-            try {
-              if (recoverer != null) {
-                down.success(recoverer.apply(throwable));
-              } else {
-                down.error(throwable);
-              }
-            } catch (Throwable t) {
-              down.error(t);
-            }
-          }
-
-          @Override
-          public void complete() {
-            down.complete();
-          }
-        });
+      CircuitBreaker circuitBreaker = this.circuitBreaker != null ? this.circuitBreaker : keyedRegistry.circuitBreaker(name, key.create());
+      Object cacheKey = fallbackCache != null ? fallbackKey.create() : null;
+      boolean permitted = circuitBreaker.isCallPermitted();
+      if (metrics != null) {
+        metrics.onState(circuitBreaker);
+      }
+      if (permitted) {
+        T stale;
+        if (cacheKey != null && fallbackCache.getFallbackCacheConfig().isRevalidate()
+          && circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN && (stale = fallbackCache.get(cacheKey)) != null) {
+          BreakerDownstream revalidation = new BreakerDownstream(circuitBreaker, DISCARD, cacheKey);
+          Execution.fork().onError(revalidation::error).start(e -> upstream.connect(revalidation));
+          down.success(stale);
+        } else {
+          upstream.connect(new BreakerDownstream(circuitBreaker, down, cacheKey));
+        }
       } else {
-        Throwable t = new CircuitBreakerOpenException("CircuitBreaker ${circuitBreaker.name} is open");
-        if (recoverer != null) {
+        if (metrics != null) {
+          metrics.onNotPermitted();
+        }
+        Throwable t = CircuitBreakers.openException(circuitBreaker);
+        T stale = cacheKey != null ? fallbackCache.get(cacheKey) : null;
+        if (stale != null) {
+          down.success(stale);
+        } else if (recoverer != null) {
           try {
             down.success(recoverer.apply(t));
           } catch (Throwable t2) {
@@ -87,4 +160,61 @@ public class CircuitBreakerTransformer<T> implements Function<Upstream<? extends
     };
   }
 
+  private final class BreakerDownstream implements Downstream<T> {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Downstream<? super T> down;
+    private final Object cacheKey;
+    private final long start = System.nanoTime();
+
+    private BreakerDownstream(CircuitBreaker circuitBreaker, Downstream<? super T> down, Object cacheKey) {
+      this.circuitBreaker = circuitBreaker;
+      this.down = down;
+      this.cacheKey = cacheKey;
+    }
+
+    @Override
+    public void success(T value) {
+      long nanos = System.nanoTime() - start;
+      circuitBreaker.onSuccess(Duration.ofNanos(nanos));
+      if (metrics != null) {
+        metrics.onSuccess(nanos);
+        metrics.onState(circuitBreaker);
+      }
+      if (cacheKey != null) {
+        fallbackCache.put(cacheKey, value);
+      }
+      down.success(value);
+    }
+
+    @Override
+    public void error(Throwable throwable) {
+      long nanos = System.nanoTime() - start;
+      circuitBreaker.onError(Duration.ofNanos(nanos), throwable);
+      if (metrics != null) {
+        metrics.onError(nanos);
+        metrics.onState(circuitBreaker);
+      }
+      try {
+        T stale = cacheKey != null ? fallbackCache.get(cacheKey) : null;
+        if (stale != null) {
+          down.success(stale);
+        } else if (recoverer != null) {
+          down.success(recoverer.apply(throwable));
+        } else {
+          down.error(throwable);
+        }
+      } catch (Throwable t) {
+        down.error(t);
+      }
+    }
+
+    @Override
+    public void complete() {
+      CircuitBreakers.release(circuitBreaker);
+      down.complete();
+    }
+
+  }
+
 }
@@ -0,0 +1,45 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.internal.DefaultKeyFunction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation for marking a method of an annotated object as coalesced.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}Coalesce
+ *     {@literal @}CircuitBreak(name = "users")
+ *     public Promise&lt;User&gt; user(String id) {
+ *         return httpClient.get(...);
+ *     }
+ * </code></pre>
+ * <p/>
+ * concurrent invocations of the {@code #user(String)} method with equal arguments share a single call, which
+ * passes through the circuit breaker once. Only methods returning a Promise are coalesced.
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface Coalesce {
+  /**
+   * @return The name of the coalescer. It will be looked up the coalescer registry. The default uses a coalescer
+   * per method.
+   */
+  String name() default "";
+
+  /**
+   * The Function class that creates the key identifying duplicate calls from the method arguments. The default
+   * uses the list of arguments.
+   * @return
+   */
+  Class<? extends KeyFunction> key() default DefaultKeyFunction.class;
+
+}
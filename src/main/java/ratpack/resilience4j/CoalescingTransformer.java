@@ -0,0 +1,48 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Upstream;
+import ratpack.func.Factory;
+import ratpack.func.Function;
+import ratpack.resilience4j.coalesce.Coalescer;
+
+public class CoalescingTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private final Coalescer coalescer;
+  private final Factory<?> key;
+
+  private CoalescingTransformer(Coalescer coalescer, Factory<?> key) {
+    this.coalescer = coalescer;
+    this.key = key;
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * Concurrent executions that transform a Promise with the same key share the first execution's call, and only
+   * that execution subscribes to its upstream.
+   *
+   * @param coalescer the coalescer that tracks calls in flight
+   * @param key the key identifying duplicate calls
+   * @return
+   */
+  public static <T> CoalescingTransformer<T> of(Coalescer coalescer, Object key) {
+    return new CoalescingTransformer<>(coalescer, () -> key);
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * The key is created each time the Promise is subscribed to, for example from the current request.
+   *
+   * @param coalescer the coalescer that tracks calls in flight
+   * @param key the factory of the key identifying duplicate calls
+   * @return
+   */
+  public static <T> CoalescingTransformer<T> of(Coalescer coalescer, Factory<?> key) {
+    return new CoalescingTransformer<>(coalescer, key);
+  }
+
+  @Override
+  public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    return down -> coalescer.connect(key.create(), upstream, down);
+  }
+
+}
@@ -0,0 +1,23 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Execution;
+import ratpack.handling.Context;
+
+/**
+ * A {@link KeyFunction} that selects the instance from the {@link Context} of the request being handled, for
+ * example by client address or a tenant header.
+ */
+public abstract class ContextKeyFunction implements KeyFunction {
+
+  @Override
+  public Object apply(Object[] arguments) throws Exception {
+    return apply(Execution.current().get(Context.class));
+  }
+
+  /**
+   * @param context the context of the current request
+   * @return the key
+   */
+  protected abstract Object apply(Context context) throws Exception;
+
+}
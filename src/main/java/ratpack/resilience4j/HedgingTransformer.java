@@ -0,0 +1,248 @@
+package ratpack.resilience4j;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RequestNotPermitted;
+import ratpack.exec.Downstream;
+import ratpack.exec.ExecController;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+import ratpack.resilience4j.internal.CircuitBreakers;
+import ratpack.resilience4j.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HedgingTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private static final int DEFAULT_MAX_ATTEMPTS = 2;
+  private static final long MIN_SAMPLES = 100;
+
+  private final long delayNanos;
+  private final double percentile;
+  private final LatencyHistogram latency;
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private CircuitBreaker circuitBreaker;
+  private RateLimiter rateLimiter;
+
+  private HedgingTransformer(Duration delay, double percentile, LatencyHistogram latency) {
+    if (delay.isNegative()) {
+      throw new IllegalArgumentException("delay must not be negative");
+    }
+    this.delayNanos = delay.toNanos();
+    this.percentile = percentile;
+    this.latency = latency;
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * If the Promised value is not available within the delay, the upstream is subscribed to again, and the first
+   * successful attempt provides the value. Each attempt, including the first, runs in its own forked execution.
+   * Attempts that lose are left to complete and their values are discarded.
+   * <p>
+   * The first attempt cannot run in the calling execution. An execution only resumes once its pending promise
+   * completes, so the value of a hedge would wait for the slow first attempt. The forked executions do not see the
+   * caller's registry, so the upstream must not look up the {@link ratpack.handling.Context} or other
+   * execution-bound state. Resolve anything it needs before the transform.
+   *
+   * @param delay how long to wait for an attempt before starting the next
+   * @return
+   */
+  public static <T> HedgingTransformer<T> of(Duration delay) {
+    return new HedgingTransformer<>(delay, 0, null);
+  }
+
+  /**
+   * Create a new transformer that starts the next attempt once an attempt has taken longer than the given percentile
+   * of the latencies of earlier first attempts. Until enough first attempts have completed to estimate the
+   * percentile, the initial delay is used.
+   *
+   * @param percentile the latency percentile, between 0 and 1, for example 0.95
+   * @param initialDelay the delay used until the percentile can be estimated
+   * @return
+   */
+  public static <T> HedgingTransformer<T> ofPercentile(double percentile, Duration initialDelay) {
+    if (percentile <= 0 || percentile >= 1) {
+      throw new IllegalArgumentException("percentile must be between 0 and 1");
+    }
+    return new HedgingTransformer<>(initialDelay, percentile, new LatencyHistogram());
+  }
+
+  /**
+   * @param maxAttempts the maximum number of attempts, including the first, default 2
+   * @return
+   */
+  public HedgingTransformer<T> maxAttempts(int maxAttempts) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be at least 1");
+    }
+    this.maxAttempts = maxAttempts;
+    return this;
+  }
+
+  /**
+   * Only start a hedge if the circuit breaker permits a call, and record the outcome of each hedge with it. The first
+   * attempt is left to any circuit breaker that wraps this transformer.
+   *
+   * @param circuitBreaker the circuit breaker to use
+   * @return
+   */
+  public HedgingTransformer<T> circuitBreaker(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+    return this;
+  }
+
+  /**
+   * Only start a hedge if the rate limiter has a permission available straight away. The first attempt is left to
+   * any rate limiter that wraps this transformer.
+   *
+   * @param rateLimiter the rate limiter to use
+   * @return
+   */
+  public HedgingTransformer<T> rateLimiter(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+    return this;
+  }
+
+  @Override
+  public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    return down -> Promise.<T>async(hedged -> new Hedge(upstream, hedged).launch()).connect(down);
+  }
+
+  private long delayNanos() {
+    // interpolated within a power-of-two bucket, so the delay is within a factor of two of the true percentile
+    if (latency != null && latency.getCount() >= MIN_SAMPLES) {
+      return TimeUnit.MICROSECONDS.toNanos(latency.getPercentileMicros(percentile));
+    }
+    return delayNanos;
+  }
+
+  private final class Hedge {
+
+    private final Upstream<? extends T> upstream;
+    private final Downstream<? super T> hedged;
+    private final ExecController controller;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicInteger launched = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private volatile Throwable failure;
+    private volatile Throwable rejected;
+    private final AtomicReference<ScheduledFuture<?>> timer = new AtomicReference<>();
+
+    private Hedge(Upstream<? extends T> upstream, Downstream<? super T> hedged) {
+      this.upstream = upstream;
+      this.hedged = hedged;
+      this.controller = Execution.current().getController();
+    }
+
+    /**
+     * Start the next attempt, unless all attempts have been started or a result is already in.
+     *
+     * @return whether an attempt was started or rejected
+     */
+    private boolean launch() {
+      int attempt;
+      do {
+        attempt = launched.get();
+        if (done.get() || attempt >= maxAttempts) {
+          return false;
+        }
+      } while (!launched.compareAndSet(attempt, attempt + 1));
+      boolean hedge = attempt > 0;
+      if (hedge) {
+        Throwable rejection = admit();
+        if (rejection != null) {
+          rejected = rejection;
+          failed(null, 0, false);
+          return true;
+        }
+      }
+      ScheduledFuture<?> next = attempt + 1 < maxAttempts ? controller.getExecutor().schedule(this::launch, delayNanos(), TimeUnit.NANOSECONDS) : null;
+      // an attempt started early by a failure replaces the timer of the previous attempt, which would start another too soon
+      ScheduledFuture<?> previous = timer.getAndSet(next);
+      if (previous != null) {
+        previous.cancel(false);
+      }
+      long start = System.nanoTime();
+      controller.fork()
+        .onError(t -> failed(t, System.nanoTime() - start, hedge))
+        .start(e -> upstream.connect(new Downstream<T>() {
+
+          @Override
+          public void success(T value) {
+            long nanos = System.nanoTime() - start;
+            if (hedge && circuitBreaker != null) {
+              circuitBreaker.onSuccess(Duration.ofNanos(nanos));
+            } else if (!hedge && latency != null) {
+              latency.record(nanos);
+            }
+            if (done.compareAndSet(false, true)) {
+              cancelTimer();
+              hedged.success(value);
+            }
+          }
+
+          @Override
+          public void error(Throwable throwable) {
+            failed(throwable, System.nanoTime() - start, hedge);
+          }
+
+          @Override
+          public void complete() {
+            failed(null, System.nanoTime() - start, hedge);
+          }
+        }));
+      return true;
+    }
+
+    private Throwable admit() {
+      if (circuitBreaker != null && !circuitBreaker.isCallPermitted()) {
+        return CircuitBreakers.openException(circuitBreaker);
+      }
+      if (rateLimiter != null && !rateLimiter.getPermission(Duration.ZERO)) {
+        return new RequestNotPermitted("Request not permitted for limiter: " + rateLimiter.getName());
+      }
+      return null;
+    }
+
+    private void failed(Throwable throwable, long nanos, boolean recorded) {
+      if (recorded && circuitBreaker != null) {
+        if (throwable != null) {
+          circuitBreaker.onError(Duration.ofNanos(nanos), throwable);
+        } else {
+          CircuitBreakers.release(circuitBreaker);
+        }
+      }
+      if (throwable != null && failure == null) {
+        failure = throwable;
+      }
+      if (finished.incrementAndGet() < launched.get() || launch()) {
+        return;
+      }
+      if (finished.get() == launched.get() && done.compareAndSet(false, true)) {
+        cancelTimer();
+        if (failure != null) {
+          hedged.error(failure);
+        } else if (rejected != null) {
+          hedged.error(rejected);
+        } else {
+          hedged.complete();
+        }
+      }
+    }
+
+    private void cancelTimer() {
+      ScheduledFuture<?> current = timer.get();
+      if (current != null) {
+        current.cancel(false);
+      }
+    }
+  }
+
+}
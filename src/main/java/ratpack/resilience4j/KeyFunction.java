@@ -0,0 +1,12 @@
+package ratpack.resilience4j;
+
+import ratpack.func.Function;
+
+/**
+ * Selects the circuit breaker or rate limiter instance for a call to an annotated method, from the method arguments.
+ * The instance is looked up by the name in the annotation and the returned key.
+ *
+ * @see ContextKeyFunction
+ */
+public interface KeyFunction extends Function<Object[], Object> {
+}
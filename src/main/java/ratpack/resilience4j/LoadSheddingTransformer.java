@@ -0,0 +1,64 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+import ratpack.resilience4j.shed.LoadShedException;
+import ratpack.resilience4j.shed.LoadShedder;
+import ratpack.resilience4j.shed.Priority;
+
+public class LoadSheddingTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private final LoadShedder loadShedder;
+  private final Priority priority;
+  private Function<Throwable, ? extends T> recoverer;
+
+  private LoadSheddingTransformer(LoadShedder loadShedder, Priority priority) {
+    this.loadShedder = loadShedder;
+    this.priority = priority;
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * The Promised value is only subscribed to if the load shedder admits work of the given priority, otherwise the
+   * execution is rejected straight away with a {@link LoadShedException}.
+   *
+   * @param loadShedder the load shedder to use
+   * @param priority the priority of the promised work
+   * @return
+   */
+  public static <T> LoadSheddingTransformer<T> of(LoadShedder loadShedder, Priority priority) {
+    return new LoadSheddingTransformer<>(loadShedder, priority);
+  }
+
+  /**
+   * Set a recovery function that will execute when the work is shed.
+   *
+   * @param recoverer the recovery function
+   * @return
+   */
+  public LoadSheddingTransformer<T> recover(Function<Throwable, ? extends T> recoverer) {
+    this.recoverer = recoverer;
+    return this;
+  }
+
+  @Override
+  public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    return down -> {
+      if (loadShedder.tryAdmit(priority)) {
+        upstream.connect(down);
+        return;
+      }
+      Throwable t = new LoadShedException("Server is overloaded, shedding " + priority + " priority work");
+      if (recoverer != null) {
+        try {
+          down.success(recoverer.apply(t));
+        } catch (Throwable t2) {
+          down.error(t2);
+        }
+      } else {
+        down.error(t);
+      }
+    };
+  }
+
+}
@@ -1,5 +1,6 @@
 package ratpack.resilience4j;
 
+import ratpack.resilience4j.internal.DefaultKeyFunction;
 import ratpack.resilience4j.internal.DefaultRecoveryFunction;
 
 import java.lang.annotation.Documented;
@@ -22,6 +23,12 @@ import java.lang.annotation.Target;
  * <p/>
  * each time the {@code #fancyName(String)} method is invoked, the method's execution will pass through a
  * rate limiter according to the given rate limiter policy.
+ * <p/>
+ * A method declared to return a {@link java.util.concurrent.CompletionStage} is only invoked once a permission is
+ * granted. A method declared to return a more general type, such as {@code Object}, is invoked before the permission
+ * is checked, because the interceptor only knows it returned a stage afterwards. The stage it returns then completes,
+ * or fails with a {@link io.github.robwin.ratelimiter.RequestNotPermitted}, once the permission is decided, but the
+ * work the method started is not limited.
  */
 @Inherited
 @Documented
@@ -39,4 +46,11 @@ public @interface RateLimit {
    */
   Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
 
+  /**
+   * The Function class that selects a rate limiter per key from the method arguments. The default uses a single
+   * rate limiter for the name.
+   * @return
+   */
+  Class<? extends KeyFunction> key() default DefaultKeyFunction.class;
+
 }
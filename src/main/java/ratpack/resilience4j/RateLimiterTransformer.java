@@ -1,32 +1,66 @@
 package ratpack.resilience4j;
 
 import io.github.robwin.ratelimiter.RateLimiter;
-import io.github.robwin.ratelimiter.RateLimiterConfig;
 import io.github.robwin.ratelimiter.RequestNotPermitted;
 import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
 import ratpack.exec.Upstream;
+import ratpack.func.Factory;
 import ratpack.func.Function;
+import ratpack.resilience4j.internal.AsyncPermission;
+import ratpack.resilience4j.internal.MeasuredDownstream;
+import ratpack.resilience4j.keyed.KeyedRateLimiterRegistry;
+import ratpack.resilience4j.metrics.CallMetrics;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
 
-import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 public class RateLimiterTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
 
   private final RateLimiter rateLimiter;
+  private final KeyedRateLimiterRegistry keyedRegistry;
+  private final String name;
+  private final Factory<?> key;
   private Function<Throwable, ? extends T> recover;
+  private CallMetrics metrics;
 
-  private RateLimiterTransformer(RateLimiter rateLimiter) {
+  private RateLimiterTransformer(RateLimiter rateLimiter, KeyedRateLimiterRegistry keyedRegistry, String name, Factory<?> key) {
     this.rateLimiter = rateLimiter;
+    this.keyedRegistry = keyedRegistry;
+    this.name = name;
+    this.key = key;
   }
 
   /**
    * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
    * The Promised value will pass through the rateLimiter, potentially causing it to rateLimiter on error.
+   * <p>
+   * Waiting for a permission never blocks the compute thread; when the limiter is saturated the execution is
+   * resumed from the event loop scheduler once a permission is available or the limiter timeout has elapsed.
+   * Waiting callers are served in arrival order. Since the limiter cannot reserve a permission in advance, the
+   * wait polls it once per permit interval, so a caller may resume up to one interval after its permission was
+   * issued.
    *
    * @param rateLimiter the rateLimiter to use
    * @return
    */
   public static <T> RateLimiterTransformer<T> of(RateLimiter rateLimiter) {
-    return new RateLimiterTransformer<>(rateLimiter);
+    return new RateLimiterTransformer<>(rateLimiter, null, rateLimiter.getName(), null);
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * Each time the promise is subscribed, the key is computed and the Promised value passes through the rate
+   * limiter for that key.
+   *
+   * @param registry the registry holding a rate limiter per key
+   * @param name the name of the rate limiter whose config is used
+   * @param key the key function, called on the execution that subscribes to the promise
+   * @return
+   */
+  public static <T> RateLimiterTransformer<T> of(KeyedRateLimiterRegistry registry, String name, Factory<?> key) {
+    return new RateLimiterTransformer<>(null, registry, name, key);
   }
 
   /**
@@ -40,40 +74,63 @@ public class RateLimiterTransformer<T> implements Function<Upstream<? extends T>
     return this;
   }
 
+  /**
+   * Record permitted calls and rejections of the rate limiter in the given metrics.
+   *
+   * @param metrics the metrics to record to
+   * @return
+   */
+  public RateLimiterTransformer<T> metrics(ResilienceMetrics metrics) {
+    this.metrics = metrics.rateLimiter(name);
+    return this;
+  }
+
   @Override
   public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
     return down -> {
-      RateLimiterConfig rateLimiterConfig = rateLimiter.getRateLimiterConfig();
-      Duration timeoutDuration = rateLimiterConfig.getTimeoutDuration();
-      boolean permission = rateLimiter.getPermission(timeoutDuration);
-      if (Thread.interrupted()) {
-        throw new IllegalStateException("Thread was interrupted during permission wait");
-      }
-      if (!permission) {
-        Throwable t = new RequestNotPermitted("Request not permitted for limiter: " + rateLimiter.getName());
-        if (recover != null) {
-          down.success(recover.apply(t));
-        } else {
-          down.error(t);
-        }
-      } else {
-        upstream.connect(new Downstream<T>() {
+      RateLimiter rateLimiter = this.rateLimiter != null ? this.rateLimiter : keyedRegistry.rateLimiter(name, key.create());
+      Downstream<Boolean> permitted = new Downstream<Boolean>() {
 
-          @Override
-          public void success(T value) {
-            down.success(value);
+        @Override
+        public void success(Boolean permission) {
+          if (!permission) {
+            if (metrics != null) {
+              metrics.onNotPermitted();
+            }
+            Throwable t = new RequestNotPermitted("Request not permitted for limiter: " + rateLimiter.getName());
+            if (recover != null) {
+              try {
+                down.success(recover.apply(t));
+              } catch (Throwable t2) {
+                down.error(t2);
+              }
+            } else {
+              down.error(t);
+            }
+          } else {
+            try {
+              upstream.connect(metrics != null ? new MeasuredDownstream<>(metrics, down) : down);
+            } catch (Throwable t) {
+              down.error(t);
+            }
           }
+        }
 
-          @Override
-          public void error(Throwable throwable) {
-            down.error(throwable);
-          }
+        @Override
+        public void error(Throwable throwable) {
+          down.error(throwable);
+        }
 
-          @Override
-          public void complete() {
-            down.complete();
-          }
-        });
+        @Override
+        public void complete() {
+          down.complete();
+        }
+      };
+      CompletableFuture<Boolean> permission = AsyncPermission.acquire(rateLimiter, Execution.current().getEventLoop());
+      if (permission.isDone()) {
+        permitted.success(permission.join());
+      } else {
+        Promise.<Boolean>async(d -> d.accept(permission)).connect(permitted);
       }
     };
   }
@@ -1,9 +1,19 @@
 package ratpack.resilience4j;
 
 import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.ratelimiter.RateLimiter;
 import io.github.robwin.retry.Retry;
+import io.github.robwin.retry.RetryConfig;
 import ratpack.exec.Promise;
 import ratpack.func.Function;
+import ratpack.resilience4j.bulkhead.Bulkhead;
+import ratpack.resilience4j.limit.AdaptiveLimiter;
+import ratpack.resilience4j.stream.CircuitBreakerStreamTransformer;
+import ratpack.resilience4j.stream.RateLimiterStreamTransformer;
+import ratpack.resilience4j.stream.RetryStreamTransformer;
+import ratpack.stream.TransformablePublisher;
+
+import java.time.Duration;
 
 
 public class RatpackResilience {
@@ -17,13 +27,79 @@ public class RatpackResilience {
     return promise.transform((CircuitBreakerTransformer<T>)CircuitBreakerTransformer.of(circuitBreaker).recover(recoverer));
   }
 
+  public static <T> Promise<T> rateLimit(Promise<T> promise, RateLimiter rateLimiter) {
+    return promise.transform(RateLimiterTransformer.of(rateLimiter));
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Promise<T> rateLimitRecover(Promise<T> promise, RateLimiter rateLimiter, Function<Throwable, ? extends T> recoverer) {
+    return promise.transform((RateLimiterTransformer<T>)RateLimiterTransformer.of(rateLimiter).recover(recoverer));
+  }
+
+  public static <T> Promise<T> bulkhead(Promise<T> promise, Bulkhead bulkhead) {
+    return promise.transform(BulkheadTransformer.of(bulkhead));
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Promise<T> bulkheadRecover(Promise<T> promise, Bulkhead bulkhead, Function<Throwable, ? extends T> recoverer) {
+    return promise.transform((BulkheadTransformer<T>)BulkheadTransformer.of(bulkhead).recover(recoverer));
+  }
+
+  public static <T> Promise<T> adaptiveLimit(Promise<T> promise, AdaptiveLimiter limiter) {
+    return promise.transform(AdaptiveLimiterTransformer.of(limiter));
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Promise<T> adaptiveLimitRecover(Promise<T> promise, AdaptiveLimiter limiter, Function<Throwable, ? extends T> recoverer) {
+    return promise.transform((AdaptiveLimiterTransformer<T>)AdaptiveLimiterTransformer.of(limiter).recover(recoverer));
+  }
+
+  public static <T> Promise<T> timeLimit(Promise<T> promise, Duration timeout) {
+    return promise.transform(TimeLimiterTransformer.of(timeout));
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Promise<T> timeLimitRecover(Promise<T> promise, Duration timeout, Function<Throwable, ? extends T> recoverer) {
+    return promise.transform((TimeLimiterTransformer<T>)TimeLimiterTransformer.of(timeout).recover(recoverer));
+  }
+
+  public static <T> Promise<T> retry(Promise<T> promise, String name, RetryConfig retryConfig) {
+    return promise.transform(RetryTransformer.of(name, retryConfig));
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Promise<T> retryRecover(Promise<T> promise, String name, RetryConfig retryConfig, Function<Throwable, ? extends T> recoverer) {
+    return promise.transform((RetryTransformer<T>)RetryTransformer.<T>of(name, retryConfig).recover(recoverer));
+  }
+
+  /**
+   * @deprecated blocks the execution's thread between attempts, use {@link #retry(Promise, String, RetryConfig)}
+   */
+  @Deprecated
   public static <T> Promise<T> retry(Promise<T> promise, Retry retry) {
     return promise.transform(RetryTransformer.of(retry));
   }
 
+  /**
+   * @deprecated blocks the execution's thread between attempts, use
+   * {@link #retryRecover(Promise, String, RetryConfig, Function)}
+   */
+  @Deprecated
   @SuppressWarnings("unchecked")
   public static <T> Promise<T> retryRecover(Promise<T> promise, Retry retry, Function<Throwable, ? extends T> recoverer) {
     return promise.transform((RetryTransformer<T>)RetryTransformer.of(retry).recover(recoverer));
   }
 
+  public static <T> TransformablePublisher<T> breaker(TransformablePublisher<T> publisher, CircuitBreaker circuitBreaker) {
+    return publisher.transform(CircuitBreakerStreamTransformer.of(circuitBreaker));
+  }
+
+  public static <T> TransformablePublisher<T> rateLimit(TransformablePublisher<T> publisher, RateLimiter rateLimiter) {
+    return publisher.transform(RateLimiterStreamTransformer.of(rateLimiter));
+  }
+
+  public static <T> TransformablePublisher<T> retry(TransformablePublisher<T> publisher, RetryConfig retryConfig) {
+    return publisher.transform(RetryStreamTransformer.of(retryConfig));
+  }
+
 }
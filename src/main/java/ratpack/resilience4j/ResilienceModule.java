@@ -1,18 +1,124 @@
 package ratpack.resilience4j;
 
+import com.google.inject.Injector;
+import com.google.inject.Provider;
 import com.google.inject.matcher.Matchers;
+import com.google.inject.multibindings.OptionalBinder;
 import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
 import io.github.robwin.ratelimiter.RateLimiterRegistry;
+import ratpack.func.Factory;
 import ratpack.guice.ConfigurableModule;
+import ratpack.resilience4j.budget.RetryBudgetRegistry;
+import ratpack.resilience4j.bulkhead.BulkheadRegistry;
+import ratpack.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import ratpack.resilience4j.batch.BatcherRegistry;
+import ratpack.resilience4j.coalesce.CoalescerRegistry;
+import ratpack.resilience4j.config.BulkheadDefinition;
+import ratpack.resilience4j.config.CircuitBreakerDefinition;
+import ratpack.resilience4j.config.RateLimiterDefinition;
+import ratpack.resilience4j.config.ReloadableCircuitBreakerRegistry;
+import ratpack.resilience4j.config.ReloadableRateLimiterRegistry;
+import ratpack.resilience4j.config.ResilienceReloader;
+import ratpack.resilience4j.config.RetryConfigRegistry;
+import ratpack.resilience4j.config.RetryDefinition;
+import ratpack.resilience4j.fallback.FallbackCacheRegistry;
+import ratpack.resilience4j.internal.AdaptiveLimiterMethodInterceptor;
+import ratpack.resilience4j.internal.BulkheadMethodInterceptor;
 import ratpack.resilience4j.internal.CircuitBreakerMethodInterceptor;
+import ratpack.resilience4j.internal.BatchingMethodInterceptor;
+import ratpack.resilience4j.internal.CoalescingMethodInterceptor;
+import ratpack.resilience4j.internal.EnabledMetricsProvider;
+import ratpack.resilience4j.internal.LoadSheddingMethodInterceptor;
 import ratpack.resilience4j.internal.RateLimiterMethodInterceptor;
+import ratpack.resilience4j.internal.ResilienceConfigService;
+import ratpack.resilience4j.internal.ResilienceMetricsService;
+import ratpack.resilience4j.internal.ResilienceTypeListener;
+import ratpack.resilience4j.internal.ResilientMethodInterceptor;
+import ratpack.resilience4j.internal.ThreadPoolBulkheadMethodInterceptor;
+import ratpack.resilience4j.internal.TimeLimiterMethodInterceptor;
+import ratpack.resilience4j.keyed.KeyedBulkheadRegistry;
+import ratpack.resilience4j.keyed.KeyedCircuitBreakerRegistry;
+import ratpack.resilience4j.keyed.KeyedRateLimiterRegistry;
+import ratpack.resilience4j.limit.AdaptiveLimiterRegistry;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+import ratpack.resilience4j.shed.LoadShedder;
+import ratpack.resilience4j.window.SlidingWindowCircuitBreakerRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ResilienceModule extends ConfigurableModule<ResilienceModule.ResilienceConfig> {
 
   @Override
   protected void configure() {
-    bindInterceptor(Matchers.any(), Matchers.annotatedWith(CircuitBreak.class), injected(new CircuitBreakerMethodInterceptor(getProvider(CircuitBreakerRegistry.class))));
-    bindInterceptor(Matchers.any(), Matchers.annotatedWith(RateLimit.class), injected(new RateLimiterMethodInterceptor(getProvider(RateLimiterRegistry.class))));
+    bind(ResilienceMetricsService.class);
+    bind(ResilienceConfigService.class);
+    // defaults only, so that registries bound by the application take their place
+    OptionalBinder.newOptionalBinder(binder(), CircuitBreakerRegistry.class).setDefault().to(ReloadableCircuitBreakerRegistry.class);
+    OptionalBinder.newOptionalBinder(binder(), RateLimiterRegistry.class).setDefault().to(ReloadableRateLimiterRegistry.class);
+    OptionalBinder.newOptionalBinder(binder(), RetryConfigRegistry.class).setDefault().toInstance(new RetryConfigRegistry());
+    OptionalBinder.newOptionalBinder(binder(), BulkheadRegistry.class).setDefault().toInstance(new BulkheadRegistry());
+    OptionalBinder.newOptionalBinder(binder(), SlidingWindowCircuitBreakerRegistry.class).setDefault().toInstance(new SlidingWindowCircuitBreakerRegistry());
+    // bound rather than created on demand, so that the server stops its pools
+    OptionalBinder.newOptionalBinder(binder(), ThreadPoolBulkheadRegistry.class).setDefault().toInstance(ThreadPoolBulkheadRegistry.ofDefaults());
+    ResilienceReloader reloader = new ResilienceReloader(getProvider(ResilienceConfig.class), getProvider(CircuitBreakerRegistry.class), getProvider(RateLimiterRegistry.class),
+      getProvider(RetryConfigRegistry.class), getProvider(BulkheadRegistry.class));
+    bind(ResilienceReloader.class).toInstance(reloader);
+    EnabledMetricsProvider metrics = new EnabledMetricsProvider(getProvider(ResilienceConfig.class), getProvider(ResilienceMetrics.class));
+    LoadSheddingMethodInterceptor loadSheddingInterceptor = injected(new LoadSheddingMethodInterceptor(getProvider(LoadShedder.class), getProvider(Injector.class)));
+    CoalescingMethodInterceptor coalescingInterceptor = injected(new CoalescingMethodInterceptor(getProvider(CoalescerRegistry.class), getProvider(Injector.class)));
+    BatchingMethodInterceptor batchingInterceptor = injected(new BatchingMethodInterceptor(getProvider(BatcherRegistry.class), getProvider(Injector.class), getProvider(CircuitBreakerRegistry.class),
+      getProvider(RateLimiterRegistry.class), getProvider(RetryConfigRegistry.class)));
+    CircuitBreakerMethodInterceptor breakerInterceptor = injected(new CircuitBreakerMethodInterceptor(getProvider(CircuitBreakerRegistry.class), getProvider(Injector.class), metrics, getProvider(KeyedCircuitBreakerRegistry.class),
+      getProvider(FallbackCacheRegistry.class), getProvider(ResilienceConfig.class), getProvider(SlidingWindowCircuitBreakerRegistry.class)));
+    RateLimiterMethodInterceptor rateLimiterInterceptor = injected(new RateLimiterMethodInterceptor(getProvider(RateLimiterRegistry.class), getProvider(Injector.class), metrics, getProvider(KeyedRateLimiterRegistry.class),
+      getProvider(ResilienceConfig.class)));
+    BulkheadMethodInterceptor bulkheadInterceptor = injected(new BulkheadMethodInterceptor(getProvider(BulkheadRegistry.class), getProvider(Injector.class), metrics));
+    AdaptiveLimiterMethodInterceptor adaptiveLimiterInterceptor = injected(new AdaptiveLimiterMethodInterceptor(getProvider(AdaptiveLimiterRegistry.class), getProvider(Injector.class), metrics));
+    ResilientMethodInterceptor resilientInterceptor = injected(new ResilientMethodInterceptor(getProvider(CircuitBreakerRegistry.class), getProvider(RateLimiterRegistry.class),
+      getProvider(BulkheadRegistry.class), getProvider(Injector.class), metrics, getProvider(RetryBudgetRegistry.class), getProvider(RetryConfigRegistry.class)));
+    TimeLimiterMethodInterceptor timeLimiterInterceptor = injected(new TimeLimiterMethodInterceptor(getProvider(Injector.class)));
+    ThreadPoolBulkheadMethodInterceptor threadPoolBulkheadInterceptor = injected(new ThreadPoolBulkheadMethodInterceptor(getProvider(ThreadPoolBulkheadRegistry.class), getProvider(Injector.class)));
+    // bound first so that shed work costs nothing else
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(ShedLoad.class), loadSheddingInterceptor);
+    // bound next so that duplicate calls are coalesced before they reach any other policy
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(Coalesce.class), coalescingInterceptor);
+    // batched methods are not invoked, so the policies of the batch are declared on the annotation itself
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(Batch.class), batchingInterceptor);
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(CircuitBreak.class), breakerInterceptor);
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(RateLimit.class), rateLimiterInterceptor);
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(Bulkhead.class), bulkheadInterceptor);
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(AdaptiveLimit.class), adaptiveLimiterInterceptor);
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(Resilient.class), resilientInterceptor);
+    // bound after the other policies so that time limits apply inside them, which then see timeouts as failures
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(TimeLimit.class), timeLimiterInterceptor);
+    // innermost, since it moves the rest of the invocation to another thread
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(ThreadPoolBulkhead.class), threadPoolBulkheadInterceptor);
+    // instances that were replaced by a reload are looked up again on the next invocation
+    reloader.onReload(breakerInterceptor::invalidate)
+      .onReload(rateLimiterInterceptor::invalidate)
+      .onReload(resilientInterceptor::invalidate)
+      .onReload(batchingInterceptor::invalidate);
+    // keyed instances copy the config of their name when created
+    Provider<KeyedCircuitBreakerRegistry> keyedCircuitBreakers = getProvider(KeyedCircuitBreakerRegistry.class);
+    Provider<KeyedRateLimiterRegistry> keyedRateLimiters = getProvider(KeyedRateLimiterRegistry.class);
+    Provider<KeyedBulkheadRegistry> keyedBulkheads = getProvider(KeyedBulkheadRegistry.class);
+    reloader.onReload(() -> keyedCircuitBreakers.get().invalidate())
+      .onReload(() -> keyedRateLimiters.get().invalidate())
+      .onReload(() -> keyedBulkheads.get().reconfigure());
+    bindListener(Matchers.any(), new ResilienceTypeListener()
+      .beforePreparing(reloader::initialize)
+      .register(ShedLoad.class, loadSheddingInterceptor::prepare)
+      .register(Coalesce.class, coalescingInterceptor::prepare)
+      .register(Batch.class, batchingInterceptor::prepare)
+      .register(CircuitBreak.class, breakerInterceptor::prepare)
+      .register(RateLimit.class, rateLimiterInterceptor::prepare)
+      .register(Bulkhead.class, bulkheadInterceptor::prepare)
+      .register(AdaptiveLimit.class, adaptiveLimiterInterceptor::prepare)
+      .register(Resilient.class, resilientInterceptor::prepare)
+      .register(TimeLimit.class, timeLimiterInterceptor::prepare)
+      .register(ThreadPoolBulkhead.class, threadPoolBulkheadInterceptor::prepare));
   }
 
   private <T> T injected(T instance) {
@@ -22,11 +128,151 @@ public class ResilienceModule extends ConfigurableModule<ResilienceModule.Resili
 
   public static class ResilienceConfig {
     private boolean enableMetrics = false;
+    private boolean resumeOnEventLoop = false;
+    private Map<String, CircuitBreakerDefinition> circuitBreakers = new LinkedHashMap<>();
+    private Map<String, RateLimiterDefinition> rateLimiters = new LinkedHashMap<>();
+    private Map<String, RetryDefinition> retries = new LinkedHashMap<>();
+    private Map<String, BulkheadDefinition> bulkheads = new LinkedHashMap<>();
+    private Duration reloadInterval;
+    private Factory<? extends ResilienceConfig> reloadSource;
 
     public ResilienceConfig enableMetrics(boolean enableMetrics) {
       this.enableMetrics = enableMetrics;
       return this;
     }
 
+    /**
+     * Complete the CompletionStage results of intercepted methods on the calling execution's event loop, rather than
+     * on the thread that completed the stage.
+     *
+     * @param resumeOnEventLoop whether to resume on the event loop
+     * @return
+     */
+    public ResilienceConfig resumeOnEventLoop(boolean resumeOnEventLoop) {
+      this.resumeOnEventLoop = resumeOnEventLoop;
+      return this;
+    }
+
+    /**
+     * Define the circuit breaker with the given name, which is created when the server starts.
+     *
+     * @param name the name of the circuit breaker
+     * @param definition the settings of the circuit breaker
+     * @return
+     */
+    public ResilienceConfig circuitBreaker(String name, CircuitBreakerDefinition definition) {
+      circuitBreakers.put(name, definition);
+      return this;
+    }
+
+    /**
+     * Define the rate limiter with the given name, which is created when the server starts.
+     *
+     * @param name the name of the rate limiter
+     * @param definition the settings of the rate limiter
+     * @return
+     */
+    public ResilienceConfig rateLimiter(String name, RateLimiterDefinition definition) {
+      rateLimiters.put(name, definition);
+      return this;
+    }
+
+    /**
+     * Define the retry with the given name, see {@link Resilient#retry()}.
+     *
+     * @param name the name of the retry
+     * @param definition the settings of the retry
+     * @return
+     */
+    public ResilienceConfig retry(String name, RetryDefinition definition) {
+      retries.put(name, definition);
+      return this;
+    }
+
+    /**
+     * Define the bulkhead with the given name, which is created when the server starts.
+     *
+     * @param name the name of the bulkhead
+     * @param definition the settings of the bulkhead
+     * @return
+     */
+    public ResilienceConfig bulkhead(String name, BulkheadDefinition definition) {
+      bulkheads.put(name, definition);
+      return this;
+    }
+
+    /**
+     * Poll the given source for new definitions at a fixed interval while the server runs, and apply them with
+     * {@link ResilienceReloader#reload(ResilienceConfig)}. A source that fails keeps the definitions in place.
+     *
+     * @param interval the time between polls
+     * @param source the source of the config, for example {@code ConfigData} read from a file
+     * @return
+     */
+    public ResilienceConfig reloadFrom(Duration interval, Factory<? extends ResilienceConfig> source) {
+      if (interval.isNegative() || interval.isZero()) {
+        throw new IllegalArgumentException("interval must be positive");
+      }
+      this.reloadInterval = interval;
+      this.reloadSource = source;
+      return this;
+    }
+
+    public boolean isEnableMetrics() {
+      return enableMetrics;
+    }
+
+    public void setEnableMetrics(boolean enableMetrics) {
+      this.enableMetrics = enableMetrics;
+    }
+
+    public boolean isResumeOnEventLoop() {
+      return resumeOnEventLoop;
+    }
+
+    public void setResumeOnEventLoop(boolean resumeOnEventLoop) {
+      this.resumeOnEventLoop = resumeOnEventLoop;
+    }
+
+    public Map<String, CircuitBreakerDefinition> getCircuitBreakers() {
+      return circuitBreakers;
+    }
+
+    public void setCircuitBreakers(Map<String, CircuitBreakerDefinition> circuitBreakers) {
+      this.circuitBreakers = circuitBreakers;
+    }
+
+    public Map<String, RateLimiterDefinition> getRateLimiters() {
+      return rateLimiters;
+    }
+
+    public void setRateLimiters(Map<String, RateLimiterDefinition> rateLimiters) {
+      this.rateLimiters = rateLimiters;
+    }
+
+    public Map<String, RetryDefinition> getRetries() {
+      return retries;
+    }
+
+    public void setRetries(Map<String, RetryDefinition> retries) {
+      this.retries = retries;
+    }
+
+    public Map<String, BulkheadDefinition> getBulkheads() {
+      return bulkheads;
+    }
+
+    public void setBulkheads(Map<String, BulkheadDefinition> bulkheads) {
+      this.bulkheads = bulkheads;
+    }
+
+    public Duration getReloadInterval() {
+      return reloadInterval;
+    }
+
+    public Factory<? extends ResilienceConfig> getReloadSource() {
+      return reloadSource;
+    }
+
   }
 }
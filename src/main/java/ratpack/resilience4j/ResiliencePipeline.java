@@ -0,0 +1,474 @@
+package ratpack.resilience4j;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RequestNotPermitted;
+import io.github.robwin.retry.RetryConfig;
+import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+import ratpack.resilience4j.budget.RetryBudget;
+import ratpack.resilience4j.bulkhead.Bulkhead;
+import ratpack.resilience4j.bulkhead.BulkheadFullException;
+import ratpack.resilience4j.internal.AsyncPermission;
+import ratpack.resilience4j.internal.Backoff;
+import ratpack.resilience4j.internal.CircuitBreakers;
+import ratpack.resilience4j.internal.Delays;
+import ratpack.resilience4j.metrics.CallMetrics;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single transformer that applies any combination of a retry, circuit breaker, rate limiter, bulkhead and
+ * time limit to a promise, instead of chaining one transformer per policy.
+ * <p>
+ * The policies always apply in this order, from the outside in:
+ * <pre>
+ *   retry ( circuit breaker ( rate limiter ( bulkhead ( time limit ( promise ) ) ) ) )
+ * </pre>
+ * Each attempt is timed once. Any failure of the promise, including a timeout, is recorded by the circuit breaker. A
+ * rejection by the rate limiter or bulkhead is not, since it says nothing about the health of the dependency. Every
+ * failure, including an open circuit and a rejection, is offered to the retry. The recovery function applies once, to the failure of the last attempt.
+ * <p>
+ * Without a time limit, all attempts of a subscription signal through one {@link Downstream}.
+ */
+public class ResiliencePipeline<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private RetryConfig retryConfig;
+  private Backoff backoff = Backoff.NONE;
+  private RetryBudget retryBudget;
+  private CircuitBreaker circuitBreaker;
+  private RateLimiter rateLimiter;
+  private Bulkhead bulkhead;
+  private Duration timeout;
+  private Function<Throwable, ? extends T> recoverer;
+  private ResilienceMetrics metrics;
+
+  private ResiliencePipeline() {
+  }
+
+  /**
+   * Create a new pipeline that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * Without any policies, the Promised value passes through unchanged.
+   *
+   * @return
+   */
+  public static <T> ResiliencePipeline<T> of() {
+    return new ResiliencePipeline<>();
+  }
+
+  /**
+   * Retry failed attempts, waiting the configured wait duration between attempts on the event loop, grown and
+   * randomized by {@link #backoff(double, Duration)} and {@link #jitter(double)} if set.
+   *
+   * @param retryConfig the retry config to use
+   * @return
+   */
+  public ResiliencePipeline<T> retry(RetryConfig retryConfig) {
+    this.retryConfig = retryConfig;
+    return this;
+  }
+
+  /**
+   * Grow the wait between attempts exponentially, as {@link RetryTransformer#backoff(double, Duration)} does. Has no
+   * effect without a retry.
+   *
+   * @param multiplier the factor applied to the wait after each failed attempt
+   * @param maxInterval the upper bound of the wait between attempts
+   * @return
+   */
+  public ResiliencePipeline<T> backoff(double multiplier, Duration maxInterval) {
+    this.backoff = backoff.exponential(multiplier, maxInterval);
+    return this;
+  }
+
+  /**
+   * Randomize the wait between attempts by up to the given fraction in either direction, as
+   * {@link RetryTransformer#jitter(double)} does. Has no effect without a retry.
+   *
+   * @param jitter the randomization factor, between 0 and 1
+   * @return
+   */
+  public ResiliencePipeline<T> jitter(double jitter) {
+    this.backoff = backoff.jitter(jitter);
+    return this;
+  }
+
+  /**
+   * Only retry while the given budget, shared with other callers of the same dependency, allows it. Has no effect
+   * without a retry.
+   *
+   * @param retryBudget the retry budget to use
+   * @return
+   */
+  public ResiliencePipeline<T> retryBudget(RetryBudget retryBudget) {
+    this.retryBudget = retryBudget;
+    return this;
+  }
+
+  /**
+   * @param circuitBreaker the circuit breaker to use
+   * @return
+   */
+  public ResiliencePipeline<T> circuitBreaker(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+    return this;
+  }
+
+  /**
+   * @param rateLimiter the rate limiter to use
+   * @return
+   */
+  public ResiliencePipeline<T> rateLimiter(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+    return this;
+  }
+
+  /**
+   * @param bulkhead the bulkhead to use
+   * @return
+   */
+  public ResiliencePipeline<T> bulkhead(Bulkhead bulkhead) {
+    this.bulkhead = bulkhead;
+    return this;
+  }
+
+  /**
+   * Fail each attempt with a {@link TimeoutException} if the promise does not complete within the timeout.
+   *
+   * @param timeout the maximum time to wait for each attempt
+   * @return
+   */
+  public ResiliencePipeline<T> timeout(Duration timeout) {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive");
+    }
+    this.timeout = timeout;
+    return this;
+  }
+
+  /**
+   * Set a recovery function that will execute when the last attempt fails.
+   *
+   * @param recoverer the recovery function
+   * @return
+   */
+  public ResiliencePipeline<T> recover(Function<Throwable, ? extends T> recoverer) {
+    this.recoverer = recoverer;
+    return this;
+  }
+
+  /**
+   * Record calls and rejections of the circuit breaker in the given metrics. Has no effect without a circuit breaker,
+   * which may be set before or after the metrics.
+   *
+   * @param metrics the metrics to record to
+   * @return
+   */
+  public ResiliencePipeline<T> metrics(ResilienceMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  @Override
+  public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    CallMetrics callMetrics = metrics != null && circuitBreaker != null ? metrics.circuitBreaker(circuitBreaker.getName()) : null;
+    return down -> new Call(upstream, down, callMetrics).attempt();
+  }
+
+  private final class Call implements Downstream<T> {
+
+    private final Upstream<? extends T> upstream;
+    private final Downstream<? super T> down;
+    private final CallMetrics metrics;
+    private int attempts;
+    private long start;
+    private boolean holdsPermit;
+    private boolean settled;
+
+    private Call(Upstream<? extends T> upstream, Downstream<? super T> down, CallMetrics metrics) {
+      this.upstream = upstream;
+      this.down = down;
+      this.metrics = metrics;
+    }
+
+    private void attempt() {
+      if (circuitBreaker != null && !circuitBreaker.isCallPermitted()) {
+        if (metrics != null) {
+          metrics.onNotPermitted();
+        }
+        failed(CircuitBreakers.openException(circuitBreaker));
+        return;
+      }
+      start = System.nanoTime();
+      if (rateLimiter == null) {
+        rateLimited(true);
+        return;
+      }
+      CompletableFuture<Boolean> permission = AsyncPermission.acquire(rateLimiter, Execution.current().getEventLoop());
+      if (permission.isDone()) {
+        rateLimited(permission.join());
+      } else {
+        Promise.<Boolean>async(d -> d.accept(permission)).connect(new Downstream<Boolean>() {
+
+          @Override
+          public void success(Boolean permitted) {
+            rateLimited(permitted);
+          }
+
+          @Override
+          public void error(Throwable throwable) {
+            rejected(throwable);
+          }
+
+          @Override
+          public void complete() {
+            Call.this.complete();
+          }
+        });
+      }
+    }
+
+    private void rateLimited(boolean permitted) {
+      if (!permitted) {
+        rejected(new RequestNotPermitted("Request not permitted for limiter: " + rateLimiter.getName()));
+        return;
+      }
+      if (bulkhead == null) {
+        invoke();
+        return;
+      }
+      CompletableFuture<Boolean> permit = bulkhead.acquire(Execution.current().getEventLoop());
+      if (permit.isDone()) {
+        bulkheaded(permit.join());
+      } else {
+        Promise.<Boolean>async(d -> d.accept(permit)).connect(new Downstream<Boolean>() {
+
+          @Override
+          public void success(Boolean permitted) {
+            bulkheaded(permitted);
+          }
+
+          @Override
+          public void error(Throwable throwable) {
+            rejected(throwable);
+          }
+
+          @Override
+          public void complete() {
+            Call.this.complete();
+          }
+        });
+      }
+    }
+
+    private void bulkheaded(boolean permitted) {
+      if (!permitted) {
+        rejected(new BulkheadFullException("Bulkhead " + bulkhead.getName() + " is full"));
+        return;
+      }
+      holdsPermit = true;
+      invoke();
+    }
+
+    private void invoke() {
+      settled = false;
+      try {
+        if (timeout == null) {
+          upstream.connect(this);
+        } else {
+          boolean permit = holdsPermit;
+          holdsPermit = false;
+          Promise.<T>async(limited -> new TimedAttempt<T>(upstream, limited, permit ? bulkhead : null, timeout).start()).connect(this);
+        }
+      } catch (Throwable t) {
+        error(t);
+      }
+    }
+
+    @Override
+    public void success(T value) {
+      if (!settle()) {
+        return;
+      }
+      if (circuitBreaker != null) {
+        long nanos = System.nanoTime() - start;
+        circuitBreaker.onSuccess(Duration.ofNanos(nanos));
+        if (metrics != null) {
+          metrics.onSuccess(nanos);
+        }
+      }
+      if (retryBudget != null && attempts == 0) {
+        retryBudget.deposit();
+      }
+      down.success(value);
+    }
+
+    @Override
+    public void error(Throwable throwable) {
+      if (!settle()) {
+        return;
+      }
+      if (circuitBreaker != null) {
+        long nanos = System.nanoTime() - start;
+        circuitBreaker.onError(Duration.ofNanos(nanos), throwable);
+        if (metrics != null) {
+          metrics.onError(nanos);
+        }
+      }
+      failed(throwable);
+    }
+
+    @Override
+    public void complete() {
+      if (!settle()) {
+        return;
+      }
+      if (circuitBreaker != null) {
+        CircuitBreakers.release(circuitBreaker);
+      }
+      down.complete();
+    }
+
+    private void rejected(Throwable throwable) {
+      // the attempt never reached the upstream, so the circuit breaker only gets its permission back
+      if (circuitBreaker != null) {
+        CircuitBreakers.release(circuitBreaker);
+      }
+      failed(throwable);
+    }
+
+    /**
+     * Take the first signal of the attempt and return its bulkhead permit. An upstream that throws after it signalled
+     * reaches {@link #error(Throwable)} too, and that second signal must neither release nor retry again.
+     */
+    private boolean settle() {
+      if (settled) {
+        return false;
+      }
+      settled = true;
+      if (holdsPermit) {
+        holdsPermit = false;
+        bulkhead.release();
+      }
+      return true;
+    }
+
+    private void failed(Throwable throwable) {
+      if (retryConfig != null && retryConfig.getExceptionPredicate().test(throwable) && ++attempts < retryConfig.getMaxAttempts()
+        && (retryBudget == null || retryBudget.tryWithdraw())) {
+        Delays.sleep(backoff.delayNanos(retryConfig.getWaitDuration(), attempts)).connect(new Downstream<Void>() {
+
+          @Override
+          public void success(Void value) {
+            attempt();
+          }
+
+          @Override
+          public void error(Throwable t) {
+            recover(t);
+          }
+
+          @Override
+          public void complete() {
+            down.complete();
+          }
+        });
+      } else {
+        recover(throwable);
+      }
+    }
+
+    private void recover(Throwable throwable) {
+      if (recoverer != null) {
+        try {
+          down.success(recoverer.apply(throwable));
+        } catch (Throwable t) {
+          down.error(t);
+        }
+      } else {
+        down.error(throwable);
+      }
+    }
+
+  }
+
+  /**
+   * One attempt under a time limit. The bulkhead permit, if any, is returned when the upstream signals, even if
+   * the attempt timed out before then, since the call is in flight until it does.
+   */
+  private static final class TimedAttempt<T> implements Downstream<T> {
+
+    private final Upstream<? extends T> upstream;
+    private final Downstream<? super T> limited;
+    private final Bulkhead bulkhead;
+    private final Duration timeout;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicBoolean released = new AtomicBoolean();
+    private ScheduledFuture<?> deadline;
+
+    private TimedAttempt(Upstream<? extends T> upstream, Downstream<? super T> limited, Bulkhead bulkhead, Duration timeout) {
+      this.upstream = upstream;
+      this.limited = limited;
+      this.bulkhead = bulkhead;
+      this.timeout = timeout;
+    }
+
+    private void start() {
+      deadline = Execution.current().getEventLoop().schedule(() -> {
+        if (done.compareAndSet(false, true)) {
+          limited.error(new TimeoutException("Promise did not complete within " + timeout));
+        }
+      }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+      try {
+        upstream.connect(this);
+      } catch (Throwable t) {
+        error(t);
+      }
+    }
+
+    @Override
+    public void success(T value) {
+      release();
+      if (done.compareAndSet(false, true)) {
+        deadline.cancel(false);
+        limited.success(value);
+      }
+    }
+
+    @Override
+    public void error(Throwable throwable) {
+      release();
+      if (done.compareAndSet(false, true)) {
+        deadline.cancel(false);
+        limited.error(throwable);
+      }
+    }
+
+    @Override
+    public void complete() {
+      release();
+      if (done.compareAndSet(false, true)) {
+        deadline.cancel(false);
+        limited.complete();
+      }
+    }
+
+    private void release() {
+      // an upstream that throws after it signalled reaches error as well
+      if (bulkhead != null && released.compareAndSet(false, true)) {
+        bulkhead.release();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,86 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.internal.DefaultRecoveryFunction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An annotation for marking a method of an annotated object as passing through a {@link ResiliencePipeline}.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}Resilient(circuitBreaker = "backend", rateLimiter = "backend", retryAttempts = 3, timeout = 500)
+ *     public Promise&lt;String&gt; fancyName(String name) {
+ *         return Promise.value("Sir Captain " + name);
+ *     }
+ * </code></pre>
+ * <p/>
+ * each time the {@code #fancyName(String)} method is invoked, the returned promise will pass through each of the
+ * configured policies in the order documented by {@link ResiliencePipeline}. Policies that are not named are not
+ * applied. Only methods returning a Promise are handled; other methods are invoked unchanged.
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface Resilient {
+  /**
+   * @return The name of the circuit breaker. It will be looked up the circuit breaker registry.
+   */
+  String circuitBreaker() default "";
+
+  /**
+   * @return The name of the rate limiter. It will be looked up the rate limiter registry.
+   */
+  String rateLimiter() default "";
+
+  /**
+   * @return The name of the bulkhead. It will be looked up the bulkhead registry.
+   */
+  String bulkhead() default "";
+
+  /**
+   * @return The name of a retry definition, looked up in the retry config registry. When set, it takes the place of
+   * {@link #retryAttempts()} and {@link #retryWait()}.
+   */
+  String retry() default "";
+
+  /**
+   * @return The maximum number of attempts, including the first. The default of 1 does not retry.
+   */
+  int retryAttempts() default 1;
+
+  /**
+   * @return The time to wait between attempts, in milliseconds.
+   */
+  long retryWait() default 500;
+
+  /**
+   * @return The name of a retry budget, looked up in the retry budget registry, that caps retries across all callers.
+   * The default does not limit retries beyond the attempts of each call.
+   */
+  String retryBudget() default "";
+
+  /**
+   * @return The maximum time to wait for each attempt. The default of 0 does not limit the time.
+   */
+  long timeout() default 0;
+
+  /**
+   * @return The unit of the timeout. The default is milliseconds.
+   */
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+  /**
+   * The Function class that returns a fallback value. The default is a noop.
+   * @return
+   */
+  Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
+
+}
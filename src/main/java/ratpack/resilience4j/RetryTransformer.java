@@ -1,28 +1,65 @@
 package ratpack.resilience4j;
 
 import io.github.robwin.retry.Retry;
+import io.github.robwin.retry.RetryConfig;
 import ratpack.exec.Downstream;
 import ratpack.exec.Upstream;
 import ratpack.func.Function;
+import ratpack.resilience4j.budget.RetryBudget;
+import ratpack.resilience4j.internal.Backoff;
+import ratpack.resilience4j.internal.Delays;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+import ratpack.resilience4j.metrics.RetryMetrics;
+
+import java.time.Duration;
 
 public class RetryTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
 
   private final Retry retry;
+  private final String name;
+  private final RetryConfig retryConfig;
   private Function<Throwable, ? extends T> recoverer;
+  private Backoff backoff = Backoff.NONE;
+  private RetryMetrics metrics;
+  private RetryBudget budget;
 
-  private RetryTransformer(Retry retry) {
+  private RetryTransformer(Retry retry, String name, RetryConfig retryConfig) {
     this.retry = retry;
+    this.name = name;
+    this.retryConfig = retryConfig;
   }
 
   /**
    * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
    * The Promised value will pass through the retry, potentially causing it to retry on error.
+   * <p>
+   * Waiting between attempts is delegated to the given retry, which sleeps on the thread that failed, and its attempts
+   * are counted across every promise that shares it. A {@link Retry} does not expose its config, so it cannot be
+   * waited for on the event loop.
    *
    * @param retry the retry to use
    * @return
+   * @deprecated blocks the execution's thread between attempts, use {@link #of(String, RetryConfig)} to wait on the
+   * event loop instead
    */
+  @Deprecated
   public static <T> RetryTransformer<T> of(Retry retry) {
-    return new RetryTransformer<>(retry);
+    return new RetryTransformer<>(retry, retry.getName(), null);
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * The Promised value will pass through a retry built from the given config, potentially causing it to retry on error.
+   * <p>
+   * Attempts are counted per subscription. The wait between attempts starts at the configured wait duration and is
+   * scheduled on the execution's event loop, so no thread is held while waiting.
+   *
+   * @param name the name of the retry
+   * @param retryConfig the retry config to use
+   * @return
+   */
+  public static <T> RetryTransformer<T> of(String name, RetryConfig retryConfig) {
+    return new RetryTransformer<>(null, name, retryConfig);
   }
 
   /**
@@ -36,42 +73,168 @@ public class RetryTransformer<T> implements Function<Upstream<? extends T>, Upst
     return this;
   }
 
+  /**
+   * Grow the wait between attempts exponentially. Only applies to transformers created from a {@link RetryConfig}.
+   *
+   * @param multiplier the factor applied to the wait after each failed attempt
+   * @param maxInterval the upper bound of the wait between attempts
+   * @return
+   */
+  public RetryTransformer<T> backoff(double multiplier, Duration maxInterval) {
+    this.backoff = backoff.exponential(multiplier, maxInterval);
+    return this;
+  }
+
+  /**
+   * Randomize the wait between attempts by up to the given fraction in either direction, so that callers
+   * failing at the same time do not retry at the same time. Only applies to transformers created from a {@link RetryConfig}.
+   *
+   * @param jitter the randomization factor, between 0 and 1
+   * @return
+   */
+  public RetryTransformer<T> jitter(double jitter) {
+    this.backoff = backoff.jitter(jitter);
+    return this;
+  }
+
+  /**
+   * Only retry while the given budget, shared with other callers of the same dependency, allows it. Successful first
+   * attempts deposit into the budget, and a failed attempt is not retried if the budget is empty.
+   *
+   * @param budget the retry budget to use
+   * @return
+   */
+  public RetryTransformer<T> budget(RetryBudget budget) {
+    this.budget = budget;
+    return this;
+  }
+
+  /**
+   * Record attempts and outcomes of the retry in the given metrics.
+   *
+   * @param metrics the metrics to record to
+   * @return
+   */
+  public RetryTransformer<T> metrics(ResilienceMetrics metrics) {
+    this.metrics = metrics.retry(name);
+    return this;
+  }
+
+  /**
+   * @return the name of the retry
+   */
+  public String getName() {
+    return name;
+  }
+
   @Override
   public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
-    return down -> {
-      Downstream<T> downstream = new Downstream<T>() {
+    return down -> upstream.connect(new RetryDownstream(upstream, down));
+  }
 
-        @Override
-        public void success(T value) {
-          retry.onSuccess();
-          down.success(value);
+  private class RetryDownstream implements Downstream<T> {
+
+    private final Upstream<? extends T> upstream;
+    private final Downstream<? super T> down;
+    private int attempts;
+    private int retries;
+
+    RetryDownstream(Upstream<? extends T> upstream, Downstream<? super T> down) {
+      this.upstream = upstream;
+      this.down = down;
+    }
+
+    @Override
+    public void success(T value) {
+      if (retry != null) {
+        retry.onSuccess();
+      }
+      if (budget != null && retries == 0) {
+        budget.deposit();
+      }
+      if (metrics != null) {
+        metrics.onSuccess(retries);
+      }
+      down.success(value);
+    }
+
+    @Override
+    public void error(Throwable throwable) {
+      long delay;
+      try {
+        delay = nextDelay(throwable);
+      } catch (Throwable t) {
+        if (metrics != null) {
+          metrics.onError(retries);
         }
+        recover(t);
+        return;
+      }
+      retries++;
+      if (metrics != null) {
+        metrics.onRetry();
+      }
+      Delays.sleep(delay).connect(new Downstream<Void>() {
 
         @Override
-        public void error(Throwable throwable) {
+        public void success(Void value) {
           try {
-            retry.onError((Exception) throwable);
-            upstream.connect(this);
+            upstream.connect(RetryDownstream.this);
           } catch (Throwable t) {
-            if (recoverer != null) {
-              try {
-                down.success(recoverer.apply(t));
-              } catch (Throwable t2) {
-                down.error(t2);
-              }
-            } else {
-              down.error(t);
-            }
+            recover(t);
           }
         }
 
+        @Override
+        public void error(Throwable t) {
+          recover(t);
+        }
+
         @Override
         public void complete() {
           down.complete();
         }
-      };
-      upstream.connect(downstream);
-    };
+      });
+    }
+
+    @Override
+    public void complete() {
+      down.complete();
+    }
+
+    private long nextDelay(Throwable throwable) throws Throwable {
+      if (retry != null) {
+        // a Retry only accepts exceptions, so errors are never retried
+        if (!(throwable instanceof Exception)) {
+          throw throwable;
+        }
+        // the retry blocks for its wait before it returns, so a retry the budget refuses must not get that far
+        if (budget != null && !budget.tryWithdraw()) {
+          throw throwable;
+        }
+        retry.onError((Exception) throwable);
+        return 0;
+      }
+      if (!retryConfig.getExceptionPredicate().test(throwable) || ++attempts >= retryConfig.getMaxAttempts()) {
+        throw throwable;
+      }
+      if (budget != null && !budget.tryWithdraw()) {
+        throw throwable;
+      }
+      return backoff.delayNanos(retryConfig.getWaitDuration(), attempts);
+    }
+
+    private void recover(Throwable t) {
+      if (recoverer != null) {
+        try {
+          down.success(recoverer.apply(t));
+        } catch (Throwable t2) {
+          down.error(t2);
+        }
+      } else {
+        down.error(t);
+      }
+    }
   }
 
 }
@@ -0,0 +1,43 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.internal.DefaultRecoveryFunction;
+import ratpack.resilience4j.shed.Priority;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation for marking a method of an annotated object as sheddable while the server is overloaded.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}ShedLoad(priority = Priority.LOW)
+ *     public Promise&lt;List&lt;Item&gt;&gt; recommendations(long userId) {
+ *         return recommender.recommend(userId);
+ *     }
+ * </code></pre>
+ * <p/>
+ * each time the {@code #recommendations(long)} method is invoked, it is only invoked if the
+ * {@link ratpack.resilience4j.shed.LoadShedder} admits work of the given priority.
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface ShedLoad {
+  /**
+   * @return The priority of the method's work. Lower priorities are shed first.
+   */
+  Priority priority() default Priority.NORMAL;
+
+  /**
+   * The Function class that returns a fallback value when the work is shed. The default is a noop.
+   * @return
+   */
+  Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
+
+}
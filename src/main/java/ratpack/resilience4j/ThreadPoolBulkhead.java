@@ -0,0 +1,56 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.internal.DefaultRecoveryFunction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation for marking a method of an annotated object to run on a dedicated thread pool.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}ThreadPoolBulkhead(name = "db")
+ *     public Promise&lt;User&gt; find(long id) {
+ *         return Promise.value(jdbc.find(id));
+ *     }
+ * </code></pre>
+ * <p/>
+ * each time the {@code #find(long)} method is invoked, its body runs on the thread pool of the named
+ * {@link ratpack.resilience4j.bulkhead.ThreadPoolBulkhead} rather than on the calling thread. Methods returning a
+ * Promise or a CompletionStage are supported, other methods are invoked unchanged. When the pool is saturated, the
+ * method fails with a {@link ratpack.resilience4j.bulkhead.BulkheadFullException}, which an enclosing
+ * {@link CircuitBreak} records as a failure.
+ * <p/>
+ * The method body is the blocking work, so it must do its blocking calls itself:
+ * <ul>
+ *   <li>The body runs on a pool thread outside of any execution, so it cannot use {@link ratpack.exec.Execution#current()}
+ *   or anything bound to the execution, such as the request or the execution's registry.</li>
+ *   <li>A returned Promise is subscribed to on the calling execution once the body returned. A promise that still
+ *   has blocking work to do, such as {@code return Blocking.get { jdbc.find(id) }}, runs that work on Ratpack's
+ *   shared blocking executor instead of the pool, so such a promise fails with an {@link IllegalStateException}
+ *   once its work is done.</li>
+ *   <li>A returned CompletionStage is not checked, so work it runs on other threads is not isolated.</li>
+ * </ul>
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface ThreadPoolBulkhead {
+  /**
+   * @return The name of the thread pool bulkhead. It will be looked up the thread pool bulkhead registry.
+   */
+  String name() default "";
+
+  /**
+   * The Function class that returns a fallback value when the pool is saturated. The default is a noop.
+   * @return
+   */
+  Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
+
+}
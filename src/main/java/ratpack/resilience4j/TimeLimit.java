@@ -0,0 +1,50 @@
+package ratpack.resilience4j;
+
+import ratpack.resilience4j.internal.DefaultRecoveryFunction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An annotation for marking a method of an annotated object as time limited.
+ * <p/>
+ * Given a method like this:
+ * <pre><code>
+ *     {@literal @}TimeLimit(timeout = 500)
+ *     public Promise&lt;String&gt; fancyName(String name) {
+ *         return Promise.value("Sir Captain " + name);
+ *     }
+ * </code></pre>
+ * <p/>
+ * each time the {@code #fancyName(String)} method is invoked, the returned promise will fail with a
+ * {@link java.util.concurrent.TimeoutException} if it does not complete within 500 milliseconds. Time limits apply
+ * to methods returning a Promise or a CompletionStage, and are applied inside any {@link CircuitBreak} on the same
+ * method so that timeouts count as circuit breaker failures.
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface TimeLimit {
+  /**
+   * @return The maximum time to wait for the result.
+   */
+  long timeout();
+
+  /**
+   * @return The unit of the timeout. The default is milliseconds.
+   */
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+  /**
+   * The Function class that returns a fallback value. The default is a noop.
+   * @return
+   */
+  Class<? extends RecoveryFunction> recovery() default DefaultRecoveryFunction.class;
+
+}
@@ -0,0 +1,115 @@
+package ratpack.resilience4j;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TimeLimiterTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private final Duration timeout;
+  private Function<Throwable, ? extends T> recoverer;
+
+  private TimeLimiterTransformer(Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Create a new transformer that can be applied to the {@link ratpack.exec.Promise#transform(Function)} method.
+   * If the Promised value is not available within the timeout, the promise fails with a {@link TimeoutException}.
+   * The deadline is scheduled on the execution's event loop, and any value or error the upstream produces
+   * after the deadline is ignored.
+   * <p>
+   * Apply this transformer before a {@link CircuitBreakerTransformer} so that timeouts count as circuit breaker failures.
+   *
+   * @param timeout the maximum time to wait for the upstream
+   * @return
+   */
+  public static <T> TimeLimiterTransformer<T> of(Duration timeout) {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive");
+    }
+    return new TimeLimiterTransformer<>(timeout);
+  }
+
+  /**
+   * Set a recovery function that will execute when the time limit is exceeded.
+   *
+   * @param recoverer the recovery function
+   * @return
+   */
+  public TimeLimiterTransformer<T> recover(Function<Throwable, ? extends T> recoverer) {
+    this.recoverer = recoverer;
+    return this;
+  }
+
+  @Override
+  public Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    return down -> Promise.<T>async(limited -> {
+      AtomicBoolean done = new AtomicBoolean();
+      ScheduledFuture<?> deadline = Execution.current().getEventLoop().schedule(() -> {
+        if (done.compareAndSet(false, true)) {
+          limited.error(new TimeoutException("Promise did not complete within " + timeout));
+        }
+      }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+      upstream.connect(new Downstream<T>() {
+
+        @Override
+        public void success(T value) {
+          if (done.compareAndSet(false, true)) {
+            deadline.cancel(false);
+            limited.success(value);
+          }
+        }
+
+        @Override
+        public void error(Throwable throwable) {
+          if (done.compareAndSet(false, true)) {
+            deadline.cancel(false);
+            limited.error(throwable);
+          }
+        }
+
+        @Override
+        public void complete() {
+          if (done.compareAndSet(false, true)) {
+            deadline.cancel(false);
+            limited.complete();
+          }
+        }
+      });
+    }).connect(new Downstream<T>() {
+
+      @Override
+      public void success(T value) {
+        down.success(value);
+      }
+
+      @Override
+      public void error(Throwable throwable) {
+        if (recoverer != null && throwable instanceof TimeoutException) {
+          try {
+            down.success(recoverer.apply(throwable));
+          } catch (Throwable t) {
+            down.error(t);
+          }
+        } else {
+          down.error(throwable);
+        }
+      }
+
+      @Override
+      public void complete() {
+        down.complete();
+      }
+    });
+  }
+
+}
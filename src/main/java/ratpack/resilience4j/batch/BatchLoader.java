@@ -0,0 +1,23 @@
+package ratpack.resilience4j.batch;
+
+import ratpack.exec.Promise;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the values of many keys with one call, for a {@link Batcher}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+@FunctionalInterface
+public interface BatchLoader<K, V> {
+
+  /**
+   * @param keys the distinct keys of the batch, in the order they were first requested
+   * @return the values by key. A key without a value is completed with null.
+   */
+  Promise<Map<K, V>> load(List<K> keys) throws Exception;
+
+}
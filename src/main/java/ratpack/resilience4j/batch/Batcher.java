@@ -0,0 +1,178 @@
+package ratpack.resilience4j.batch;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gathers the keys requested by concurrent executions into batches, and loads each batch with one call to a
+ * {@link BatchLoader}.
+ * <p>
+ * The first key of a batch starts a timer of {@link BatcherConfig#getMaxDelay()} on its event loop. The batch is
+ * loaded when the timer fires or when it reaches {@link BatcherConfig#getMaxBatchSize()} distinct keys, whichever
+ * happens first, in an execution forked for the purpose. Keys requested more than once in a batch are loaded once.
+ * Each requesting execution is resumed with the value of its key on its own execution.
+ * <p>
+ * The promise of each batch can be transformed, for example with a {@link ratpack.resilience4j.CircuitBreakerTransformer}
+ * or a {@link ratpack.resilience4j.ResiliencePipeline}, so that the whole batch passes through a policy once rather
+ * than once per key. If the batch fails, every key of the batch fails with the same exception.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class Batcher<K, V> {
+
+  private final String name;
+  private final BatcherConfig config;
+  private final BatchLoader<K, V> loader;
+  private final Function<? super Upstream<? extends Map<K, V>>, ? extends Upstream<Map<K, V>>> policy;
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder keys = new LongAdder();
+  private Batch pending;
+
+  private Batcher(String name, BatcherConfig config, BatchLoader<K, V> loader, Function<? super Upstream<? extends Map<K, V>>, ? extends Upstream<Map<K, V>>> policy) {
+    this.name = name;
+    this.config = config;
+    this.loader = loader;
+    this.policy = policy;
+  }
+
+  public static <K, V> Batcher<K, V> of(String name, BatcherConfig config, BatchLoader<K, V> loader) {
+    return new Batcher<>(name, config, loader, null);
+  }
+
+  /**
+   * @param name the name of the batcher
+   * @param config the batcher config
+   * @param loader the loader of each batch
+   * @param policy the transformer applied to the promise of each batch
+   * @return a batcher
+   */
+  public static <K, V> Batcher<K, V> of(String name, BatcherConfig config, BatchLoader<K, V> loader,
+                                        Function<? super Upstream<? extends Map<K, V>>, ? extends Upstream<Map<K, V>>> policy) {
+    return new Batcher<>(name, config, loader, policy);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public BatcherConfig getBatcherConfig() {
+    return config;
+  }
+
+  /**
+   * @return the number of batches loaded
+   */
+  public long getBatches() {
+    return batches.sum();
+  }
+
+  /**
+   * @return the number of keys requested
+   */
+  public long getKeys() {
+    return keys.sum();
+  }
+
+  /**
+   * Request the value of the given key as part of the next batch.
+   *
+   * @param key the key
+   * @return a promise for the value of the key
+   */
+  public Promise<V> load(K key) {
+    return Promise.async(down -> {
+      keys.increment();
+      CompletableFuture<V> value;
+      Batch full = null;
+      synchronized (this) {
+        if (pending == null) {
+          pending = new Batch();
+          Batch batch = pending;
+          batch.timer = Execution.current().getEventLoop().schedule(() -> dispatch(batch), config.getMaxDelay().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        value = pending.values.computeIfAbsent(key, k -> new CompletableFuture<>());
+        if (pending.values.size() >= config.getMaxBatchSize()) {
+          full = pending;
+          pending = null;
+        }
+      }
+      if (full != null) {
+        full.timer.cancel(false);
+        full.load();
+      }
+      value.whenComplete((v, t) -> {
+        if (t != null) {
+          down.error(t);
+        } else {
+          down.success(v);
+        }
+      });
+    });
+  }
+
+  private void dispatch(Batch batch) {
+    synchronized (this) {
+      if (pending != batch) {
+        // already loaded because it was full
+        return;
+      }
+      pending = null;
+    }
+    batch.load();
+  }
+
+  private final class Batch {
+
+    private final Map<K, CompletableFuture<V>> values = new LinkedHashMap<>();
+    private ScheduledFuture<?> timer;
+
+    private void load() {
+      batches.increment();
+      Execution.fork()
+        .onError(this::fail)
+        .start(e -> {
+          Promise<Map<K, V>> batch = loader.load(Collections.unmodifiableList(new ArrayList<>(values.keySet())));
+          if (policy != null) {
+            batch = batch.transform(policy);
+          }
+          batch.connect(new Downstream<Map<K, V>>() {
+
+            @Override
+            public void success(Map<K, V> result) {
+              values.forEach((key, value) -> value.complete(result == null ? null : result.get(key)));
+            }
+
+            @Override
+            public void error(Throwable throwable) {
+              fail(throwable);
+            }
+
+            @Override
+            public void complete() {
+              values.forEach((key, value) -> value.complete(null));
+            }
+          });
+        });
+    }
+
+    private void fail(Throwable throwable) {
+      values.values().forEach(value -> value.completeExceptionally(throwable));
+    }
+
+  }
+
+}
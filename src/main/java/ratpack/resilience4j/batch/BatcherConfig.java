@@ -0,0 +1,66 @@
+package ratpack.resilience4j.batch;
+
+import java.time.Duration;
+
+/**
+ * Configuration for a {@link Batcher}.
+ */
+public class BatcherConfig {
+
+  private static final int DEFAULT_MAX_BATCH_SIZE = 100;
+  private static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(1);
+
+  private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private Duration maxDelay = DEFAULT_MAX_DELAY;
+
+  private BatcherConfig() {
+  }
+
+  /**
+   * @return the number of distinct keys at which a batch is loaded right away
+   */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * @return the maximum time the first key of a batch waits for other keys to join it
+   */
+  public Duration getMaxDelay() {
+    return maxDelay;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static BatcherConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final BatcherConfig config = new BatcherConfig();
+
+    public Builder maxBatchSize(int maxBatchSize) {
+      if (maxBatchSize < 1) {
+        throw new IllegalArgumentException("maxBatchSize must be at least 1");
+      }
+      config.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    public Builder maxDelay(Duration maxDelay) {
+      if (maxDelay == null || maxDelay.isNegative()) {
+        throw new IllegalArgumentException("maxDelay must not be negative");
+      }
+      config.maxDelay = maxDelay;
+      return this;
+    }
+
+    public BatcherConfig build() {
+      return config;
+    }
+  }
+
+}
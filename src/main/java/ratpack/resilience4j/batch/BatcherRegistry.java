@@ -0,0 +1,66 @@
+package ratpack.resilience4j.batch;
+
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link Batcher} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry.
+ */
+@Singleton
+public class BatcherRegistry {
+
+  private final ConcurrentMap<String, Batcher<?, ?>> batchers = new ConcurrentHashMap<>();
+
+  @Inject
+  public BatcherRegistry() {
+  }
+
+  /**
+   * @return all batchers in the registry
+   */
+  public List<Batcher<?, ?>> getAllBatchers() {
+    return new ArrayList<>(batchers.values());
+  }
+
+  /**
+   * Get the batcher with the given name, creating it with the given config and loader if it does not exist.
+   *
+   * @param name the name of the batcher
+   * @param config the config of the batcher if it is created
+   * @param loader the loader of the batcher if it is created
+   * @return the batcher
+   */
+  public <K, V> Batcher<K, V> batcher(String name, BatcherConfig config, BatchLoader<K, V> loader) {
+    return batcher(name, config, loader, null);
+  }
+
+  /**
+   * Get the batcher with the given name, creating it with the given config, loader and batch policy if it does not exist.
+   *
+   * @param name the name of the batcher
+   * @param config the config of the batcher if it is created
+   * @param loader the loader of the batcher if it is created
+   * @param policy the transformer applied to each batch if the batcher is created, may be null
+   * @return the batcher
+   */
+  @SuppressWarnings("unchecked")
+  public <K, V> Batcher<K, V> batcher(String name, BatcherConfig config, BatchLoader<K, V> loader,
+                                      Function<? super Upstream<? extends Map<K, V>>, ? extends Upstream<Map<K, V>>> policy) {
+    Batcher<?, ?> batcher = batchers.get(name);
+    if (batcher == null) {
+      batcher = batchers.computeIfAbsent(name, n -> Batcher.of(n, config, loader, policy));
+    }
+    return (Batcher<K, V>) batcher;
+  }
+
+}
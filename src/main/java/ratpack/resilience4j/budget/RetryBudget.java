@@ -0,0 +1,125 @@
+package ratpack.resilience4j.budget;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps retries in aggregate across all callers sharing the budget, so that a partial outage does not multiply the
+ * load on a dependency by the maximum number of attempts.
+ * <p>
+ * Successful first attempts deposit into the budget with {@link #deposit()}, and each retry must first
+ * {@link #tryWithdraw()}. Deposits and withdrawals are counted with {@link LongAdder}s in a ring of time buckets
+ * spanning the time to live, so callers never contend on a single counter. A withdrawal checks the balance and then
+ * records itself without a compare-and-set, so concurrent callers may overdraw the budget by at most their number.
+ * <p>
+ * The {@link RetryBudgetConfig#getMinRetriesPerSecond() floor} is not banked over the time to live: it allows that
+ * many retries within the buckets of the last second, whatever the deposits, so a quiet budget cannot release a
+ * whole window's worth of retries in one burst. Retries taken from the floor still count against the deposits.
+ */
+public class RetryBudget {
+
+  private static final int BUCKETS = 10;
+
+  private final String name;
+  private final RetryBudgetConfig config;
+  private final long bucketNanos;
+  private final int floorBuckets;
+  private final double floorRetries;
+  private final Bucket[] buckets = new Bucket[BUCKETS];
+
+  private RetryBudget(String name, RetryBudgetConfig config) {
+    this.name = name;
+    this.config = config;
+    long timeToLive = config.getTimeToLive().toNanos();
+    this.bucketNanos = Math.max(1, timeToLive / BUCKETS);
+    long second = TimeUnit.SECONDS.toNanos(1);
+    this.floorBuckets = (int) Math.min(BUCKETS, Math.max(1, (second + bucketNanos - 1) / bucketNanos));
+    this.floorRetries = config.getMinRetriesPerSecond() * (double) (floorBuckets * bucketNanos) / second;
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new Bucket();
+    }
+  }
+
+  public static RetryBudget of(String name, RetryBudgetConfig config) {
+    return new RetryBudget(name, config);
+  }
+
+  public static RetryBudget ofDefaults(String name) {
+    return new RetryBudget(name, RetryBudgetConfig.ofDefaults());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public RetryBudgetConfig getRetryBudgetConfig() {
+    return config;
+  }
+
+  /**
+   * Record a successful first attempt, which allows {@link RetryBudgetConfig#getRetryRatio()} further retries.
+   */
+  public void deposit() {
+    bucket(System.nanoTime()).deposits.increment();
+  }
+
+  /**
+   * Take one retry from the budget if it has any left.
+   *
+   * @return true if the retry may go ahead
+   */
+  public boolean tryWithdraw() {
+    long now = System.nanoTime();
+    if (balance(now) < 1) {
+      return false;
+    }
+    bucket(now).withdrawals.increment();
+    return true;
+  }
+
+  /**
+   * @return the number of retries currently left in the budget
+   */
+  public int getBalance() {
+    return (int) Math.max(0, balance(System.nanoTime()));
+  }
+
+  private double balance(long now) {
+    long epoch = now / bucketNanos;
+    long deposits = 0;
+    long withdrawals = 0;
+    long recentWithdrawals = 0;
+    for (Bucket bucket : buckets) {
+      long bucketEpoch = bucket.epoch.get();
+      if (bucketEpoch > epoch - BUCKETS) {
+        deposits += bucket.deposits.sum();
+        long bucketWithdrawals = bucket.withdrawals.sum();
+        withdrawals += bucketWithdrawals;
+        if (bucketEpoch > epoch - floorBuckets) {
+          recentWithdrawals += bucketWithdrawals;
+        }
+      }
+    }
+    return Math.max(deposits * config.getRetryRatio() - withdrawals, floorRetries - recentWithdrawals);
+  }
+
+  private Bucket bucket(long now) {
+    long epoch = now / bucketNanos;
+    Bucket bucket = buckets[(int) Math.floorMod(epoch, (long) BUCKETS)];
+    long current = bucket.epoch.get();
+    if (current < epoch && bucket.epoch.compareAndSet(current, epoch)) {
+      // the winner clears the counts of the expired period; increments racing with the reset may be lost
+      bucket.deposits.reset();
+      bucket.withdrawals.reset();
+    }
+    return bucket;
+  }
+
+  private static final class Bucket {
+    private final AtomicLong epoch = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder deposits = new LongAdder();
+    private final LongAdder withdrawals = new LongAdder();
+  }
+
+}
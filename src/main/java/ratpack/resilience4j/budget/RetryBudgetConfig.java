@@ -0,0 +1,87 @@
+package ratpack.resilience4j.budget;
+
+import java.time.Duration;
+
+/**
+ * Configuration for a {@link RetryBudget}.
+ * <p>
+ * Within any window of {@link #getTimeToLive()}, the budget allows {@link #getRetryRatio()} retries per successful
+ * first attempt. Regardless of traffic, it allows {@link #getMinRetriesPerSecond()} retries in any second, so that
+ * low volume callers can still retry; that floor does not accumulate over the window.
+ */
+public class RetryBudgetConfig {
+
+  private static final double DEFAULT_RETRY_RATIO = 0.2;
+  private static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+  private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(10);
+
+  private double retryRatio = DEFAULT_RETRY_RATIO;
+  private int minRetriesPerSecond = DEFAULT_MIN_RETRIES_PER_SECOND;
+  private Duration timeToLive = DEFAULT_TIME_TO_LIVE;
+
+  private RetryBudgetConfig() {
+  }
+
+  /**
+   * @return the number of retries each successful first attempt adds to the budget
+   */
+  public double getRetryRatio() {
+    return retryRatio;
+  }
+
+  /**
+   * @return the number of retries per second allowed without any successful first attempts
+   */
+  public int getMinRetriesPerSecond() {
+    return minRetriesPerSecond;
+  }
+
+  /**
+   * @return how long deposits and retries count against the budget
+   */
+  public Duration getTimeToLive() {
+    return timeToLive;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static RetryBudgetConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final RetryBudgetConfig config = new RetryBudgetConfig();
+
+    public Builder retryRatio(double retryRatio) {
+      if (retryRatio < 0) {
+        throw new IllegalArgumentException("retryRatio must not be negative");
+      }
+      config.retryRatio = retryRatio;
+      return this;
+    }
+
+    public Builder minRetriesPerSecond(int minRetriesPerSecond) {
+      if (minRetriesPerSecond < 0) {
+        throw new IllegalArgumentException("minRetriesPerSecond must not be negative");
+      }
+      config.minRetriesPerSecond = minRetriesPerSecond;
+      return this;
+    }
+
+    public Builder timeToLive(Duration timeToLive) {
+      if (timeToLive == null || timeToLive.toMillis() < 1) {
+        throw new IllegalArgumentException("timeToLive must be at least one millisecond");
+      }
+      config.timeToLive = timeToLive;
+      return this;
+    }
+
+    public RetryBudgetConfig build() {
+      return config;
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package ratpack.resilience4j.budget;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link RetryBudget} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default config.
+ */
+@Singleton
+public class RetryBudgetRegistry {
+
+  private final RetryBudgetConfig defaultConfig;
+  private final ConcurrentMap<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+  @Inject
+  public RetryBudgetRegistry() {
+    this(RetryBudgetConfig.ofDefaults());
+  }
+
+  private RetryBudgetRegistry(RetryBudgetConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static RetryBudgetRegistry of(RetryBudgetConfig defaultConfig) {
+    return new RetryBudgetRegistry(defaultConfig);
+  }
+
+  public static RetryBudgetRegistry ofDefaults() {
+    return new RetryBudgetRegistry(RetryBudgetConfig.ofDefaults());
+  }
+
+  /**
+   * @return all budgets in the registry
+   */
+  public List<RetryBudget> getAllRetryBudgets() {
+    return new ArrayList<>(budgets.values());
+  }
+
+  /**
+   * Get the budget with the given name, creating it with the default config if it does not exist.
+   *
+   * @param name the name of the budget
+   * @return the budget
+   */
+  public RetryBudget budget(String name) {
+    return budget(name, defaultConfig);
+  }
+
+  /**
+   * Get the budget with the given name, creating it with the given config if it does not exist.
+   *
+   * @param name the name of the budget
+   * @param config the config used if the budget does not exist
+   * @return the budget
+   */
+  public RetryBudget budget(String name, RetryBudgetConfig config) {
+    RetryBudget budget = budgets.get(name);
+    if (budget == null) {
+      budget = budgets.computeIfAbsent(name, n -> RetryBudget.of(n, config));
+    }
+    return budget;
+  }
+
+}
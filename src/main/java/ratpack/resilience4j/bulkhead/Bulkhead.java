@@ -0,0 +1,185 @@
+package ratpack.resilience4j.bulkhead;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of calls in flight to a dependency.
+ * <p>
+ * Permits are tracked with a lock-free counter. When all permits are in use, up to
+ * {@link BulkheadConfig#getMaxWaitingCalls()} callers may queue for a permit. A released permit is handed directly
+ * to the oldest queued caller, which is resumed without any thread having waited for it. A new caller only takes a
+ * free permit if no caller is queued, so queued callers are served first come, first served.
+ * <p>
+ * The config can be changed while calls are in flight, see {@link #changeConfig(BulkheadConfig)}.
+ */
+public class Bulkhead {
+
+  private static final CompletableFuture<Boolean> GRANTED = CompletableFuture.completedFuture(true);
+  private static final CompletableFuture<Boolean> DENIED = CompletableFuture.completedFuture(false);
+
+  private final String name;
+  private volatile BulkheadConfig config;
+  private final AtomicInteger availablePermits;
+  private final AtomicInteger waitingCalls = new AtomicInteger();
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  private Bulkhead(String name, BulkheadConfig config) {
+    this.name = name;
+    this.config = config;
+    this.availablePermits = new AtomicInteger(config.getMaxConcurrentCalls());
+  }
+
+  public static Bulkhead of(String name, BulkheadConfig config) {
+    return new Bulkhead(name, config);
+  }
+
+  public static Bulkhead ofDefaults(String name) {
+    return new Bulkhead(name, BulkheadConfig.ofDefaults());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public BulkheadConfig getBulkheadConfig() {
+    return config;
+  }
+
+  /**
+   * Apply a new config without dropping calls in flight or queued. Extra permits are handed to queued callers right
+   * away. When permits are removed, calls in flight keep theirs, and new calls are only admitted once enough of
+   * them have been returned.
+   *
+   * @param config the new config
+   */
+  public synchronized void changeConfig(BulkheadConfig config) {
+    int delta = config.getMaxConcurrentCalls() - this.config.getMaxConcurrentCalls();
+    this.config = config;
+    if (delta < 0) {
+      availablePermits.addAndGet(delta);
+    }
+    for (int i = 0; i < delta; i++) {
+      release();
+    }
+  }
+
+  /**
+   * @return the number of permits currently free
+   */
+  public int getAvailableConcurrentCalls() {
+    // negative while calls admitted before the config shrank are still in flight
+    return Math.max(0, availablePermits.get());
+  }
+
+  /**
+   * @return the number of callers currently queued for a permit
+   */
+  public int getWaitingCalls() {
+    return waitingCalls.get();
+  }
+
+  /**
+   * Take a permit if one is free and no caller is queued for one, without queueing.
+   *
+   * @return true if a permit was taken
+   */
+  public boolean tryAcquire() {
+    return waiters.isEmpty() && takePermit();
+  }
+
+  private boolean takePermit() {
+    for (;;) {
+      int available = availablePermits.get();
+      if (available <= 0) {
+        return false;
+      }
+      if (availablePermits.compareAndSet(available, available - 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Take a permit, queueing for one if none is free and the wait queue has room. A queued caller that is not
+   * handed a permit within {@link BulkheadConfig#getMaxWaitDuration()} is rejected; the timeout is scheduled on
+   * the given scheduler.
+   *
+   * @param scheduler the scheduler used to time out queued callers
+   * @return a future that completes with true once a permit was taken, or false if the call was rejected
+   */
+  public CompletableFuture<Boolean> acquire(ScheduledExecutorService scheduler) {
+    if (tryAcquire()) {
+      return GRANTED;
+    }
+    long timeout = config.getMaxWaitDuration().toNanos();
+    // a queued caller could only be released by a permit, never by its timeout
+    if (timeout == 0) {
+      return DENIED;
+    }
+    if (waitingCalls.incrementAndGet() > config.getMaxWaitingCalls()) {
+      waitingCalls.decrementAndGet();
+      return DENIED;
+    }
+    Waiter waiter = new Waiter();
+    waiters.add(waiter);
+    // a permit may have been released before the waiter was visible in the queue, so hand it to the oldest waiter
+    if (takePermit()) {
+      release();
+    }
+    if (!waiter.isDone()) {
+      scheduler.schedule(waiter::expire, timeout, TimeUnit.NANOSECONDS);
+    }
+    return waiter.result;
+  }
+
+  /**
+   * Return a permit, handing it to the oldest queued caller if there is one.
+   */
+  public void release() {
+    Waiter waiter;
+    while ((waiter = waiters.poll()) != null) {
+      if (waiter.grant()) {
+        return;
+      }
+    }
+    availablePermits.incrementAndGet();
+    // a caller may have queued after the queue was drained but before the permit was returned
+    if (!waiters.isEmpty() && takePermit()) {
+      release();
+    }
+  }
+
+  private final class Waiter {
+
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    private boolean isDone() {
+      return done.get();
+    }
+
+    private boolean grant() {
+      if (done.compareAndSet(false, true)) {
+        waitingCalls.decrementAndGet();
+        result.complete(true);
+        return true;
+      }
+      return false;
+    }
+
+    private void expire() {
+      if (done.compareAndSet(false, true)) {
+        waitingCalls.decrementAndGet();
+        waiters.remove(this);
+        result.complete(false);
+      }
+    }
+  }
+
+}
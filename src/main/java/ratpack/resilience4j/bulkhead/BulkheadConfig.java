@@ -0,0 +1,84 @@
+package ratpack.resilience4j.bulkhead;
+
+import java.time.Duration;
+
+/**
+ * Configuration for a {@link Bulkhead}.
+ */
+public class BulkheadConfig {
+
+  private static final int DEFAULT_MAX_CONCURRENT_CALLS = 25;
+  private static final int DEFAULT_MAX_WAITING_CALLS = 0;
+  private static final Duration DEFAULT_MAX_WAIT_DURATION = Duration.ofMillis(500);
+
+  private int maxConcurrentCalls = DEFAULT_MAX_CONCURRENT_CALLS;
+  private int maxWaitingCalls = DEFAULT_MAX_WAITING_CALLS;
+  private Duration maxWaitDuration = DEFAULT_MAX_WAIT_DURATION;
+
+  private BulkheadConfig() {
+  }
+
+  /**
+   * @return the maximum number of calls that may be in flight at the same time
+   */
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  /**
+   * @return the maximum number of calls that may queue for a permit when all permits are in use
+   */
+  public int getMaxWaitingCalls() {
+    return maxWaitingCalls;
+  }
+
+  /**
+   * @return the maximum time a queued call waits for a permit before it is rejected. Zero means calls are not
+   * queued, whatever {@link #getMaxWaitingCalls()} allows.
+   */
+  public Duration getMaxWaitDuration() {
+    return maxWaitDuration;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static BulkheadConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final BulkheadConfig config = new BulkheadConfig();
+
+    public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+      if (maxConcurrentCalls < 1) {
+        throw new IllegalArgumentException("maxConcurrentCalls must be at least 1");
+      }
+      config.maxConcurrentCalls = maxConcurrentCalls;
+      return this;
+    }
+
+    public Builder maxWaitingCalls(int maxWaitingCalls) {
+      if (maxWaitingCalls < 0) {
+        throw new IllegalArgumentException("maxWaitingCalls must not be negative");
+      }
+      config.maxWaitingCalls = maxWaitingCalls;
+      return this;
+    }
+
+    public Builder maxWaitDuration(Duration maxWaitDuration) {
+      if (maxWaitDuration == null || maxWaitDuration.isNegative()) {
+        throw new IllegalArgumentException("maxWaitDuration must not be negative");
+      }
+      config.maxWaitDuration = maxWaitDuration;
+      return this;
+    }
+
+    public BulkheadConfig build() {
+      return config;
+    }
+  }
+
+}
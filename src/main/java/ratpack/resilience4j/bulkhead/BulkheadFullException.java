@@ -0,0 +1,12 @@
+package ratpack.resilience4j.bulkhead;
+
+/**
+ * Signals that a call was rejected because a {@link Bulkhead} had no free permits.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+  public BulkheadFullException(String message) {
+    super(message);
+  }
+
+}
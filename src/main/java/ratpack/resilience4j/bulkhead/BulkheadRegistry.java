@@ -0,0 +1,96 @@
+package ratpack.resilience4j.bulkhead;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link Bulkhead} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default config.
+ */
+@Singleton
+public class BulkheadRegistry {
+
+  private final BulkheadConfig defaultConfig;
+  private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+  @Inject
+  public BulkheadRegistry() {
+    this(BulkheadConfig.ofDefaults());
+  }
+
+  private BulkheadRegistry(BulkheadConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static BulkheadRegistry of(BulkheadConfig defaultConfig) {
+    return new BulkheadRegistry(defaultConfig);
+  }
+
+  public static BulkheadRegistry ofDefaults() {
+    return new BulkheadRegistry(BulkheadConfig.ofDefaults());
+  }
+
+  /**
+   * @return all bulkheads in the registry
+   */
+  public List<Bulkhead> getAllBulkheads() {
+    return new ArrayList<>(bulkheads.values());
+  }
+
+  /**
+   * Create the bulkheads of the given configs, or change the config of those that exist, see
+   * {@link Bulkhead#changeConfig(BulkheadConfig)}.
+   *
+   * @param configs the bulkhead configs by name
+   * @return true if the config of an existing bulkhead changed
+   */
+  public synchronized boolean define(Map<String, BulkheadConfig> configs) {
+    boolean changed = false;
+    for (Map.Entry<String, BulkheadConfig> entry : configs.entrySet()) {
+      BulkheadConfig config = entry.getValue();
+      Bulkhead bulkhead = bulkheads.putIfAbsent(entry.getKey(), Bulkhead.of(entry.getKey(), config));
+      if (bulkhead != null && !sameLimits(bulkhead.getBulkheadConfig(), config)) {
+        bulkhead.changeConfig(config);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private static boolean sameLimits(BulkheadConfig a, BulkheadConfig b) {
+    return a.getMaxConcurrentCalls() == b.getMaxConcurrentCalls() && a.getMaxWaitingCalls() == b.getMaxWaitingCalls()
+      && a.getMaxWaitDuration().equals(b.getMaxWaitDuration());
+  }
+
+  /**
+   * Get the bulkhead with the given name, creating it with the default config if it does not exist.
+   *
+   * @param name the name of the bulkhead
+   * @return the bulkhead
+   */
+  public Bulkhead bulkhead(String name) {
+    return bulkhead(name, defaultConfig);
+  }
+
+  /**
+   * Get the bulkhead with the given name, creating it with the given config if it does not exist.
+   *
+   * @param name the name of the bulkhead
+   * @param config the config used if the bulkhead does not exist
+   * @return the bulkhead
+   */
+  public Bulkhead bulkhead(String name, BulkheadConfig config) {
+    Bulkhead bulkhead = bulkheads.get(name);
+    if (bulkhead == null) {
+      bulkhead = bulkheads.computeIfAbsent(name, n -> Bulkhead.of(n, config));
+    }
+    return bulkhead;
+  }
+
+}
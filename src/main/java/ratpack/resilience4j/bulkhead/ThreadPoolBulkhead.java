@@ -0,0 +1,143 @@
+package ratpack.resilience4j.bulkhead;
+
+import ratpack.exec.Promise;
+import ratpack.func.Factory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking work for a dependency on a dedicated, bounded thread pool instead of Ratpack's shared blocking
+ * executor, so that a slow dependency can only exhaust its own threads.
+ * <p>
+ * The pool has {@link ThreadPoolBulkheadConfig#getMaxThreads()} threads and queues up to
+ * {@link ThreadPoolBulkheadConfig#getQueueCapacity()} tasks. Work submitted beyond that fails straight away with a
+ * {@link BulkheadFullException}. The threads are daemon threads that stop when idle for the configured keep alive.
+ */
+public class ThreadPoolBulkhead implements AutoCloseable {
+
+  private final String name;
+  private final ThreadPoolBulkheadConfig config;
+  private final ThreadPoolExecutor executor;
+
+  private ThreadPoolBulkhead(String name, ThreadPoolBulkheadConfig config) {
+    this.name = name;
+    this.config = config;
+    BlockingQueue<Runnable> queue = config.getQueueCapacity() == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(config.getQueueCapacity());
+    this.executor = new ThreadPoolExecutor(config.getMaxThreads(), config.getMaxThreads(), config.getKeepAlive().toNanos(), TimeUnit.NANOSECONDS,
+      queue, new BulkheadThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  public static ThreadPoolBulkhead of(String name, ThreadPoolBulkheadConfig config) {
+    return new ThreadPoolBulkhead(name, config);
+  }
+
+  public static ThreadPoolBulkhead ofDefaults(String name) {
+    return new ThreadPoolBulkhead(name, ThreadPoolBulkheadConfig.ofDefaults());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public ThreadPoolBulkheadConfig getThreadPoolBulkheadConfig() {
+    return config;
+  }
+
+  /**
+   * @return the number of threads currently running a task
+   */
+  public int getActiveThreads() {
+    return executor.getActiveCount();
+  }
+
+  /**
+   * @return the number of tasks currently queued for a thread
+   */
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Run blocking work on the pool, as a replacement for {@link ratpack.exec.Blocking#get(Factory)}. The execution
+   * is resumed with the result on its event loop.
+   *
+   * @param factory the blocking work
+   * @return a promise for the result, failing with a {@link BulkheadFullException} if the pool is saturated
+   */
+  public <T> Promise<T> get(Factory<T> factory) {
+    return Promise.async(down -> {
+      try {
+        executor.execute(() -> {
+          try {
+            down.success(factory.create());
+          } catch (Throwable t) {
+            down.error(t);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        down.error(full());
+      }
+    });
+  }
+
+  /**
+   * Run blocking work on the pool, for callers outside of a Ratpack execution.
+   *
+   * @param factory the blocking work
+   * @return a future for the result, failing with a {@link BulkheadFullException} if the pool is saturated
+   */
+  public <T> CompletableFuture<T> submit(Factory<T> factory) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        try {
+          result.complete(factory.create());
+        } catch (Throwable t) {
+          result.completeExceptionally(t);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(full());
+    }
+    return result;
+  }
+
+  /**
+   * Stop accepting work. Tasks already submitted still run.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private BulkheadFullException full() {
+    return new BulkheadFullException("Thread pool bulkhead " + name + " is full");
+  }
+
+  private static final class BulkheadThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    private BulkheadThreadFactory(String name) {
+      this.prefix = "ratpack-bulkhead-" + name + "-";
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
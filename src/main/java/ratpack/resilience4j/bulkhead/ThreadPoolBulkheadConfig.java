@@ -0,0 +1,83 @@
+package ratpack.resilience4j.bulkhead;
+
+import java.time.Duration;
+
+/**
+ * Configuration for a {@link ThreadPoolBulkhead}.
+ */
+public class ThreadPoolBulkheadConfig {
+
+  private static final int DEFAULT_MAX_THREADS = 10;
+  private static final int DEFAULT_QUEUE_CAPACITY = 0;
+  private static final Duration DEFAULT_KEEP_ALIVE = Duration.ofMinutes(1);
+
+  private int maxThreads = DEFAULT_MAX_THREADS;
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+  private Duration keepAlive = DEFAULT_KEEP_ALIVE;
+
+  private ThreadPoolBulkheadConfig() {
+  }
+
+  /**
+   * @return the number of threads of the dedicated pool, which is the maximum number of tasks running at the same time
+   */
+  public int getMaxThreads() {
+    return maxThreads;
+  }
+
+  /**
+   * @return the maximum number of tasks that may queue for a thread when all threads are busy
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * @return how long an idle thread is kept before it is stopped
+   */
+  public Duration getKeepAlive() {
+    return keepAlive;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static ThreadPoolBulkheadConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final ThreadPoolBulkheadConfig config = new ThreadPoolBulkheadConfig();
+
+    public Builder maxThreads(int maxThreads) {
+      if (maxThreads < 1) {
+        throw new IllegalArgumentException("maxThreads must be at least 1");
+      }
+      config.maxThreads = maxThreads;
+      return this;
+    }
+
+    public Builder queueCapacity(int queueCapacity) {
+      if (queueCapacity < 0) {
+        throw new IllegalArgumentException("queueCapacity must not be negative");
+      }
+      config.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    public Builder keepAlive(Duration keepAlive) {
+      if (keepAlive == null || keepAlive.isNegative() || keepAlive.isZero()) {
+        throw new IllegalArgumentException("keepAlive must be positive");
+      }
+      config.keepAlive = keepAlive;
+      return this;
+    }
+
+    public ThreadPoolBulkheadConfig build() {
+      return config;
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+package ratpack.resilience4j.bulkhead;
+
+import ratpack.service.Service;
+import ratpack.service.StopEvent;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link ThreadPoolBulkhead} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default config. The registry is a
+ * {@link Service}, so the pools of its bulkheads are shut down when the server stops.
+ */
+@Singleton
+public class ThreadPoolBulkheadRegistry implements Service {
+
+  private final ThreadPoolBulkheadConfig defaultConfig;
+  private final ConcurrentMap<String, ThreadPoolBulkhead> bulkheads = new ConcurrentHashMap<>();
+
+  @Inject
+  public ThreadPoolBulkheadRegistry() {
+    this(ThreadPoolBulkheadConfig.ofDefaults());
+  }
+
+  private ThreadPoolBulkheadRegistry(ThreadPoolBulkheadConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static ThreadPoolBulkheadRegistry of(ThreadPoolBulkheadConfig defaultConfig) {
+    return new ThreadPoolBulkheadRegistry(defaultConfig);
+  }
+
+  public static ThreadPoolBulkheadRegistry ofDefaults() {
+    return new ThreadPoolBulkheadRegistry(ThreadPoolBulkheadConfig.ofDefaults());
+  }
+
+  /**
+   * @return all thread pool bulkheads in the registry
+   */
+  public List<ThreadPoolBulkhead> getAllBulkheads() {
+    return new ArrayList<>(bulkheads.values());
+  }
+
+  /**
+   * Get the thread pool bulkhead with the given name, creating it with the default config if it does not exist.
+   *
+   * @param name the name of the thread pool bulkhead
+   * @return the thread pool bulkhead
+   */
+  public ThreadPoolBulkhead bulkhead(String name) {
+    return bulkhead(name, defaultConfig);
+  }
+
+  /**
+   * Get the thread pool bulkhead with the given name, creating it with the given config if it does not exist.
+   *
+   * @param name the name of the thread pool bulkhead
+   * @param config the config used if the thread pool bulkhead does not exist
+   * @return the thread pool bulkhead
+   */
+  public ThreadPoolBulkhead bulkhead(String name, ThreadPoolBulkheadConfig config) {
+    ThreadPoolBulkhead bulkhead = bulkheads.get(name);
+    if (bulkhead == null) {
+      bulkhead = bulkheads.computeIfAbsent(name, n -> ThreadPoolBulkhead.of(n, config));
+    }
+    return bulkhead;
+  }
+
+  /**
+   * Shut down the pools of all bulkheads in the registry. Tasks already submitted still run.
+   */
+  @Override
+  public void onStop(StopEvent event) throws Exception {
+    bulkheads.values().forEach(ThreadPoolBulkhead::close);
+  }
+
+}
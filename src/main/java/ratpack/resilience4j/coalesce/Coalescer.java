@@ -0,0 +1,132 @@
+package ratpack.resilience4j.coalesce;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one in-flight call between all concurrent callers with the same key.
+ * <p>
+ * The first caller for a key subscribes to its upstream on its own execution. Callers that arrive while that call
+ * is in flight do not subscribe to theirs, and instead wait for the first caller's result, which is handed to each
+ * of them on their own execution. The key is removed as soon as the call completes, so later callers start a new
+ * call and nothing is cached.
+ */
+public class Coalescer {
+
+  private static final Object NO_VALUE = new Object();
+
+  private final String name;
+  private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder coalescedCalls = new LongAdder();
+
+  private Coalescer(String name) {
+    this.name = name;
+  }
+
+  public static Coalescer of(String name) {
+    return new Coalescer(name);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of keys with a call currently in flight
+   */
+  public int getInFlight() {
+    return inFlight.size();
+  }
+
+  /**
+   * @return the number of calls that subscribed to their upstream
+   */
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  /**
+   * @return the number of calls that shared the result of another call instead of subscribing to their upstream
+   */
+  public long getCoalescedCalls() {
+    return coalescedCalls.sum();
+  }
+
+  /**
+   * Connect the given downstream to the call in flight for the key, or to the given upstream if there is none.
+   * A null key is never coalesced.
+   *
+   * @param key the key identifying duplicate calls
+   * @param upstream the upstream of this caller
+   * @param down the downstream of this caller
+   * @param <T> the type of the result
+   */
+  @SuppressWarnings("unchecked")
+  public <T> void connect(Object key, Upstream<? extends T> upstream, Downstream<? super T> down) throws Exception {
+    if (key == null) {
+      calls.increment();
+      upstream.connect(down);
+      return;
+    }
+    CompletableFuture<Object> flight = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      coalescedCalls.increment();
+      if (existing.isDone()) {
+        signal(existing, (Downstream<Object>) down);
+      } else {
+        Promise.async(d -> signal(existing, d)).connect((Downstream<Object>) down);
+      }
+      return;
+    }
+    calls.increment();
+    Downstream<T> leader = new Downstream<T>() {
+
+      @Override
+      public void success(T value) {
+        inFlight.remove(key, flight);
+        flight.complete(value);
+        down.success(value);
+      }
+
+      @Override
+      public void error(Throwable throwable) {
+        inFlight.remove(key, flight);
+        flight.completeExceptionally(throwable);
+        down.error(throwable);
+      }
+
+      @Override
+      public void complete() {
+        inFlight.remove(key, flight);
+        flight.complete(NO_VALUE);
+        down.complete();
+      }
+    };
+    try {
+      upstream.connect(leader);
+    } catch (Throwable t) {
+      leader.error(t);
+    }
+  }
+
+  private static void signal(CompletableFuture<Object> flight, Downstream<Object> down) {
+    flight.whenComplete((value, throwable) -> {
+      if (throwable != null) {
+        down.error(throwable);
+      } else if (value == NO_VALUE) {
+        down.complete();
+      } else {
+        down.success(value);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,45 @@
+package ratpack.resilience4j.coalesce;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link Coalescer} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry.
+ */
+@Singleton
+public class CoalescerRegistry {
+
+  private final ConcurrentMap<String, Coalescer> coalescers = new ConcurrentHashMap<>();
+
+  @Inject
+  public CoalescerRegistry() {
+  }
+
+  /**
+   * @return all coalescers in the registry
+   */
+  public List<Coalescer> getAllCoalescers() {
+    return new ArrayList<>(coalescers.values());
+  }
+
+  /**
+   * Get the coalescer with the given name, creating it if it does not exist.
+   *
+   * @param name the name of the coalescer
+   * @return the coalescer
+   */
+  public Coalescer coalescer(String name) {
+    Coalescer coalescer = coalescers.get(name);
+    if (coalescer == null) {
+      coalescer = coalescers.computeIfAbsent(name, Coalescer::of);
+    }
+    return coalescer;
+  }
+
+}
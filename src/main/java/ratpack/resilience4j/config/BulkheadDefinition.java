@@ -0,0 +1,62 @@
+package ratpack.resilience4j.config;
+
+import ratpack.resilience4j.bulkhead.BulkheadConfig;
+
+import java.time.Duration;
+
+/**
+ * The settings of a named bulkhead, as read from Ratpack's config sources. Unset values default to those of
+ * {@link BulkheadConfig#ofDefaults()}.
+ * <pre>
+ * resilience:
+ *   bulkheads:
+ *     reports:
+ *       maxConcurrentCalls: 10
+ *       maxWaitingCalls: 20
+ *       maxWaitDuration: PT0.5S
+ * </pre>
+ */
+public class BulkheadDefinition {
+
+  private static final BulkheadConfig DEFAULTS = BulkheadConfig.ofDefaults();
+
+  private int maxConcurrentCalls = DEFAULTS.getMaxConcurrentCalls();
+  private int maxWaitingCalls = DEFAULTS.getMaxWaitingCalls();
+  private Duration maxWaitDuration = DEFAULTS.getMaxWaitDuration();
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+    this.maxConcurrentCalls = maxConcurrentCalls;
+  }
+
+  public int getMaxWaitingCalls() {
+    return maxWaitingCalls;
+  }
+
+  public void setMaxWaitingCalls(int maxWaitingCalls) {
+    this.maxWaitingCalls = maxWaitingCalls;
+  }
+
+  public Duration getMaxWaitDuration() {
+    return maxWaitDuration;
+  }
+
+  public void setMaxWaitDuration(Duration maxWaitDuration) {
+    this.maxWaitDuration = maxWaitDuration;
+  }
+
+  /**
+   * @return the bulkhead config of these settings
+   */
+  public BulkheadConfig toBulkheadConfig() {
+    return BulkheadConfig.custom()
+      .maxConcurrentCalls(maxConcurrentCalls)
+      .maxWaitingCalls(maxWaitingCalls)
+      .maxWaitDuration(maxWaitDuration)
+      .build();
+  }
+
+}
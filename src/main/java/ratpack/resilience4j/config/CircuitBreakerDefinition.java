@@ -0,0 +1,92 @@
+package ratpack.resilience4j.config;
+
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The settings of a named circuit breaker, as read from Ratpack's config sources. Unset values default to those of
+ * {@link CircuitBreakerConfig#ofDefaults()}.
+ * <pre>
+ * resilience:
+ *   circuitBreakers:
+ *     payments:
+ *       failureRateThreshold: 25
+ *       waitDurationInOpenState: PT10S
+ * </pre>
+ */
+public class CircuitBreakerDefinition {
+
+  private static final CircuitBreakerConfig DEFAULTS = CircuitBreakerConfig.ofDefaults();
+
+  private float failureRateThreshold = DEFAULTS.getFailureRateThreshold();
+  private Duration waitDurationInOpenState = DEFAULTS.getWaitDurationInOpenState();
+  private int ringBufferSizeInClosedState = DEFAULTS.getRingBufferSizeInClosedState();
+  private int ringBufferSizeInHalfOpenState = DEFAULTS.getRingBufferSizeInHalfOpenState();
+
+  public float getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  public void setFailureRateThreshold(float failureRateThreshold) {
+    this.failureRateThreshold = failureRateThreshold;
+  }
+
+  public Duration getWaitDurationInOpenState() {
+    return waitDurationInOpenState;
+  }
+
+  public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+    this.waitDurationInOpenState = waitDurationInOpenState;
+  }
+
+  public int getRingBufferSizeInClosedState() {
+    return ringBufferSizeInClosedState;
+  }
+
+  public void setRingBufferSizeInClosedState(int ringBufferSizeInClosedState) {
+    this.ringBufferSizeInClosedState = ringBufferSizeInClosedState;
+  }
+
+  public int getRingBufferSizeInHalfOpenState() {
+    return ringBufferSizeInHalfOpenState;
+  }
+
+  public void setRingBufferSizeInHalfOpenState(int ringBufferSizeInHalfOpenState) {
+    this.ringBufferSizeInHalfOpenState = ringBufferSizeInHalfOpenState;
+  }
+
+  /**
+   * @return the circuit breaker config of these settings
+   */
+  public CircuitBreakerConfig toCircuitBreakerConfig() {
+    return CircuitBreakerConfig.custom()
+      .failureRateThreshold(failureRateThreshold)
+      .waitDurationInOpenState(waitDurationInOpenState)
+      .ringBufferSizeInClosedState(ringBufferSizeInClosedState)
+      .ringBufferSizeInHalfOpenState(ringBufferSizeInHalfOpenState)
+      .build();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CircuitBreakerDefinition that = (CircuitBreakerDefinition) o;
+    return Float.compare(that.failureRateThreshold, failureRateThreshold) == 0
+      && ringBufferSizeInClosedState == that.ringBufferSizeInClosedState
+      && ringBufferSizeInHalfOpenState == that.ringBufferSizeInHalfOpenState
+      && Objects.equals(waitDurationInOpenState, that.waitDurationInOpenState);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(failureRateThreshold, waitDurationInOpenState, ringBufferSizeInClosedState, ringBufferSizeInHalfOpenState);
+  }
+
+}
@@ -0,0 +1,82 @@
+package ratpack.resilience4j.config;
+
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The settings of a named rate limiter, as read from Ratpack's config sources. Unset values default to those of
+ * {@link RateLimiterConfig#ofDefaults()}.
+ * <pre>
+ * resilience:
+ *   rateLimiters:
+ *     search:
+ *       limitForPeriod: 100
+ *       limitRefreshPeriod: PT1S
+ *       timeoutDuration: PT0S
+ * </pre>
+ */
+public class RateLimiterDefinition {
+
+  private static final RateLimiterConfig DEFAULTS = RateLimiterConfig.ofDefaults();
+
+  private int limitForPeriod = DEFAULTS.getLimitForPeriod();
+  private Duration limitRefreshPeriod = DEFAULTS.getLimitRefreshPeriod();
+  private Duration timeoutDuration = DEFAULTS.getTimeoutDuration();
+
+  public int getLimitForPeriod() {
+    return limitForPeriod;
+  }
+
+  public void setLimitForPeriod(int limitForPeriod) {
+    this.limitForPeriod = limitForPeriod;
+  }
+
+  public Duration getLimitRefreshPeriod() {
+    return limitRefreshPeriod;
+  }
+
+  public void setLimitRefreshPeriod(Duration limitRefreshPeriod) {
+    this.limitRefreshPeriod = limitRefreshPeriod;
+  }
+
+  public Duration getTimeoutDuration() {
+    return timeoutDuration;
+  }
+
+  public void setTimeoutDuration(Duration timeoutDuration) {
+    this.timeoutDuration = timeoutDuration;
+  }
+
+  /**
+   * @return the rate limiter config of these settings
+   */
+  public RateLimiterConfig toRateLimiterConfig() {
+    return RateLimiterConfig.custom()
+      .limitForPeriod(limitForPeriod)
+      .limitRefreshPeriod(limitRefreshPeriod)
+      .timeoutDuration(timeoutDuration)
+      .build();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RateLimiterDefinition that = (RateLimiterDefinition) o;
+    return limitForPeriod == that.limitForPeriod
+      && Objects.equals(limitRefreshPeriod, that.limitRefreshPeriod)
+      && Objects.equals(timeoutDuration, that.timeoutDuration);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(limitForPeriod, limitRefreshPeriod, timeoutDuration);
+  }
+
+}
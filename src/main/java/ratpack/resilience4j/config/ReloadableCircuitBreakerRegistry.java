@@ -0,0 +1,94 @@
+package ratpack.resilience4j.config;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import javaslang.collection.List;
+import javaslang.collection.Seq;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * A {@link CircuitBreakerRegistry} whose named circuit breakers can be redefined while the application runs.
+ * <p>
+ * A circuit breaker's config cannot change once it is created, so a redefined circuit breaker is replaced by a new
+ * instance, which starts closed with empty metrics. Calls already in flight complete against the instance they
+ * started with. Circuit breakers whose definition did not change are kept.
+ * <p>
+ * This is the registry bound by {@link ratpack.resilience4j.ResilienceModule} unless another one is bound.
+ */
+@Singleton
+public class ReloadableCircuitBreakerRegistry implements CircuitBreakerRegistry {
+
+  private final CircuitBreakerConfig defaultConfig;
+  private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CircuitBreakerDefinition> definitions = new ConcurrentHashMap<>();
+
+  @Inject
+  public ReloadableCircuitBreakerRegistry() {
+    this(CircuitBreakerConfig.ofDefaults());
+  }
+
+  private ReloadableCircuitBreakerRegistry(CircuitBreakerConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static ReloadableCircuitBreakerRegistry of(CircuitBreakerConfig defaultConfig) {
+    return new ReloadableCircuitBreakerRegistry(defaultConfig);
+  }
+
+  public static ReloadableCircuitBreakerRegistry ofDefaults() {
+    return new ReloadableCircuitBreakerRegistry(CircuitBreakerConfig.ofDefaults());
+  }
+
+  /**
+   * Create or replace the circuit breakers of the given definitions. Circuit breakers that are no longer defined
+   * keep their last config.
+   *
+   * @param definitions the circuit breaker definitions by name
+   * @return true if any existing circuit breaker was replaced
+   */
+  public synchronized boolean define(Map<String, CircuitBreakerDefinition> definitions) {
+    boolean replaced = false;
+    for (Map.Entry<String, CircuitBreakerDefinition> entry : definitions.entrySet()) {
+      String name = entry.getKey();
+      CircuitBreakerDefinition definition = entry.getValue();
+      if (Objects.equals(this.definitions.put(name, definition), definition) && circuitBreakers.containsKey(name)) {
+        continue;
+      }
+      replaced |= circuitBreakers.put(name, CircuitBreaker.of(name, definition.toCircuitBreakerConfig())) != null;
+    }
+    return replaced;
+  }
+
+  @Override
+  public Seq<CircuitBreaker> getAllCircuitBreakers() {
+    return List.ofAll(circuitBreakers.values());
+  }
+
+  @Override
+  public CircuitBreaker circuitBreaker(String name) {
+    return circuitBreaker(name, () -> defaultConfig);
+  }
+
+  @Override
+  public CircuitBreaker circuitBreaker(String name, CircuitBreakerConfig config) {
+    return circuitBreaker(name, () -> config);
+  }
+
+  @Override
+  public CircuitBreaker circuitBreaker(String name, Supplier<CircuitBreakerConfig> config) {
+    CircuitBreaker circuitBreaker = circuitBreakers.get(name);
+    if (circuitBreaker == null) {
+      circuitBreaker = circuitBreakers.computeIfAbsent(name, n -> CircuitBreaker.of(n, config.get()));
+    }
+    return circuitBreaker;
+  }
+
+}
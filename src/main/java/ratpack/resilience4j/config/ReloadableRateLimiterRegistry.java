@@ -0,0 +1,94 @@
+package ratpack.resilience4j.config;
+
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+import io.github.robwin.ratelimiter.RateLimiterRegistry;
+import javaslang.collection.List;
+import javaslang.collection.Seq;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * A {@link RateLimiterRegistry} whose named rate limiters can be redefined while the application runs.
+ * <p>
+ * A rate limiter's config cannot change once it is created, so a redefined rate limiter is replaced by a new
+ * instance, which starts with a full period of permits. Calls already in flight complete against the instance they
+ * started with. Rate limiters whose definition did not change are kept.
+ * <p>
+ * This is the registry bound by {@link ratpack.resilience4j.ResilienceModule} unless another one is bound.
+ */
+@Singleton
+public class ReloadableRateLimiterRegistry implements RateLimiterRegistry {
+
+  private final RateLimiterConfig defaultConfig;
+  private final ConcurrentMap<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, RateLimiterDefinition> definitions = new ConcurrentHashMap<>();
+
+  @Inject
+  public ReloadableRateLimiterRegistry() {
+    this(RateLimiterConfig.ofDefaults());
+  }
+
+  private ReloadableRateLimiterRegistry(RateLimiterConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static ReloadableRateLimiterRegistry of(RateLimiterConfig defaultConfig) {
+    return new ReloadableRateLimiterRegistry(defaultConfig);
+  }
+
+  public static ReloadableRateLimiterRegistry ofDefaults() {
+    return new ReloadableRateLimiterRegistry(RateLimiterConfig.ofDefaults());
+  }
+
+  /**
+   * Create or replace the rate limiters of the given definitions. Rate limiters that are no longer defined
+   * keep their last config.
+   *
+   * @param definitions the rate limiter definitions by name
+   * @return true if any existing rate limiter was replaced
+   */
+  public synchronized boolean define(Map<String, RateLimiterDefinition> definitions) {
+    boolean replaced = false;
+    for (Map.Entry<String, RateLimiterDefinition> entry : definitions.entrySet()) {
+      String name = entry.getKey();
+      RateLimiterDefinition definition = entry.getValue();
+      if (Objects.equals(this.definitions.put(name, definition), definition) && rateLimiters.containsKey(name)) {
+        continue;
+      }
+      replaced |= rateLimiters.put(name, RateLimiter.of(name, definition.toRateLimiterConfig())) != null;
+    }
+    return replaced;
+  }
+
+  @Override
+  public Seq<RateLimiter> getAllRateLimiters() {
+    return List.ofAll(rateLimiters.values());
+  }
+
+  @Override
+  public RateLimiter rateLimiter(String name) {
+    return rateLimiter(name, () -> defaultConfig);
+  }
+
+  @Override
+  public RateLimiter rateLimiter(String name, RateLimiterConfig config) {
+    return rateLimiter(name, () -> config);
+  }
+
+  @Override
+  public RateLimiter rateLimiter(String name, Supplier<RateLimiterConfig> config) {
+    RateLimiter rateLimiter = rateLimiters.get(name);
+    if (rateLimiter == null) {
+      rateLimiter = rateLimiters.computeIfAbsent(name, n -> RateLimiter.of(n, config.get()));
+    }
+    return rateLimiter;
+  }
+
+}
@@ -0,0 +1,111 @@
+package ratpack.resilience4j.config;
+
+import com.google.inject.Provider;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.ratelimiter.RateLimiterRegistry;
+import ratpack.resilience4j.ResilienceModule;
+import ratpack.resilience4j.bulkhead.BulkheadConfig;
+import ratpack.resilience4j.bulkhead.BulkheadRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Applies the circuit breaker, rate limiter, retry and bulkhead definitions of a
+ * {@link ResilienceModule.ResilienceConfig} to the bound registries.
+ * <p>
+ * The definitions of the module's config are applied once, before the first annotated method is prepared or the
+ * server starts, whichever happens first, so that the instances exist before the first request. Later configs,
+ * for example from {@link ResilienceModule.ResilienceConfig#reloadFrom(java.time.Duration, ratpack.func.Factory)},
+ * are applied with {@link #reload(ResilienceModule.ResilienceConfig)}:
+ * <ul>
+ *   <li>circuit breakers and rate limiters of a {@link ReloadableCircuitBreakerRegistry} or
+ *   {@link ReloadableRateLimiterRegistry} are replaced when their definition changed. Other registries cannot
+ *   replace instances, so only new definitions take effect</li>
+ *   <li>retry configs are replaced when their definition changed</li>
+ *   <li>bulkheads are reconfigured in place</li>
+ * </ul>
+ * Calls already in flight complete against the instances they started with.
+ */
+public class ResilienceReloader {
+
+  private final Provider<ResilienceModule.ResilienceConfig> configProvider;
+  private final Provider<CircuitBreakerRegistry> circuitBreakerProvider;
+  private final Provider<RateLimiterRegistry> rateLimiterProvider;
+  private final Provider<RetryConfigRegistry> retryProvider;
+  private final Provider<BulkheadRegistry> bulkheadProvider;
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+  private volatile boolean initialized;
+
+  public ResilienceReloader(Provider<ResilienceModule.ResilienceConfig> configProvider, Provider<CircuitBreakerRegistry> circuitBreakerProvider,
+                            Provider<RateLimiterRegistry> rateLimiterProvider, Provider<RetryConfigRegistry> retryProvider, Provider<BulkheadRegistry> bulkheadProvider) {
+    this.configProvider = configProvider;
+    this.circuitBreakerProvider = circuitBreakerProvider;
+    this.rateLimiterProvider = rateLimiterProvider;
+    this.retryProvider = retryProvider;
+    this.bulkheadProvider = bulkheadProvider;
+  }
+
+  /**
+   * Run the given listener after each reload that replaced an instance or changed the config of a bulkhead, for
+   * example to drop references to the replaced instances.
+   *
+   * @param listener the listener
+   * @return this
+   */
+  public ResilienceReloader onReload(Runnable listener) {
+    listeners.add(listener);
+    return this;
+  }
+
+  /**
+   * Apply the definitions of the module's config, unless they have been applied already.
+   */
+  public void initialize() {
+    if (!initialized) {
+      synchronized (this) {
+        if (!initialized) {
+          reload(configProvider.get());
+        }
+      }
+    }
+  }
+
+  /**
+   * Apply the definitions of the given config.
+   *
+   * @param config the config to apply
+   * @return true if any instance was replaced
+   */
+  public synchronized boolean reload(ResilienceModule.ResilienceConfig config) {
+    // build every config first, so that an invalid definition fails the reload before anything changed
+    config.getCircuitBreakers().values().forEach(CircuitBreakerDefinition::toCircuitBreakerConfig);
+    config.getRateLimiters().values().forEach(RateLimiterDefinition::toRateLimiterConfig);
+    config.getRetries().values().forEach(RetryDefinition::toRetryConfig);
+    Map<String, BulkheadConfig> bulkheads = new LinkedHashMap<>();
+    config.getBulkheads().forEach((name, definition) -> bulkheads.put(name, definition.toBulkheadConfig()));
+    boolean replaced = false;
+    CircuitBreakerRegistry circuitBreakers = circuitBreakerProvider.get();
+    if (circuitBreakers instanceof ReloadableCircuitBreakerRegistry) {
+      replaced |= ((ReloadableCircuitBreakerRegistry) circuitBreakers).define(config.getCircuitBreakers());
+    } else {
+      config.getCircuitBreakers().forEach((name, definition) -> circuitBreakers.circuitBreaker(name, definition.toCircuitBreakerConfig()));
+    }
+    RateLimiterRegistry rateLimiters = rateLimiterProvider.get();
+    if (rateLimiters instanceof ReloadableRateLimiterRegistry) {
+      replaced |= ((ReloadableRateLimiterRegistry) rateLimiters).define(config.getRateLimiters());
+    } else {
+      config.getRateLimiters().forEach((name, definition) -> rateLimiters.rateLimiter(name, definition.toRateLimiterConfig()));
+    }
+    replaced |= retryProvider.get().define(config.getRetries());
+    boolean reconfigured = bulkheadProvider.get().define(bulkheads);
+    initialized = true;
+    if (replaced || reconfigured) {
+      listeners.forEach(Runnable::run);
+    }
+    return replaced;
+  }
+
+}
@@ -0,0 +1,74 @@
+package ratpack.resilience4j.config;
+
+import io.github.robwin.retry.RetryConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link RetryConfig} instances, for example for {@link ratpack.resilience4j.Resilient#retry()}.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default config.
+ */
+@Singleton
+public class RetryConfigRegistry {
+
+  private final RetryConfig defaultConfig;
+  private final ConcurrentMap<String, RetryConfig> retryConfigs = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, RetryDefinition> definitions = new ConcurrentHashMap<>();
+
+  @Inject
+  public RetryConfigRegistry() {
+    this(RetryConfig.ofDefaults());
+  }
+
+  private RetryConfigRegistry(RetryConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static RetryConfigRegistry of(RetryConfig defaultConfig) {
+    return new RetryConfigRegistry(defaultConfig);
+  }
+
+  public static RetryConfigRegistry ofDefaults() {
+    return new RetryConfigRegistry(RetryConfig.ofDefaults());
+  }
+
+  /**
+   * Create or replace the retry configs of the given definitions.
+   *
+   * @param definitions the retry definitions by name
+   * @return true if any existing retry config was replaced
+   */
+  public synchronized boolean define(Map<String, RetryDefinition> definitions) {
+    boolean replaced = false;
+    for (Map.Entry<String, RetryDefinition> entry : definitions.entrySet()) {
+      String name = entry.getKey();
+      RetryDefinition definition = entry.getValue();
+      if (Objects.equals(this.definitions.put(name, definition), definition) && retryConfigs.containsKey(name)) {
+        continue;
+      }
+      replaced |= retryConfigs.put(name, definition.toRetryConfig()) != null;
+    }
+    return replaced;
+  }
+
+  /**
+   * Get the retry config with the given name, using the default config if it does not exist.
+   *
+   * @param name the name of the retry config
+   * @return the retry config
+   */
+  public RetryConfig retryConfig(String name) {
+    RetryConfig retryConfig = retryConfigs.get(name);
+    if (retryConfig == null) {
+      retryConfig = retryConfigs.computeIfAbsent(name, n -> defaultConfig);
+    }
+    return retryConfig;
+  }
+
+}
@@ -0,0 +1,69 @@
+package ratpack.resilience4j.config;
+
+import io.github.robwin.retry.RetryConfig;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The settings of a named retry, as read from Ratpack's config sources. Unset values default to those of
+ * {@link RetryConfig#ofDefaults()}.
+ * <pre>
+ * resilience:
+ *   retries:
+ *     inventory:
+ *       maxAttempts: 3
+ *       waitDuration: PT0.2S
+ * </pre>
+ */
+public class RetryDefinition {
+
+  private static final RetryConfig DEFAULTS = RetryConfig.ofDefaults();
+
+  private int maxAttempts = DEFAULTS.getMaxAttempts();
+  private Duration waitDuration = DEFAULTS.getWaitDuration();
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  public Duration getWaitDuration() {
+    return waitDuration;
+  }
+
+  public void setWaitDuration(Duration waitDuration) {
+    this.waitDuration = waitDuration;
+  }
+
+  /**
+   * @return the retry config of these settings
+   */
+  public RetryConfig toRetryConfig() {
+    return RetryConfig.custom()
+      .maxAttempts(maxAttempts)
+      .waitDuration(waitDuration)
+      .build();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RetryDefinition that = (RetryDefinition) o;
+    return maxAttempts == that.maxAttempts && Objects.equals(waitDuration, that.waitDuration);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(maxAttempts, waitDuration);
+  }
+
+}
@@ -0,0 +1,71 @@
+package ratpack.resilience4j.fallback;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of the last successful result per key, served in place of an error while a dependency is failing.
+ *
+ * @param <T> the type of the cached values
+ */
+public class FallbackCache<T> {
+
+  private final String name;
+  private final FallbackCacheConfig config;
+  private final Cache<Object, T> values;
+
+  private FallbackCache(String name, FallbackCacheConfig config) {
+    this.name = name;
+    this.config = config;
+    this.values = CacheBuilder.newBuilder()
+      .maximumSize(config.getMaximumSize())
+      .expireAfterWrite(config.getTimeToLive().toNanos(), TimeUnit.NANOSECONDS)
+      .build();
+  }
+
+  public static <T> FallbackCache<T> of(String name, FallbackCacheConfig config) {
+    return new FallbackCache<>(name, config);
+  }
+
+  public static <T> FallbackCache<T> ofDefaults(String name) {
+    return new FallbackCache<>(name, FallbackCacheConfig.ofDefaults());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public FallbackCacheConfig getFallbackCacheConfig() {
+    return config;
+  }
+
+  /**
+   * @param key the key of the call
+   * @return the last successful result for the key, or null if there is none within the time to live
+   */
+  public T get(Object key) {
+    return key == null ? null : values.getIfPresent(key);
+  }
+
+  /**
+   * Record a successful result. Null keys and values are ignored.
+   *
+   * @param key the key of the call
+   * @param value the result of the call
+   */
+  public void put(Object key, T value) {
+    if (key != null && value != null) {
+      values.put(key, value);
+    }
+  }
+
+  /**
+   * @return the approximate number of cached values
+   */
+  public long size() {
+    return values.size();
+  }
+
+}
@@ -0,0 +1,83 @@
+package ratpack.resilience4j.fallback;
+
+import java.time.Duration;
+
+/**
+ * Configuration for a {@link FallbackCache}.
+ * <p>
+ * Values are evicted when the cache grows beyond its maximum size, least recently used first, and once they are
+ * older than the time to live, so a fallback is never staler than the time to live.
+ */
+public class FallbackCacheConfig {
+
+  private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+  private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+
+  private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+  private Duration timeToLive = DEFAULT_TIME_TO_LIVE;
+  private boolean revalidate = false;
+
+  private FallbackCacheConfig() {
+  }
+
+  /**
+   * @return the maximum number of values held
+   */
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * @return the time after which a value is evicted
+   */
+  public Duration getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * @return whether a call admitted by a half open circuit breaker is answered with the cached value straight away,
+   * while the call itself runs in the background and refreshes the value
+   */
+  public boolean isRevalidate() {
+    return revalidate;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static FallbackCacheConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final FallbackCacheConfig config = new FallbackCacheConfig();
+
+    public Builder maximumSize(long maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("maximumSize must be at least 1");
+      }
+      config.maximumSize = maximumSize;
+      return this;
+    }
+
+    public Builder timeToLive(Duration timeToLive) {
+      if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+        throw new IllegalArgumentException("timeToLive must be positive");
+      }
+      config.timeToLive = timeToLive;
+      return this;
+    }
+
+    public Builder revalidate(boolean revalidate) {
+      config.revalidate = revalidate;
+      return this;
+    }
+
+    public FallbackCacheConfig build() {
+      return config;
+    }
+  }
+
+}
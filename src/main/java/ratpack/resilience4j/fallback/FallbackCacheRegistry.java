@@ -0,0 +1,71 @@
+package ratpack.resilience4j.fallback;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link FallbackCache} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default config.
+ */
+@Singleton
+public class FallbackCacheRegistry {
+
+  private final FallbackCacheConfig defaultConfig;
+  private final ConcurrentMap<String, FallbackCache<?>> caches = new ConcurrentHashMap<>();
+
+  @Inject
+  public FallbackCacheRegistry() {
+    this(FallbackCacheConfig.ofDefaults());
+  }
+
+  private FallbackCacheRegistry(FallbackCacheConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static FallbackCacheRegistry of(FallbackCacheConfig defaultConfig) {
+    return new FallbackCacheRegistry(defaultConfig);
+  }
+
+  public static FallbackCacheRegistry ofDefaults() {
+    return new FallbackCacheRegistry(FallbackCacheConfig.ofDefaults());
+  }
+
+  /**
+   * @return all caches in the registry
+   */
+  public List<FallbackCache<?>> getAllCaches() {
+    return new ArrayList<>(caches.values());
+  }
+
+  /**
+   * Get the cache with the given name, creating it with the default config if it does not exist.
+   *
+   * @param name the name of the cache
+   * @return the cache
+   */
+  public <T> FallbackCache<T> cache(String name) {
+    return cache(name, defaultConfig);
+  }
+
+  /**
+   * Get the cache with the given name, creating it with the given config if it does not exist.
+   *
+   * @param name the name of the cache
+   * @param config the config used if the cache does not exist
+   * @return the cache
+   */
+  @SuppressWarnings("unchecked")
+  public <T> FallbackCache<T> cache(String name, FallbackCacheConfig config) {
+    FallbackCache<?> cache = caches.get(name);
+    if (cache == null) {
+      cache = caches.computeIfAbsent(name, n -> FallbackCache.of(n, config));
+    }
+    return (FallbackCache<T>) cache;
+  }
+
+}
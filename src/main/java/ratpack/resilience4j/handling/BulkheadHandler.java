@@ -0,0 +1,91 @@
+package ratpack.resilience4j.handling;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import ratpack.exec.Promise;
+import ratpack.func.Function;
+import ratpack.handling.Context;
+import ratpack.handling.Handler;
+import ratpack.http.Response;
+import ratpack.resilience4j.bulkhead.Bulkhead;
+import ratpack.resilience4j.keyed.KeyedBulkheadRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handler that admits requests through a bulkhead before any later handler runs. The permit is held until the
+ * request is closed. Requests that find the bulkhead full are answered with {@code 503 Service Unavailable} and a
+ * {@code Retry-After} header, without reading the request body.
+ * <pre><code>
+ *   all(BulkheadHandler.of(keyedRegistry, "api", RequestKeys.path()))
+ * </code></pre>
+ */
+public class BulkheadHandler implements Handler {
+
+  private static final int SERVICE_UNAVAILABLE = 503;
+
+  private final Bulkhead bulkhead;
+  private final KeyedBulkheadRegistry keyedRegistry;
+  private final String name;
+  private final Function<? super Context, ?> key;
+  private long retryAfterSeconds = 1;
+
+  private BulkheadHandler(Bulkhead bulkhead, KeyedBulkheadRegistry keyedRegistry, String name, Function<? super Context, ?> key) {
+    this.bulkhead = bulkhead;
+    this.keyedRegistry = keyedRegistry;
+    this.name = name;
+    this.key = key;
+  }
+
+  /**
+   * @param bulkhead the bulkhead that admits all requests
+   * @return a handler that admits requests through the bulkhead
+   */
+  public static BulkheadHandler of(Bulkhead bulkhead) {
+    return new BulkheadHandler(bulkhead, null, null, null);
+  }
+
+  /**
+   * @param registry the registry holding a bulkhead per key
+   * @param name the name of the bulkhead whose config is used
+   * @param key the function that selects the key of a request, see {@link RequestKeys}
+   * @return a handler that admits requests through the bulkhead for their key
+   */
+  public static BulkheadHandler of(KeyedBulkheadRegistry registry, String name, Function<? super Context, ?> key) {
+    return new BulkheadHandler(null, registry, name, key);
+  }
+
+  /**
+   * Set the delay advertised in the {@code Retry-After} header of rejected requests. Defaults to one second.
+   *
+   * @param retryAfter the delay, rounded up to whole seconds
+   * @return
+   */
+  public BulkheadHandler retryAfter(Duration retryAfter) {
+    this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    return this;
+  }
+
+  @Override
+  public void handle(Context ctx) throws Exception {
+    Bulkhead bulkhead = this.bulkhead != null ? this.bulkhead : keyedRegistry.bulkhead(name, key.apply(ctx));
+    CompletableFuture<Boolean> permission = bulkhead.acquire(ctx.getExecution().getEventLoop());
+    if (permission.isDone()) {
+      admit(ctx, bulkhead, permission.join());
+    } else {
+      Promise.<Boolean>async(d -> d.accept(permission)).then(permitted -> admit(ctx, bulkhead, permitted));
+    }
+  }
+
+  private void admit(Context ctx, Bulkhead bulkhead, boolean permitted) {
+    if (permitted) {
+      ctx.onClose(outcome -> bulkhead.release());
+      ctx.next();
+    } else {
+      Response response = ctx.getResponse();
+      response.getHeaders().set(HttpHeaderNames.RETRY_AFTER, retryAfterSeconds);
+      response.status(SERVICE_UNAVAILABLE).send();
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package ratpack.resilience4j.handling;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import ratpack.func.Function;
+import ratpack.handling.Context;
+import ratpack.handling.Handler;
+import ratpack.http.Response;
+import ratpack.resilience4j.shed.LoadShedder;
+import ratpack.resilience4j.shed.Priority;
+
+import java.time.Duration;
+
+/**
+ * A handler that sheds requests while the server is overloaded, before any later handler runs. Requests whose
+ * priority is being shed are answered with {@code 503 Service Unavailable} and a {@code Retry-After} header, without
+ * reading the request body.
+ * <pre><code>
+ *   all(LoadSheddingHandler.of(loadShedder, { ctx -&gt; ctx.request.path.startsWith("admin") ? Priority.CRITICAL : Priority.NORMAL }))
+ * </code></pre>
+ */
+public class LoadSheddingHandler implements Handler {
+
+  private static final int SERVICE_UNAVAILABLE = 503;
+
+  private final LoadShedder loadShedder;
+  private final Function<? super Context, Priority> priority;
+  private long retryAfterSeconds = 1;
+
+  private LoadSheddingHandler(LoadShedder loadShedder, Function<? super Context, Priority> priority) {
+    this.loadShedder = loadShedder;
+    this.priority = priority;
+  }
+
+  /**
+   * @param loadShedder the load shedder that admits requests
+   * @param priority the priority of all requests
+   * @return a handler that sheds requests of the given priority while the server is overloaded
+   */
+  public static LoadSheddingHandler of(LoadShedder loadShedder, Priority priority) {
+    return new LoadSheddingHandler(loadShedder, ctx -> priority);
+  }
+
+  /**
+   * @param loadShedder the load shedder that admits requests
+   * @param priority the function that selects the priority of a request
+   * @return a handler that sheds requests by their priority while the server is overloaded
+   */
+  public static LoadSheddingHandler of(LoadShedder loadShedder, Function<? super Context, Priority> priority) {
+    return new LoadSheddingHandler(loadShedder, priority);
+  }
+
+  /**
+   * Set the delay advertised in the {@code Retry-After} header of shed requests. Defaults to one second.
+   *
+   * @param retryAfter the delay, rounded up to whole seconds
+   * @return
+   */
+  public LoadSheddingHandler retryAfter(Duration retryAfter) {
+    this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    return this;
+  }
+
+  @Override
+  public void handle(Context ctx) throws Exception {
+    if (loadShedder.tryAdmit(priority.apply(ctx))) {
+      ctx.next();
+    } else {
+      Response response = ctx.getResponse();
+      response.getHeaders().set(HttpHeaderNames.RETRY_AFTER, retryAfterSeconds);
+      response.status(SERVICE_UNAVAILABLE).send();
+    }
+  }
+
+}
@@ -0,0 +1,80 @@
+package ratpack.resilience4j.handling;
+
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import ratpack.exec.Promise;
+import ratpack.func.Function;
+import ratpack.handling.Context;
+import ratpack.handling.Handler;
+import ratpack.http.Response;
+import ratpack.resilience4j.internal.AsyncPermission;
+import ratpack.resilience4j.keyed.KeyedRateLimiterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handler that admits requests through a rate limiter before any later handler runs. Requests that are not
+ * permitted are answered with {@code 429 Too Many Requests} and a {@code Retry-After} header of the limiter's
+ * refresh period, without reading the request body.
+ * <pre><code>
+ *   all(RateLimitHandler.of(keyedRegistry, "api", RequestKeys.header("X-Tenant")))
+ * </code></pre>
+ * The limiter's timeout is honoured; waiting for a permission is scheduled on the event loop.
+ */
+public class RateLimitHandler implements Handler {
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private final RateLimiter rateLimiter;
+  private final KeyedRateLimiterRegistry keyedRegistry;
+  private final String name;
+  private final Function<? super Context, ?> key;
+
+  private RateLimitHandler(RateLimiter rateLimiter, KeyedRateLimiterRegistry keyedRegistry, String name, Function<? super Context, ?> key) {
+    this.rateLimiter = rateLimiter;
+    this.keyedRegistry = keyedRegistry;
+    this.name = name;
+    this.key = key;
+  }
+
+  /**
+   * @param rateLimiter the rate limiter that admits all requests
+   * @return a handler that admits requests through the rate limiter
+   */
+  public static RateLimitHandler of(RateLimiter rateLimiter) {
+    return new RateLimitHandler(rateLimiter, null, null, null);
+  }
+
+  /**
+   * @param registry the registry holding a rate limiter per key
+   * @param name the name of the rate limiter whose config is used
+   * @param key the function that selects the key of a request, see {@link RequestKeys}
+   * @return a handler that admits requests through the rate limiter for their key
+   */
+  public static RateLimitHandler of(KeyedRateLimiterRegistry registry, String name, Function<? super Context, ?> key) {
+    return new RateLimitHandler(null, registry, name, key);
+  }
+
+  @Override
+  public void handle(Context ctx) throws Exception {
+    RateLimiter rateLimiter = this.rateLimiter != null ? this.rateLimiter : keyedRegistry.rateLimiter(name, key.apply(ctx));
+    CompletableFuture<Boolean> permission = AsyncPermission.acquire(rateLimiter, ctx.getExecution().getEventLoop());
+    if (permission.isDone()) {
+      admit(ctx, rateLimiter, permission.join());
+    } else {
+      Promise.<Boolean>async(d -> d.accept(permission)).then(permitted -> admit(ctx, rateLimiter, permitted));
+    }
+  }
+
+  private static void admit(Context ctx, RateLimiter rateLimiter, boolean permitted) {
+    if (permitted) {
+      ctx.next();
+    } else {
+      long refreshMillis = rateLimiter.getRateLimiterConfig().getLimitRefreshPeriod().toMillis();
+      Response response = ctx.getResponse();
+      response.getHeaders().set(HttpHeaderNames.RETRY_AFTER, Math.max(1, (refreshMillis + 999) / 1000));
+      response.status(TOO_MANY_REQUESTS).send();
+    }
+  }
+
+}
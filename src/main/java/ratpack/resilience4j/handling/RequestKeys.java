@@ -0,0 +1,44 @@
+package ratpack.resilience4j.handling;
+
+import ratpack.func.Function;
+import ratpack.handling.Context;
+
+/**
+ * Key functions for the admission control handlers.
+ */
+public final class RequestKeys {
+
+  private RequestKeys() {
+  }
+
+  /**
+   * @return a key function that selects an instance per request path
+   */
+  public static Function<Context, Object> path() {
+    return ctx -> ctx.getRequest().getPath();
+  }
+
+  /**
+   * Requests without the header all get a null key, so they share a single instance. Use
+   * {@link #header(String, Object)} to name that instance.
+   *
+   * @param name the header name
+   * @return a key function that selects an instance per value of the given request header
+   */
+  public static Function<Context, Object> header(String name) {
+    return ctx -> ctx.getRequest().getHeaders().get(name);
+  }
+
+  /**
+   * @param name the header name
+   * @param defaultKey the key of requests without the header
+   * @return a key function that selects an instance per value of the given request header
+   */
+  public static Function<Context, Object> header(String name, Object defaultKey) {
+    return ctx -> {
+      String value = ctx.getRequest().getHeaders().get(name);
+      return value != null ? value : defaultKey;
+    };
+  }
+
+}
@@ -0,0 +1,56 @@
+package ratpack.resilience4j.internal;
+
+import org.aopalliance.intercept.MethodInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link MethodInterceptor} that resolves what it needs to intercept an annotated method once, and caches it until
+ * it is invalidated.
+ *
+ * @param <M> the metadata resolved for each intercepted method
+ */
+public abstract class AbstractResilienceInterceptor<M> implements MethodInterceptor {
+
+  private final ConcurrentMap<Method, M> cache = new ConcurrentHashMap<>();
+
+  /**
+   * Resolve and cache the metadata of an annotated method ahead of its first invocation.
+   *
+   * @param method the annotated method
+   */
+  public void prepare(Method method) throws Exception {
+    if (!cache.containsKey(method)) {
+      cache.putIfAbsent(method, resolve(method));
+    }
+  }
+
+  /**
+   * Drop the cached metadata of all methods, so that they are resolved again on their next invocation.
+   */
+  public void invalidate() {
+    cache.clear();
+  }
+
+  /**
+   * @param method the intercepted method
+   * @return the cached metadata of the method, resolving it on its first invocation
+   */
+  protected M metadata(Method method) throws Exception {
+    M metadata = cache.get(method);
+    if (metadata == null) {
+      prepare(method);
+      metadata = cache.get(method);
+    }
+    return metadata;
+  }
+
+  /**
+   * @param method the annotated method
+   * @return the metadata needed to intercept the method
+   */
+  protected abstract M resolve(Method method) throws Exception;
+
+}
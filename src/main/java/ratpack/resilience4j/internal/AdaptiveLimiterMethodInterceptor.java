@@ -0,0 +1,159 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Promise;
+import ratpack.resilience4j.AdaptiveLimit;
+import ratpack.resilience4j.AdaptiveLimiterTransformer;
+import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.limit.AdaptiveLimiter;
+import ratpack.resilience4j.limit.AdaptiveLimiterRegistry;
+import ratpack.resilience4j.limit.LimitExceededException;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link AdaptiveLimit}. Promises are transformed
+ * with the adaptive limiter found in the annotation. Methods returning a CompletionStage or a plain value take a
+ * permit before the method is invoked and return it, with the measured latency, once the result is complete.
+ * Methods returning an Observable or a Flowable are not limited, since invoking them only builds the stream and its
+ * latency would understate that of the calls sharing the limiter.
+ * <p>
+ * The annotation, limiter, recovery function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
+ */
+public class AdaptiveLimiterMethodInterceptor extends AbstractResilienceInterceptor<AdaptiveLimiterMethodInterceptor.Metadata> {
+
+  private final Provider<AdaptiveLimiterRegistry> provider;
+  private final Provider<Injector> injectorProvider;
+  private final Provider<ResilienceMetrics> metricsProvider;
+
+  @Inject
+  public AdaptiveLimiterMethodInterceptor(Provider<AdaptiveLimiterRegistry> provider, Provider<Injector> injectorProvider, Provider<ResilienceMetrics> metricsProvider) {
+    this.provider = provider;
+    this.injectorProvider = injectorProvider;
+    this.metricsProvider = metricsProvider;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    AdaptiveLimiter limiter = metadata.limiter;
+    if (limiter == null) {
+      return invocation.proceed();
+    }
+    switch (metadata.returnType) {
+      case PROMISE:
+      case DYNAMIC:
+        Object result = invocation.proceed();
+        if (result instanceof Promise) {
+          return ((Promise<?>) result).transform(metadata.transformer);
+        }
+        return result;
+      case OBSERVABLE:
+      case FLOWABLE:
+        return invocation.proceed();
+      case COMPLETION_STAGE:
+        if (!limiter.tryAcquire()) {
+          CompletableFuture exceeded = new CompletableFuture();
+          exceeded.completeExceptionally(limitExceeded(limiter));
+          return metadata.customRecovery ? exceeded.exceptionally(t -> recover(metadata.recoveryFunction, (Throwable) t)) : exceeded;
+        }
+        long start = System.nanoTime();
+        CompletionStage stage;
+        try {
+          stage = (CompletionStage) invocation.proceed();
+        } catch (Throwable t) {
+          limiter.onError(System.nanoTime() - start, t);
+          throw t;
+        }
+        if (stage == null) {
+          limiter.release();
+          return null;
+        }
+        return stage.whenComplete((v, t) -> {
+          long nanos = System.nanoTime() - start;
+          if (t != null) {
+            limiter.onError(nanos, t instanceof CompletionException ? ((Throwable) t).getCause() : (Throwable) t);
+          } else {
+            limiter.onSuccess(nanos);
+          }
+        });
+      default:
+        if (!limiter.tryAcquire()) {
+          Throwable t = limitExceeded(limiter);
+          if (metadata.customRecovery) {
+            return metadata.recoveryFunction.apply(t);
+          }
+          throw t;
+        }
+        long begin = System.nanoTime();
+        try {
+          Object value = invocation.proceed();
+          limiter.onSuccess(System.nanoTime() - begin);
+          return value;
+        } catch (Throwable t) {
+          limiter.onError(System.nanoTime() - begin, t);
+          throw t;
+        }
+    }
+  }
+
+  private static LimitExceededException limitExceeded(AdaptiveLimiter limiter) {
+    return new LimitExceededException("AdaptiveLimiter " + limiter.getName() + " is at its limit of " + limiter.getLimit());
+  }
+
+  private static Object recover(RecoveryFunction<?> recoveryFunction, Throwable t) {
+    try {
+      return recoveryFunction.apply(t instanceof CompletionException ? t.getCause() : t);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    AdaptiveLimit annotation = method.getAnnotation(AdaptiveLimit.class);
+    AdaptiveLimiter limiter = provider.get().limiter(annotation.name());
+    RecoveryFunction<?> recoveryFunction = RecoveryFunctions.resolve(annotation.recovery(), injectorProvider.get());
+    boolean customRecovery = !RecoveryFunctions.isDefault(annotation.recovery());
+    AdaptiveLimiterTransformer transformer = null;
+    if (limiter != null) {
+      transformer = AdaptiveLimiterTransformer.of(limiter);
+      if (customRecovery) {
+        transformer = transformer.recover(recoveryFunction);
+      }
+      ResilienceMetrics metrics = metricsProvider.get();
+      if (metrics != null) {
+        transformer = transformer.metrics(metrics);
+      }
+    }
+    return new Metadata(limiter, recoveryFunction, customRecovery, transformer, ReturnType.of(method));
+  }
+
+  static final class Metadata {
+    private final AdaptiveLimiter limiter;
+    private final RecoveryFunction<?> recoveryFunction;
+    private final boolean customRecovery;
+    private final AdaptiveLimiterTransformer transformer;
+    private final ReturnType returnType;
+
+    private Metadata(AdaptiveLimiter limiter, RecoveryFunction<?> recoveryFunction, boolean customRecovery, AdaptiveLimiterTransformer transformer, ReturnType returnType) {
+      this.limiter = limiter;
+      this.recoveryFunction = recoveryFunction;
+      this.customRecovery = customRecovery;
+      this.transformer = transformer;
+      this.returnType = returnType;
+    }
+  }
+
+}
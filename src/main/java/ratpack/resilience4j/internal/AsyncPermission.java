@@ -0,0 +1,198 @@
+package ratpack.resilience4j.internal;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+import ratpack.resilience4j.bulkhead.Bulkhead;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Acquires {@link RateLimiter} and {@link Bulkhead} permissions without blocking the calling thread.
+ * <p>
+ * A rate limiter permission is first requested with a zero timeout, which never parks the thread. If the limiter is
+ * saturated, the caller joins a queue of waiters for that limiter and is rejected once the configured timeout
+ * elapses. While the queue is not empty, a new caller does not take a permission ahead of it.
+ * <p>
+ * The 0.8.2 rate limiter can neither reserve a future permission nor tell when the next one is issued, so the queue
+ * is served by polling: one task per limiter, scheduled on the Ratpack scheduler (the current execution's event loop
+ * when there is one), asks for a permission with a zero timeout, spaced by the time it takes the limiter to issue a
+ * single permit, and hands each permission to the oldest waiter. Waiters are therefore served first come, first
+ * served, but up to one permit interval later than a blocking wait would be.
+ */
+public final class AsyncPermission {
+
+  private static final CompletableFuture<Boolean> GRANTED = CompletableFuture.completedFuture(true);
+  private static final CompletableFuture<Boolean> DENIED = CompletableFuture.completedFuture(false);
+
+  // weak keys, so that the queues of evicted keyed limiters go with them
+  private static final LoadingCache<RateLimiter, WaitQueue> QUEUES = CacheBuilder.newBuilder()
+    .weakKeys()
+    .build(CacheLoader.from(WaitQueue::new));
+
+  private AsyncPermission() {
+  }
+
+  /**
+   * Acquire a permission from the given rate limiter, scheduling any wait on the Ratpack scheduler.
+   * If called from a thread that is not managed by Ratpack, this falls back to a blocking wait.
+   *
+   * @param rateLimiter the rate limiter to acquire a permission from
+   * @return a future that completes with {@code true} if a permission was acquired within the timeout
+   */
+  public static CompletableFuture<Boolean> acquire(RateLimiter rateLimiter) {
+    Optional<ScheduledExecutorService> scheduler = Delays.scheduler();
+    if (scheduler.isPresent()) {
+      return acquire(rateLimiter, scheduler.get());
+    }
+    RateLimiterConfig rateLimiterConfig = rateLimiter.getRateLimiterConfig();
+    boolean permission = rateLimiter.getPermission(rateLimiterConfig.getTimeoutDuration());
+    if (Thread.interrupted()) {
+      throw new IllegalStateException("Thread was interrupted during permission wait");
+    }
+    return permission ? GRANTED : DENIED;
+  }
+
+  /**
+   * Acquire a permission from the given rate limiter, scheduling any wait on the given scheduler.
+   *
+   * @param rateLimiter the rate limiter to acquire a permission from
+   * @param scheduler the scheduler used to retry acquisition while the limiter is saturated
+   * @return a future that completes with {@code true} if a permission was acquired within the timeout
+   */
+  public static CompletableFuture<Boolean> acquire(RateLimiter rateLimiter, ScheduledExecutorService scheduler) {
+    WaitQueue queue = QUEUES.getIfPresent(rateLimiter);
+    if ((queue == null || queue.isEmpty()) && rateLimiter.getPermission(Duration.ZERO)) {
+      return GRANTED;
+    }
+    long timeoutNanos = rateLimiter.getRateLimiterConfig().getTimeoutDuration().toNanos();
+    if (timeoutNanos <= 0) {
+      return DENIED;
+    }
+    if (queue == null) {
+      queue = QUEUES.getUnchecked(rateLimiter);
+    }
+    return queue.enqueue(scheduler, timeoutNanos);
+  }
+
+  /**
+   * Acquire a permit from the given bulkhead, timing out any wait on the Ratpack scheduler.
+   * If called from a thread that is not managed by Ratpack, the bulkhead is not waited on.
+   *
+   * @param bulkhead the bulkhead to acquire a permit from
+   * @return a future that completes with {@code true} if a permit was acquired
+   */
+  public static CompletableFuture<Boolean> acquire(Bulkhead bulkhead) {
+    Optional<ScheduledExecutorService> scheduler = Delays.scheduler();
+    if (scheduler.isPresent()) {
+      return bulkhead.acquire(scheduler.get());
+    }
+    return bulkhead.tryAcquire() ? GRANTED : DENIED;
+  }
+
+  private static final class WaitQueue {
+
+    private final RateLimiter rateLimiter;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean polling = new AtomicBoolean();
+
+    private WaitQueue(RateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+    }
+
+    private boolean isEmpty() {
+      return waiters.isEmpty();
+    }
+
+    private CompletableFuture<Boolean> enqueue(ScheduledExecutorService scheduler, long timeoutNanos) {
+      Waiter waiter = new Waiter();
+      waiters.add(waiter);
+      waiter.timeout = scheduler.schedule(() -> waiter.expire(this), timeoutNanos, TimeUnit.NANOSECONDS);
+      if (polling.compareAndSet(false, true)) {
+        schedulePoll(scheduler, timeoutNanos);
+      }
+      return waiter.result;
+    }
+
+    private void schedulePoll(ScheduledExecutorService scheduler, long maxDelayNanos) {
+      RateLimiterConfig config = rateLimiter.getRateLimiterConfig();
+      long interval = Math.max(1, config.getLimitRefreshPeriod().toNanos() / Math.max(1, config.getLimitForPeriod()));
+      scheduler.schedule(() -> poll(scheduler), Math.min(interval, maxDelayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void poll(ScheduledExecutorService scheduler) {
+      try {
+        Waiter waiter;
+        while ((waiter = waiters.peek()) != null) {
+          if (!rateLimiter.getPermission(Duration.ZERO)) {
+            schedulePoll(scheduler, Long.MAX_VALUE);
+            return;
+          }
+          // a waiter that timed out since the peek passes the permission on to the next one
+          waiter = waiters.poll();
+          while (waiter != null && !waiter.grant()) {
+            waiter = waiters.poll();
+          }
+        }
+      } catch (Throwable t) {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+          waiter.fail(t);
+        }
+      }
+      polling.set(false);
+      // a caller may have queued after the queue was drained but before polling stopped
+      if (!waiters.isEmpty() && polling.compareAndSet(false, true)) {
+        schedulePoll(scheduler, Long.MAX_VALUE);
+      }
+    }
+  }
+
+  private static final class Waiter {
+
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    private volatile ScheduledFuture<?> timeout;
+
+    private boolean grant() {
+      if (done.compareAndSet(false, true)) {
+        cancelTimeout();
+        result.complete(true);
+        return true;
+      }
+      return false;
+    }
+
+    private void fail(Throwable t) {
+      if (done.compareAndSet(false, true)) {
+        cancelTimeout();
+        result.completeExceptionally(t);
+      }
+    }
+
+    private void expire(WaitQueue queue) {
+      if (done.compareAndSet(false, true)) {
+        queue.waiters.remove(this);
+        result.complete(false);
+      }
+    }
+
+    private void cancelTimeout() {
+      ScheduledFuture<?> timeout = this.timeout;
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+package ratpack.resilience4j.internal;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The wait before a retry: the configured wait duration, grown by a multiplier after each failed attempt up to an
+ * optional maximum, then randomized by a jitter factor in either direction.
+ */
+public final class Backoff {
+
+  public static final Backoff NONE = new Backoff(1, null, 0);
+
+  private final double multiplier;
+  private final Duration maxInterval;
+  private final double jitter;
+
+  private Backoff(double multiplier, Duration maxInterval, double jitter) {
+    this.multiplier = multiplier;
+    this.maxInterval = maxInterval;
+    this.jitter = jitter;
+  }
+
+  /**
+   * @param multiplier the factor applied to the wait after each failed attempt
+   * @param maxInterval the upper bound of the wait, or null for none
+   * @return a backoff with this jitter and the given growth
+   */
+  public Backoff exponential(double multiplier, Duration maxInterval) {
+    if (multiplier < 1) {
+      throw new IllegalArgumentException("multiplier must be at least 1");
+    }
+    return new Backoff(multiplier, maxInterval, jitter);
+  }
+
+  /**
+   * @param jitter the randomization factor, between 0 and 1
+   * @return a backoff with this growth and the given jitter
+   */
+  public Backoff jitter(double jitter) {
+    if (jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("jitter must be between 0 and 1");
+    }
+    return new Backoff(multiplier, maxInterval, jitter);
+  }
+
+  /**
+   * @param waitDuration the wait before the first retry
+   * @param attempt the number of attempts that failed so far, starting at 1
+   * @return the wait before the next attempt, in nanoseconds
+   */
+  public long delayNanos(Duration waitDuration, int attempt) {
+    double delay = waitDuration.toNanos() * Math.pow(multiplier, attempt - 1);
+    if (maxInterval != null) {
+      delay = Math.min(delay, maxInterval.toNanos());
+    }
+    if (jitter > 0) {
+      delay = delay * (1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+    return (long) delay;
+  }
+
+}
@@ -0,0 +1,129 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.ratelimiter.RateLimiterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Upstream;
+import ratpack.func.Function;
+import ratpack.resilience4j.Batch;
+import ratpack.resilience4j.KeyFunction;
+import ratpack.resilience4j.ResiliencePipeline;
+import ratpack.resilience4j.batch.BatchLoader;
+import ratpack.resilience4j.batch.Batcher;
+import ratpack.resilience4j.batch.BatcherConfig;
+import ratpack.resilience4j.batch.BatcherRegistry;
+import ratpack.resilience4j.config.RetryConfigRegistry;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link Batch}. Methods that return a Promise are
+ * not invoked; the promise of the value of their key is returned from the method's batcher instead. Other methods are
+ * invoked unchanged.
+ * <p>
+ * The annotation, batcher, key function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}. The policy of each batch is looked up on its first batch, and again
+ * after {@link #invalidate()}, so that batches use the instances of the latest config.
+ */
+public class BatchingMethodInterceptor extends AbstractResilienceInterceptor<BatchingMethodInterceptor.Metadata> {
+
+  private final Provider<BatcherRegistry> provider;
+  private final Provider<Injector> injectorProvider;
+  private final Provider<CircuitBreakerRegistry> circuitBreakerProvider;
+  private final Provider<RateLimiterRegistry> rateLimiterProvider;
+  private final Provider<RetryConfigRegistry> retryProvider;
+  private final ConcurrentMap<Method, ResiliencePipeline<Map<Object, Object>>> policies = new ConcurrentHashMap<>();
+
+  @Inject
+  public BatchingMethodInterceptor(Provider<BatcherRegistry> provider, Provider<Injector> injectorProvider, Provider<CircuitBreakerRegistry> circuitBreakerProvider,
+                                   Provider<RateLimiterRegistry> rateLimiterProvider, Provider<RetryConfigRegistry> retryProvider) {
+    this.provider = provider;
+    this.injectorProvider = injectorProvider;
+    this.circuitBreakerProvider = circuitBreakerProvider;
+    this.rateLimiterProvider = rateLimiterProvider;
+    this.retryProvider = retryProvider;
+  }
+
+  /**
+   * Drop the cached policies of all methods, so that their next batches look up their instances again. The batchers
+   * themselves are kept, along with the batches they are collecting.
+   */
+  @Override
+  public void invalidate() {
+    policies.clear();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    if (metadata.returnType != ReturnType.PROMISE) {
+      return invocation.proceed();
+    }
+    Object[] arguments = invocation.getArguments();
+    Object key;
+    if (metadata.keyFunction != null) {
+      key = metadata.keyFunction.apply(arguments);
+    } else {
+      key = arguments.length == 1 ? arguments[0] : Arrays.asList(arguments.clone());
+    }
+    return ((Batcher<Object, Object>) metadata.batcher).load(key);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    Batch annotation = method.getAnnotation(Batch.class);
+    Injector injector = injectorProvider.get();
+    BatchLoader<Object, Object> loader = RecoveryFunctions.instance(annotation.loader(), injector);
+    BatcherConfig config = BatcherConfig.custom()
+      .maxBatchSize(annotation.maxBatchSize())
+      .maxDelay(Duration.ofNanos(annotation.unit().toNanos(annotation.maxDelay())))
+      .build();
+    Function<Upstream<? extends Map<Object, Object>>, Upstream<Map<Object, Object>>> policy = null;
+    if (!annotation.retry().isEmpty() || !annotation.circuitBreaker().isEmpty() || !annotation.rateLimiter().isEmpty()) {
+      policy = upstream -> policies.computeIfAbsent(method, m -> policy(annotation)).apply(upstream);
+    }
+    Batcher<Object, Object> batcher = annotation.name().isEmpty()
+      ? Batcher.of(method.getName(), config, loader, policy)
+      : provider.get().batcher(annotation.name(), config, loader, policy);
+    KeyFunction keyFunction = KeyFunctions.resolve(annotation.key(), injector);
+    return new Metadata(batcher, keyFunction, ReturnType.of(method));
+  }
+
+  private ResiliencePipeline<Map<Object, Object>> policy(Batch annotation) {
+    ResiliencePipeline<Map<Object, Object>> policy = ResiliencePipeline.of();
+    if (!annotation.retry().isEmpty()) {
+      policy = policy.retry(retryProvider.get().retryConfig(annotation.retry()));
+    }
+    if (!annotation.circuitBreaker().isEmpty()) {
+      policy = policy.circuitBreaker(circuitBreakerProvider.get().circuitBreaker(annotation.circuitBreaker()));
+    }
+    if (!annotation.rateLimiter().isEmpty()) {
+      policy = policy.rateLimiter(rateLimiterProvider.get().rateLimiter(annotation.rateLimiter()));
+    }
+    return policy;
+  }
+
+  static final class Metadata {
+    private final Batcher<?, ?> batcher;
+    private final KeyFunction keyFunction;
+    private final ReturnType returnType;
+
+    private Metadata(Batcher<?, ?> batcher, KeyFunction keyFunction, ReturnType returnType) {
+      this.batcher = batcher;
+      this.keyFunction = keyFunction;
+      this.returnType = returnType;
+    }
+  }
+
+}
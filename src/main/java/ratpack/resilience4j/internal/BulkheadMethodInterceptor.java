@@ -0,0 +1,142 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Promise;
+import ratpack.resilience4j.BulkheadTransformer;
+import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.bulkhead.Bulkhead;
+import ratpack.resilience4j.bulkhead.BulkheadFullException;
+import ratpack.resilience4j.bulkhead.BulkheadRegistry;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link ratpack.resilience4j.Bulkhead}. Promises
+ * are transformed with the bulkhead found in the annotation. Methods returning a CompletionStage or a plain value
+ * take a permit before the method is invoked and return it once the result is complete. A CompletionStage method
+ * that waits for a permit is invoked on the calling execution once the permit is granted.
+ * <p>
+ * The annotation, bulkhead, recovery function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
+ */
+public class BulkheadMethodInterceptor extends AbstractResilienceInterceptor<BulkheadMethodInterceptor.Metadata> {
+
+  private final Provider<BulkheadRegistry> provider;
+  private final Provider<Injector> injectorProvider;
+  private final Provider<ResilienceMetrics> metricsProvider;
+
+  @Inject
+  public BulkheadMethodInterceptor(Provider<BulkheadRegistry> provider, Provider<Injector> injectorProvider, Provider<ResilienceMetrics> metricsProvider) {
+    this.provider = provider;
+    this.injectorProvider = injectorProvider;
+    this.metricsProvider = metricsProvider;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    Bulkhead bulkhead = metadata.bulkhead;
+    if (bulkhead == null) {
+      return invocation.proceed();
+    }
+    switch (metadata.returnType) {
+      case PROMISE:
+      case DYNAMIC:
+        Object result = invocation.proceed();
+        if (result instanceof Promise) {
+          return ((Promise<?>) result).transform(metadata.transformer);
+        }
+        return result;
+      case COMPLETION_STAGE:
+        return CompletionStages.whenPermitted(AsyncPermission.acquire(bulkhead), permission -> {
+          if (!permission) {
+            CompletableFuture full = new CompletableFuture();
+            full.completeExceptionally(new BulkheadFullException("Bulkhead " + bulkhead.getName() + " is full"));
+            return metadata.customRecovery ? full.exceptionally(t -> recover(metadata.recoveryFunction, (Throwable) t)) : full;
+          }
+          CompletionStage stage;
+          try {
+            stage = (CompletionStage) invocation.proceed();
+          } catch (Throwable t) {
+            bulkhead.release();
+            CompletableFuture failed = new CompletableFuture();
+            failed.completeExceptionally(t);
+            return failed;
+          }
+          if (stage == null) {
+            bulkhead.release();
+            return CompletableFuture.completedFuture(null);
+          }
+          return stage.whenComplete((v, t) -> bulkhead.release());
+        });
+      default:
+        if (!bulkhead.tryAcquire()) {
+          Throwable t = new BulkheadFullException("Bulkhead " + bulkhead.getName() + " is full");
+          if (metadata.customRecovery) {
+            return metadata.recoveryFunction.apply(t);
+          }
+          throw t;
+        }
+        try {
+          return invocation.proceed();
+        } finally {
+          bulkhead.release();
+        }
+    }
+  }
+
+  private static Object recover(RecoveryFunction<?> recoveryFunction, Throwable t) {
+    try {
+      return recoveryFunction.apply(t instanceof CompletionException ? t.getCause() : t);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    ratpack.resilience4j.Bulkhead annotation = method.getAnnotation(ratpack.resilience4j.Bulkhead.class);
+    Bulkhead bulkhead = provider.get().bulkhead(annotation.name());
+    RecoveryFunction<?> recoveryFunction = RecoveryFunctions.resolve(annotation.recovery(), injectorProvider.get());
+    boolean customRecovery = !RecoveryFunctions.isDefault(annotation.recovery());
+    BulkheadTransformer transformer = null;
+    if (bulkhead != null) {
+      transformer = BulkheadTransformer.of(bulkhead);
+      if (customRecovery) {
+        transformer = transformer.recover(recoveryFunction);
+      }
+      ResilienceMetrics metrics = metricsProvider.get();
+      if (metrics != null) {
+        transformer = transformer.metrics(metrics);
+      }
+    }
+    return new Metadata(bulkhead, recoveryFunction, customRecovery, transformer, ReturnType.of(method));
+  }
+
+  static final class Metadata {
+    private final Bulkhead bulkhead;
+    private final RecoveryFunction<?> recoveryFunction;
+    private final boolean customRecovery;
+    private final BulkheadTransformer transformer;
+    private final ReturnType returnType;
+
+    private Metadata(Bulkhead bulkhead, RecoveryFunction<?> recoveryFunction, boolean customRecovery, BulkheadTransformer transformer, ReturnType returnType) {
+      this.bulkhead = bulkhead;
+      this.recoveryFunction = recoveryFunction;
+      this.customRecovery = customRecovery;
+      this.transformer = transformer;
+      this.returnType = returnType;
+    }
+  }
+
+}
@@ -1,23 +1,31 @@
 package ratpack.resilience4j.internal;
 
+import com.google.inject.Injector;
 import com.google.inject.Provider;
 import io.github.robwin.circuitbreaker.CircuitBreaker;
-import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
 import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
 import io.github.robwin.circuitbreaker.operator.CircuitBreakerOperator;
-import io.github.robwin.metrics.StopWatch;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
-import javaslang.control.Try;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import ratpack.exec.Promise;
 import ratpack.resilience4j.CircuitBreak;
 import ratpack.resilience4j.CircuitBreakerTransformer;
+import ratpack.resilience4j.KeyFunction;
 import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.ResilienceModule;
+import ratpack.resilience4j.fallback.FallbackCache;
+import ratpack.resilience4j.fallback.FallbackCacheRegistry;
+import ratpack.resilience4j.keyed.KeyedCircuitBreakerRegistry;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+import ratpack.resilience4j.window.SlidingWindowCircuitBreakerRegistry;
+import ratpack.resilience4j.window.SlidingWindowType;
 
 import javax.inject.Inject;
+import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
@@ -25,76 +33,209 @@ import java.util.concurrent.CompletionStage;
  * A {@link MethodInterceptor} to handle all methods annotated with {@link CircuitBreak}. It will
  * handle methods that return a Promise only. It will add a transform to the promise with the circuit breaker and
  * fallback found in the annotation.
+ * <p>
+ * Promises of methods with a fallback cache are transformed per invocation, keyed by the method arguments.
+ * <p>
+ * Methods declared to return a CompletionStage are not invoked while the circuit is open, and the recovered
+ * rejection is returned as an already completed future.
+ * <p>
+ * The annotation, circuit breaker, recovery function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
  */
-public class CircuitBreakerMethodInterceptor implements MethodInterceptor {
+public class CircuitBreakerMethodInterceptor extends AbstractResilienceInterceptor<CircuitBreakerMethodInterceptor.Metadata> {
 
   private final Provider<CircuitBreakerRegistry> provider;
+  private final Provider<Injector> injectorProvider;
+  private final Provider<ResilienceMetrics> metricsProvider;
+  private final Provider<KeyedCircuitBreakerRegistry> keyedProvider;
+  private final Provider<FallbackCacheRegistry> fallbackProvider;
+  private final Provider<ResilienceModule.ResilienceConfig> configProvider;
+  private final Provider<SlidingWindowCircuitBreakerRegistry> slidingWindowProvider;
 
   @Inject
-  public CircuitBreakerMethodInterceptor(Provider<CircuitBreakerRegistry> provider) {
+  public CircuitBreakerMethodInterceptor(Provider<CircuitBreakerRegistry> provider, Provider<Injector> injectorProvider, Provider<ResilienceMetrics> metricsProvider, Provider<KeyedCircuitBreakerRegistry> keyedProvider,
+                                         Provider<FallbackCacheRegistry> fallbackProvider, Provider<ResilienceModule.ResilienceConfig> configProvider,
+                                         Provider<SlidingWindowCircuitBreakerRegistry> slidingWindowProvider) {
     this.provider = provider;
+    this.injectorProvider = injectorProvider;
+    this.metricsProvider = metricsProvider;
+    this.keyedProvider = keyedProvider;
+    this.fallbackProvider = fallbackProvider;
+    this.configProvider = configProvider;
+    this.slidingWindowProvider = slidingWindowProvider;
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public Object invoke(MethodInvocation invocation) throws Throwable {
-    CircuitBreak annotation = invocation.getMethod().getAnnotation(CircuitBreak.class);
-    CircuitBreaker breaker = provider.get().circuitBreaker(annotation.name());
-    if (breaker == null) {
+    Metadata metadata = metadata(invocation.getMethod());
+    if (metadata.breaker == null) {
       return invocation.proceed();
     }
-    RecoveryFunction<?> recoveryFunction = annotation.recovery().newInstance();
+    CircuitBreaker breaker = metadata.breaker;
+    CircuitBreakerTransformer transformer = metadata.transformer;
+    if (metadata.keyFunction != null) {
+      breaker = metadata.keyedRegistry.circuitBreaker(metadata.name, metadata.keyFunction.apply(invocation.getArguments()));
+      transformer = transformer(breaker, metadata.customRecovery, metadata.metrics);
+    }
+    if (metadata.fallbackCache != null) {
+      if (transformer == metadata.transformer) {
+        transformer = transformer(breaker, metadata.customRecovery, metadata.metrics);
+      }
+      Object cacheKey = new MethodKey(invocation.getMethod(), Arrays.asList(invocation.getArguments().clone()));
+      transformer = transformer.fallbackCache(metadata.fallbackCache, () -> cacheKey);
+    }
+    RecoveryFunction<?> recoveryFunction = metadata.recoveryFunction;
+    if (metadata.returnType == ReturnType.COMPLETION_STAGE) {
+      if (!breaker.isCallPermitted()) {
+        return rejected(breaker, metadata);
+      }
+      long start = System.nanoTime();
+      CompletionStage stage;
+      try {
+        stage = (CompletionStage) invocation.proceed();
+      } catch (Exception e) {
+        breaker.onError(Duration.ofNanos(System.nanoTime() - start), e);
+        return recovered(metadata, e);
+      }
+      if (stage == null) {
+        CircuitBreakers.release(breaker);
+        return null;
+      }
+      return measured(stage, breaker, start, metadata);
+    }
     Object result;
-    StopWatch stopWatchOuter = StopWatch.start(breaker.getName());
+    long start = System.nanoTime();
     try {
       result = invocation.proceed();
     } catch (Exception e) {
-      breaker.onError(stopWatchOuter.getProcessingDuration(), e);
+      breaker.onError(Duration.ofNanos(System.nanoTime() - start), e);
       return recoveryFunction.apply((Throwable) e);
     }
-    if (result instanceof Promise<?>) {
-      CircuitBreakerTransformer transformer = CircuitBreakerTransformer.of(breaker);
-      if (!annotation.recovery().isAssignableFrom(DefaultRecoveryFunction.class)) {
-        transformer = transformer.recover(recoveryFunction);
-      }
-      result = ((Promise<?>) result).transform(transformer);
-    } else if (result instanceof Observable) {
-      CircuitBreakerOperator operator = CircuitBreakerOperator.of(breaker);
-      result = ((Observable<?>) result).lift(operator).onErrorReturn(t -> recoveryFunction.apply((Throwable) t));
-    } else if (result instanceof Flowable) {
-      CircuitBreakerOperator operator = CircuitBreakerOperator.of(breaker);
-      result = ((Flowable<?>) result).lift(operator).onErrorReturn(t -> recoveryFunction.apply((Throwable) t));
-    } else if (result instanceof CompletionStage) {
-      CompletionStage stage = (CompletionStage) result;
-      StopWatch stopWatch;
-      if (breaker.isCallPermitted()) {
-        stopWatch = StopWatch.start(breaker.getName());
-        return stage.handle((v, t) -> {
-          Duration d = stopWatch.stop().getProcessingDuration();
-          if (t != null) {
-            breaker.onError(d, (Throwable) t);
-            try {
-              return recoveryFunction.apply((Throwable) t);
-            } catch (Exception e) {
-              return v;
-            }
-          } else if (v != null) {
-            breaker.onSuccess(d);
-          }
-          return v;
-        });
-      } else {
-        return CompletableFuture.supplyAsync(() -> {
-          Throwable t = new CircuitBreakerOpenException("CircuitBreaker ${circuitBreaker.name} is open");
-          try {
-            return recoveryFunction.apply((Throwable) t);
-          } catch (Throwable t2) {
-            return null;
+    if (result == null) {
+      return null;
+    }
+    switch (metadata.returnType.resolve(result)) {
+      case PROMISE:
+        return ((Promise<?>) result).transform(transformer);
+      case OBSERVABLE:
+        CircuitBreakerOperator observableOperator = CircuitBreakerOperator.of(breaker);
+        return ((Observable<?>) result).lift(observableOperator).onErrorReturn(t -> recoveryFunction.apply((Throwable) t));
+      case FLOWABLE:
+        CircuitBreakerOperator flowableOperator = CircuitBreakerOperator.of(breaker);
+        return ((Flowable<?>) result).lift(flowableOperator).onErrorReturn(t -> recoveryFunction.apply((Throwable) t));
+      case COMPLETION_STAGE:
+        // only known to be a stage once invoked, so an open circuit can only replace its result
+        if (!breaker.isCallPermitted()) {
+          return rejected(breaker, metadata);
+        }
+        return measured((CompletionStage) result, breaker, start, metadata);
+      default:
+        return result;
+    }
+  }
+
+  private static CompletionStage<?> measured(CompletionStage<?> stage, CircuitBreaker breaker, long start, Metadata metadata) {
+    CompletableFuture<Object> measured = new CompletableFuture<>();
+    stage.whenComplete((v, t) -> {
+      Duration d = Duration.ofNanos(System.nanoTime() - start);
+      if (t != null) {
+        breaker.onError(d, t);
+        recovered(metadata, t).whenComplete((r, t2) -> {
+          if (t2 != null) {
+            measured.completeExceptionally(t2);
+          } else {
+            measured.complete(r);
           }
         });
+        return;
       }
+      breaker.onSuccess(d);
+      measured.complete(v);
+    });
+    return metadata.resumeOnEventLoop ? CompletionStages.resume(measured) : measured;
+  }
+
+  private static CompletionStage<?> rejected(CircuitBreaker breaker, Metadata metadata) {
+    StacklessCircuitBreakerOpenException t = CircuitBreakers.openException(breaker);
+    return recovered(metadata, t);
+  }
+
+  // as for promises, a stage only recovers with a custom recovery function and otherwise fails, as it does when the
+  // recovery function rethrows, rather than completing with null
+  private static CompletionStage<?> recovered(Metadata metadata, Throwable t) {
+    if (metadata.customRecovery == null) {
+      return CompletionStages.failed(t);
+    }
+    try {
+      return CompletionStages.completed(metadata.customRecovery.apply(t));
+    } catch (Throwable t2) {
+      return CompletionStages.failed(t2);
+    }
+  }
+
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    CircuitBreak annotation = method.getAnnotation(CircuitBreak.class);
+    CircuitBreaker breaker = annotation.slidingWindow() == SlidingWindowType.TIME_BASED
+      ? slidingWindowProvider.get().circuitBreaker(annotation.name())
+      : provider.get().circuitBreaker(annotation.name());
+    Injector injector = injectorProvider.get();
+    RecoveryFunction<?> recoveryFunction = RecoveryFunctions.resolve(annotation.recovery(), injector);
+    RecoveryFunction<?> customRecovery = RecoveryFunctions.isDefault(annotation.recovery()) ? null : recoveryFunction;
+    KeyFunction keyFunction = KeyFunctions.resolve(annotation.key(), injector);
+    ResilienceMetrics metrics = metricsProvider.get();
+    CircuitBreakerTransformer transformer = null;
+    if (breaker != null && keyFunction == null) {
+      transformer = transformer(breaker, customRecovery, metrics);
+    }
+    KeyedCircuitBreakerRegistry keyedRegistry = keyFunction != null ? keyedProvider.get() : null;
+    FallbackCache<?> fallbackCache = annotation.fallbackCache().isEmpty() ? null : fallbackProvider.get().cache(annotation.fallbackCache());
+    boolean resumeOnEventLoop = configProvider.get().isResumeOnEventLoop();
+    return new Metadata(annotation.name(), breaker, recoveryFunction, customRecovery, keyFunction, keyedRegistry, metrics, fallbackCache, transformer, ReturnType.of(method),
+      resumeOnEventLoop);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static CircuitBreakerTransformer transformer(CircuitBreaker breaker, RecoveryFunction<?> customRecovery, ResilienceMetrics metrics) {
+    CircuitBreakerTransformer transformer = CircuitBreakerTransformer.of(breaker);
+    if (customRecovery != null) {
+      transformer = transformer.recover(customRecovery);
+    }
+    if (metrics != null) {
+      transformer = transformer.metrics(metrics);
+    }
+    return transformer;
+  }
+
+  static final class Metadata {
+    private final String name;
+    private final CircuitBreaker breaker;
+    private final RecoveryFunction<?> recoveryFunction;
+    private final RecoveryFunction<?> customRecovery;
+    private final KeyFunction keyFunction;
+    private final KeyedCircuitBreakerRegistry keyedRegistry;
+    private final ResilienceMetrics metrics;
+    private final FallbackCache fallbackCache;
+    private final CircuitBreakerTransformer transformer;
+    private final ReturnType returnType;
+    private final boolean resumeOnEventLoop;
+
+    private Metadata(String name, CircuitBreaker breaker, RecoveryFunction<?> recoveryFunction, RecoveryFunction<?> customRecovery, KeyFunction keyFunction,
+                     KeyedCircuitBreakerRegistry keyedRegistry, ResilienceMetrics metrics, FallbackCache<?> fallbackCache, CircuitBreakerTransformer transformer, ReturnType returnType,
+                     boolean resumeOnEventLoop) {
+      this.name = name;
+      this.breaker = breaker;
+      this.recoveryFunction = recoveryFunction;
+      this.customRecovery = customRecovery;
+      this.keyFunction = keyFunction;
+      this.keyedRegistry = keyedRegistry;
+      this.metrics = metrics;
+      this.fallbackCache = fallbackCache;
+      this.transformer = transformer;
+      this.returnType = returnType;
+      this.resumeOnEventLoop = resumeOnEventLoop;
     }
-    return result;
   }
 
 }
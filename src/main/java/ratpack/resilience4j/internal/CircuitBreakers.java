@@ -0,0 +1,52 @@
+package ratpack.resilience4j.internal;
+
+import com.google.common.cache.CacheBuilder;
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import ratpack.resilience4j.window.SlidingWindowCircuitBreaker;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Helpers for the calls a circuit breaker has permitted.
+ */
+public final class CircuitBreakers {
+
+  // weak keys compare by identity, and let replaced or evicted circuit breakers go
+  private static final ConcurrentMap<CircuitBreaker, StacklessCircuitBreakerOpenException> OPEN_EXCEPTIONS =
+    CacheBuilder.newBuilder().weakKeys().<CircuitBreaker, StacklessCircuitBreakerOpenException>build().asMap();
+
+  private CircuitBreakers() {
+  }
+
+  /**
+   * Return the permission of a call that completed without a value or an error. Only circuit breakers that limit
+   * their half open trial calls hold a permit per call, others are left unchanged.
+   *
+   * @param circuitBreaker the circuit breaker that permitted the call
+   */
+  public static void release(CircuitBreaker circuitBreaker) {
+    if (circuitBreaker instanceof SlidingWindowCircuitBreaker) {
+      ((SlidingWindowCircuitBreaker) circuitBreaker).releasePermission();
+    }
+  }
+
+  /**
+   * Get the exception that rejects calls while the given circuit breaker is open. A single instance is created per
+   * circuit breaker and shared by every transformer, pipeline and interceptor that rejects calls with it.
+   *
+   * @param circuitBreaker the circuit breaker that rejected a call
+   * @return the exception to reject the call with
+   */
+  public static StacklessCircuitBreakerOpenException openException(CircuitBreaker circuitBreaker) {
+    StacklessCircuitBreakerOpenException exception = OPEN_EXCEPTIONS.get(circuitBreaker);
+    if (exception == null) {
+      exception = new StacklessCircuitBreakerOpenException(circuitBreaker.getName());
+      StacklessCircuitBreakerOpenException existing = OPEN_EXCEPTIONS.putIfAbsent(circuitBreaker, exception);
+      if (existing != null) {
+        exception = existing;
+      }
+    }
+    return exception;
+  }
+
+}
@@ -0,0 +1,70 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Promise;
+import ratpack.resilience4j.Coalesce;
+import ratpack.resilience4j.CoalescingTransformer;
+import ratpack.resilience4j.KeyFunction;
+import ratpack.resilience4j.coalesce.Coalescer;
+import ratpack.resilience4j.coalesce.CoalescerRegistry;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link Coalesce}. Promises are transformed so
+ * that concurrent invocations with the same key share one call. Other methods are invoked unchanged.
+ * <p>
+ * The annotation, coalescer, key function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
+ */
+public class CoalescingMethodInterceptor extends AbstractResilienceInterceptor<CoalescingMethodInterceptor.Metadata> {
+
+  private final Provider<CoalescerRegistry> provider;
+  private final Provider<Injector> injectorProvider;
+
+  @Inject
+  public CoalescingMethodInterceptor(Provider<CoalescerRegistry> provider, Provider<Injector> injectorProvider) {
+    this.provider = provider;
+    this.injectorProvider = injectorProvider;
+  }
+
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    Object result = invocation.proceed();
+    if (result == null || metadata.returnType.resolve(result) != ReturnType.PROMISE) {
+      return result;
+    }
+    Object[] arguments = invocation.getArguments();
+    Object key = metadata.keyFunction != null ? metadata.keyFunction.apply(arguments) : Arrays.asList(arguments.clone());
+    // a named coalescer may be shared by methods that return different types
+    key = new MethodKey(invocation.getMethod(), key);
+    return ((Promise<?>) result).transform(CoalescingTransformer.of(metadata.coalescer, key));
+  }
+
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    Coalesce annotation = method.getAnnotation(Coalesce.class);
+    Coalescer coalescer = annotation.name().isEmpty() ? Coalescer.of(method.toGenericString()) : provider.get().coalescer(annotation.name());
+    KeyFunction keyFunction = KeyFunctions.resolve(annotation.key(), injectorProvider.get());
+    return new Metadata(coalescer, keyFunction, ReturnType.of(method));
+  }
+
+  static final class Metadata {
+    private final Coalescer coalescer;
+    private final KeyFunction keyFunction;
+    private final ReturnType returnType;
+
+    private Metadata(Coalescer coalescer, KeyFunction keyFunction, ReturnType returnType) {
+      this.coalescer = coalescer;
+      this.keyFunction = keyFunction;
+      this.returnType = returnType;
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+package ratpack.resilience4j.internal;
+
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Helpers for intercepted methods returning a {@link CompletionStage}.
+ * <p>
+ * Rejections are returned as already completed futures, so they cost neither a thread hop nor a task on the common
+ * pool. Stages that are still running can optionally be resumed on the calling execution's event loop, so that the
+ * caller's continuations do not run on whichever thread completed the stage.
+ */
+public final class CompletionStages {
+
+  private static final CompletableFuture<Object> NULL = CompletableFuture.completedFuture(null);
+
+  private CompletionStages() {
+  }
+
+  /**
+   * @return an already completed future with the given value
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> CompletableFuture<T> completed(T value) {
+    return value == null ? (CompletableFuture<T>) NULL : CompletableFuture.completedFuture(value);
+  }
+
+  /**
+   * @return an already failed future with the given exception
+   */
+  public static <T> CompletableFuture<T> failed(Throwable throwable) {
+    CompletableFuture<T> failed = new CompletableFuture<>();
+    failed.completeExceptionally(throwable);
+    return failed;
+  }
+
+  /**
+   * Continue with the given function once the given permission is decided. If the permission is still pending on a
+   * compute thread, the function runs on the current execution once it is decided, rather than on the thread that
+   * granted it, so that it can use the execution and its registry as if it had not waited.
+   *
+   * @param permission the pending or decided permission
+   * @param then the function that starts the call, or rejects it if the permission was not granted
+   * @return a stage that completes with the result of the stage returned by the function
+   */
+  public static <T> CompletionStage<T> whenPermitted(CompletableFuture<Boolean> permission, Function<Boolean, ? extends CompletionStage<T>> then) {
+    if (permission.isDone() || !Execution.isComputeThread()) {
+      return permission.thenCompose(then);
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Promise.<Boolean>async(d -> d.accept(permission)).then(permitted -> {
+      CompletionStage<T> stage;
+      try {
+        stage = then.apply(permitted);
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+        return;
+      }
+      stage.whenComplete((v, t) -> {
+        if (t != null) {
+          result.completeExceptionally(t);
+        } else {
+          result.complete(v);
+        }
+      });
+    });
+    return result;
+  }
+
+  /**
+   * Resume the given stage on the current execution's event loop. A stage that is already complete, or a call
+   * from a thread that is not managed by Ratpack, is returned unchanged.
+   *
+   * @param stage the stage to resume
+   * @return a stage that completes with the same result on the event loop
+   */
+  public static <T> CompletionStage<T> resume(CompletionStage<T> stage) {
+    if (stage instanceof CompletableFuture && ((CompletableFuture<T>) stage).isDone() || !Execution.isManagedThread()) {
+      return stage;
+    }
+    return stage.whenCompleteAsync((v, t) -> { }, Execution.current().getEventLoop());
+  }
+
+}
@@ -0,0 +1,10 @@
+package ratpack.resilience4j.internal;
+
+import ratpack.resilience4j.KeyFunction;
+
+public class DefaultKeyFunction implements KeyFunction {
+  @Override
+  public Object apply(Object[] arguments) throws Exception {
+    return null;
+  }
+}
@@ -0,0 +1,42 @@
+package ratpack.resilience4j.internal;
+
+import ratpack.exec.ExecController;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delays on the current execution's event loop without holding a thread while waiting.
+ */
+public final class Delays {
+
+  private Delays() {
+  }
+
+  /**
+   * Create a promise that completes once the given delay has elapsed. The execution is resumed from the event
+   * loop scheduler, so a zero delay can also be used to unwind the stack before continuing.
+   *
+   * @param delayNanos the delay in nanoseconds
+   * @return a promise that completes after the delay
+   */
+  public static Promise<Void> sleep(long delayNanos) {
+    return Promise.async(down ->
+      Execution.current().getEventLoop().schedule(() -> down.success(null), Math.max(0, delayNanos), TimeUnit.NANOSECONDS)
+    );
+  }
+
+  /**
+   * @return the current execution's event loop, or the exec controller's scheduler if called outside of an execution
+   */
+  public static Optional<ScheduledExecutorService> scheduler() {
+    if (Execution.isManagedThread()) {
+      return Optional.of(Execution.current().getEventLoop());
+    }
+    return ExecController.current().map(ExecController::getExecutor);
+  }
+
+}
@@ -0,0 +1,81 @@
+package ratpack.resilience4j.internal;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import ratpack.resilience4j.metrics.CallMetrics;
+import ratpack.resilience4j.metrics.LatencyHistogram;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+import ratpack.resilience4j.metrics.RetryMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Registers gauges for {@link ResilienceMetrics} in a Dropwizard {@link MetricRegistry}, named
+ * {@code resilience4j.<type>.<name>.<metric>}.
+ * <p>
+ * The latency of the calls is also registered as a {@link Timer} named {@code resilience4j.<type>.<name>.calls}, so
+ * reporters see its rates and Dropwizard's own percentiles. The timer is fed each call, since the power-of-two buckets
+ * of {@link LatencyHistogram} cannot back a Dropwizard snapshot.
+ * <p>
+ * Only loaded when Dropwizard metrics is on the classpath.
+ */
+public class DropwizardMetricsBinder implements ResilienceMetrics.Listener {
+
+  private static final String PREFIX = "resilience4j";
+
+  private final MetricRegistry registry;
+
+  public DropwizardMetricsBinder(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * @param registry a Dropwizard {@link MetricRegistry}
+   * @param metrics the metrics to publish to the registry
+   */
+  public static void bind(Object registry, ResilienceMetrics metrics) {
+    metrics.addListener(new DropwizardMetricsBinder((MetricRegistry) registry));
+  }
+
+  @Override
+  public void onCallMetrics(String type, CallMetrics metrics) {
+    String name = MetricRegistry.name(PREFIX, type, metrics.getName());
+    gauge(name, "successfulCalls", metrics::getSuccessfulCalls);
+    gauge(name, "failedCalls", metrics::getFailedCalls);
+    gauge(name, "notPermittedCalls", metrics::getNotPermittedCalls);
+    Timer calls = registry.timer(MetricRegistry.name(name, "calls"));
+    metrics.onLatency(nanos -> calls.update(nanos, TimeUnit.NANOSECONDS));
+    LatencyHistogram latency = metrics.getLatency();
+    gauge(name, "latency.meanMicros", latency::getMeanMicros);
+    gauge(name, "latency.p50Micros", () -> latency.getPercentileMicros(0.5));
+    gauge(name, "latency.p99Micros", () -> latency.getPercentileMicros(0.99));
+    gauge(name, "latency.p999Micros", () -> latency.getPercentileMicros(0.999));
+    if (ResilienceMetrics.CIRCUIT_BREAKER.equals(type)) {
+      gauge(name, "stateTransitions", () -> metrics.getStateTransitions().values().stream().mapToLong(Long::longValue).sum());
+    }
+  }
+
+  @Override
+  public void onRetryMetrics(RetryMetrics metrics) {
+    String name = MetricRegistry.name(PREFIX, ResilienceMetrics.RETRY, metrics.getName());
+    gauge(name, "successfulCallsWithoutRetry", metrics::getSuccessfulCallsWithoutRetry);
+    gauge(name, "successfulCallsWithRetry", metrics::getSuccessfulCallsWithRetry);
+    gauge(name, "failedCallsWithoutRetry", metrics::getFailedCallsWithoutRetry);
+    gauge(name, "failedCallsWithRetry", metrics::getFailedCallsWithRetry);
+    gauge(name, "retryAttempts", metrics::getRetryAttempts);
+  }
+
+  private <T> void gauge(String prefix, String metric, Supplier<T> value) {
+    String name = MetricRegistry.name(prefix, metric);
+    if (!registry.getNames().contains(name)) {
+      try {
+        registry.register(name, (Gauge<T>) value::get);
+      } catch (IllegalArgumentException e) {
+        // registered concurrently
+      }
+    }
+  }
+
+}
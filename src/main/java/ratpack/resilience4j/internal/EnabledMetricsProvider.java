@@ -0,0 +1,26 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Provider;
+import ratpack.resilience4j.ResilienceModule;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+/**
+ * Provides the {@link ResilienceMetrics} if metrics are enabled in the {@link ResilienceModule.ResilienceConfig},
+ * or {@code null} otherwise.
+ */
+public class EnabledMetricsProvider implements Provider<ResilienceMetrics> {
+
+  private final Provider<ResilienceModule.ResilienceConfig> config;
+  private final Provider<ResilienceMetrics> metrics;
+
+  public EnabledMetricsProvider(Provider<ResilienceModule.ResilienceConfig> config, Provider<ResilienceMetrics> metrics) {
+    this.config = config;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public ResilienceMetrics get() {
+    return config.get().isEnableMetrics() ? metrics.get() : null;
+  }
+
+}
@@ -0,0 +1,28 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import ratpack.resilience4j.KeyFunction;
+
+/**
+ * Resolves the {@link KeyFunction} declared by a resilience annotation.
+ */
+public final class KeyFunctions {
+
+  private KeyFunctions() {
+  }
+
+  /**
+   * Resolve a key function from Guice, falling back to its no-arg constructor if Guice cannot provide it.
+   *
+   * @param type the key function class declared by the annotation
+   * @param injector the injector to resolve the key function from, may be null
+   * @return the key function, or null if the annotation did not declare one
+   */
+  public static KeyFunction resolve(Class<? extends KeyFunction> type, Injector injector) throws Exception {
+    if (type.isAssignableFrom(DefaultKeyFunction.class)) {
+      return null;
+    }
+    return RecoveryFunctions.instance(type, injector);
+  }
+
+}
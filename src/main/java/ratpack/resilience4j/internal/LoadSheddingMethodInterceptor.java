@@ -0,0 +1,100 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Promise;
+import ratpack.resilience4j.LoadSheddingTransformer;
+import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.ShedLoad;
+import ratpack.resilience4j.shed.LoadShedException;
+import ratpack.resilience4j.shed.LoadShedder;
+import ratpack.resilience4j.shed.Priority;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link ShedLoad}. Promises are transformed with
+ * the load shedder, so the decision is made when the promise is subscribed to. Methods returning a CompletionStage
+ * or a plain value are not invoked at all when their work is shed.
+ * <p>
+ * The annotation, recovery function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
+ */
+public class LoadSheddingMethodInterceptor extends AbstractResilienceInterceptor<LoadSheddingMethodInterceptor.Metadata> {
+
+  private final Provider<LoadShedder> provider;
+  private final Provider<Injector> injectorProvider;
+
+  @Inject
+  public LoadSheddingMethodInterceptor(Provider<LoadShedder> provider, Provider<Injector> injectorProvider) {
+    this.provider = provider;
+    this.injectorProvider = injectorProvider;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    switch (metadata.returnType) {
+      case PROMISE:
+        Promise<?> promise = (Promise<?>) invocation.proceed();
+        return promise == null ? null : promise.transform(metadata.transformer);
+      case COMPLETION_STAGE:
+        if (metadata.loadShedder.tryAdmit(metadata.priority)) {
+          return invocation.proceed();
+        }
+        Throwable shed = shed(metadata.priority);
+        return metadata.customRecovery ? CompletionStages.completed(metadata.recoveryFunction.apply(shed)) : CompletionStages.failed(shed);
+      default:
+        if (metadata.loadShedder.tryAdmit(metadata.priority)) {
+          return invocation.proceed();
+        }
+        Throwable t = shed(metadata.priority);
+        if (metadata.customRecovery) {
+          return metadata.recoveryFunction.apply(t);
+        }
+        throw t;
+    }
+  }
+
+  private static LoadShedException shed(Priority priority) {
+    return new LoadShedException("Server is overloaded, shedding " + priority + " priority work");
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    ShedLoad annotation = method.getAnnotation(ShedLoad.class);
+    LoadShedder loadShedder = provider.get();
+    RecoveryFunction<?> recoveryFunction = RecoveryFunctions.resolve(annotation.recovery(), injectorProvider.get());
+    boolean customRecovery = !RecoveryFunctions.isDefault(annotation.recovery());
+    LoadSheddingTransformer transformer = LoadSheddingTransformer.of(loadShedder, annotation.priority());
+    if (customRecovery) {
+      transformer = transformer.recover(recoveryFunction);
+    }
+    return new Metadata(loadShedder, annotation.priority(), recoveryFunction, customRecovery, transformer, ReturnType.of(method));
+  }
+
+  static final class Metadata {
+    private final LoadShedder loadShedder;
+    private final Priority priority;
+    private final RecoveryFunction<?> recoveryFunction;
+    private final boolean customRecovery;
+    private final LoadSheddingTransformer transformer;
+    private final ReturnType returnType;
+
+    private Metadata(LoadShedder loadShedder, Priority priority, RecoveryFunction<?> recoveryFunction, boolean customRecovery, LoadSheddingTransformer transformer,
+                     ReturnType returnType) {
+      this.loadShedder = loadShedder;
+      this.priority = priority;
+      this.recoveryFunction = recoveryFunction;
+      this.customRecovery = customRecovery;
+      this.transformer = transformer;
+      this.returnType = returnType;
+    }
+  }
+
+}
@@ -0,0 +1,39 @@
+package ratpack.resilience4j.internal;
+
+import ratpack.exec.Downstream;
+import ratpack.resilience4j.metrics.CallMetrics;
+
+/**
+ * A {@link Downstream} that records the time from its creation until the upstream signals in the given metrics.
+ *
+ * @param <T> the type of value
+ */
+public final class MeasuredDownstream<T> implements Downstream<T> {
+
+  private final CallMetrics metrics;
+  private final Downstream<? super T> down;
+  private final long start = System.nanoTime();
+
+  public MeasuredDownstream(CallMetrics metrics, Downstream<? super T> down) {
+    this.metrics = metrics;
+    this.down = down;
+  }
+
+  @Override
+  public void success(T value) {
+    metrics.onSuccess(System.nanoTime() - start);
+    down.success(value);
+  }
+
+  @Override
+  public void error(Throwable throwable) {
+    metrics.onError(System.nanoTime() - start);
+    down.error(throwable);
+  }
+
+  @Override
+  public void complete() {
+    down.complete();
+  }
+
+}
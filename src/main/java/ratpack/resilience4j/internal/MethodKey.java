@@ -0,0 +1,42 @@
+package ratpack.resilience4j.internal;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * A cache key made of an intercepted method and a key derived from its invocation, so that methods sharing a
+ * named cache or coalescer never see each other's values.
+ */
+final class MethodKey {
+
+  private final Method method;
+  private final Object key;
+
+  MethodKey(Method method, Object key) {
+    this.method = method;
+    this.key = key;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof MethodKey)) {
+      return false;
+    }
+    MethodKey that = (MethodKey) o;
+    return method.equals(that.method) && Objects.equals(key, that.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * method.hashCode() + Objects.hashCode(key);
+  }
+
+  @Override
+  public String toString() {
+    return method.getName() + key;
+  }
+
+}
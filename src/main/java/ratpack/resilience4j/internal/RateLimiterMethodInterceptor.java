@@ -1,5 +1,6 @@
 package ratpack.resilience4j.internal;
 
+import com.google.inject.Injector;
 import com.google.inject.Provider;
 import io.github.robwin.ratelimiter.RateLimiter;
 import io.github.robwin.ratelimiter.RateLimiterConfig;
@@ -8,11 +9,16 @@ import io.github.robwin.ratelimiter.RequestNotPermitted;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import ratpack.exec.Promise;
+import ratpack.resilience4j.KeyFunction;
 import ratpack.resilience4j.RateLimit;
 import ratpack.resilience4j.RateLimiterTransformer;
 import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.ResilienceModule;
+import ratpack.resilience4j.keyed.KeyedRateLimiterRegistry;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
 
 import javax.inject.Inject;
+import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
@@ -21,25 +27,48 @@ import java.util.concurrent.CompletionStage;
  * A {@link MethodInterceptor} to handle all methods annotated with {@link RateLimit}. It will
  * handle methods that return a Promise only. It will add a transform to the promise with the circuit breaker and
  * fallback found in the annotation.
+ * <p>
+ * Methods declared to return a CompletionStage are only invoked once a permission was acquired without blocking.
+ * A rejection is returned as an already failed future. A method that waits for a permission is invoked on the
+ * calling execution once the permission is granted.
+ * <p>
+ * The annotation, rate limiter, recovery function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
  */
-public class RateLimiterMethodInterceptor implements MethodInterceptor {
+public class RateLimiterMethodInterceptor extends AbstractResilienceInterceptor<RateLimiterMethodInterceptor.Metadata> {
 
   private final Provider<RateLimiterRegistry> provider;
+  private final Provider<Injector> injectorProvider;
+  private final Provider<ResilienceMetrics> metricsProvider;
+  private final Provider<KeyedRateLimiterRegistry> keyedProvider;
+  private final Provider<ResilienceModule.ResilienceConfig> configProvider;
 
   @Inject
-  public RateLimiterMethodInterceptor(Provider<RateLimiterRegistry> provider) {
+  public RateLimiterMethodInterceptor(Provider<RateLimiterRegistry> provider, Provider<Injector> injectorProvider, Provider<ResilienceMetrics> metricsProvider, Provider<KeyedRateLimiterRegistry> keyedProvider,
+                                      Provider<ResilienceModule.ResilienceConfig> configProvider) {
     this.provider = provider;
+    this.injectorProvider = injectorProvider;
+    this.metricsProvider = metricsProvider;
+    this.keyedProvider = keyedProvider;
+    this.configProvider = configProvider;
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public Object invoke(MethodInvocation invocation) throws Throwable {
-    RateLimit annotation = invocation.getMethod().getAnnotation(RateLimit.class);
-    RecoveryFunction<?> recoveryFunction = annotation.recovery().newInstance();
-    RateLimiter rateLimiter = provider.get().rateLimiter(annotation.name());
-    if (rateLimiter == null) {
+    Metadata metadata = metadata(invocation.getMethod());
+    if (metadata.rateLimiter == null) {
       return invocation.proceed();
     }
+    RateLimiter rateLimiter = metadata.rateLimiter;
+    RateLimiterTransformer transformer = metadata.transformer;
+    if (metadata.keyFunction != null) {
+      rateLimiter = metadata.keyedRegistry.rateLimiter(metadata.name, metadata.keyFunction.apply(invocation.getArguments()));
+      transformer = transformer(rateLimiter, metadata.customRecovery, metadata.metrics);
+    }
+    if (metadata.returnType == ReturnType.COMPLETION_STAGE) {
+      return limit(invocation, rateLimiter, metadata.resumeOnEventLoop);
+    }
     Object result;
     try {
       result = invocation.proceed();
@@ -51,33 +80,111 @@ public class RateLimiterMethodInterceptor implements MethodInterceptor {
         throw new IllegalStateException("Thread was interrupted during permission wait");
       }
       if (!permission) {
-        throw new RequestNotPermitted("Request not permitted for limiter: " + rateLimiter.getName());
+        throw notPermitted(rateLimiter);
       } else {
         throw e;
       }
     }
-    if (result instanceof Promise<?>) {
-      RateLimiterTransformer transformer = RateLimiterTransformer.of(rateLimiter);
-      if (!annotation.recovery().isAssignableFrom(DefaultRecoveryFunction.class)) {
-        transformer = transformer.recover(recoveryFunction);
-      }
+    ReturnType returnType = metadata.returnType.resolve(result);
+    if (result == null) {
+      RateLimiter.waitForPermission(rateLimiter);
+    } else if (returnType == ReturnType.PROMISE) {
       result = ((Promise<?>) result).transform(transformer);
-    } else if (result instanceof CompletionStage) {
+    } else if (returnType == ReturnType.COMPLETION_STAGE) {
+      // only known to be a stage once invoked, so the permission can only guard its completion
       CompletionStage stage = (CompletionStage) result;
-      RateLimiterConfig rateLimiterConfig = rateLimiter.getRateLimiterConfig();
-      Duration timeoutDuration = rateLimiterConfig.getTimeoutDuration();
-      boolean permission = rateLimiter.getPermission(timeoutDuration);
-      if (permission) {
-        return stage;
-      } else {
-        return CompletableFuture.supplyAsync(() -> {
-          throw new RequestNotPermitted("Request not permitted for limiter: " + rateLimiter.getName());
-        });
+      CompletableFuture<Boolean> permission = AsyncPermission.acquire(rateLimiter);
+      if (permission.isDone()) {
+        return permission.join() ? stage : CompletionStages.failed(notPermitted(rateLimiter));
       }
+      RateLimiter limiter = rateLimiter;
+      return permission.thenCompose(permitted -> permitted ? stage : CompletionStages.failed(notPermitted(limiter)));
     } else {
       RateLimiter.waitForPermission(rateLimiter);
     }
     return result;
   }
 
+  @SuppressWarnings("unchecked")
+  private static CompletionStage<?> limit(MethodInvocation invocation, RateLimiter rateLimiter, boolean resumeOnEventLoop) {
+    CompletableFuture<Boolean> permission = AsyncPermission.acquire(rateLimiter);
+    if (permission.isDone()) {
+      CompletionStage<?> stage = invoke(invocation, rateLimiter, permission.join());
+      return resumeOnEventLoop ? CompletionStages.resume(stage) : stage;
+    }
+    CompletionStage<?> stage = CompletionStages.whenPermitted(permission, permitted -> (CompletionStage<Object>) invoke(invocation, rateLimiter, permitted));
+    return resumeOnEventLoop ? CompletionStages.resume(stage) : stage;
+  }
+
+  private static CompletionStage<?> invoke(MethodInvocation invocation, RateLimiter rateLimiter, boolean permitted) {
+    if (!permitted) {
+      return CompletionStages.failed(notPermitted(rateLimiter));
+    }
+    try {
+      CompletionStage<?> stage = (CompletionStage<?>) invocation.proceed();
+      return stage == null ? CompletionStages.completed(null) : stage;
+    } catch (Throwable t) {
+      return CompletionStages.failed(t);
+    }
+  }
+
+  private static RequestNotPermitted notPermitted(RateLimiter rateLimiter) {
+    return new RequestNotPermitted("Request not permitted for limiter: " + rateLimiter.getName());
+  }
+
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    RateLimit annotation = method.getAnnotation(RateLimit.class);
+    RateLimiter rateLimiter = provider.get().rateLimiter(annotation.name());
+    Injector injector = injectorProvider.get();
+    RecoveryFunction<?> customRecovery = RecoveryFunctions.isDefault(annotation.recovery()) ? null : RecoveryFunctions.resolve(annotation.recovery(), injector);
+    KeyFunction keyFunction = KeyFunctions.resolve(annotation.key(), injector);
+    ResilienceMetrics metrics = metricsProvider.get();
+    RateLimiterTransformer transformer = null;
+    if (rateLimiter != null && keyFunction == null) {
+      transformer = transformer(rateLimiter, customRecovery, metrics);
+    }
+    KeyedRateLimiterRegistry keyedRegistry = keyFunction != null ? keyedProvider.get() : null;
+    boolean resumeOnEventLoop = configProvider.get().isResumeOnEventLoop();
+    return new Metadata(annotation.name(), rateLimiter, customRecovery, keyFunction, keyedRegistry, metrics, transformer, ReturnType.of(method), resumeOnEventLoop);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RateLimiterTransformer transformer(RateLimiter rateLimiter, RecoveryFunction<?> customRecovery, ResilienceMetrics metrics) {
+    RateLimiterTransformer transformer = RateLimiterTransformer.of(rateLimiter);
+    if (customRecovery != null) {
+      transformer = transformer.recover(customRecovery);
+    }
+    if (metrics != null) {
+      transformer = transformer.metrics(metrics);
+    }
+    return transformer;
+  }
+
+  static final class Metadata {
+    private final String name;
+    private final RateLimiter rateLimiter;
+    private final RecoveryFunction<?> customRecovery;
+    private final KeyFunction keyFunction;
+    private final KeyedRateLimiterRegistry keyedRegistry;
+    private final ResilienceMetrics metrics;
+    private final RateLimiterTransformer transformer;
+    private final ReturnType returnType;
+    private final boolean resumeOnEventLoop;
+
+    private Metadata(String name, RateLimiter rateLimiter, RecoveryFunction<?> customRecovery, KeyFunction keyFunction,
+                     KeyedRateLimiterRegistry keyedRegistry, ResilienceMetrics metrics, RateLimiterTransformer transformer, ReturnType returnType,
+                     boolean resumeOnEventLoop) {
+      this.name = name;
+      this.rateLimiter = rateLimiter;
+      this.customRecovery = customRecovery;
+      this.keyFunction = keyFunction;
+      this.keyedRegistry = keyedRegistry;
+      this.metrics = metrics;
+      this.transformer = transformer;
+      this.returnType = returnType;
+      this.resumeOnEventLoop = resumeOnEventLoop;
+    }
+  }
+
 }
@@ -0,0 +1,51 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.ConfigurationException;
+import com.google.inject.Injector;
+import com.google.inject.ProvisionException;
+import ratpack.resilience4j.RecoveryFunction;
+
+/**
+ * Resolves the {@link RecoveryFunction} declared by a resilience annotation.
+ */
+public final class RecoveryFunctions {
+
+  private static final RecoveryFunction<?> DEFAULT = new DefaultRecoveryFunction<>();
+
+  private RecoveryFunctions() {
+  }
+
+  /**
+   * @param type the recovery function class declared by the annotation
+   * @return true if the annotation did not declare a recovery function
+   */
+  public static boolean isDefault(Class<? extends RecoveryFunction> type) {
+    return type.isAssignableFrom(DefaultRecoveryFunction.class);
+  }
+
+  /**
+   * Resolve a recovery function from Guice, falling back to its no-arg constructor if Guice cannot provide it.
+   *
+   * @param type the recovery function class declared by the annotation
+   * @param injector the injector to resolve the recovery function from, may be null
+   * @return the recovery function
+   */
+  public static RecoveryFunction<?> resolve(Class<? extends RecoveryFunction> type, Injector injector) throws Exception {
+    if (isDefault(type)) {
+      return DEFAULT;
+    }
+    return instance(type, injector);
+  }
+
+  static <T> T instance(Class<? extends T> type, Injector injector) throws Exception {
+    if (injector != null) {
+      try {
+        return injector.getInstance(type);
+      } catch (ConfigurationException | ProvisionException e) {
+        // not injectable, fall through
+      }
+    }
+    return type.newInstance();
+  }
+
+}
@@ -0,0 +1,69 @@
+package ratpack.resilience4j.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ratpack.resilience4j.ResilienceModule;
+import ratpack.resilience4j.config.ResilienceReloader;
+import ratpack.service.Service;
+import ratpack.service.StartEvent;
+import ratpack.service.StopEvent;
+
+import javax.inject.Inject;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the configured circuit breakers, rate limiters, retries and bulkheads on startup, and polls the config's
+ * reload source, if any, while the server runs. Polls run on a dedicated thread, since reading a config source may
+ * block.
+ */
+public class ResilienceConfigService implements Service {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResilienceConfigService.class);
+
+  private final ResilienceModule.ResilienceConfig config;
+  private final ResilienceReloader reloader;
+  private ScheduledExecutorService poller;
+
+  @Inject
+  public ResilienceConfigService(ResilienceModule.ResilienceConfig config, ResilienceReloader reloader) {
+    this.config = config;
+    this.reloader = reloader;
+  }
+
+  @Override
+  public void onStart(StartEvent event) throws Exception {
+    reloader.initialize();
+    if (config.getReloadSource() == null) {
+      return;
+    }
+    poller = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ratpack-resilience-reload");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long interval = config.getReloadInterval().toNanos();
+    poller.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onStop(StopEvent event) throws Exception {
+    if (poller != null) {
+      poller.shutdownNow();
+    }
+  }
+
+  private void poll() {
+    try {
+      ResilienceModule.ResilienceConfig source = config.getReloadSource().create();
+      if (source != null) {
+        reloader.reload(source);
+      }
+    } catch (Throwable t) {
+      // keep polling, a source that is being edited may be invalid for a moment
+      LOGGER.warn("Could not reload resilience config, keeping the current definitions", t);
+    }
+  }
+
+}
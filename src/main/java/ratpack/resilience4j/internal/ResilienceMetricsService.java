@@ -0,0 +1,41 @@
+package ratpack.resilience4j.internal;
+
+import ratpack.resilience4j.ResilienceModule;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+import ratpack.service.Service;
+import ratpack.service.StartEvent;
+
+import javax.inject.Inject;
+
+/**
+ * Publishes {@link ResilienceMetrics} to Dropwizard metrics on startup, if metrics are enabled and a Dropwizard
+ * {@code MetricRegistry} is available, for example from Ratpack's Dropwizard metrics module.
+ */
+public class ResilienceMetricsService implements Service {
+
+  private static final String METRIC_REGISTRY = "com.codahale.metrics.MetricRegistry";
+
+  private final ResilienceModule.ResilienceConfig config;
+  private final ResilienceMetrics metrics;
+
+  @Inject
+  public ResilienceMetricsService(ResilienceModule.ResilienceConfig config, ResilienceMetrics metrics) {
+    this.config = config;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void onStart(StartEvent event) throws Exception {
+    if (!config.isEnableMetrics()) {
+      return;
+    }
+    Class<?> registryType;
+    try {
+      registryType = Class.forName(METRIC_REGISTRY, false, getClass().getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return;
+    }
+    event.getRegistry().maybeGet(registryType).ifPresent(registry -> DropwizardMetricsBinder.bind(registry, metrics));
+  }
+
+}
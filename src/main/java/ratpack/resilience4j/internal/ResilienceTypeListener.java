@@ -0,0 +1,92 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.InjectionListener;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ratpack.func.Action;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link TypeListener} that finds the resilience annotated methods of each type Guice encounters, and prepares
+ * their interceptor metadata once the first instance of the type has been injected. This moves annotation lookup,
+ * registry lookup and recovery function creation out of the request path.
+ * <p>
+ * The registries and recovery functions come from the injector, so methods cannot be prepared while the module is
+ * bound. A method that cannot be prepared, for example because its recovery function or key function cannot be
+ * created, is logged as a warning and resolved again on its first invocation, where the same error fails the call.
+ */
+public class ResilienceTypeListener implements TypeListener {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResilienceTypeListener.class);
+
+  private final Map<Class<? extends Annotation>, Action<Method>> preparers = new LinkedHashMap<>();
+  private Runnable beforePreparing = () -> {
+  };
+
+  /**
+   * Prepare methods annotated with the given annotation with the given action.
+   *
+   * @param annotation the resilience annotation
+   * @param preparer the action that resolves and caches the metadata of an annotated method
+   * @return this
+   */
+  public ResilienceTypeListener register(Class<? extends Annotation> annotation, Action<Method> preparer) {
+    preparers.put(annotation, preparer);
+    return this;
+  }
+
+  /**
+   * Run the given action before the first methods are prepared, for example to create the instances they use.
+   *
+   * @param action the action, which is expected to be idempotent
+   * @return this
+   */
+  public ResilienceTypeListener beforePreparing(Runnable action) {
+    this.beforePreparing = action;
+    return this;
+  }
+
+  @Override
+  public <I> void hear(TypeLiteral<I> type, TypeEncounter<I> encounter) {
+    List<Runnable> preparations = new ArrayList<>();
+    for (Class<?> c = type.getRawType(); c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Method method : c.getDeclaredMethods()) {
+        preparers.forEach((annotation, preparer) -> {
+          if (method.isAnnotationPresent(annotation)) {
+            preparations.add(() -> {
+              try {
+                preparer.execute(method);
+              } catch (Exception e) {
+                LOGGER.warn("Could not prepare @{} method {}, it will be resolved on its first invocation", annotation.getSimpleName(), method, e);
+              }
+            });
+          }
+        });
+      }
+    }
+    if (!preparations.isEmpty()) {
+      encounter.register(new InjectionListener<I>() {
+        private volatile boolean prepared;
+
+        @Override
+        public void afterInjection(I injectee) {
+          if (!prepared) {
+            prepared = true;
+            beforePreparing.run();
+            preparations.forEach(Runnable::run);
+          }
+        }
+      });
+    }
+  }
+
+}
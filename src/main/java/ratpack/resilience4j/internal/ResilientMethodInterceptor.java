@@ -0,0 +1,123 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.ratelimiter.RateLimiterRegistry;
+import io.github.robwin.retry.RetryConfig;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Promise;
+import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.ResiliencePipeline;
+import ratpack.resilience4j.Resilient;
+import ratpack.resilience4j.budget.RetryBudgetRegistry;
+import ratpack.resilience4j.bulkhead.BulkheadRegistry;
+import ratpack.resilience4j.config.RetryConfigRegistry;
+import ratpack.resilience4j.metrics.ResilienceMetrics;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link Resilient}. It will
+ * handle methods that return a Promise only. It will add a transform to the promise with a single
+ * {@link ResiliencePipeline} built from the annotation.
+ * <p>
+ * The pipeline and return type of each intercepted method are resolved once and cached, see {@link #prepare(Method)}, until
+ * the cache is invalidated by a reload of the named definitions.
+ */
+public class ResilientMethodInterceptor extends AbstractResilienceInterceptor<ResilientMethodInterceptor.Metadata> {
+
+  private final Provider<CircuitBreakerRegistry> circuitBreakerProvider;
+  private final Provider<RateLimiterRegistry> rateLimiterProvider;
+  private final Provider<BulkheadRegistry> bulkheadProvider;
+  private final Provider<Injector> injectorProvider;
+  private final Provider<ResilienceMetrics> metricsProvider;
+  private final Provider<RetryBudgetRegistry> budgetProvider;
+  private final Provider<RetryConfigRegistry> retryProvider;
+
+  @Inject
+  public ResilientMethodInterceptor(Provider<CircuitBreakerRegistry> circuitBreakerProvider, Provider<RateLimiterRegistry> rateLimiterProvider,
+                                    Provider<BulkheadRegistry> bulkheadProvider, Provider<Injector> injectorProvider, Provider<ResilienceMetrics> metricsProvider,
+                                    Provider<RetryBudgetRegistry> budgetProvider, Provider<RetryConfigRegistry> retryProvider) {
+    this.circuitBreakerProvider = circuitBreakerProvider;
+    this.rateLimiterProvider = rateLimiterProvider;
+    this.bulkheadProvider = bulkheadProvider;
+    this.injectorProvider = injectorProvider;
+    this.metricsProvider = metricsProvider;
+    this.budgetProvider = budgetProvider;
+    this.retryProvider = retryProvider;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    Object result = invocation.proceed();
+    if (result == null) {
+      return null;
+    }
+    switch (metadata.returnType.resolve(result)) {
+      case PROMISE:
+        return ((Promise<?>) result).transform(metadata.pipeline);
+      default:
+        return result;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    Resilient annotation = method.getAnnotation(Resilient.class);
+    ResiliencePipeline pipeline = ResiliencePipeline.of();
+    RetryConfig retryConfig = null;
+    if (!annotation.retry().isEmpty()) {
+      retryConfig = retryProvider.get().retryConfig(annotation.retry());
+    } else if (annotation.retryAttempts() > 1) {
+      retryConfig = RetryConfig.custom()
+        .maxAttempts(annotation.retryAttempts())
+        .waitDuration(Duration.ofMillis(annotation.retryWait()))
+        .build();
+    }
+    if (retryConfig != null) {
+      pipeline = pipeline.retry(retryConfig);
+      if (!annotation.retryBudget().isEmpty()) {
+        pipeline = pipeline.retryBudget(budgetProvider.get().budget(annotation.retryBudget()));
+      }
+    }
+    if (!annotation.circuitBreaker().isEmpty()) {
+      pipeline = pipeline.circuitBreaker(circuitBreakerProvider.get().circuitBreaker(annotation.circuitBreaker()));
+    }
+    if (!annotation.rateLimiter().isEmpty()) {
+      pipeline = pipeline.rateLimiter(rateLimiterProvider.get().rateLimiter(annotation.rateLimiter()));
+    }
+    if (!annotation.bulkhead().isEmpty()) {
+      pipeline = pipeline.bulkhead(bulkheadProvider.get().bulkhead(annotation.bulkhead()));
+    }
+    if (annotation.timeout() > 0) {
+      pipeline = pipeline.timeout(Duration.ofNanos(annotation.unit().toNanos(annotation.timeout())));
+    }
+    if (!RecoveryFunctions.isDefault(annotation.recovery())) {
+      RecoveryFunction<?> recoveryFunction = RecoveryFunctions.resolve(annotation.recovery(), injectorProvider.get());
+      pipeline = pipeline.recover(recoveryFunction);
+    }
+    ResilienceMetrics metrics = metricsProvider.get();
+    if (metrics != null) {
+      pipeline = pipeline.metrics(metrics);
+    }
+    return new Metadata(pipeline, ReturnType.of(method));
+  }
+
+  static final class Metadata {
+    private final ResiliencePipeline pipeline;
+    private final ReturnType returnType;
+
+    private Metadata(ResiliencePipeline pipeline, ReturnType returnType) {
+      this.pipeline = pipeline;
+      this.returnType = returnType;
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+package ratpack.resilience4j.internal;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import ratpack.exec.Promise;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The return type dispatch strategy of an intercepted method, resolved once from the method signature.
+ * Methods whose declared return type is too general to decide on are resolved per result.
+ */
+public enum ReturnType {
+
+  PROMISE,
+  COMPLETION_STAGE,
+  OBSERVABLE,
+  FLOWABLE,
+  OTHER,
+  DYNAMIC;
+
+  private static final Class<?>[] DISPATCHED = { Promise.class, CompletionStage.class, Observable.class, Flowable.class };
+
+  /**
+   * @param method the intercepted method
+   * @return the dispatch strategy for the method's declared return type
+   */
+  public static ReturnType of(Method method) {
+    Class<?> type = method.getReturnType();
+    if (Promise.class.isAssignableFrom(type)) {
+      return PROMISE;
+    } else if (CompletionStage.class.isAssignableFrom(type)) {
+      return COMPLETION_STAGE;
+    } else if (Observable.class.isAssignableFrom(type)) {
+      return OBSERVABLE;
+    } else if (Flowable.class.isAssignableFrom(type)) {
+      return FLOWABLE;
+    }
+    for (Class<?> dispatched : DISPATCHED) {
+      if (type.isAssignableFrom(dispatched)) {
+        return DYNAMIC;
+      }
+    }
+    return OTHER;
+  }
+
+  /**
+   * @param result the value returned by the intercepted method
+   * @return the dispatch strategy for the result
+   */
+  public ReturnType resolve(Object result) {
+    if (this != DYNAMIC) {
+      return this;
+    } else if (result instanceof Promise) {
+      return PROMISE;
+    } else if (result instanceof CompletionStage) {
+      return COMPLETION_STAGE;
+    } else if (result instanceof Observable) {
+      return OBSERVABLE;
+    } else if (result instanceof Flowable) {
+      return FLOWABLE;
+    }
+    return OTHER;
+  }
+
+}
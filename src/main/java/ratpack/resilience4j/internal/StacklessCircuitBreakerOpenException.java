@@ -0,0 +1,24 @@
+package ratpack.resilience4j.internal;
+
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
+
+/**
+ * A {@link CircuitBreakerOpenException} without a stack trace. An open circuit rejects calls at a high rate, and the
+ * trace would always point at the same transformer, so a single instance is shared per circuit breaker, see
+ * {@link CircuitBreakers#openException(io.github.robwin.circuitbreaker.CircuitBreaker)}.
+ * <p>
+ * {@link CircuitBreakerOpenException} only offers a constructor that enables suppression, so a shared instance still
+ * accepts {@link #addSuppressed(Throwable)}. Code that handles a rejection must not add suppressed exceptions to it.
+ */
+public class StacklessCircuitBreakerOpenException extends CircuitBreakerOpenException {
+
+  public StacklessCircuitBreakerOpenException(String circuitBreakerName) {
+    super("CircuitBreaker " + circuitBreakerName + " is open");
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+
+}
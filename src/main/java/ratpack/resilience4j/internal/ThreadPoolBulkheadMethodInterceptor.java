@@ -0,0 +1,209 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Downstream;
+import ratpack.exec.ExecInterceptor;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.Upstream;
+import ratpack.func.Block;
+import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.bulkhead.BulkheadFullException;
+import ratpack.resilience4j.bulkhead.ThreadPoolBulkhead;
+import ratpack.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link ratpack.resilience4j.ThreadPoolBulkhead}.
+ * Methods returning a Promise or a CompletionStage are invoked on the thread pool of the bulkhead found in the
+ * annotation, and their result is flattened into the returned Promise or CompletionStage. Other methods are
+ * invoked unchanged.
+ * <p>
+ * A returned Promise is flattened on the calling execution. A {@link ratpack.exec.Blocking} operation it starts runs
+ * on Ratpack's shared blocking executor rather than on the pool, so the promise then fails with an
+ * {@link IllegalStateException}.
+ * <p>
+ * The annotation, bulkhead, recovery function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
+ */
+public class ThreadPoolBulkheadMethodInterceptor extends AbstractResilienceInterceptor<ThreadPoolBulkheadMethodInterceptor.Metadata> {
+
+  private final Provider<ThreadPoolBulkheadRegistry> provider;
+  private final Provider<Injector> injectorProvider;
+
+  @Inject
+  public ThreadPoolBulkheadMethodInterceptor(Provider<ThreadPoolBulkheadRegistry> provider, Provider<Injector> injectorProvider) {
+    this.provider = provider;
+    this.injectorProvider = injectorProvider;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    ThreadPoolBulkhead bulkhead = metadata.bulkhead;
+    if (bulkhead == null) {
+      return invocation.proceed();
+    }
+    switch (metadata.returnType) {
+      case PROMISE:
+        Method method = invocation.getMethod();
+        Promise<Object> promise = bulkhead.get(() -> proceed(invocation)).flatMap(result -> result == null ? Promise.value(null) : confine((Promise<Object>) result, method));
+        if (metadata.customRecovery) {
+          promise = promise.mapError(BulkheadFullException.class, (RecoveryFunction<Object>) metadata.recoveryFunction);
+        }
+        return promise;
+      case COMPLETION_STAGE:
+        CompletableFuture<Object> stage = bulkhead.submit(() -> proceed(invocation))
+          .thenCompose(result -> result == null ? CompletableFuture.completedFuture(null) : (CompletionStage<Object>) result);
+        if (metadata.customRecovery) {
+          return stage.exceptionally(t -> recover(metadata.recoveryFunction, t));
+        }
+        return stage;
+      default:
+        return invocation.proceed();
+    }
+  }
+
+  private static Promise<Object> confine(Promise<Object> promise, Method method) {
+    return promise.transform(upstream -> down -> {
+      Execution execution = Execution.current();
+      Optional<BlockingGuard> existing = execution.maybeGet(BlockingGuard.class);
+      if (existing.isPresent()) {
+        existing.get().connect(upstream, down, method);
+      } else {
+        // the interceptor stays with the execution, so it is added once and only watches while a promise is confined
+        BlockingGuard guard = new BlockingGuard();
+        execution.add(BlockingGuard.class, guard);
+        execution.addInterceptor(guard, () -> guard.connect(upstream, down, method));
+      }
+    });
+  }
+
+  private static Object proceed(MethodInvocation invocation) throws Exception {
+    try {
+      return invocation.proceed();
+    } catch (Exception | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new UndeclaredThrowableException(t);
+    }
+  }
+
+  private static Object recover(RecoveryFunction<?> recoveryFunction, Throwable t) {
+    Throwable cause = t instanceof CompletionException ? t.getCause() : t;
+    if (!(cause instanceof BulkheadFullException)) {
+      throw t instanceof CompletionException ? (CompletionException) t : new CompletionException(t);
+    }
+    try {
+      return recoveryFunction.apply(cause);
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    ratpack.resilience4j.ThreadPoolBulkhead annotation = method.getAnnotation(ratpack.resilience4j.ThreadPoolBulkhead.class);
+    ThreadPoolBulkhead bulkhead = provider.get().bulkhead(annotation.name());
+    RecoveryFunction<?> recoveryFunction = RecoveryFunctions.resolve(annotation.recovery(), injectorProvider.get());
+    boolean customRecovery = !RecoveryFunctions.isDefault(annotation.recovery());
+    return new Metadata(bulkhead, recoveryFunction, customRecovery, ReturnType.of(method));
+  }
+
+  /**
+   * Watches for blocking operations while its execution subscribes to a promise returned by an intercepted method,
+   * and fails that promise if there were any.
+   */
+  private static final class BlockingGuard implements ExecInterceptor {
+
+    private Frame current;
+
+    private <T> void connect(Upstream<? extends T> upstream, Downstream<? super T> down, Method method) throws Exception {
+      Frame frame = new Frame(method, current);
+      current = frame;
+      try {
+        upstream.connect(new Downstream<T>() {
+          @Override
+          public void success(T value) {
+            if (exit()) {
+              down.success(value);
+            }
+          }
+
+          @Override
+          public void error(Throwable throwable) {
+            if (exit()) {
+              down.error(throwable);
+            }
+          }
+
+          @Override
+          public void complete() {
+            if (exit()) {
+              down.complete();
+            }
+          }
+
+          private boolean exit() {
+            current = frame.outer;
+            if (frame.blocked) {
+              down.error(new IllegalStateException("@ThreadPoolBulkhead method " + frame.method + " returned a promise that "
+                + "blocked on Ratpack's blocking executor rather than the bulkhead's pool, do the blocking work in the method body instead"));
+              return false;
+            }
+            return true;
+          }
+        });
+      } catch (Throwable t) {
+        current = frame.outer;
+        throw t;
+      }
+    }
+
+    @Override
+    public void intercept(Execution execution, ExecType execType, Block executionSegment) throws Exception {
+      Frame frame = current;
+      if (execType == ExecType.BLOCKING && frame != null) {
+        frame.blocked = true;
+      }
+      executionSegment.execute();
+    }
+  }
+
+  private static final class Frame {
+    private final Method method;
+    private final Frame outer;
+    private volatile boolean blocked;
+
+    private Frame(Method method, Frame outer) {
+      this.method = method;
+      this.outer = outer;
+    }
+  }
+
+  static final class Metadata {
+    private final ThreadPoolBulkhead bulkhead;
+    private final RecoveryFunction<?> recoveryFunction;
+    private final boolean customRecovery;
+    private final ReturnType returnType;
+
+    private Metadata(ThreadPoolBulkhead bulkhead, RecoveryFunction<?> recoveryFunction, boolean customRecovery, ReturnType returnType) {
+      this.bulkhead = bulkhead;
+      this.recoveryFunction = recoveryFunction;
+      this.customRecovery = customRecovery;
+      this.returnType = returnType;
+    }
+  }
+
+}
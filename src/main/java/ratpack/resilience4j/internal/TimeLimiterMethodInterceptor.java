@@ -0,0 +1,112 @@
+package ratpack.resilience4j.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import ratpack.exec.Promise;
+import ratpack.resilience4j.RecoveryFunction;
+import ratpack.resilience4j.TimeLimit;
+import ratpack.resilience4j.TimeLimiterTransformer;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link MethodInterceptor} to handle all methods annotated with {@link TimeLimit}. It will
+ * handle methods that return a Promise or a CompletionStage. Other methods are invoked unchanged.
+ * <p>
+ * The annotation, recovery function and return type of each intercepted method are resolved once
+ * and cached, see {@link #prepare(Method)}.
+ */
+public class TimeLimiterMethodInterceptor extends AbstractResilienceInterceptor<TimeLimiterMethodInterceptor.Metadata> {
+
+  private final Provider<Injector> injectorProvider;
+
+  @Inject
+  public TimeLimiterMethodInterceptor(Provider<Injector> injectorProvider) {
+    this.injectorProvider = injectorProvider;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Metadata metadata = metadata(invocation.getMethod());
+    Object result = invocation.proceed();
+    if (result == null) {
+      return null;
+    }
+    switch (metadata.returnType.resolve(result)) {
+      case PROMISE:
+        return ((Promise<?>) result).transform(metadata.transformer);
+      case COMPLETION_STAGE:
+        Optional<ScheduledExecutorService> scheduler = Delays.scheduler();
+        if (!scheduler.isPresent()) {
+          return result;
+        }
+        CompletableFuture limited = new CompletableFuture();
+        ScheduledFuture<?> deadline = scheduler.get().schedule(() -> {
+          TimeoutException t = new TimeoutException("CompletionStage did not complete within " + metadata.timeout);
+          if (metadata.customRecovery) {
+            try {
+              limited.complete(metadata.recoveryFunction.apply(t));
+            } catch (Throwable t2) {
+              limited.completeExceptionally(t2);
+            }
+          } else {
+            limited.completeExceptionally(t);
+          }
+        }, metadata.timeout.toNanos(), TimeUnit.NANOSECONDS);
+        ((CompletionStage<Object>) result).whenComplete((v, t) -> {
+          deadline.cancel(false);
+          if (t != null) {
+            limited.completeExceptionally(t);
+          } else {
+            limited.complete(v);
+          }
+        });
+        return limited;
+      default:
+        return result;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected Metadata resolve(Method method) throws Exception {
+    TimeLimit annotation = method.getAnnotation(TimeLimit.class);
+    Duration timeout = Duration.ofNanos(annotation.unit().toNanos(annotation.timeout()));
+    RecoveryFunction<?> recoveryFunction = RecoveryFunctions.resolve(annotation.recovery(), injectorProvider.get());
+    boolean customRecovery = !RecoveryFunctions.isDefault(annotation.recovery());
+    TimeLimiterTransformer transformer = TimeLimiterTransformer.of(timeout);
+    if (customRecovery) {
+      transformer = transformer.recover(recoveryFunction);
+    }
+    return new Metadata(timeout, recoveryFunction, customRecovery, transformer, ReturnType.of(method));
+  }
+
+  static final class Metadata {
+    private final Duration timeout;
+    private final RecoveryFunction<?> recoveryFunction;
+    private final boolean customRecovery;
+    private final TimeLimiterTransformer transformer;
+    private final ReturnType returnType;
+
+    private Metadata(Duration timeout, RecoveryFunction<?> recoveryFunction, boolean customRecovery, TimeLimiterTransformer transformer, ReturnType returnType) {
+      this.timeout = timeout;
+      this.recoveryFunction = recoveryFunction;
+      this.customRecovery = customRecovery;
+      this.transformer = transformer;
+      this.returnType = returnType;
+    }
+  }
+
+}
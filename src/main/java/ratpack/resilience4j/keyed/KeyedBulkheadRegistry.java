@@ -0,0 +1,76 @@
+package ratpack.resilience4j.keyed;
+
+import ratpack.resilience4j.bulkhead.Bulkhead;
+import ratpack.resilience4j.bulkhead.BulkheadConfig;
+import ratpack.resilience4j.bulkhead.BulkheadRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A registry of {@link Bulkhead} instances per name and key, for example one bulkhead per request path.
+ * <p>
+ * Each instance is named {@code <name>:<key>} and is created with the config of the bulkhead with the same
+ * name in the {@link BulkheadRegistry}. Instances are held in a bounded cache, see {@link KeyedCacheConfig}.
+ * A bulkhead that is evicted while calls are in flight is replaced by a new one with all permits available.
+ * A bulkhead whose config changes is reconfigured in place, see {@link #reconfigure()}.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default cache config.
+ */
+@Singleton
+public class KeyedBulkheadRegistry {
+
+  private final BulkheadRegistry registry;
+  private final KeyedInstances<Bulkhead> instances;
+
+  @Inject
+  public KeyedBulkheadRegistry(BulkheadRegistry registry) {
+    this(registry, KeyedCacheConfig.ofDefaults());
+  }
+
+  private KeyedBulkheadRegistry(BulkheadRegistry registry, KeyedCacheConfig cacheConfig) {
+    this.registry = registry;
+    this.instances = new KeyedInstances<>(cacheConfig);
+  }
+
+  public static KeyedBulkheadRegistry of(BulkheadRegistry registry, KeyedCacheConfig cacheConfig) {
+    return new KeyedBulkheadRegistry(registry, cacheConfig);
+  }
+
+  /**
+   * Get the bulkhead for the given name and key, creating it if it does not exist.
+   *
+   * @param name the name of the bulkhead whose config is used
+   * @param key the key
+   * @return the bulkhead
+   */
+  public Bulkhead bulkhead(String name, Object key) {
+    return instances.get(name, key, id -> {
+      BulkheadConfig config = registry.bulkhead(name).getBulkheadConfig();
+      return Bulkhead.of(id, config);
+    });
+  }
+
+  /**
+   * Apply the current config of the bulkhead with the same name to each instance, in place, so that calls in flight
+   * keep their permits.
+   * <p>
+   * Called after each reload by the {@link ratpack.resilience4j.ResilienceModule}.
+   */
+  public void reconfigure() {
+    instances.forEach((name, bulkhead) -> {
+      BulkheadConfig config = registry.bulkhead(name).getBulkheadConfig();
+      if (bulkhead.getBulkheadConfig() != config) {
+        bulkhead.changeConfig(config);
+      }
+    });
+  }
+
+  /**
+   * @return the approximate number of bulkheads currently held
+   */
+  public long size() {
+    return instances.size();
+  }
+
+}
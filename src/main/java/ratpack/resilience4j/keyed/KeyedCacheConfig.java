@@ -0,0 +1,70 @@
+package ratpack.resilience4j.keyed;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the caches that hold keyed circuit breaker, rate limiter and bulkhead instances.
+ * <p>
+ * Each name has its own cache. Instances are evicted when the cache of their name grows beyond its maximum size,
+ * least recently used first, and when they have not been used for the idle duration. An evicted instance loses its
+ * state, so the idle duration should be longer than the windows of the instances it holds.
+ */
+public class KeyedCacheConfig {
+
+  private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+  private static final Duration DEFAULT_EXPIRE_AFTER_ACCESS = Duration.ofMinutes(10);
+
+  private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+  private Duration expireAfterAccess = DEFAULT_EXPIRE_AFTER_ACCESS;
+
+  private KeyedCacheConfig() {
+  }
+
+  /**
+   * @return the maximum number of instances held per name
+   */
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * @return the time after which an unused instance is evicted
+   */
+  public Duration getExpireAfterAccess() {
+    return expireAfterAccess;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static KeyedCacheConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final KeyedCacheConfig config = new KeyedCacheConfig();
+
+    public Builder maximumSize(long maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("maximumSize must be at least 1");
+      }
+      config.maximumSize = maximumSize;
+      return this;
+    }
+
+    public Builder expireAfterAccess(Duration expireAfterAccess) {
+      if (expireAfterAccess == null || expireAfterAccess.isNegative() || expireAfterAccess.isZero()) {
+        throw new IllegalArgumentException("expireAfterAccess must be positive");
+      }
+      config.expireAfterAccess = expireAfterAccess;
+      return this;
+    }
+
+    public KeyedCacheConfig build() {
+      return config;
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+package ratpack.resilience4j.keyed;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A registry of {@link CircuitBreaker} instances per name and key, for example one circuit breaker per downstream host.
+ * <p>
+ * Each instance is named {@code <name>:<key>} and is created with the config of the circuit breaker with the same
+ * name in the {@link CircuitBreakerRegistry}. Instances are held in a bounded cache, see {@link KeyedCacheConfig}, and
+ * are created again when that config is replaced, see {@link #invalidate()}.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default cache config.
+ */
+@Singleton
+public class KeyedCircuitBreakerRegistry {
+
+  private final CircuitBreakerRegistry registry;
+  private final KeyedInstances<CircuitBreaker> instances;
+
+  @Inject
+  public KeyedCircuitBreakerRegistry(CircuitBreakerRegistry registry) {
+    this(registry, KeyedCacheConfig.ofDefaults());
+  }
+
+  private KeyedCircuitBreakerRegistry(CircuitBreakerRegistry registry, KeyedCacheConfig cacheConfig) {
+    this.registry = registry;
+    this.instances = new KeyedInstances<>(cacheConfig);
+  }
+
+  public static KeyedCircuitBreakerRegistry of(CircuitBreakerRegistry registry, KeyedCacheConfig cacheConfig) {
+    return new KeyedCircuitBreakerRegistry(registry, cacheConfig);
+  }
+
+  /**
+   * Get the circuit breaker for the given name and key, creating it if it does not exist.
+   *
+   * @param name the name of the circuit breaker whose config is used
+   * @param key the key
+   * @return the circuit breaker
+   */
+  public CircuitBreaker circuitBreaker(String name, Object key) {
+    return instances.get(name, key, id -> {
+      CircuitBreakerConfig config = registry.circuitBreaker(name).getCircuitBreakerConfig();
+      return CircuitBreaker.of(id, config);
+    });
+  }
+
+  /**
+   * Drop the instances of each name whose config is no longer the config of the circuit breaker with that name, so that
+   * they are created again with the current config. The dropped instances lose their state.
+   * <p>
+   * Called after each reload by the {@link ratpack.resilience4j.ResilienceModule}.
+   */
+  public void invalidate() {
+    Set<String> stale = new HashSet<>();
+    instances.forEach((name, instance) -> {
+      if (instance.getCircuitBreakerConfig() != registry.circuitBreaker(name).getCircuitBreakerConfig()) {
+        stale.add(name);
+      }
+    });
+    stale.forEach(instances::invalidate);
+  }
+
+  /**
+   * @return the approximate number of circuit breakers currently held
+   */
+  public long size() {
+    return instances.size();
+  }
+
+}
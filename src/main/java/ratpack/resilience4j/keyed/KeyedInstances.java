@@ -0,0 +1,76 @@
+package ratpack.resilience4j.keyed;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent cache of instances keyed by name and key.
+ * <p>
+ * Each name has its own cache, so that a lookup does not build a composite key.
+ */
+final class KeyedInstances<T> {
+
+  // the caches do not take null keys
+  private static final Object NULL_KEY = new Object();
+
+  private final KeyedCacheConfig config;
+  private final ConcurrentMap<String, Cache<Object, T>> caches = new ConcurrentHashMap<>();
+
+  KeyedInstances(KeyedCacheConfig config) {
+    this.config = config;
+  }
+
+  T get(String name, Object key, Function<String, T> factory) {
+    Cache<Object, T> cache = caches.get(name);
+    if (cache == null) {
+      cache = caches.computeIfAbsent(name, n -> newCache());
+    }
+    Object cacheKey = key == null ? NULL_KEY : key;
+    T instance = cache.getIfPresent(cacheKey);
+    if (instance == null) {
+      try {
+        instance = cache.get(cacheKey, () -> factory.apply(name + ":" + key));
+      } catch (ExecutionException | UncheckedExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Run the given action for each instance held, with the name it was created for.
+   */
+  void forEach(BiConsumer<String, T> action) {
+    caches.forEach((name, cache) -> cache.asMap().values().forEach(instance -> action.accept(name, instance)));
+  }
+
+  /**
+   * Drop all instances of the given name.
+   */
+  void invalidate(String name) {
+    caches.remove(name);
+  }
+
+  long size() {
+    return caches.values().stream().mapToLong(Cache::size).sum();
+  }
+
+  private Cache<Object, T> newCache() {
+    return CacheBuilder.newBuilder()
+      .maximumSize(config.getMaximumSize())
+      .expireAfterAccess(config.getExpireAfterAccess().toNanos(), TimeUnit.NANOSECONDS)
+      .build();
+  }
+
+}
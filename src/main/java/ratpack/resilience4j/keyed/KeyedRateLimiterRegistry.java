@@ -0,0 +1,78 @@
+package ratpack.resilience4j.keyed;
+
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+import io.github.robwin.ratelimiter.RateLimiterRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A registry of {@link RateLimiter} instances per name and key, for example one rate limiter per client IP.
+ * <p>
+ * Each instance is named {@code <name>:<key>} and is created with the config of the rate limiter with the same
+ * name in the {@link RateLimiterRegistry}. Instances are held in a bounded cache, see {@link KeyedCacheConfig}, and
+ * are created again when that config is replaced, see {@link #invalidate()}.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default cache config.
+ */
+@Singleton
+public class KeyedRateLimiterRegistry {
+
+  private final RateLimiterRegistry registry;
+  private final KeyedInstances<RateLimiter> instances;
+
+  @Inject
+  public KeyedRateLimiterRegistry(RateLimiterRegistry registry) {
+    this(registry, KeyedCacheConfig.ofDefaults());
+  }
+
+  private KeyedRateLimiterRegistry(RateLimiterRegistry registry, KeyedCacheConfig cacheConfig) {
+    this.registry = registry;
+    this.instances = new KeyedInstances<>(cacheConfig);
+  }
+
+  public static KeyedRateLimiterRegistry of(RateLimiterRegistry registry, KeyedCacheConfig cacheConfig) {
+    return new KeyedRateLimiterRegistry(registry, cacheConfig);
+  }
+
+  /**
+   * Get the rate limiter for the given name and key, creating it if it does not exist.
+   *
+   * @param name the name of the rate limiter whose config is used
+   * @param key the key
+   * @return the rate limiter
+   */
+  public RateLimiter rateLimiter(String name, Object key) {
+    return instances.get(name, key, id -> {
+      RateLimiterConfig config = registry.rateLimiter(name).getRateLimiterConfig();
+      return RateLimiter.of(id, config);
+    });
+  }
+
+  /**
+   * Drop the instances of each name whose config is no longer the config of the rate limiter with that name, so that
+   * they are created again with the current config. The dropped instances lose their state.
+   * <p>
+   * Called after each reload by the {@link ratpack.resilience4j.ResilienceModule}.
+   */
+  public void invalidate() {
+    Set<String> stale = new HashSet<>();
+    instances.forEach((name, instance) -> {
+      if (instance.getRateLimiterConfig() != registry.rateLimiter(name).getRateLimiterConfig()) {
+        stale.add(name);
+      }
+    });
+    stale.forEach(instances::invalidate);
+  }
+
+  /**
+   * @return the approximate number of rate limiters currently held
+   */
+  public long size() {
+    return instances.size();
+  }
+
+}
@@ -0,0 +1,171 @@
+package ratpack.resilience4j.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of calls in flight to a dependency at a limit that adapts to the dependency's latency, instead
+ * of a fixed number.
+ * <p>
+ * Callers take a permit with {@link #tryAcquire()} and return it with exactly one of {@link #onSuccess(long)},
+ * {@link #onError(long, Throwable)} or {@link #release()}, passing the measured round trip time. Each measurement
+ * moves the limit according to the configured {@link AdaptiveLimiterConfig.Algorithm}.
+ * <p>
+ * Permits, the limit and the minimum latency are each held in a single atomic and updated with compare-and-set,
+ * so neither acquiring a permit nor recording a measurement takes a lock.
+ */
+public class AdaptiveLimiter {
+
+  private final String name;
+  private final AdaptiveLimiterConfig config;
+  private final long latencyThresholdNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong limit;
+  private final AtomicLong minLatency = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicInteger samples = new AtomicInteger();
+
+  private AdaptiveLimiter(String name, AdaptiveLimiterConfig config) {
+    this.name = name;
+    this.config = config;
+    this.latencyThresholdNanos = config.getLatencyThreshold().toNanos();
+    this.limit = new AtomicLong(Double.doubleToRawLongBits(config.getInitialLimit()));
+  }
+
+  public static AdaptiveLimiter of(String name, AdaptiveLimiterConfig config) {
+    return new AdaptiveLimiter(name, config);
+  }
+
+  public static AdaptiveLimiter ofDefaults(String name) {
+    return new AdaptiveLimiter(name, AdaptiveLimiterConfig.ofDefaults());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public AdaptiveLimiterConfig getAdaptiveLimiterConfig() {
+    return config;
+  }
+
+  /**
+   * @return the current limit on calls in flight
+   */
+  public int getLimit() {
+    return (int) Double.longBitsToDouble(limit.get());
+  }
+
+  /**
+   * @return the number of calls currently in flight
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * @return the lowest latency observed in the current window, in microseconds, or -1 before the first measurement
+   */
+  public long getMinLatencyMicros() {
+    long min = minLatency.get();
+    return min == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMicros(min);
+  }
+
+  /**
+   * Take a permit if fewer calls than the current limit are in flight.
+   *
+   * @return true if a permit was taken
+   */
+  public boolean tryAcquire() {
+    for (;;) {
+      int current = inFlight.get();
+      if (current >= getLimit()) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Return a permit for a call that succeeded, and adjust the limit to its latency.
+   *
+   * @param latencyNanos the round trip time of the call
+   */
+  public void onSuccess(long latencyNanos) {
+    sample(latencyNanos, false);
+  }
+
+  /**
+   * Return a permit for a call that failed. The limit is adjusted only if the failure counts as a dropped call,
+   * see {@link AdaptiveLimiterConfig#getDropPredicate()}.
+   *
+   * @param latencyNanos the round trip time of the call
+   * @param throwable the failure
+   */
+  public void onError(long latencyNanos, Throwable throwable) {
+    if (config.getDropPredicate().test(throwable)) {
+      sample(latencyNanos, true);
+    } else {
+      release();
+    }
+  }
+
+  /**
+   * Return a permit without adjusting the limit, for calls that did not produce a meaningful measurement.
+   */
+  public void release() {
+    inFlight.decrementAndGet();
+  }
+
+  private void sample(long latencyNanos, boolean dropped) {
+    int current = inFlight.getAndDecrement();
+    long latency = Math.max(1, latencyNanos);
+    boolean aimd = config.getAlgorithm() == AdaptiveLimiterConfig.Algorithm.AIMD;
+    long min = aimd ? 0 : minLatency(latency);
+    for (;;) {
+      long bits = limit.get();
+      double previous = Double.longBitsToDouble(bits);
+      double next = aimd ? aimd(previous, current, dropped || latency > latencyThresholdNanos) : gradient(previous, min, latency, dropped);
+      next = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), next));
+      if (next == previous || limit.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+        return;
+      }
+    }
+  }
+
+  private double aimd(double current, int inFlight, boolean backoff) {
+    if (backoff) {
+      return current * config.getBackoffRatio();
+    }
+    // only grow while the limit is actually being used, otherwise it would grow without bound at low load
+    return inFlight * 2 >= current ? current + 1 : current;
+  }
+
+  private double gradient(double current, long min, long latency, boolean dropped) {
+    if (dropped) {
+      return current * config.getBackoffRatio();
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, config.getTolerance() * min / latency));
+    // the square root allows for a small queue, so the limit can still probe upwards at the minimum latency
+    double estimate = current * gradient + Math.sqrt(current);
+    return current * (1 - config.getSmoothing()) + estimate * config.getSmoothing();
+  }
+
+  private long minLatency(long latency) {
+    if (samples.incrementAndGet() % config.getMinLatencyWindow() == 0) {
+      minLatency.set(latency);
+      return latency;
+    }
+    for (;;) {
+      long min = minLatency.get();
+      if (latency >= min) {
+        return min;
+      }
+      if (minLatency.compareAndSet(min, latency)) {
+        return latency;
+      }
+    }
+  }
+
+}
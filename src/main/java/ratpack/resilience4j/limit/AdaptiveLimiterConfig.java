@@ -0,0 +1,224 @@
+package ratpack.resilience4j.limit;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Configuration for an {@link AdaptiveLimiter}.
+ */
+public class AdaptiveLimiterConfig {
+
+  /**
+   * The algorithm used to adjust the limit from observed latency.
+   */
+  public enum Algorithm {
+    /**
+     * Additive increase, multiplicative decrease. The limit grows by one while calls complete within the latency
+     * threshold and the limiter is at least half used, and is multiplied by the backoff ratio when a call is
+     * dropped or exceeds the threshold.
+     */
+    AIMD,
+    /**
+     * Gradient, in the style of TCP Vegas. The limit follows the ratio of the minimum observed latency to the
+     * current latency, so it shrinks as soon as queueing makes calls slower, before any of them fail.
+     */
+    GRADIENT
+  }
+
+  private static final int DEFAULT_INITIAL_LIMIT = 20;
+  private static final int DEFAULT_MIN_LIMIT = 1;
+  private static final int DEFAULT_MAX_LIMIT = 200;
+  private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+  private static final Duration DEFAULT_LATENCY_THRESHOLD = Duration.ofSeconds(1);
+  private static final double DEFAULT_SMOOTHING = 0.2;
+  private static final double DEFAULT_TOLERANCE = 2.0;
+  private static final int DEFAULT_MIN_LATENCY_WINDOW = 1000;
+
+  private Algorithm algorithm = Algorithm.GRADIENT;
+  private int initialLimit = DEFAULT_INITIAL_LIMIT;
+  private int minLimit = DEFAULT_MIN_LIMIT;
+  private int maxLimit = DEFAULT_MAX_LIMIT;
+  private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+  private Duration latencyThreshold = DEFAULT_LATENCY_THRESHOLD;
+  private double smoothing = DEFAULT_SMOOTHING;
+  private double tolerance = DEFAULT_TOLERANCE;
+  private int minLatencyWindow = DEFAULT_MIN_LATENCY_WINDOW;
+  private Predicate<Throwable> dropPredicate = t -> t instanceof TimeoutException;
+
+  private AdaptiveLimiterConfig() {
+  }
+
+  /**
+   * @return the algorithm used to adjust the limit
+   */
+  public Algorithm getAlgorithm() {
+    return algorithm;
+  }
+
+  /**
+   * @return the limit before any call has been measured
+   */
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  /**
+   * @return the lowest the limit can go
+   */
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  /**
+   * @return the highest the limit can go
+   */
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  /**
+   * @return the factor the {@link Algorithm#AIMD} limit is multiplied by when a call is dropped
+   */
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  /**
+   * @return the latency above which an {@link Algorithm#AIMD} call counts as dropped
+   */
+  public Duration getLatencyThreshold() {
+    return latencyThreshold;
+  }
+
+  /**
+   * @return the weight of each new {@link Algorithm#GRADIENT} estimate in the limit, between 0 and 1
+   */
+  public double getSmoothing() {
+    return smoothing;
+  }
+
+  /**
+   * @return how many times the minimum latency a {@link Algorithm#GRADIENT} call may take before the limit shrinks
+   */
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * @return the number of calls after which the {@link Algorithm#GRADIENT} minimum latency is measured afresh, so
+   * that it follows lasting changes in the dependency
+   */
+  public int getMinLatencyWindow() {
+    return minLatencyWindow;
+  }
+
+  /**
+   * @return the predicate deciding which failures count as dropped calls, the rest neither grow nor shrink the limit
+   */
+  public Predicate<Throwable> getDropPredicate() {
+    return dropPredicate;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static AdaptiveLimiterConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final AdaptiveLimiterConfig config = new AdaptiveLimiterConfig();
+
+    public Builder algorithm(Algorithm algorithm) {
+      if (algorithm == null) {
+        throw new IllegalArgumentException("algorithm must not be null");
+      }
+      config.algorithm = algorithm;
+      return this;
+    }
+
+    public Builder initialLimit(int initialLimit) {
+      if (initialLimit < 1) {
+        throw new IllegalArgumentException("initialLimit must be at least 1");
+      }
+      config.initialLimit = initialLimit;
+      return this;
+    }
+
+    public Builder minLimit(int minLimit) {
+      if (minLimit < 1) {
+        throw new IllegalArgumentException("minLimit must be at least 1");
+      }
+      config.minLimit = minLimit;
+      return this;
+    }
+
+    public Builder maxLimit(int maxLimit) {
+      if (maxLimit < 1) {
+        throw new IllegalArgumentException("maxLimit must be at least 1");
+      }
+      config.maxLimit = maxLimit;
+      return this;
+    }
+
+    public Builder backoffRatio(double backoffRatio) {
+      if (backoffRatio <= 0 || backoffRatio >= 1) {
+        throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+      }
+      config.backoffRatio = backoffRatio;
+      return this;
+    }
+
+    public Builder latencyThreshold(Duration latencyThreshold) {
+      if (latencyThreshold == null || latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+        throw new IllegalArgumentException("latencyThreshold must be positive");
+      }
+      config.latencyThreshold = latencyThreshold;
+      return this;
+    }
+
+    public Builder smoothing(double smoothing) {
+      if (smoothing <= 0 || smoothing > 1) {
+        throw new IllegalArgumentException("smoothing must be greater than 0 and at most 1");
+      }
+      config.smoothing = smoothing;
+      return this;
+    }
+
+    public Builder tolerance(double tolerance) {
+      if (tolerance < 1) {
+        throw new IllegalArgumentException("tolerance must be at least 1");
+      }
+      config.tolerance = tolerance;
+      return this;
+    }
+
+    public Builder minLatencyWindow(int minLatencyWindow) {
+      if (minLatencyWindow < 1) {
+        throw new IllegalArgumentException("minLatencyWindow must be at least 1");
+      }
+      config.minLatencyWindow = minLatencyWindow;
+      return this;
+    }
+
+    public Builder dropPredicate(Predicate<Throwable> dropPredicate) {
+      if (dropPredicate == null) {
+        throw new IllegalArgumentException("dropPredicate must not be null");
+      }
+      config.dropPredicate = dropPredicate;
+      return this;
+    }
+
+    public AdaptiveLimiterConfig build() {
+      if (config.minLimit > config.maxLimit) {
+        throw new IllegalArgumentException("minLimit must not be greater than maxLimit");
+      }
+      config.initialLimit = Math.max(config.minLimit, Math.min(config.maxLimit, config.initialLimit));
+      return config;
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package ratpack.resilience4j.limit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link AdaptiveLimiter} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default config.
+ */
+@Singleton
+public class AdaptiveLimiterRegistry {
+
+  private final AdaptiveLimiterConfig defaultConfig;
+  private final ConcurrentMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+  @Inject
+  public AdaptiveLimiterRegistry() {
+    this(AdaptiveLimiterConfig.ofDefaults());
+  }
+
+  private AdaptiveLimiterRegistry(AdaptiveLimiterConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static AdaptiveLimiterRegistry of(AdaptiveLimiterConfig defaultConfig) {
+    return new AdaptiveLimiterRegistry(defaultConfig);
+  }
+
+  public static AdaptiveLimiterRegistry ofDefaults() {
+    return new AdaptiveLimiterRegistry(AdaptiveLimiterConfig.ofDefaults());
+  }
+
+  /**
+   * @return all limiters in the registry
+   */
+  public List<AdaptiveLimiter> getAllAdaptiveLimiters() {
+    return new ArrayList<>(limiters.values());
+  }
+
+  /**
+   * Get the limiter with the given name, creating it with the default config if it does not exist.
+   *
+   * @param name the name of the limiter
+   * @return the limiter
+   */
+  public AdaptiveLimiter limiter(String name) {
+    return limiter(name, defaultConfig);
+  }
+
+  /**
+   * Get the limiter with the given name, creating it with the given config if it does not exist.
+   *
+   * @param name the name of the limiter
+   * @param config the config used if the limiter does not exist
+   * @return the limiter
+   */
+  public AdaptiveLimiter limiter(String name, AdaptiveLimiterConfig config) {
+    AdaptiveLimiter limiter = limiters.get(name);
+    if (limiter == null) {
+      limiter = limiters.computeIfAbsent(name, n -> AdaptiveLimiter.of(n, config));
+    }
+    return limiter;
+  }
+
+}
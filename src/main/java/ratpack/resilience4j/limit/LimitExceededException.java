@@ -0,0 +1,12 @@
+package ratpack.resilience4j.limit;
+
+/**
+ * Signals that a call was rejected because an {@link AdaptiveLimiter} was at its current limit.
+ */
+public class LimitExceededException extends RuntimeException {
+
+  public LimitExceededException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,166 @@
+package ratpack.resilience4j.metrics;
+
+import com.google.common.cache.CacheBuilder;
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import ratpack.resilience4j.window.SlidingWindowCircuitBreaker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Call metrics of a single circuit breaker, rate limiter or bulkhead.
+ * All counters are {@link LongAdder}s, so recording does not contend across threads. Each call outcome and state
+ * transition is also recorded as an event in the instance's {@link EventRing}.
+ * <p>
+ * A {@link SlidingWindowCircuitBreaker} reports its state transitions as they happen, so each one is counted exactly.
+ * Other circuit breakers publish no transitions, so theirs are inferred from the states that calls observe: a state
+ * that no call observes, such as a half open state whose trial calls are not instrumented, is missed. The observed
+ * state is kept per circuit breaker instance, so the keyed instances sharing these metrics do not mix their states.
+ */
+public class CallMetrics {
+
+  private static final CircuitBreaker.State[] STATES = CircuitBreaker.State.values();
+
+  private final String name;
+  private final LongAdder successfulCalls = new LongAdder();
+  private final LongAdder failedCalls = new LongAdder();
+  private final LongAdder notPermittedCalls = new LongAdder();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder[] stateTransitions = new LongAdder[STATES.length * STATES.length];
+  private final EventRing events;
+  private final ConcurrentMap<CircuitBreaker, AtomicReference<CircuitBreaker.State>> observedStates =
+    CacheBuilder.newBuilder().weakKeys().<CircuitBreaker, AtomicReference<CircuitBreaker.State>>build().asMap();
+  private volatile LongConsumer latencyListener = nanos -> { };
+
+  CallMetrics(String type, String name) {
+    this.name = name;
+    this.events = new EventRing(type, name, EventRing.DEFAULT_CAPACITY);
+    for (int i = 0; i < stateTransitions.length; i++) {
+      stateTransitions[i] = new LongAdder();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void onSuccess(long nanos) {
+    successfulCalls.increment();
+    latency.record(nanos);
+    latencyListener.accept(nanos);
+    events.record(ResilienceEvent.Kind.SUCCESS, nanos);
+  }
+
+  public void onError(long nanos) {
+    failedCalls.increment();
+    latency.record(nanos);
+    latencyListener.accept(nanos);
+    events.record(ResilienceEvent.Kind.ERROR, nanos);
+  }
+
+  public void onNotPermitted() {
+    notPermittedCalls.increment();
+    events.record(ResilienceEvent.Kind.NOT_PERMITTED, 0);
+  }
+
+  /**
+   * Record the state of a circuit breaker as observed by a call. A transition is counted once, by the first call to
+   * observe the new state, however many calls were in flight when it happened. A {@link SlidingWindowCircuitBreaker}
+   * is only subscribed to, the first time it is seen, since it reports its transitions itself.
+   *
+   * @param circuitBreaker the circuit breaker the call went through
+   */
+  public void onState(CircuitBreaker circuitBreaker) {
+    AtomicReference<CircuitBreaker.State> observed = observedStates.get(circuitBreaker);
+    if (observed == null) {
+      AtomicReference<CircuitBreaker.State> created = new AtomicReference<>(CircuitBreaker.State.CLOSED);
+      observed = observedStates.putIfAbsent(circuitBreaker, created);
+      if (observed == null) {
+        observed = created;
+        if (circuitBreaker instanceof SlidingWindowCircuitBreaker) {
+          ((SlidingWindowCircuitBreaker) circuitBreaker).onStateTransition(this::onTransition);
+        }
+      }
+    }
+    if (circuitBreaker instanceof SlidingWindowCircuitBreaker) {
+      return;
+    }
+    CircuitBreaker.State state = circuitBreaker.getState();
+    CircuitBreaker.State last = observed.get();
+    if (last != state && observed.compareAndSet(last, state)) {
+      onTransition(last, state);
+    }
+  }
+
+  private void onTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+    stateTransitions[from.ordinal() * STATES.length + to.ordinal()].increment();
+    events.recordTransition(from, to);
+  }
+
+  /**
+   * Also pass the latency of each call, in nanoseconds, to the given consumer, for example to feed a timer of another
+   * metrics library.
+   *
+   * @param listener the consumer of latencies
+   */
+  public synchronized void onLatency(LongConsumer listener) {
+    latencyListener = latencyListener.andThen(listener);
+  }
+
+  public long getSuccessfulCalls() {
+    return successfulCalls.sum();
+  }
+
+  public long getFailedCalls() {
+    return failedCalls.sum();
+  }
+
+  public long getNotPermittedCalls() {
+    return notPermittedCalls.sum();
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * @return the most recent events of this instance
+   */
+  public EventRing getEvents() {
+    return events;
+  }
+
+  /**
+   * @return the number of transitions between each pair of circuit breaker states, keyed by {@code FROM_TO_TO}
+   */
+  public Map<String, Long> getStateTransitions() {
+    Map<String, Long> transitions = new LinkedHashMap<>();
+    for (CircuitBreaker.State from : STATES) {
+      for (CircuitBreaker.State to : STATES) {
+        long count = stateTransitions[from.ordinal() * STATES.length + to.ordinal()].sum();
+        if (count > 0) {
+          transitions.put(from + "_TO_" + to, count);
+        }
+      }
+    }
+    return transitions;
+  }
+
+  Map<String, Object> snapshot() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("successfulCalls", getSuccessfulCalls());
+    snapshot.put("failedCalls", getFailedCalls());
+    snapshot.put("notPermittedCalls", getNotPermittedCalls());
+    snapshot.put("latency", latency.snapshot());
+    Map<String, Long> transitions = getStateTransitions();
+    if (!transitions.isEmpty()) {
+      snapshot.put("stateTransitions", transitions);
+    }
+    return snapshot;
+  }
+
+}
@@ -0,0 +1,93 @@
+package ratpack.resilience4j.metrics;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Follows the {@link EventRing}s of all instances of a {@link ResilienceMetrics}, returning the events recorded since
+ * the previous poll. A cursor that is polled less often than its rings wrap around misses the overwritten events,
+ * without slowing down the calls being recorded.
+ * <p>
+ * The {@link #getPosition() position} of a cursor holds the next sequence of each ring it follows, so a new cursor
+ * can resume where another one stopped, for example from the {@code Last-Event-ID} of a server-sent event stream.
+ */
+public class EventCursor {
+
+  private static final String UTF_8 = "UTF-8";
+
+  private final ResilienceMetrics metrics;
+  private final Map<EventRing, Long> sequences = new HashMap<>();
+
+  EventCursor(ResilienceMetrics metrics) {
+    this.metrics = metrics;
+    metrics.callMetrics().forEach(m -> sequences.put(m.getEvents(), m.getEvents().getSequence()));
+  }
+
+  EventCursor(ResilienceMetrics metrics, String position) {
+    this.metrics = metrics;
+    Map<String, Long> positions = parse(position);
+    metrics.callMetrics().forEach(m -> {
+      Long sequence = positions.get(key(m.getEvents()));
+      if (sequence != null) {
+        sequences.put(m.getEvents(), sequence);
+      }
+    });
+  }
+
+  /**
+   * @return the events recorded since the previous poll, oldest first
+   */
+  public synchronized List<ResilienceEvent> poll() {
+    List<ResilienceEvent> events = new ArrayList<>();
+    metrics.callMetrics().forEach(m -> {
+      EventRing ring = m.getEvents();
+      List<ResilienceEvent> recent = ring.since(sequences.getOrDefault(ring, 0L));
+      if (!recent.isEmpty()) {
+        sequences.put(ring, recent.get(recent.size() - 1).getSequence() + 1);
+        events.addAll(recent);
+      }
+    });
+    events.sort(Comparator.comparingLong(ResilienceEvent::getTimestamp));
+    return events;
+  }
+
+  /**
+   * @return the next sequence of each ring this cursor follows, as {@code type/name:sequence} pairs separated by commas
+   * with the names URL encoded, see {@link ResilienceMetrics#eventCursor(String)}
+   */
+  public synchronized String getPosition() {
+    StringJoiner position = new StringJoiner(",");
+    sequences.forEach((ring, sequence) -> position.add(key(ring) + ":" + sequence));
+    return position.toString();
+  }
+
+  private static String key(EventRing ring) {
+    try {
+      return ring.getType() + "/" + URLEncoder.encode(ring.getName(), UTF_8);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Map<String, Long> parse(String position) {
+    Map<String, Long> positions = new HashMap<>();
+    for (String pair : position.split(",")) {
+      int colon = pair.lastIndexOf(':');
+      if (colon > 0) {
+        try {
+          positions.put(pair.substring(0, colon), Long.parseLong(pair.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+          // not a position written by this cursor, so the ring is followed from its oldest event
+        }
+      }
+    }
+    return positions;
+  }
+
+}
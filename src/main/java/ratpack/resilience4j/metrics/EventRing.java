@@ -0,0 +1,169 @@
+package ratpack.resilience4j.metrics;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size ring of the most recent {@link ResilienceEvent}s of one instance.
+ * <p>
+ * The ring is preallocated as primitive arrays, so recording an event allocates nothing: a writer claims a sequence
+ * with a single atomic increment, then takes the slot it maps to with a compare-and-set that marks the slot as being
+ * written for that sequence, fills it, and publishes the sequence. A writer that finds a later sequence in its slot
+ * is a full ring behind and drops its event, which was already lost to the ring, and a writer that finds an earlier
+ * sequence still being written waits for it, so two writers never fill the same slot at once. Readers never block
+ * writers. A reader checks the published sequence of a slot before and after copying it, stops at an event that is
+ * still being written, and skips events that were overwritten while being read. Events older than the capacity are
+ * lost, which is how a slow reader falls behind without slowing down the calls being recorded.
+ * <p>
+ * Events are recorded by the {@link CallMetrics} of an instance, so only instances that metrics are enabled for
+ * have events.
+ */
+public class EventRing {
+
+  public static final int DEFAULT_CAPACITY = 128;
+
+  private static final int FIELDS = 3;
+  private static final ResilienceEvent.Kind[] KINDS = ResilienceEvent.Kind.values();
+  private static final CircuitBreaker.State[] STATES = CircuitBreaker.State.values();
+  private static final long EMPTY = -1;
+
+  private final String type;
+  private final String name;
+  private final int mask;
+  private final AtomicLong next = new AtomicLong();
+  private final AtomicLongArray published;
+  private final AtomicLongArray slots;
+
+  EventRing(String type, String name, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    this.type = type;
+    this.name = name;
+    this.mask = Math.max(1, size) - 1;
+    this.published = new AtomicLongArray(mask + 1);
+    this.slots = new AtomicLongArray((mask + 1) * FIELDS);
+    for (int i = 0; i <= mask; i++) {
+      published.set(i, EMPTY);
+    }
+  }
+
+  void record(ResilienceEvent.Kind kind, long durationNanos) {
+    record(kind.ordinal(), durationNanos);
+  }
+
+  void recordTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+    record(ResilienceEvent.Kind.STATE_TRANSITION.ordinal() | (from.ordinal() + 1) << 8 | (to.ordinal() + 1) << 16, 0);
+  }
+
+  private void record(long code, long durationNanos) {
+    long sequence = next.getAndIncrement();
+    int slot = (int) sequence & mask;
+    int base = slot * FIELDS;
+    long writing = writing(sequence);
+    while (true) {
+      long current = published.get(slot);
+      long holder = holder(current);
+      if (holder >= sequence) {
+        // a writer a full ring ahead took the slot
+        return;
+      }
+      if (current < EMPTY) {
+        // a writer a full ring behind is still filling the slot
+        Thread.yield();
+      } else if (published.compareAndSet(slot, current, writing)) {
+        break;
+      }
+    }
+    slots.lazySet(base, code);
+    slots.lazySet(base + 1, System.currentTimeMillis());
+    slots.lazySet(base + 2, durationNanos);
+    published.lazySet(slot, sequence);
+  }
+
+  private static long writing(long sequence) {
+    return -2 - sequence;
+  }
+
+  /**
+   * @return the sequence that published or is writing the given slot, or -1 for a slot never written
+   */
+  private static long holder(long published) {
+    return published >= EMPTY ? published : -2 - published;
+  }
+
+  String getType() {
+    return type;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of slots in the ring
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * @return the sequence the next event will get, which is also the number of events recorded so far
+   */
+  public long getSequence() {
+    return next.get();
+  }
+
+  /**
+   * @return the events still held by the ring, oldest first
+   */
+  public List<ResilienceEvent> getEvents() {
+    return since(0);
+  }
+
+  /**
+   * Read the events with the given sequence or later that are still held by the ring, oldest first.
+   *
+   * @param sequence the sequence of the first event to read
+   * @return the events
+   */
+  public List<ResilienceEvent> since(long sequence) {
+    long end = next.get();
+    long start = Math.max(sequence, end - mask - 1);
+    if (start >= end) {
+      return Collections.emptyList();
+    }
+    List<ResilienceEvent> events = new ArrayList<>((int) (end - start));
+    for (long s = start; s < end; s++) {
+      int slot = (int) s & mask;
+      int base = slot * FIELDS;
+      long before = published.get(slot);
+      if (before != s) {
+        if (holder(before) > s) {
+          continue;
+        }
+        // still being written, so stop here and let the next read pick it up
+        break;
+      }
+      long code = slots.get(base);
+      long timestamp = slots.get(base + 1);
+      long durationNanos = slots.get(base + 2);
+      if (published.get(slot) != s) {
+        // overwritten while it was copied
+        continue;
+      }
+      int from = (int) (code >>> 8 & 0xff);
+      int to = (int) (code >>> 16 & 0xff);
+      events.add(new ResilienceEvent(s, type, name, KINDS[(int) (code & 0xff)], timestamp, durationNanos,
+        from == 0 ? null : STATES[from - 1], to == 0 ? null : STATES[to - 1]));
+    }
+    return events;
+  }
+
+}
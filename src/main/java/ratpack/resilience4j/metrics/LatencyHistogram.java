@@ -0,0 +1,96 @@
+package ratpack.resilience4j.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets.
+ * <p>
+ * Recording is a bucket index computation and two {@link LongAdder} increments, so concurrent recorders do not
+ * contend. Percentiles are approximate: they are interpolated linearly within the bucket the percentile falls into,
+ * which assumes the latencies are spread evenly over the bucket. A bucket spans a factor of two, so the estimate is
+ * off by less than that factor.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 40;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * @param nanos the latency to record, in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    buckets[bucket].increment();
+    count.increment();
+    totalMicros.add(micros);
+  }
+
+  /**
+   * @return the number of recorded latencies
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return the mean recorded latency in microseconds
+   */
+  public double getMeanMicros() {
+    long n = count.sum();
+    return n == 0 ? 0 : (double) totalMicros.sum() / n;
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 1
+   * @return the given percentile in microseconds, interpolated within the bucket that contains it
+   */
+  public long getPercentileMicros(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(percentile * total);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      if (seen + counts[i] >= rank) {
+        if (i == 0) {
+          return 0;
+        }
+        // bucket i holds the latencies from 2^(i-1) up to 2^i microseconds
+        long lower = 1L << (i - 1);
+        return lower + (long) (lower * (double) (rank - seen) / counts[i]);
+      }
+      seen += counts[i];
+    }
+    return 1L << (BUCKETS - 1);
+  }
+
+  Map<String, Object> snapshot() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("count", getCount());
+    snapshot.put("meanMicros", getMeanMicros());
+    snapshot.put("p50Micros", getPercentileMicros(0.5));
+    snapshot.put("p99Micros", getPercentileMicros(0.99));
+    snapshot.put("p999Micros", getPercentileMicros(0.999));
+    return snapshot;
+  }
+
+}
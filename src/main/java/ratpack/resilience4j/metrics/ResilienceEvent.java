@@ -0,0 +1,85 @@
+package ratpack.resilience4j.metrics;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+
+/**
+ * A call outcome or state transition of a circuit breaker, rate limiter or bulkhead, as read from its
+ * {@link EventRing}.
+ */
+public class ResilienceEvent {
+
+  public enum Kind {
+    SUCCESS, ERROR, NOT_PERMITTED, STATE_TRANSITION
+  }
+
+  private final long sequence;
+  private final String type;
+  private final String name;
+  private final Kind kind;
+  private final long timestamp;
+  private final long durationNanos;
+  private final CircuitBreaker.State fromState;
+  private final CircuitBreaker.State toState;
+
+  ResilienceEvent(long sequence, String type, String name, Kind kind, long timestamp, long durationNanos, CircuitBreaker.State fromState, CircuitBreaker.State toState) {
+    this.sequence = sequence;
+    this.type = type;
+    this.name = name;
+    this.kind = kind;
+    this.timestamp = timestamp;
+    this.durationNanos = durationNanos;
+    this.fromState = fromState;
+    this.toState = toState;
+  }
+
+  /**
+   * @return the position of the event among all events of the same instance, starting at 0
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return the type of the instance, for example {@link ResilienceMetrics#CIRCUIT_BREAKER}
+   */
+  public String getType() {
+    return type;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return the time of the event in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * @return the duration of the call, or 0 for events that are not a call outcome
+   */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  /**
+   * @return the state before a transition, or null for other events
+   */
+  public CircuitBreaker.State getFromState() {
+    return fromState;
+  }
+
+  /**
+   * @return the state after a transition, or null for other events
+   */
+  public CircuitBreaker.State getToState() {
+    return toState;
+  }
+
+}
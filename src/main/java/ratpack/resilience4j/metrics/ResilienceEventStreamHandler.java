@@ -0,0 +1,69 @@
+package ratpack.resilience4j.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ratpack.handling.Context;
+import ratpack.func.Pair;
+import ratpack.handling.Handler;
+import ratpack.resilience4j.internal.Delays;
+import ratpack.stream.Streams;
+import ratpack.stream.TransformablePublisher;
+
+import java.time.Duration;
+import java.util.List;
+
+import static ratpack.sse.ServerSentEvents.serverSentEvents;
+
+/**
+ * Streams new {@link ResilienceEvent}s of all instrumented instances as server-sent events. Each non-empty poll is
+ * sent as one {@code resilience} event, whose data is a JSON array of the events recorded since the previous one.
+ * <pre><code>
+ *   get('resilience/events/stream', new ResilienceEventStreamHandler())
+ * </code></pre>
+ * The next poll only happens once the client has taken the previous one, so a slow client receives fewer, larger
+ * batches and may miss events its rings overwrote in the meantime, while the calls being recorded are unaffected.
+ * <p>
+ * The id of each event is the {@link EventCursor#getPosition() position} of the stream after its batch, so a client
+ * that reconnects with the {@code Last-Event-ID} header resumes after the last batch it received, as far as the
+ * rings still hold the events. Only instances that metrics are enabled for record events.
+ */
+public class ResilienceEventStreamHandler implements Handler {
+
+  private static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(1);
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+  private final Duration interval;
+
+  public ResilienceEventStreamHandler() {
+    this(DEFAULT_INTERVAL);
+  }
+
+  /**
+   * @param interval the time between polls of the event rings
+   */
+  public ResilienceEventStreamHandler(Duration interval) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    this.interval = interval;
+  }
+
+  @Override
+  public void handle(Context ctx) throws Exception {
+    ResilienceMetrics metrics = ctx.get(ResilienceMetrics.class);
+    String lastEventId = ctx.getRequest().getHeaders().get(LAST_EVENT_ID);
+    EventCursor cursor = lastEventId == null ? metrics.eventCursor() : metrics.eventCursor(lastEventId);
+    ObjectWriter writer = ctx.get(ObjectMapper.class).writer();
+    long nanos = interval.toNanos();
+    TransformablePublisher<Pair<String, List<ResilienceEvent>>> batches = Streams.<Pair<String, List<ResilienceEvent>>>flatYield(request -> Delays.sleep(nanos).map(v -> {
+      List<ResilienceEvent> events = cursor.poll();
+      return Pair.of(cursor.getPosition(), events);
+    }))
+      .filter(batch -> !batch.getRight().isEmpty());
+    ctx.render(serverSentEvents(batches, event -> event
+      .id(Pair::getLeft)
+      .event("resilience")
+      .data(batch -> writer.writeValueAsString(batch.getRight()))));
+  }
+
+}
@@ -0,0 +1,21 @@
+package ratpack.resilience4j.metrics;
+
+import ratpack.handling.Context;
+import ratpack.handling.Handler;
+
+import static ratpack.jackson.Jackson.json;
+
+/**
+ * Renders the recent {@link ResilienceEvent}s of all instrumented instances as JSON, oldest first.
+ * <pre><code>
+ *   get('resilience/events', new ResilienceEventsHandler())
+ * </code></pre>
+ */
+public class ResilienceEventsHandler implements Handler {
+
+  @Override
+  public void handle(Context ctx) throws Exception {
+    ctx.render(json(ctx.get(ResilienceMetrics.class).events()));
+  }
+
+}
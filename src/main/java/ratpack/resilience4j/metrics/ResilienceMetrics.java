@@ -0,0 +1,165 @@
+package ratpack.resilience4j.metrics;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Holds the metrics of every instrumented circuit breaker, rate limiter, bulkhead, adaptive limiter and retry, keyed by name.
+ * <p>
+ * Transformers look up their metrics once, when they are given this registry, so recording a call never touches
+ * the maps held here.
+ */
+@Singleton
+public class ResilienceMetrics {
+
+  public static final String CIRCUIT_BREAKER = "circuitbreaker";
+  public static final String RATE_LIMITER = "ratelimiter";
+  public static final String BULKHEAD = "bulkhead";
+  public static final String ADAPTIVE_LIMITER = "adaptivelimiter";
+  public static final String RETRY = "retry";
+
+  private final ConcurrentMap<String, CallMetrics> circuitBreakers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CallMetrics> rateLimiters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CallMetrics> bulkheads = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CallMetrics> adaptiveLimiters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, RetryMetrics> retries = new ConcurrentHashMap<>();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  @Inject
+  public ResilienceMetrics() {
+  }
+
+  public CallMetrics circuitBreaker(String name) {
+    return callMetrics(CIRCUIT_BREAKER, circuitBreakers, name);
+  }
+
+  public CallMetrics rateLimiter(String name) {
+    return callMetrics(RATE_LIMITER, rateLimiters, name);
+  }
+
+  public CallMetrics bulkhead(String name) {
+    return callMetrics(BULKHEAD, bulkheads, name);
+  }
+
+  public CallMetrics adaptiveLimiter(String name) {
+    return callMetrics(ADAPTIVE_LIMITER, adaptiveLimiters, name);
+  }
+
+  public RetryMetrics retry(String name) {
+    RetryMetrics metrics = retries.get(name);
+    if (metrics == null) {
+      RetryMetrics created = new RetryMetrics(name);
+      metrics = retries.putIfAbsent(name, created);
+      if (metrics == null) {
+        metrics = created;
+        listeners.forEach(l -> l.onRetryMetrics(created));
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Register a listener that is told about all existing and future metrics.
+   *
+   * @param listener the listener
+   */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+    circuitBreakers.values().forEach(m -> listener.onCallMetrics(CIRCUIT_BREAKER, m));
+    rateLimiters.values().forEach(m -> listener.onCallMetrics(RATE_LIMITER, m));
+    bulkheads.values().forEach(m -> listener.onCallMetrics(BULKHEAD, m));
+    adaptiveLimiters.values().forEach(m -> listener.onCallMetrics(ADAPTIVE_LIMITER, m));
+    retries.values().forEach(listener::onRetryMetrics);
+  }
+
+  /**
+   * @return a point in time view of all metrics, suitable for rendering as JSON
+   */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("circuitBreakers", snapshot(circuitBreakers));
+    snapshot.put("rateLimiters", snapshot(rateLimiters));
+    snapshot.put("bulkheads", snapshot(bulkheads));
+    snapshot.put("adaptiveLimiters", snapshot(adaptiveLimiters));
+    Map<String, Object> retrySnapshot = new TreeMap<>();
+    retries.forEach((name, metrics) -> retrySnapshot.put(name, metrics.snapshot()));
+    snapshot.put("retries", retrySnapshot);
+    return snapshot;
+  }
+
+  /**
+   * @return the events still held by every circuit breaker, rate limiter, bulkhead and adaptive limiter, oldest first
+   */
+  public List<ResilienceEvent> events() {
+    List<ResilienceEvent> events = new ArrayList<>();
+    callMetrics().forEach(m -> events.addAll(m.getEvents().getEvents()));
+    events.sort(Comparator.comparingLong(ResilienceEvent::getTimestamp));
+    return events;
+  }
+
+  /**
+   * Follow the events of every circuit breaker, rate limiter, bulkhead and adaptive limiter, starting with the
+   * next event of each.
+   *
+   * @return a cursor over new events
+   */
+  public EventCursor eventCursor() {
+    return new EventCursor(this);
+  }
+
+  /**
+   * Create a cursor that resumes at the {@link EventCursor#getPosition() position} of another cursor. Instances the
+   * position does not mention are followed from their oldest event still held.
+   *
+   * @param position the position of a cursor
+   * @return a cursor
+   */
+  public EventCursor eventCursor(String position) {
+    return new EventCursor(this, position);
+  }
+
+  Stream<CallMetrics> callMetrics() {
+    return Stream.of(circuitBreakers, rateLimiters, bulkheads, adaptiveLimiters).flatMap(m -> m.values().stream());
+  }
+
+  private Map<String, Object> snapshot(Map<String, CallMetrics> metrics) {
+    Map<String, Object> snapshot = new TreeMap<>();
+    metrics.forEach((name, m) -> snapshot.put(name, m.snapshot()));
+    return snapshot;
+  }
+
+  private CallMetrics callMetrics(String type, ConcurrentMap<String, CallMetrics> metricsByName, String name) {
+    CallMetrics metrics = metricsByName.get(name);
+    if (metrics == null) {
+      CallMetrics created = new CallMetrics(type, name);
+      metrics = metricsByName.putIfAbsent(name, created);
+      if (metrics == null) {
+        metrics = created;
+        listeners.forEach(l -> l.onCallMetrics(type, created));
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Notified when metrics are created for a new circuit breaker, rate limiter, bulkhead, adaptive limiter or retry.
+   */
+  public interface Listener {
+
+    void onCallMetrics(String type, CallMetrics metrics);
+
+    void onRetryMetrics(RetryMetrics metrics);
+
+  }
+
+}
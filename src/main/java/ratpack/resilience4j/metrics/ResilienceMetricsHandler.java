@@ -0,0 +1,21 @@
+package ratpack.resilience4j.metrics;
+
+import ratpack.handling.Context;
+import ratpack.handling.Handler;
+
+import static ratpack.jackson.Jackson.json;
+
+/**
+ * Renders the current {@link ResilienceMetrics} as JSON.
+ * <pre><code>
+ *   get('resilience/metrics', new ResilienceMetricsHandler())
+ * </code></pre>
+ */
+public class ResilienceMetricsHandler implements Handler {
+
+  @Override
+  public void handle(Context ctx) throws Exception {
+    ctx.render(json(ctx.get(ResilienceMetrics.class).snapshot()));
+  }
+
+}
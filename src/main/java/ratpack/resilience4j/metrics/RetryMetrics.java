@@ -0,0 +1,69 @@
+package ratpack.resilience4j.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a single retry. All counters are {@link LongAdder}s, so recording does not contend across threads.
+ */
+public class RetryMetrics {
+
+  private final String name;
+  private final LongAdder successfulCallsWithoutRetry = new LongAdder();
+  private final LongAdder successfulCallsWithRetry = new LongAdder();
+  private final LongAdder failedCallsWithoutRetry = new LongAdder();
+  private final LongAdder failedCallsWithRetry = new LongAdder();
+  private final LongAdder retryAttempts = new LongAdder();
+
+  RetryMetrics(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void onRetry() {
+    retryAttempts.increment();
+  }
+
+  public void onSuccess(int retries) {
+    (retries == 0 ? successfulCallsWithoutRetry : successfulCallsWithRetry).increment();
+  }
+
+  public void onError(int retries) {
+    (retries == 0 ? failedCallsWithoutRetry : failedCallsWithRetry).increment();
+  }
+
+  public long getSuccessfulCallsWithoutRetry() {
+    return successfulCallsWithoutRetry.sum();
+  }
+
+  public long getSuccessfulCallsWithRetry() {
+    return successfulCallsWithRetry.sum();
+  }
+
+  public long getFailedCallsWithoutRetry() {
+    return failedCallsWithoutRetry.sum();
+  }
+
+  public long getFailedCallsWithRetry() {
+    return failedCallsWithRetry.sum();
+  }
+
+  public long getRetryAttempts() {
+    return retryAttempts.sum();
+  }
+
+  Map<String, Object> snapshot() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("successfulCallsWithoutRetry", getSuccessfulCallsWithoutRetry());
+    snapshot.put("successfulCallsWithRetry", getSuccessfulCallsWithRetry());
+    snapshot.put("failedCallsWithoutRetry", getFailedCallsWithoutRetry());
+    snapshot.put("failedCallsWithRetry", getFailedCallsWithRetry());
+    snapshot.put("retryAttempts", getRetryAttempts());
+    return snapshot;
+  }
+
+}
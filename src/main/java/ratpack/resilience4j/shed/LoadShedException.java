@@ -0,0 +1,12 @@
+package ratpack.resilience4j.shed;
+
+/**
+ * Signals that work was rejected by a {@link LoadShedder} because the server is overloaded.
+ */
+public class LoadShedException extends RuntimeException {
+
+  public LoadShedException(String message) {
+    super(message);
+  }
+
+}
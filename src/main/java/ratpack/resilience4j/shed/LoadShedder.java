@@ -0,0 +1,216 @@
+package ratpack.resilience4j.shed;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import ratpack.exec.ExecController;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Protects the server from its own saturation by rejecting low priority work early while it is overloaded.
+ * <p>
+ * Each event loop runs a probe every {@link LoadShedderConfig#getProbeInterval()}, which measures how late it was
+ * scheduled and how many tasks are queued behind it. A loop that is blocked, and so cannot run its probe, counts as
+ * late by the time since the probe was due. Optionally, the ratio of open circuit breakers in a registry feeds the
+ * signal too. The overload is the highest multiple of a threshold reached: once at the threshold, {@link Priority#LOW}
+ * work is shed, from twice the threshold {@link Priority#NORMAL} work and from four times {@link Priority#HIGH} work.
+ * Open circuit breakers only shed low priority work.
+ * <p>
+ * The probes start with the first admission on a Ratpack managed thread, or explicitly with
+ * {@link #start(ExecController)}. Admission only reads the last samples, so it costs a few volatile reads.
+ * <p>
+ * If no load shedder is bound, Guice creates a singleton with the default config.
+ */
+@Singleton
+public class LoadShedder {
+
+  private final LoadShedderConfig config;
+  private final long probeIntervalNanos;
+  private final long lagThresholdNanos;
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final LongAdder shed = new LongAdder();
+  private volatile Probe[] probes = new Probe[0];
+  private volatile double openCircuitBreakerRatio;
+
+  @Inject
+  public LoadShedder() {
+    this(LoadShedderConfig.ofDefaults());
+  }
+
+  private LoadShedder(LoadShedderConfig config) {
+    this.config = config;
+    this.probeIntervalNanos = config.getProbeInterval().toNanos();
+    this.lagThresholdNanos = config.getLagThreshold().toNanos();
+  }
+
+  public static LoadShedder of(LoadShedderConfig config) {
+    return new LoadShedder(config);
+  }
+
+  public static LoadShedder ofDefaults() {
+    return new LoadShedder(LoadShedderConfig.ofDefaults());
+  }
+
+  public LoadShedderConfig getLoadShedderConfig() {
+    return config;
+  }
+
+  /**
+   * Admit work of the given priority unless the server is too overloaded for it.
+   *
+   * @param priority the priority of the work
+   * @return true if the work may proceed
+   */
+  public boolean tryAdmit(Priority priority) {
+    if (priority == Priority.CRITICAL) {
+      return true;
+    }
+    if (!started.get()) {
+      ExecController.current().ifPresent(this::start);
+    }
+    if (priority.ordinal() < getOverload()) {
+      shed.increment();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return how far past the thresholds the server is: 0 when below them, then 1, 2 or 3 from one, two or four
+   * times a threshold, which is the number of priorities being shed
+   */
+  public int getOverload() {
+    long now = System.nanoTime();
+    long lag = 0;
+    int queueDepth = 0;
+    for (Probe probe : probes) {
+      lag = Math.max(lag, probe.lag(now));
+      queueDepth = Math.max(queueDepth, probe.queueDepth);
+    }
+    int overload = Math.max(overload((double) lag / lagThresholdNanos), overload((double) queueDepth / config.getQueueDepthThreshold()));
+    if (overload == 0 && config.getCircuitBreakerRegistry() != null && openCircuitBreakerRatio >= config.getOpenCircuitBreakerRatio()) {
+      overload = 1;
+    }
+    return overload;
+  }
+
+  /**
+   * @return the largest scheduling delay of any event loop
+   */
+  public Duration getLag() {
+    long now = System.nanoTime();
+    long lag = 0;
+    for (Probe probe : probes) {
+      lag = Math.max(lag, probe.lag(now));
+    }
+    return Duration.ofNanos(lag);
+  }
+
+  /**
+   * @return the largest number of tasks queued on any event loop when last probed
+   */
+  public int getQueueDepth() {
+    int queueDepth = 0;
+    for (Probe probe : probes) {
+      queueDepth = Math.max(queueDepth, probe.queueDepth);
+    }
+    return queueDepth;
+  }
+
+  /**
+   * @return the number of times work was shed
+   */
+  public long getShedCount() {
+    return shed.sum();
+  }
+
+  /**
+   * Start probing the event loops of the given controller. Has no effect if the probes already started.
+   *
+   * @param controller the controller whose event loops to probe
+   */
+  public void start(ExecController controller) {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    List<Probe> started = new ArrayList<>();
+    for (EventExecutor loop : controller.getEventLoopGroup()) {
+      started.add(new Probe(loop, started.isEmpty()));
+    }
+    probes = started.toArray(new Probe[started.size()]);
+    for (Probe probe : probes) {
+      probe.schedule();
+    }
+  }
+
+  private static int overload(double ratio) {
+    if (ratio >= 4) {
+      return 3;
+    } else if (ratio >= 2) {
+      return 2;
+    } else if (ratio >= 1) {
+      return 1;
+    }
+    return 0;
+  }
+
+  private double openCircuitBreakerRatio(CircuitBreakerRegistry registry) {
+    int total = 0;
+    int open = 0;
+    for (CircuitBreaker circuitBreaker : registry.getAllCircuitBreakers()) {
+      total++;
+      if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+        open++;
+      }
+    }
+    return total == 0 ? 0 : (double) open / total;
+  }
+
+  private final class Probe implements Runnable {
+
+    private final EventExecutor loop;
+    private final boolean samplesCircuitBreakers;
+    private volatile long due;
+    private volatile long lag;
+    private volatile int queueDepth;
+
+    private Probe(EventExecutor loop, boolean samplesCircuitBreakers) {
+      this.loop = loop;
+      this.samplesCircuitBreakers = samplesCircuitBreakers;
+    }
+
+    private void schedule() {
+      due = System.nanoTime() + probeIntervalNanos;
+      loop.schedule(this, probeIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private long lag(long now) {
+      return Math.max(lag, now - due);
+    }
+
+    @Override
+    public void run() {
+      lag = Math.max(0, System.nanoTime() - due);
+      if (loop instanceof SingleThreadEventExecutor) {
+        queueDepth = ((SingleThreadEventExecutor) loop).pendingTasks();
+      }
+      CircuitBreakerRegistry registry = config.getCircuitBreakerRegistry();
+      if (samplesCircuitBreakers && registry != null) {
+        openCircuitBreakerRatio = openCircuitBreakerRatio(registry);
+      }
+      if (!loop.isShuttingDown()) {
+        schedule();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+package ratpack.resilience4j.shed;
+
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+
+import java.time.Duration;
+
+/**
+ * Configuration for a {@link LoadShedder}.
+ */
+public class LoadShedderConfig {
+
+  private static final Duration DEFAULT_PROBE_INTERVAL = Duration.ofMillis(100);
+  private static final Duration DEFAULT_LAG_THRESHOLD = Duration.ofMillis(50);
+  private static final int DEFAULT_QUEUE_DEPTH_THRESHOLD = 1000;
+  private static final double DEFAULT_OPEN_CIRCUIT_BREAKER_RATIO = 0.5;
+
+  private Duration probeInterval = DEFAULT_PROBE_INTERVAL;
+  private Duration lagThreshold = DEFAULT_LAG_THRESHOLD;
+  private int queueDepthThreshold = DEFAULT_QUEUE_DEPTH_THRESHOLD;
+  private CircuitBreakerRegistry circuitBreakerRegistry;
+  private double openCircuitBreakerRatio = DEFAULT_OPEN_CIRCUIT_BREAKER_RATIO;
+
+  private LoadShedderConfig() {
+  }
+
+  /**
+   * @return how often each event loop is probed
+   */
+  public Duration getProbeInterval() {
+    return probeInterval;
+  }
+
+  /**
+   * @return the event loop scheduling delay above which the server is overloaded
+   */
+  public Duration getLagThreshold() {
+    return lagThreshold;
+  }
+
+  /**
+   * @return the number of tasks queued on an event loop above which the server is overloaded
+   */
+  public int getQueueDepthThreshold() {
+    return queueDepthThreshold;
+  }
+
+  /**
+   * @return the registry whose open circuit breakers feed the overload signal, or null
+   */
+  public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+    return circuitBreakerRegistry;
+  }
+
+  /**
+   * @return the ratio of open circuit breakers at or above which the server is overloaded
+   */
+  public double getOpenCircuitBreakerRatio() {
+    return openCircuitBreakerRatio;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static LoadShedderConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final LoadShedderConfig config = new LoadShedderConfig();
+
+    public Builder probeInterval(Duration probeInterval) {
+      if (probeInterval == null || probeInterval.isNegative() || probeInterval.isZero()) {
+        throw new IllegalArgumentException("probeInterval must be positive");
+      }
+      config.probeInterval = probeInterval;
+      return this;
+    }
+
+    public Builder lagThreshold(Duration lagThreshold) {
+      if (lagThreshold == null || lagThreshold.isNegative() || lagThreshold.isZero()) {
+        throw new IllegalArgumentException("lagThreshold must be positive");
+      }
+      config.lagThreshold = lagThreshold;
+      return this;
+    }
+
+    public Builder queueDepthThreshold(int queueDepthThreshold) {
+      if (queueDepthThreshold < 1) {
+        throw new IllegalArgumentException("queueDepthThreshold must be at least 1");
+      }
+      config.queueDepthThreshold = queueDepthThreshold;
+      return this;
+    }
+
+    public Builder circuitBreakerRegistry(CircuitBreakerRegistry circuitBreakerRegistry) {
+      config.circuitBreakerRegistry = circuitBreakerRegistry;
+      return this;
+    }
+
+    public Builder openCircuitBreakerRatio(double openCircuitBreakerRatio) {
+      if (openCircuitBreakerRatio <= 0 || openCircuitBreakerRatio > 1) {
+        throw new IllegalArgumentException("openCircuitBreakerRatio must be greater than 0 and at most 1");
+      }
+      config.openCircuitBreakerRatio = openCircuitBreakerRatio;
+      return this;
+    }
+
+    public LoadShedderConfig build() {
+      return config;
+    }
+  }
+
+}
@@ -0,0 +1,29 @@
+package ratpack.resilience4j.shed;
+
+/**
+ * The priority of work admitted by a {@link LoadShedder}. As the server gets more overloaded, work is shed from the
+ * lowest priority up. Critical work is never shed.
+ */
+public enum Priority {
+
+  /**
+   * Shed as soon as the server is overloaded, e.g. prefetching, analytics or batch work.
+   */
+  LOW,
+
+  /**
+   * Shed once the overload reaches twice the configured thresholds.
+   */
+  NORMAL,
+
+  /**
+   * Shed once the overload reaches four times the configured thresholds.
+   */
+  HIGH,
+
+  /**
+   * Never shed, e.g. health checks.
+   */
+  CRITICAL
+
+}
@@ -0,0 +1,94 @@
+package ratpack.resilience4j.stream;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import ratpack.resilience4j.internal.CircuitBreakers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A stream operator that passes a publisher through a circuit breaker, for use with
+ * {@link ratpack.stream.TransformablePublisher#transform(Function)}.
+ * <p>
+ * Each subscription counts as one call. It is rejected with a {@link io.github.robwin.circuitbreaker.CircuitBreakerOpenException}
+ * if the circuit is open, recorded as a failure if the stream errors and as a success if it completes. A cancelled
+ * stream is not recorded, and returns its permission to the circuit breaker.
+ *
+ * @param <T> the type of the stream elements
+ */
+public class CircuitBreakerStreamTransformer<T> implements Function<Publisher<? extends T>, Publisher<T>> {
+
+  private final CircuitBreaker circuitBreaker;
+
+  private CircuitBreakerStreamTransformer(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * @param circuitBreaker the circuit breaker to use
+   * @return
+   */
+  public static <T> CircuitBreakerStreamTransformer<T> of(CircuitBreaker circuitBreaker) {
+    return new CircuitBreakerStreamTransformer<>(circuitBreaker);
+  }
+
+  @Override
+  public Publisher<T> apply(Publisher<? extends T> upstream) {
+    return subscriber -> {
+      if (!circuitBreaker.isCallPermitted()) {
+        subscriber.onSubscribe(Subscriptions.EMPTY);
+        subscriber.onError(CircuitBreakers.openException(circuitBreaker));
+        return;
+      }
+      long start = System.nanoTime();
+      AtomicBoolean settled = new AtomicBoolean();
+      upstream.subscribe(new Subscriber<T>() {
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+          subscriber.onSubscribe(new Subscription() {
+
+            @Override
+            public void request(long n) {
+              subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+              if (settled.compareAndSet(false, true)) {
+                CircuitBreakers.release(circuitBreaker);
+              }
+              subscription.cancel();
+            }
+          });
+        }
+
+        @Override
+        public void onNext(T item) {
+          subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          if (settled.compareAndSet(false, true)) {
+            circuitBreaker.onError(Duration.ofNanos(System.nanoTime() - start), throwable);
+          }
+          subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          if (settled.compareAndSet(false, true)) {
+            circuitBreaker.onSuccess(Duration.ofNanos(System.nanoTime() - start));
+          }
+          subscriber.onComplete();
+        }
+      });
+    };
+  }
+
+}
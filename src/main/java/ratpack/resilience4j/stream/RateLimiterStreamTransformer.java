@@ -0,0 +1,142 @@
+package ratpack.resilience4j.stream;
+
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import ratpack.resilience4j.internal.Delays;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A stream operator that limits the rate at which a publisher emits elements, for use with
+ * {@link ratpack.stream.TransformablePublisher#transform(Function)}.
+ * <p>
+ * Each element takes one permission from the rate limiter. Demand from the subscriber is passed upstream one element
+ * at a time, each once its permission is acquired, so the publisher is slowed down through backpressure and nothing
+ * is buffered. A permission is only taken once the previous element was delivered, so a stream that completes wastes
+ * at most the one permission taken for the element it did not emit. While the
+ * limiter is saturated, acquisition is retried on the Ratpack scheduler, spaced by the time the limiter takes to
+ * issue a single permission, and no thread waits. The limiter's timeout does not apply: a stream waits for as long as
+ * it takes.
+ *
+ * @param <T> the type of the stream elements
+ */
+public class RateLimiterStreamTransformer<T> implements Function<Publisher<? extends T>, Publisher<T>> {
+
+  private final RateLimiter rateLimiter;
+  private final long intervalNanos;
+
+  private RateLimiterStreamTransformer(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+    RateLimiterConfig config = rateLimiter.getRateLimiterConfig();
+    this.intervalNanos = Math.max(1, config.getLimitRefreshPeriod().toNanos() / Math.max(1, config.getLimitForPeriod()));
+  }
+
+  /**
+   * @param rateLimiter the rate limiter to use
+   * @return
+   */
+  public static <T> RateLimiterStreamTransformer<T> of(RateLimiter rateLimiter) {
+    return new RateLimiterStreamTransformer<>(rateLimiter);
+  }
+
+  @Override
+  public Publisher<T> apply(Publisher<? extends T> upstream) {
+    return subscriber -> {
+      ScheduledExecutorService scheduler = Delays.scheduler()
+        .orElseThrow(() -> new IllegalStateException("A rate limited stream must be subscribed to on a Ratpack managed thread"));
+      upstream.subscribe(new RateLimitedSubscriber(subscriber, scheduler));
+    };
+  }
+
+  private final class RateLimitedSubscriber implements Subscriber<T>, Subscription {
+
+    private final Subscriber<? super T> downstream;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Subscription upstream;
+    private volatile boolean waiting;
+    private volatile boolean inFlight;
+    private volatile boolean cancelled;
+
+    private RateLimitedSubscriber(Subscriber<? super T> downstream, ScheduledExecutorService scheduler) {
+      this.downstream = downstream;
+      this.scheduler = scheduler;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      upstream = subscription;
+      downstream.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(T item) {
+      downstream.onNext(item);
+      inFlight = false;
+      drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      cancelled = true;
+      downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      cancelled = true;
+      downstream.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        downstream.onError(new IllegalArgumentException("non-positive subscription request: " + n));
+        return;
+      }
+      long current;
+      do {
+        current = demand.get();
+      } while (!demand.compareAndSet(current, Subscriptions.add(current, n)));
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      upstream.cancel();
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        if (!cancelled && !waiting && !inFlight && demand.get() > 0) {
+          if (rateLimiter.getPermission(Duration.ZERO)) {
+            demand.decrementAndGet();
+            inFlight = true;
+            upstream.request(1);
+          } else {
+            waiting = true;
+            scheduler.schedule(() -> {
+              waiting = false;
+              drain();
+            }, intervalNanos, TimeUnit.NANOSECONDS);
+          }
+        }
+      } while (wip.decrementAndGet() != 0);
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+package ratpack.resilience4j.stream;
+
+import io.github.robwin.retry.RetryConfig;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import ratpack.resilience4j.internal.Delays;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A stream operator that resubscribes to a publisher when it errors, for use with
+ * {@link ratpack.stream.TransformablePublisher#transform(Function)}.
+ * <p>
+ * The subscriber sees a single stream: the demand it signalled but that was not yet delivered carries over to the
+ * new subscription. The publisher is responsible for resuming where it left off, e.g. by reading from an offset that
+ * advances with each element. The wait between subscriptions is scheduled on the Ratpack scheduler. The attempt
+ * count is reset whenever an element is delivered, so the maximum attempts limit consecutive failures without
+ * progress rather than failures over the lifetime of the stream.
+ *
+ * @param <T> the type of the stream elements
+ */
+public class RetryStreamTransformer<T> implements Function<Publisher<? extends T>, Publisher<T>> {
+
+  private final RetryConfig retryConfig;
+
+  private RetryStreamTransformer(RetryConfig retryConfig) {
+    this.retryConfig = retryConfig;
+  }
+
+  /**
+   * @param retryConfig the retry config to use
+   * @return
+   */
+  public static <T> RetryStreamTransformer<T> of(RetryConfig retryConfig) {
+    return new RetryStreamTransformer<>(retryConfig);
+  }
+
+  @Override
+  public Publisher<T> apply(Publisher<? extends T> upstream) {
+    return subscriber -> {
+      ScheduledExecutorService scheduler = Delays.scheduler()
+        .orElseThrow(() -> new IllegalStateException("A retried stream must be subscribed to on a Ratpack managed thread"));
+      new Resubscriber(upstream, subscriber, scheduler).subscribe();
+    };
+  }
+
+  /**
+   * Bridges the subscriptions of consecutive attempts into the one subscription seen downstream.
+   * Requested demand and the current subscription are guarded by the instance lock, so that demand signalled while
+   * switching subscriptions is requested exactly once. Delivered elements are only counted by the signalling thread.
+   * The attempt count is volatile, since it is reset by the signalling thread and incremented before a resubscription
+   * on the scheduler.
+   */
+  private final class Resubscriber implements Subscription {
+
+    private final Publisher<? extends T> upstream;
+    private final Subscriber<? super T> downstream;
+    private final ScheduledExecutorService scheduler;
+    private long requested;
+    private Subscription current;
+    private volatile long delivered;
+    private volatile boolean cancelled;
+    private boolean subscribed;
+    private volatile int attempts;
+
+    private Resubscriber(Publisher<? extends T> upstream, Subscriber<? super T> downstream, ScheduledExecutorService scheduler) {
+      this.upstream = upstream;
+      this.downstream = downstream;
+      this.scheduler = scheduler;
+    }
+
+    private void subscribe() {
+      upstream.subscribe(new Attempt());
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        downstream.onError(new IllegalArgumentException("non-positive subscription request: " + n));
+        return;
+      }
+      Subscription subscription;
+      synchronized (this) {
+        requested = Subscriptions.add(requested, n);
+        subscription = current;
+      }
+      if (subscription != null) {
+        subscription.request(n);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      Subscription subscription;
+      synchronized (this) {
+        subscription = current;
+        current = null;
+      }
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+
+    private final class Attempt implements Subscriber<T> {
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        if (cancelled) {
+          subscription.cancel();
+          return;
+        }
+        if (!subscribed) {
+          subscribed = true;
+          downstream.onSubscribe(Resubscriber.this);
+        }
+        long outstanding;
+        synchronized (Resubscriber.this) {
+          current = subscription;
+          outstanding = requested == Long.MAX_VALUE ? Long.MAX_VALUE : requested - delivered;
+        }
+        if (outstanding > 0) {
+          subscription.request(outstanding);
+        }
+      }
+
+      @Override
+      public void onNext(T item) {
+        attempts = 0;
+        delivered++;
+        downstream.onNext(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        synchronized (Resubscriber.this) {
+          current = null;
+        }
+        if (cancelled) {
+          return;
+        }
+        if (retryConfig.getExceptionPredicate().test(throwable) && ++attempts < retryConfig.getMaxAttempts()) {
+          scheduler.schedule(Resubscriber.this::subscribe, retryConfig.getWaitDuration().toNanos(), TimeUnit.NANOSECONDS);
+        } else {
+          downstream.onError(throwable);
+        }
+      }
+
+      @Override
+      public void onComplete() {
+        downstream.onComplete();
+      }
+    }
+  }
+
+}
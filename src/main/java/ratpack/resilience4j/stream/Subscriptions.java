@@ -0,0 +1,35 @@
+package ratpack.resilience4j.stream;
+
+import org.reactivestreams.Subscription;
+
+/**
+ * Demand accounting shared by the stream operators.
+ */
+final class Subscriptions {
+
+  /**
+   * A subscription for subscribers that are failed straight away.
+   */
+  static final Subscription EMPTY = new Subscription() {
+
+    @Override
+    public void request(long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  };
+
+  private Subscriptions() {
+  }
+
+  /**
+   * @return the sum of two demands, capped at {@link Long#MAX_VALUE}, which means unbounded demand
+   */
+  static long add(long demand, long n) {
+    long sum = demand + n;
+    return sum < 0 ? Long.MAX_VALUE : sum;
+  }
+
+}
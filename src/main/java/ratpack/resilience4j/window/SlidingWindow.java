@@ -0,0 +1,83 @@
+package ratpack.resilience4j.window;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A ring of per-second buckets of call counters, held in one {@link AtomicLongArray}.
+ * <p>
+ * Each bucket holds the second it counts for, followed by its counters. The first call of a new second claims the
+ * bucket with a compare and set and clears its counters, while recording into the bucket of the current second is
+ * a plain atomic increment.
+ */
+final class SlidingWindow {
+
+  static final int CALLS = 1;
+  static final int FAILURES = 2;
+  static final int SLOW_CALLS = 3;
+
+  private static final int FIELDS = 4;
+  private static final long EMPTY = -1;
+  private static final long CLEARING = -2;
+
+  private final int size;
+  private final AtomicLongArray buckets;
+
+  SlidingWindow(int size) {
+    this.size = size;
+    this.buckets = new AtomicLongArray(size * FIELDS);
+    clear();
+  }
+
+  /**
+   * @param second the current second, which is never negative
+   * @param failure whether the call failed or was slow
+   * @param slow whether the call was slow
+   */
+  void record(long second, boolean failure, boolean slow) {
+    int base = (int) (second % size) * FIELDS;
+    for (;;) {
+      long epoch = buckets.get(base);
+      if (epoch == second || epoch > second) {
+        // a second that is already over is counted in the bucket that took its place
+        break;
+      }
+      if (epoch != CLEARING && buckets.compareAndSet(base, epoch, CLEARING)) {
+        buckets.set(base + CALLS, 0);
+        buckets.set(base + FAILURES, 0);
+        buckets.set(base + SLOW_CALLS, 0);
+        buckets.set(base, second);
+        break;
+      }
+    }
+    buckets.incrementAndGet(base + CALLS);
+    if (failure) {
+      buckets.incrementAndGet(base + FAILURES);
+    }
+    if (slow) {
+      buckets.incrementAndGet(base + SLOW_CALLS);
+    }
+  }
+
+  /**
+   * @param second the current second
+   * @param field one of {@link #CALLS}, {@link #FAILURES} or {@link #SLOW_CALLS}
+   * @return the sum of the given counter over the buckets of the window ending with the given second
+   */
+  long sum(long second, int field) {
+    long sum = 0;
+    for (int base = 0; base < buckets.length(); base += FIELDS) {
+      long epoch = buckets.get(base);
+      if (epoch > second - size && epoch <= second) {
+        sum += buckets.get(base + field);
+      }
+    }
+    return sum;
+  }
+
+  void clear() {
+    for (int base = 0; base < buckets.length(); base += FIELDS) {
+      buckets.set(base, EMPTY);
+    }
+  }
+
+}
@@ -0,0 +1,326 @@
+package ratpack.resilience4j.window;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link CircuitBreaker} that judges its calls over a sliding window of time rather than a number of calls, so it
+ * reacts to a failing dependency within the same time at any traffic.
+ * <p>
+ * Calls are counted in per-second buckets, see {@link SlidingWindowConfig#getWindowSize()}. A call fails if it
+ * throws an exception accepted by {@link SlidingWindowConfig#getRecordFailurePredicate()}, and a call that takes
+ * longer than {@link SlidingWindowConfig#getSlowCallDurationThreshold()} counts as failed too, so a dependency that
+ * slows down without failing also opens the circuit. Once the window holds at least
+ * {@link SlidingWindowConfig#getMinimumNumberOfCalls()} calls and the rate of failed calls reaches
+ * {@link SlidingWindowConfig#getFailureRateThreshold()}, the circuit opens.
+ * <p>
+ * An open circuit rejects calls for {@link SlidingWindowConfig#getWaitDurationInOpenState()}, then lets
+ * {@link SlidingWindowConfig#getPermittedNumberOfCallsInHalfOpenState()} trial calls through. If the trial calls
+ * fail at the threshold rate the circuit opens again, otherwise it closes with an empty window. A trial call that
+ * completes without a value returns its permit, see {@link #releasePermission()}.
+ * <p>
+ * All state is held in atomic fields, so recording a call takes no lock and allocates nothing. The state and the
+ * time the circuit opened are swapped together, so only the call that opens the circuit sets its open period. Each
+ * state transition is reported to the listeners added with {@link #onStateTransition(BiConsumer)} by the thread that made it.
+ */
+public class SlidingWindowCircuitBreaker implements CircuitBreaker {
+
+  private final String name;
+  private final SlidingWindowConfig config;
+  private final CircuitBreakerConfig circuitBreakerConfig;
+  private final LongSupplier clock;
+  private final long origin;
+  private final long slowCallNanos;
+  private final long waitNanos;
+  private final SlidingWindow window;
+  private final AtomicReference<Phase> phase = new AtomicReference<>(Phase.CLOSED);
+  private final AtomicInteger halfOpenPermits = new AtomicInteger();
+  private final AtomicInteger halfOpenCalls = new AtomicInteger();
+  private final AtomicInteger halfOpenFailures = new AtomicInteger();
+  private final LongAdder notPermittedCalls = new LongAdder();
+  private final WindowMetrics metrics = new WindowMetrics();
+  private final List<BiConsumer<State, State>> transitionListeners = new CopyOnWriteArrayList<>();
+
+  SlidingWindowCircuitBreaker(String name, SlidingWindowConfig config, LongSupplier clock) {
+    this.name = name;
+    this.config = config;
+    this.circuitBreakerConfig = CircuitBreakerConfig.custom()
+      .failureRateThreshold(config.getFailureRateThreshold())
+      .waitDurationInOpenState(config.getWaitDurationInOpenState())
+      .ringBufferSizeInClosedState(config.getMinimumNumberOfCalls())
+      .ringBufferSizeInHalfOpenState(config.getPermittedNumberOfCallsInHalfOpenState())
+      .recordFailure(config.getRecordFailurePredicate())
+      .build();
+    this.clock = clock;
+    this.origin = clock.getAsLong();
+    this.slowCallNanos = config.getSlowCallDurationThreshold().toNanos();
+    this.waitNanos = config.getWaitDurationInOpenState().toNanos();
+    this.window = new SlidingWindow((int) config.getWindowSize().getSeconds());
+  }
+
+  public static SlidingWindowCircuitBreaker of(String name, SlidingWindowConfig config) {
+    return of(name, config, System::nanoTime);
+  }
+
+  /**
+   * Create a circuit breaker that reads the time from the given clock rather than {@link System#nanoTime()}, for
+   * example to replay a scenario in virtual time.
+   *
+   * @param name the name of the circuit breaker
+   * @param config the circuit breaker config
+   * @param clock the current time in nanoseconds
+   * @return a circuit breaker
+   */
+  public static SlidingWindowCircuitBreaker of(String name, SlidingWindowConfig config, LongSupplier clock) {
+    return new SlidingWindowCircuitBreaker(name, config, clock);
+  }
+
+  public static SlidingWindowCircuitBreaker ofDefaults(String name) {
+    return of(name, SlidingWindowConfig.ofDefaults());
+  }
+
+  @Override
+  public boolean isCallPermitted() {
+    Phase current = phase.get();
+    if (current.state == State.OPEN) {
+      if (clock.getAsLong() - current.openedAt < waitNanos) {
+        notPermittedCalls.increment();
+        return false;
+      }
+      if (phase.compareAndSet(current, Phase.HALF_OPEN)) {
+        transitioned(State.OPEN, State.HALF_OPEN);
+      }
+      current = Phase.HALF_OPEN;
+    }
+    if (current.state == State.HALF_OPEN && !acquireTrialPermit()) {
+      notPermittedCalls.increment();
+      return false;
+    }
+    return true;
+  }
+
+  private boolean acquireTrialPermit() {
+    int permits;
+    do {
+      permits = halfOpenPermits.get();
+      if (permits >= config.getPermittedNumberOfCallsInHalfOpenState()) {
+        return false;
+      }
+    } while (!halfOpenPermits.compareAndSet(permits, permits + 1));
+    return true;
+  }
+
+  /**
+   * Return the permission of a call that ended without a value or an error, for example a promise that completed
+   * empty. Such a call is neither a success nor a failure, so a half open circuit lets another trial call through
+   * in its place rather than waiting for it forever.
+   */
+  public void releasePermission() {
+    if (phase.get().state == State.HALF_OPEN) {
+      halfOpenPermits.getAndUpdate(permits -> permits > 0 ? permits - 1 : 0);
+    }
+  }
+
+  @Override
+  public void onError(Duration duration, Throwable throwable) {
+    long nanos = duration.toNanos();
+    record(config.getRecordFailurePredicate().test(throwable) || nanos > slowCallNanos, nanos > slowCallNanos);
+  }
+
+  @Override
+  public void onSuccess(Duration duration) {
+    long nanos = duration.toNanos();
+    record(nanos > slowCallNanos, nanos > slowCallNanos);
+  }
+
+  private void record(boolean failure, boolean slow) {
+    switch (phase.get().state) {
+      case CLOSED:
+        long second = second();
+        window.record(second, failure, slow);
+        // only a failure can raise the failure rate
+        if (failure && exceedsThreshold(window.sum(second, SlidingWindow.FAILURES), window.sum(second, SlidingWindow.CALLS), config.getMinimumNumberOfCalls())) {
+          open(Phase.CLOSED);
+        }
+        break;
+      case HALF_OPEN:
+        // failures are counted first, so the last trial call sees the failures of all others
+        if (failure) {
+          halfOpenFailures.incrementAndGet();
+        }
+        int calls = halfOpenCalls.incrementAndGet();
+        if (calls == config.getPermittedNumberOfCallsInHalfOpenState()) {
+          if (exceedsThreshold(halfOpenFailures.get(), calls, calls)) {
+            open(Phase.HALF_OPEN);
+          } else {
+            window.clear();
+            if (phase.compareAndSet(Phase.HALF_OPEN, Phase.CLOSED)) {
+              transitioned(State.HALF_OPEN, State.CLOSED);
+            }
+          }
+        }
+        break;
+      default:
+        // a call admitted before the circuit opened
+        break;
+    }
+  }
+
+  private boolean exceedsThreshold(long failures, long calls, int minimumNumberOfCalls) {
+    return calls >= minimumNumberOfCalls && failures * 100 >= config.getFailureRateThreshold() * calls;
+  }
+
+  private void open(Phase from) {
+    if (phase.compareAndSet(from, new Phase(State.OPEN, clock.getAsLong()))) {
+      // ready for the trial calls once the wait is over
+      halfOpenPermits.set(0);
+      halfOpenCalls.set(0);
+      halfOpenFailures.set(0);
+      transitioned(from.state, State.OPEN);
+    }
+  }
+
+  private void transitioned(State from, State to) {
+    for (BiConsumer<State, State> listener : transitionListeners) {
+      listener.accept(from, to);
+    }
+  }
+
+  /**
+   * Add a listener that is told about each state transition, with the state before and after it. A transition is
+   * reported once, including a half open state that ends before any call observes it.
+   *
+   * @param listener the listener
+   */
+  public void onStateTransition(BiConsumer<State, State> listener) {
+    transitionListeners.add(listener);
+  }
+
+  private long second() {
+    return TimeUnit.NANOSECONDS.toSeconds(clock.getAsLong() - origin);
+  }
+
+  @Override
+  public State getState() {
+    return phase.get().state;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the equivalent count based config, for code that only knows {@link CircuitBreakerConfig}. The minimum
+   * number of calls takes the place of the closed state ring buffer size.
+   */
+  @Override
+  public CircuitBreakerConfig getCircuitBreakerConfig() {
+    return circuitBreakerConfig;
+  }
+
+  public SlidingWindowConfig getSlidingWindowConfig() {
+    return config;
+  }
+
+  @Override
+  public WindowMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * The metrics of the calls in the current window.
+   */
+  public final class WindowMetrics implements Metrics {
+
+    private WindowMetrics() {
+    }
+
+    /**
+     * @return the percentage of failed or slow calls, or -1 if the window holds fewer than the minimum number of calls
+     */
+    @Override
+    public float getFailureRate() {
+      return rate(SlidingWindow.FAILURES);
+    }
+
+    /**
+     * @return the percentage of slow calls, or -1 if the window holds fewer than the minimum number of calls
+     */
+    public float getSlowCallRate() {
+      return rate(SlidingWindow.SLOW_CALLS);
+    }
+
+    @Override
+    public int getNumberOfBufferedCalls() {
+      return (int) window.sum(second(), SlidingWindow.CALLS);
+    }
+
+    @Override
+    public int getNumberOfFailedCalls() {
+      return (int) window.sum(second(), SlidingWindow.FAILURES);
+    }
+
+    public int getNumberOfSlowCalls() {
+      return (int) window.sum(second(), SlidingWindow.SLOW_CALLS);
+    }
+
+    @Override
+    public long getNumberOfNotPermittedCalls() {
+      return notPermittedCalls.sum();
+    }
+
+    /**
+     * @return {@link Integer#MAX_VALUE}, since the window holds the calls of a time span rather than a number of calls
+     */
+    @Override
+    public int getMaxNumberOfBufferedCalls() {
+      return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int getNumberOfSuccessfulCalls() {
+      long second = second();
+      return (int) (window.sum(second, SlidingWindow.CALLS) - window.sum(second, SlidingWindow.FAILURES));
+    }
+
+    private float rate(int field) {
+      long second = second();
+      long calls = window.sum(second, SlidingWindow.CALLS);
+      if (calls < config.getMinimumNumberOfCalls()) {
+        return -1;
+      }
+      return window.sum(second, field) * 100f / calls;
+    }
+
+  }
+
+  /**
+   * A state, with the time the circuit opened when it is open. The closed and half open phases are shared instances,
+   * so a transition from them is a compare-and-set on the instance.
+   */
+  private static final class Phase {
+
+    private static final Phase CLOSED = new Phase(State.CLOSED, 0);
+    private static final Phase HALF_OPEN = new Phase(State.HALF_OPEN, 0);
+
+    private final State state;
+    private final long openedAt;
+
+    private Phase(State state, long openedAt) {
+      this.state = state;
+      this.openedAt = openedAt;
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package ratpack.resilience4j.window;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named {@link SlidingWindowCircuitBreaker} instances.
+ * <p>
+ * If no registry is bound, Guice creates a singleton registry with the default config.
+ */
+@Singleton
+public class SlidingWindowCircuitBreakerRegistry {
+
+  private final SlidingWindowConfig defaultConfig;
+  private final ConcurrentMap<String, SlidingWindowCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  @Inject
+  public SlidingWindowCircuitBreakerRegistry() {
+    this(SlidingWindowConfig.ofDefaults());
+  }
+
+  private SlidingWindowCircuitBreakerRegistry(SlidingWindowConfig defaultConfig) {
+    this.defaultConfig = defaultConfig;
+  }
+
+  public static SlidingWindowCircuitBreakerRegistry of(SlidingWindowConfig defaultConfig) {
+    return new SlidingWindowCircuitBreakerRegistry(defaultConfig);
+  }
+
+  public static SlidingWindowCircuitBreakerRegistry ofDefaults() {
+    return new SlidingWindowCircuitBreakerRegistry(SlidingWindowConfig.ofDefaults());
+  }
+
+  /**
+   * @return all circuit breakers in the registry
+   */
+  public List<SlidingWindowCircuitBreaker> getAllCircuitBreakers() {
+    return new ArrayList<>(circuitBreakers.values());
+  }
+
+  /**
+   * Get the circuit breaker with the given name, creating it with the default config if it does not exist.
+   *
+   * @param name the name of the circuit breaker
+   * @return the circuit breaker
+   */
+  public SlidingWindowCircuitBreaker circuitBreaker(String name) {
+    return circuitBreaker(name, defaultConfig);
+  }
+
+  /**
+   * Get the circuit breaker with the given name, creating it with the given config if it does not exist.
+   *
+   * @param name the name of the circuit breaker
+   * @param config the config used if the circuit breaker does not exist
+   * @return the circuit breaker
+   */
+  public SlidingWindowCircuitBreaker circuitBreaker(String name, SlidingWindowConfig config) {
+    SlidingWindowCircuitBreaker circuitBreaker = circuitBreakers.get(name);
+    if (circuitBreaker == null) {
+      circuitBreaker = circuitBreakers.computeIfAbsent(name, n -> SlidingWindowCircuitBreaker.of(n, config));
+    }
+    return circuitBreaker;
+  }
+
+}
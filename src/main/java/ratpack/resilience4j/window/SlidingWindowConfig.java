@@ -0,0 +1,151 @@
+package ratpack.resilience4j.window;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Configuration for a {@link SlidingWindowCircuitBreaker}.
+ */
+public class SlidingWindowConfig {
+
+  private static final Duration DEFAULT_WINDOW_SIZE = Duration.ofSeconds(10);
+  private static final int DEFAULT_MINIMUM_NUMBER_OF_CALLS = 10;
+  private static final float DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+  private static final Duration DEFAULT_SLOW_CALL_DURATION_THRESHOLD = Duration.ofSeconds(60);
+  private static final Duration DEFAULT_WAIT_DURATION_IN_OPEN_STATE = Duration.ofSeconds(60);
+  private static final int DEFAULT_PERMITTED_NUMBER_OF_CALLS_IN_HALF_OPEN_STATE = 10;
+
+  private Duration windowSize = DEFAULT_WINDOW_SIZE;
+  private int minimumNumberOfCalls = DEFAULT_MINIMUM_NUMBER_OF_CALLS;
+  private float failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+  private Duration slowCallDurationThreshold = DEFAULT_SLOW_CALL_DURATION_THRESHOLD;
+  private Duration waitDurationInOpenState = DEFAULT_WAIT_DURATION_IN_OPEN_STATE;
+  private int permittedNumberOfCallsInHalfOpenState = DEFAULT_PERMITTED_NUMBER_OF_CALLS_IN_HALF_OPEN_STATE;
+  private Predicate<Throwable> recordFailurePredicate = t -> true;
+
+  private SlidingWindowConfig() {
+  }
+
+  /**
+   * @return the time over which calls are judged, in whole seconds
+   */
+  public Duration getWindowSize() {
+    return windowSize;
+  }
+
+  /**
+   * @return the number of calls the window must hold before the circuit can open
+   */
+  public int getMinimumNumberOfCalls() {
+    return minimumNumberOfCalls;
+  }
+
+  /**
+   * @return the percentage of failed or slow calls at which the circuit opens
+   */
+  public float getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  /**
+   * @return the duration above which a call is slow, and counts as failed
+   */
+  public Duration getSlowCallDurationThreshold() {
+    return slowCallDurationThreshold;
+  }
+
+  /**
+   * @return the time the circuit stays open before it lets trial calls through
+   */
+  public Duration getWaitDurationInOpenState() {
+    return waitDurationInOpenState;
+  }
+
+  /**
+   * @return the number of trial calls let through while half open, which decide whether the circuit closes again
+   */
+  public int getPermittedNumberOfCallsInHalfOpenState() {
+    return permittedNumberOfCallsInHalfOpenState;
+  }
+
+  /**
+   * @return the predicate deciding which exceptions count as failures
+   */
+  public Predicate<Throwable> getRecordFailurePredicate() {
+    return recordFailurePredicate;
+  }
+
+  public static Builder custom() {
+    return new Builder();
+  }
+
+  public static SlidingWindowConfig ofDefaults() {
+    return new Builder().build();
+  }
+
+  public static class Builder {
+
+    private final SlidingWindowConfig config = new SlidingWindowConfig();
+
+    public Builder windowSize(Duration windowSize) {
+      if (windowSize == null || windowSize.getSeconds() < 1) {
+        throw new IllegalArgumentException("windowSize must be at least 1 second");
+      }
+      config.windowSize = Duration.ofSeconds(windowSize.getSeconds());
+      return this;
+    }
+
+    public Builder minimumNumberOfCalls(int minimumNumberOfCalls) {
+      if (minimumNumberOfCalls < 1) {
+        throw new IllegalArgumentException("minimumNumberOfCalls must be at least 1");
+      }
+      config.minimumNumberOfCalls = minimumNumberOfCalls;
+      return this;
+    }
+
+    public Builder failureRateThreshold(float failureRateThreshold) {
+      if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+        throw new IllegalArgumentException("failureRateThreshold must be greater than 0 and at most 100");
+      }
+      config.failureRateThreshold = failureRateThreshold;
+      return this;
+    }
+
+    public Builder slowCallDurationThreshold(Duration slowCallDurationThreshold) {
+      if (slowCallDurationThreshold == null || slowCallDurationThreshold.isNegative() || slowCallDurationThreshold.isZero()) {
+        throw new IllegalArgumentException("slowCallDurationThreshold must be positive");
+      }
+      config.slowCallDurationThreshold = slowCallDurationThreshold;
+      return this;
+    }
+
+    public Builder waitDurationInOpenState(Duration waitDurationInOpenState) {
+      if (waitDurationInOpenState == null || waitDurationInOpenState.isNegative()) {
+        throw new IllegalArgumentException("waitDurationInOpenState must not be negative");
+      }
+      config.waitDurationInOpenState = waitDurationInOpenState;
+      return this;
+    }
+
+    public Builder permittedNumberOfCallsInHalfOpenState(int permittedNumberOfCallsInHalfOpenState) {
+      if (permittedNumberOfCallsInHalfOpenState < 1) {
+        throw new IllegalArgumentException("permittedNumberOfCallsInHalfOpenState must be at least 1");
+      }
+      config.permittedNumberOfCallsInHalfOpenState = permittedNumberOfCallsInHalfOpenState;
+      return this;
+    }
+
+    public Builder recordFailure(Predicate<Throwable> recordFailurePredicate) {
+      if (recordFailurePredicate == null) {
+        throw new IllegalArgumentException("recordFailurePredicate must not be null");
+      }
+      config.recordFailurePredicate = recordFailurePredicate;
+      return this;
+    }
+
+    public SlidingWindowConfig build() {
+      return config;
+    }
+  }
+
+}
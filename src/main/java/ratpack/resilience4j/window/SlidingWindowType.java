@@ -0,0 +1,19 @@
+package ratpack.resilience4j.window;
+
+/**
+ * How a circuit breaker judges the health of its calls.
+ */
+public enum SlidingWindowType {
+
+  /**
+   * The failure rate of the last calls, up to a fixed number of calls, as kept by the circuit breakers of a
+   * {@link io.github.robwin.circuitbreaker.CircuitBreakerRegistry}.
+   */
+  COUNT_BASED,
+
+  /**
+   * The failure and slow call rates of the calls of the last seconds, as kept by a {@link SlidingWindowCircuitBreaker}.
+   */
+  TIME_BASED
+
+}
@@ -0,0 +1,130 @@
+package ratpack.resilience4j
+
+import ratpack.exec.Promise
+import ratpack.resilience4j.limit.AdaptiveLimiter
+import ratpack.resilience4j.limit.AdaptiveLimiterConfig
+import ratpack.resilience4j.limit.LimitExceededException
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class AdaptiveLimiterTransformerSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness()
+
+  def "can reject and recover promise when limiter is at its limit"() {
+    given:
+    AdaptiveLimiter limiter = AdaptiveLimiter.of("test", AdaptiveLimiterConfig.custom().initialLimit(1).build())
+    limiter.tryAcquire()
+
+    when:
+    def rejected = harness.yield { Promise.value("foo").transform(AdaptiveLimiterTransformer.of(limiter)) }
+    def recovered = harness.yield { Promise.value("foo").transform(AdaptiveLimiterTransformer.of(limiter).recover { t -> "bar" }) }
+
+    then:
+    rejected.throwable instanceof LimitExceededException
+    recovered.value == "bar"
+    limiter.inFlight == 1
+  }
+
+  def "returns the permit when the promise completes"() {
+    given:
+    AdaptiveLimiter limiter = AdaptiveLimiter.ofDefaults("test")
+    AdaptiveLimiterTransformer<String> transformer = AdaptiveLimiterTransformer.of(limiter)
+
+    when:
+    def success = harness.yield { Promise.value("foo").transform(transformer) }
+    def failure = harness.yield { Promise.<String>error(new Exception("bad")).transform(transformer) }
+
+    then:
+    success.value == "foo"
+    failure.throwable.message == "bad"
+    limiter.inFlight == 0
+  }
+
+  def "aimd limit grows while used and backs off on dropped calls"() {
+    given:
+    AdaptiveLimiter limiter = AdaptiveLimiter.of("test", AdaptiveLimiterConfig.custom()
+      .algorithm(AdaptiveLimiterConfig.Algorithm.AIMD)
+      .initialLimit(4)
+      .backoffRatio(0.5)
+      .latencyThreshold(Duration.ofMillis(100))
+      .build())
+
+    when:
+    4.times { limiter.tryAcquire() }
+    limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(1))
+
+    then:
+    limiter.limit == 5
+
+    when:
+    limiter.onError(TimeUnit.MILLISECONDS.toNanos(1), new TimeoutException())
+
+    then:
+    limiter.limit == 2
+
+    when:
+    limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(500))
+
+    then:
+    limiter.limit == 1
+    limiter.inFlight == 1
+  }
+
+  def "aimd limit ignores failures that are not dropped calls"() {
+    given:
+    AdaptiveLimiter limiter = AdaptiveLimiter.of("test", AdaptiveLimiterConfig.custom()
+      .algorithm(AdaptiveLimiterConfig.Algorithm.AIMD)
+      .initialLimit(4)
+      .build())
+
+    when:
+    limiter.tryAcquire()
+    limiter.onError(TimeUnit.MILLISECONDS.toNanos(1), new IllegalStateException())
+
+    then:
+    limiter.limit == 4
+    limiter.inFlight == 0
+  }
+
+  def "gradient limit shrinks as latency rises above the minimum and recovers when it falls"() {
+    given:
+    AdaptiveLimiter limiter = AdaptiveLimiter.of("test", AdaptiveLimiterConfig.custom()
+      .algorithm(AdaptiveLimiterConfig.Algorithm.GRADIENT)
+      .initialLimit(50)
+      .tolerance(1)
+      .smoothing(1)
+      .build())
+    def sample = { long millis ->
+      limiter.tryAcquire()
+      limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(millis))
+    }
+
+    when:
+    sample(10)
+
+    then:
+    limiter.minLatencyMicros == 10000
+    limiter.limit == 57
+
+    when:
+    5.times { sample(40) }
+
+    then:
+    limiter.limit < 30
+
+    when:
+    def shrunk = limiter.limit
+    5.times { sample(10) }
+
+    then:
+    limiter.limit > shrunk
+  }
+
+}
@@ -0,0 +1,109 @@
+package ratpack.resilience4j
+
+import io.github.robwin.circuitbreaker.CircuitBreaker
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import ratpack.exec.Promise
+import ratpack.exec.Result
+import ratpack.resilience4j.batch.BatchLoader
+import ratpack.resilience4j.batch.Batcher
+import ratpack.resilience4j.batch.BatcherConfig
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class BatchingTransformerSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness()
+
+  def "concurrent keys are loaded by one batch and fanned back out"() {
+    given:
+    def batches = new ConcurrentLinkedQueue<List<String>>()
+    BatchLoader<String, String> loader = { List<String> keys ->
+      batches.add(keys)
+      Promise.value(keys.findAll { it != "missing" }.collectEntries { [(it): it.toUpperCase()] })
+    }
+    Batcher<String, String> batcher = Batcher.of("test", BatcherConfig.custom().maxDelay(Duration.ofMillis(100)).build(), loader)
+    def results = new ConcurrentHashMap<Integer, Result<String>>()
+    def keys = ["a", "b", "a", "c", "missing"]
+    def done = new CountDownLatch(keys.size())
+
+    when:
+    keys.eachWithIndex { key, i ->
+      harness.fork().start {
+        Promise.value("unused").transform(BatchingTransformer.of(batcher, key)).result {
+          results.put(i, it)
+          done.countDown()
+        }
+      }
+    }
+    done.await(5, TimeUnit.SECONDS)
+
+    then:
+    batches.size() == 1
+    batches.peek().sort(false) == ["a", "b", "c", "missing"]
+    (0..4).collect { results.get(it).value } == ["A", "B", "A", "C", null]
+    batcher.batches == 1
+    batcher.keys == 5
+  }
+
+  def "loads a batch as soon as it is full"() {
+    given:
+    def batches = new ConcurrentLinkedQueue<List<Integer>>()
+    BatchLoader<Integer, Integer> loader = { List<Integer> keys ->
+      batches.add(keys)
+      Promise.value(keys.collectEntries { [(it): it * 10] })
+    }
+    Batcher<Integer, Integer> batcher = Batcher.of("test", BatcherConfig.custom().maxBatchSize(2).maxDelay(Duration.ofMinutes(1)).build(), loader)
+    def results = new ConcurrentLinkedQueue<Integer>()
+    def done = new CountDownLatch(4)
+
+    when:
+    4.times { key ->
+      harness.fork().start {
+        batcher.load(key).then {
+          results.add(it)
+          done.countDown()
+        }
+      }
+    }
+
+    then:
+    done.await(5, TimeUnit.SECONDS)
+    batches*.size() == [2, 2]
+    results.sort() == [0, 10, 20, 30]
+  }
+
+  def "passes each batch through its policy once and fans out its failure"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.ofDefaults())
+    BatchLoader<String, String> loader = { List<String> keys -> Promise.error(new IllegalStateException("batch failed")) }
+    Batcher<String, String> batcher = Batcher.of("test", BatcherConfig.custom().maxDelay(Duration.ofMillis(100)).build(), loader,
+      CircuitBreakerTransformer.of(breaker))
+    def results = new ConcurrentLinkedQueue<Result<String>>()
+    def done = new CountDownLatch(3)
+
+    when:
+    ["a", "b", "c"].each { key ->
+      harness.fork().start {
+        batcher.load(key).result {
+          results.add(it)
+          done.countDown()
+        }
+      }
+    }
+    done.await(5, TimeUnit.SECONDS)
+
+    then:
+    results*.throwable*.message == ["batch failed"] * 3
+    breaker.metrics.numberOfBufferedCalls == 1
+    breaker.metrics.numberOfFailedCalls == 1
+  }
+
+}
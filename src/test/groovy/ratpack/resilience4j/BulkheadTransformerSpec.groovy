@@ -0,0 +1,176 @@
+package ratpack.resilience4j
+
+import ratpack.exec.Downstream
+import ratpack.exec.Execution
+import ratpack.exec.Promise
+import ratpack.exec.Upstream
+import ratpack.resilience4j.bulkhead.Bulkhead
+import ratpack.resilience4j.bulkhead.BulkheadConfig
+import ratpack.resilience4j.bulkhead.BulkheadFullException
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class BulkheadTransformerSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness()
+
+  def "can reject promise when bulkhead is full"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).build())
+    BulkheadTransformer<String> transformer = BulkheadTransformer.of(bulkhead)
+    CountDownLatch held = new CountDownLatch(1)
+    Promise<String> slow = Promise.async { down ->
+      held.countDown()
+      Execution.current().eventLoop.schedule({ down.success("slow") }, 200, TimeUnit.MILLISECONDS)
+    }
+
+    when:
+    harness.fork().start { slow.transform(transformer).then {} }
+    held.await()
+    def r = harness.yield { Promise.value("fast").transform(transformer) }
+
+    then:
+    r.error
+    r.throwable instanceof BulkheadFullException
+  }
+
+  def "can recover promise when bulkhead is full"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).build())
+    bulkhead.tryAcquire()
+    BulkheadTransformer<String> transformer = BulkheadTransformer.of(bulkhead).recover { t -> "bar" }
+
+    when:
+    def r = harness.yield { Promise.value("foo").transform(transformer) }
+
+    then:
+    r.value == "bar"
+    bulkhead.availableConcurrentCalls == 0
+  }
+
+  def "can queue promise until a permit is released"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom()
+      .maxConcurrentCalls(1)
+      .maxWaitingCalls(1)
+      .maxWaitDuration(Duration.ofSeconds(1))
+      .build())
+    BulkheadTransformer<String> transformer = BulkheadTransformer.of(bulkhead)
+    bulkhead.tryAcquire()
+
+    when:
+    harness.controller.executor.schedule({ bulkhead.release() }, 100, TimeUnit.MILLISECONDS)
+    def r = harness.yield { Promise.value("foo").transform(transformer) }
+
+    then:
+    r.value == "foo"
+    bulkhead.availableConcurrentCalls == 1
+    bulkhead.waitingCalls == 0
+  }
+
+  def "can time out queued promise"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom()
+      .maxConcurrentCalls(1)
+      .maxWaitingCalls(1)
+      .maxWaitDuration(Duration.ofMillis(50))
+      .build())
+    BulkheadTransformer<String> transformer = BulkheadTransformer.of(bulkhead)
+    bulkhead.tryAcquire()
+
+    when:
+    def r = harness.yield { Promise.value("foo").transform(transformer) }
+
+    then:
+    r.throwable instanceof BulkheadFullException
+    bulkhead.waitingCalls == 0
+  }
+
+  def "does not queue promise when the wait duration is zero"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom()
+      .maxConcurrentCalls(1)
+      .maxWaitingCalls(1)
+      .maxWaitDuration(Duration.ZERO)
+      .build())
+    BulkheadTransformer<String> transformer = BulkheadTransformer.of(bulkhead)
+    bulkhead.tryAcquire()
+
+    when:
+    def r = harness.yield { Promise.value("foo").transform(transformer) }
+
+    then:
+    r.throwable instanceof BulkheadFullException
+    bulkhead.waitingCalls == 0
+  }
+
+  def "can change bulkhead config with calls in flight"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom()
+      .maxConcurrentCalls(2)
+      .maxWaitingCalls(1)
+      .maxWaitDuration(Duration.ofSeconds(1))
+      .build())
+    BulkheadTransformer<String> transformer = BulkheadTransformer.of(bulkhead)
+    bulkhead.tryAcquire()
+    bulkhead.tryAcquire()
+
+    when:
+    harness.controller.executor.schedule({
+      bulkhead.changeConfig(BulkheadConfig.custom().maxConcurrentCalls(3).maxWaitingCalls(1).build())
+    }, 100, TimeUnit.MILLISECONDS)
+    def r = harness.yield { Promise.value("foo").transform(transformer) }
+
+    then:
+    r.value == "foo"
+    bulkhead.availableConcurrentCalls == 1
+
+    when:
+    bulkhead.changeConfig(BulkheadConfig.custom().maxConcurrentCalls(1).build())
+
+    then:
+    bulkhead.availableConcurrentCalls == 0
+    !bulkhead.tryAcquire()
+
+    when:
+    bulkhead.release()
+
+    then:
+    bulkhead.availableConcurrentCalls == 0
+
+    when:
+    bulkhead.release()
+
+    then:
+    bulkhead.availableConcurrentCalls == 1
+  }
+
+  def "returns the permit once and signals once when the upstream throws after it signalled"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(2).build())
+    Upstream<String> upstream = { down ->
+      down.success("foo")
+      throw new IllegalStateException("late")
+    }
+    List<Object> signals = []
+    Downstream<String> down = [
+      success : { signals << it },
+      error   : { signals << it },
+      complete: { signals << "complete" }
+    ] as Downstream<String>
+
+    when:
+    harness.run { BulkheadTransformer.of(bulkhead).apply(upstream).connect(down) }
+
+    then:
+    signals == ["foo"]
+    bulkhead.availableConcurrentCalls == 2
+  }
+
+}
@@ -2,11 +2,24 @@ package ratpack.resilience4j
 
 import io.github.robwin.circuitbreaker.CircuitBreaker
 import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry
 import ratpack.exec.Blocking
+import ratpack.exec.Promise
+import ratpack.func.Factory
+import ratpack.resilience4j.fallback.FallbackCache
+import ratpack.resilience4j.fallback.FallbackCacheConfig
+import ratpack.resilience4j.keyed.KeyedCacheConfig
+import ratpack.resilience4j.keyed.KeyedCircuitBreakerRegistry
+import ratpack.resilience4j.metrics.ResilienceEvent
+import ratpack.resilience4j.metrics.ResilienceMetrics
 import ratpack.test.exec.ExecHarness
 import spock.lang.Specification
 
 import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
 class CircuitBreakerTransformerSpec extends Specification {
 
@@ -41,6 +54,50 @@ class CircuitBreakerTransformerSpec extends Specification {
     breaker.state == CircuitBreaker.State.OPEN
   }
 
+  def "rejects calls on an open circuit with a reused stackless exception"() {
+    given:
+    CircuitBreaker breaker = buildBreaker()
+    CircuitBreakerTransformer<String> transformer = CircuitBreakerTransformer.of(breaker)
+    breaker.onError(Duration.ZERO, new Exception("puke"))
+    breaker.onError(Duration.ZERO, new Exception("puke"))
+
+    when:
+    def first = ExecHarness.yieldSingle {
+      Blocking.<String>get { "value" }
+        .transform(transformer)
+    }
+    def second = ExecHarness.yieldSingle {
+      Blocking.<String>get { "value" }
+        .transform(transformer)
+    }
+
+    then:
+    breaker.state == CircuitBreaker.State.OPEN
+    first.throwable instanceof CircuitBreakerOpenException
+    first.throwable.message == "CircuitBreaker test is open"
+    first.throwable.stackTrace.length == 0
+    second.throwable.is(first.throwable)
+  }
+
+  def "rejects calls with one exception per circuit breaker"() {
+    given:
+    CircuitBreaker breaker = buildBreaker()
+    breaker.onError(Duration.ZERO, new Exception("puke"))
+    breaker.onError(Duration.ZERO, new Exception("puke"))
+
+    when:
+    def first = ExecHarness.yieldSingle {
+      Promise.value("value").transform(CircuitBreakerTransformer.of(breaker))
+    }
+    def second = ExecHarness.yieldSingle {
+      Promise.value("value").transform(CircuitBreakerTransformer.of(breaker))
+    }
+
+    then:
+    second.throwable.is(first.throwable)
+    second.throwable.stackTrace.length == 0
+  }
+
   def "can circuit break promise to open state with recovery"() {
     given:
     CircuitBreaker breaker = buildBreaker()
@@ -128,6 +185,134 @@ class CircuitBreakerTransformerSpec extends Specification {
     breaker.state == CircuitBreaker.State.CLOSED
   }
 
+  def "can circuit break promise per key"() {
+    given:
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(buildBreaker().circuitBreakerConfig)
+    KeyedCircuitBreakerRegistry keyed = KeyedCircuitBreakerRegistry.of(registry, KeyedCacheConfig.custom().maximumSize(10).build())
+    Exception e = new Exception("puke")
+    def call = { String host, boolean fail ->
+      ExecHarness.yieldSingle {
+        Blocking.<String>get { if (fail) { throw e }; host }
+          .transform(CircuitBreakerTransformer.of(keyed, "test", { host }))
+      }
+    }
+
+    when:
+    call("a", true)
+    call("a", true)
+    def a = call("a", false)
+    def b = call("b", false)
+
+    then:
+    a.throwable instanceof CircuitBreakerOpenException
+    a.throwable.message == "CircuitBreaker test:a is open"
+    b.value == "b"
+    keyed.circuitBreaker("test", "a").state == CircuitBreaker.State.OPEN
+    keyed.circuitBreaker("test", "b").state == CircuitBreaker.State.CLOSED
+
+    when:
+    (1..100).each { keyed.circuitBreaker("test", it) }
+
+    then:
+    keyed.size() <= 10
+  }
+
+  def "serves the last good value from the fallback cache when calls fail or the circuit is open"() {
+    given:
+    CircuitBreaker breaker = buildBreaker()
+    FallbackCache<String> cache = FallbackCache.ofDefaults("test")
+    CircuitBreakerTransformer<String> transformer = CircuitBreakerTransformer.<String>of(breaker)
+      .fallbackCache(cache, { "key" } as Factory)
+      .recover { t -> "recovered" }
+    int calls = 0
+    def call = { boolean fail ->
+      ExecHarness.yieldSingle {
+        Blocking.<String>get {
+          calls++
+          if (fail) {
+            throw new Exception("puke")
+          }
+          "good"
+        }.transform(transformer)
+      }
+    }
+
+    when:
+    def first = call(false)
+    def failed = call(true)
+    def open = call(true)
+
+    then:
+    first.value == "good"
+    failed.value == "good"
+    breaker.state == CircuitBreaker.State.OPEN
+    open.value == "good"
+    calls == 2
+    cache.get("key") == "good"
+  }
+
+  def "revalidates the fallback cache in the background when the circuit is half open"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+      .failureRateThreshold(50)
+      .waitDurationInOpenState(Duration.ofMillis(100))
+      .ringBufferSizeInHalfOpenState(2)
+      .ringBufferSizeInClosedState(2)
+      .build())
+    FallbackCache<String> cache = FallbackCache.of("test", FallbackCacheConfig.custom().revalidate(true).build())
+    cache.put("key", "old")
+    2.times { breaker.onError(Duration.ZERO, new Exception("puke")) }
+    CircuitBreakerTransformer<String> transformer = CircuitBreakerTransformer.<String>of(breaker).fallbackCache(cache, { "key" } as Factory)
+
+    when:
+    Thread.sleep(150)
+    def r = ExecHarness.yieldSingle { Promise.value("new").transform(transformer) }
+    waitFor { cache.get("key") == "new" }
+
+    then:
+    r.value == "old"
+    cache.get("key") == "new"
+    breaker.state == CircuitBreaker.State.HALF_OPEN
+    breaker.metrics.numberOfSuccessfulCalls == 1
+  }
+
+  private static void waitFor(Closure<Boolean> condition) {
+    long deadline = System.currentTimeMillis() + 5000
+    while (!condition() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5)
+    }
+  }
+
+  def "records a state transition once however many calls were in flight"() {
+    given:
+    CircuitBreaker breaker = buildBreaker()
+    ResilienceMetrics metrics = new ResilienceMetrics()
+    CircuitBreakerTransformer<String> transformer = CircuitBreakerTransformer.of(breaker).metrics(metrics)
+    CompletableFuture<String> response = new CompletableFuture<>()
+    CountDownLatch started = new CountDownLatch(5)
+    CountDownLatch done = new CountDownLatch(5)
+    ExecHarness harness = ExecHarness.harness()
+
+    when:
+    5.times {
+      harness.fork().start {
+        Promise.<String> async { down ->
+          started.countDown()
+          down.accept(response)
+        }.transform(transformer).result { done.countDown() }
+      }
+    }
+    started.await(5, TimeUnit.SECONDS)
+    response.completeExceptionally(new Exception("bad"))
+    done.await(5, TimeUnit.SECONDS)
+    harness.close()
+
+    then:
+    breaker.state == CircuitBreaker.State.OPEN
+    metrics.circuitBreaker("test").stateTransitions == [CLOSED_TO_OPEN: 1L]
+    metrics.circuitBreaker("test").events.events.count { it.kind == ResilienceEvent.Kind.STATE_TRANSITION } == 1
+  }
+
   def buildBreaker() {
     CircuitBreakerConfig config = CircuitBreakerConfig.custom()
       .failureRateThreshold(50)
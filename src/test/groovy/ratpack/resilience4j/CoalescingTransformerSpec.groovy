@@ -0,0 +1,110 @@
+package ratpack.resilience4j
+
+import ratpack.exec.Promise
+import ratpack.exec.Result
+import ratpack.func.Factory
+import ratpack.resilience4j.coalesce.Coalescer
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class CoalescingTransformerSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness()
+
+  def "concurrent promises with the same key share one upstream call"() {
+    given:
+    Coalescer coalescer = Coalescer.of("test")
+    AtomicInteger subscriptions = new AtomicInteger()
+    CompletableFuture<String> response = new CompletableFuture<>()
+    Promise<String> call = Promise.async { down ->
+      subscriptions.incrementAndGet()
+      down.accept(response)
+    }
+    def results = new ConcurrentLinkedQueue<Result<String>>()
+    def done = new CountDownLatch(5)
+
+    when:
+    5.times {
+      harness.fork().start {
+        call.transform(CoalescingTransformer.of(coalescer, "key")).result {
+          results.add(it)
+          done.countDown()
+        }
+      }
+    }
+    waitFor { coalescer.calls + coalescer.coalescedCalls == 5 }
+    response.complete("value")
+    done.await(5, TimeUnit.SECONDS)
+
+    then:
+    subscriptions.get() == 1
+    results*.value == ["value"] * 5
+    coalescer.calls == 1
+    coalescer.coalescedCalls == 4
+    coalescer.inFlight == 0
+  }
+
+  def "fans out errors to every waiting promise and starts a new call afterwards"() {
+    given:
+    Coalescer coalescer = Coalescer.of("test")
+    AtomicInteger subscriptions = new AtomicInteger()
+    CompletableFuture<String> response = new CompletableFuture<>()
+    Promise<String> call = Promise.async { down ->
+      subscriptions.incrementAndGet()
+      down.accept(response)
+    }
+    def results = new ConcurrentLinkedQueue<Result<String>>()
+    def done = new CountDownLatch(3)
+
+    when:
+    3.times {
+      harness.fork().start {
+        call.transform(CoalescingTransformer.of(coalescer, "key")).result {
+          results.add(it)
+          done.countDown()
+        }
+      }
+    }
+    waitFor { coalescer.calls + coalescer.coalescedCalls == 3 }
+    response.completeExceptionally(new IllegalStateException("bad"))
+    done.await(5, TimeUnit.SECONDS)
+    def after = harness.yield { Promise.value("fresh").transform(CoalescingTransformer.of(coalescer, "key")) }
+
+    then:
+    results*.throwable*.message == ["bad"] * 3
+    after.value == "fresh"
+    subscriptions.get() == 1
+    coalescer.inFlight == 0
+  }
+
+  def "does not coalesce promises with different or null keys"() {
+    given:
+    Coalescer coalescer = Coalescer.of("test")
+
+    when:
+    def first = harness.yield { Promise.value("a").transform(CoalescingTransformer.of(coalescer, "a")) }
+    def second = harness.yield { Promise.value("b").transform(CoalescingTransformer.of(coalescer, "b")) }
+    def third = harness.yield { Promise.value("c").transform(CoalescingTransformer.of(coalescer, { null } as Factory)) }
+
+    then:
+    [first, second, third]*.value == ["a", "b", "c"]
+    coalescer.calls == 3
+    coalescer.coalescedCalls == 0
+  }
+
+  private static void waitFor(Closure<Boolean> condition) {
+    long deadline = System.currentTimeMillis() + 5000
+    while (!condition() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5)
+    }
+  }
+
+}
@@ -0,0 +1,125 @@
+package ratpack.resilience4j
+
+import io.github.robwin.circuitbreaker.CircuitBreaker
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import ratpack.exec.Execution
+import ratpack.exec.Promise
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class HedgingTransformerSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness()
+
+  AtomicInteger subscriptions = new AtomicInteger()
+
+  def "takes the value of a hedge when the first attempt is slow"() {
+    given:
+    HedgingTransformer<String> transformer = HedgingTransformer.of(Duration.ofMillis(50))
+
+    when:
+    long start = System.nanoTime()
+    def r = harness.yield { attempts(500, 10).transform(transformer) }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+    then:
+    r.value == "attempt 2"
+    elapsed < 400
+    subscriptions.get() == 2
+  }
+
+  def "does not hedge when the first attempt completes within the delay"() {
+    given:
+    HedgingTransformer<String> transformer = HedgingTransformer.<String>of(Duration.ofMillis(200)).maxAttempts(3)
+
+    when:
+    def r = harness.yield { attempts(10, 10).transform(transformer) }
+    Thread.sleep(300)
+
+    then:
+    r.value == "attempt 1"
+    subscriptions.get() == 1
+  }
+
+  def "does not hedge while the circuit breaker is open"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+      .failureRateThreshold(50)
+      .ringBufferSizeInClosedState(2)
+      .waitDurationInOpenState(Duration.ofSeconds(10))
+      .build())
+    2.times { breaker.onError(Duration.ZERO, new Exception()) }
+    HedgingTransformer<String> transformer = HedgingTransformer.<String>of(Duration.ofMillis(20)).circuitBreaker(breaker)
+
+    when:
+    def r = harness.yield { attempts(200, 10).transform(transformer) }
+
+    then:
+    r.value == "attempt 1"
+    subscriptions.get() == 1
+  }
+
+  def "records the outcome of hedges with the circuit breaker"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.ofDefaults("test")
+    HedgingTransformer<String> transformer = HedgingTransformer.<String>of(Duration.ofMillis(20)).circuitBreaker(breaker)
+
+    when:
+    def r = harness.yield { attempts(200, 10).transform(transformer) }
+
+    then:
+    r.value == "attempt 2"
+    breaker.metrics.numberOfSuccessfulCalls == 1
+  }
+
+  def "fails with the first error once every attempt has failed"() {
+    given:
+    HedgingTransformer<String> transformer = HedgingTransformer.<String>of(Duration.ofMillis(20)).maxAttempts(3)
+    Promise<String> failing = Promise.async { down ->
+      int attempt = subscriptions.incrementAndGet()
+      Execution.current().eventLoop.schedule({ down.error(new Exception("failed " + attempt)) }, attempt == 1 ? 10 : 50, TimeUnit.MILLISECONDS)
+    }
+
+    when:
+    def r = harness.yield { failing.transform(transformer) }
+
+    then:
+    r.throwable.message == "failed 1"
+    subscriptions.get() == 3
+  }
+
+  def "waits the full delay after an attempt that was started by a failure"() {
+    given:
+    HedgingTransformer<String> transformer = HedgingTransformer.<String>of(Duration.ofMillis(200)).maxAttempts(3)
+    Promise<String> failingFirst = Promise.async { down ->
+      int attempt = subscriptions.incrementAndGet()
+      if (attempt == 1) {
+        Execution.current().eventLoop.schedule({ down.error(new Exception("failed 1")) }, 150, TimeUnit.MILLISECONDS)
+      } else {
+        Execution.current().eventLoop.schedule({ down.success("attempt " + attempt) }, 100, TimeUnit.MILLISECONDS)
+      }
+    }
+
+    when:
+    def r = harness.yield { failingFirst.transform(transformer) }
+    Thread.sleep(200)
+
+    then:
+    r.value == "attempt 2"
+    subscriptions.get() == 2
+  }
+
+  private Promise<String> attempts(long firstMillis, long otherMillis) {
+    Promise.async { down ->
+      int attempt = subscriptions.incrementAndGet()
+      Execution.current().eventLoop.schedule({ down.success("attempt " + attempt) }, attempt == 1 ? firstMillis : otherMillis, TimeUnit.MILLISECONDS)
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+package ratpack.resilience4j
+
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry
+import ratpack.exec.Promise
+import ratpack.resilience4j.shed.LoadShedException
+import ratpack.resilience4j.shed.LoadShedder
+import ratpack.resilience4j.shed.LoadShedderConfig
+import ratpack.resilience4j.shed.Priority
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+
+class LoadSheddingTransformerSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness(1)
+
+  def "sheds low priority work while the event loop lags"() {
+    given:
+    LoadShedder shedder = LoadShedder.of(LoadShedderConfig.custom()
+      .probeInterval(Duration.ofMillis(20))
+      .lagThreshold(Duration.ofMillis(100))
+      .build())
+
+    when:
+    def admitted = harness.yield {
+      Promise.value("admitted").transform(LoadSheddingTransformer.of(shedder, Priority.LOW))
+    }
+    def shed = harness.yield {
+      // block the only event loop, so that its probe cannot run on time
+      Promise.sync { Thread.sleep(250) }.flatMap {
+        Promise.value("low").transform(LoadSheddingTransformer.of(shedder, Priority.LOW))
+      }
+    }
+    // let the probe catch up between blocks
+    Thread.sleep(50)
+    def recovered = harness.yield {
+      Promise.sync { Thread.sleep(250) }.flatMap {
+        Promise.value("low").transform(LoadSheddingTransformer.of(shedder, Priority.LOW).recover { "recovered" })
+      }
+    }
+    Thread.sleep(50)
+    def high = harness.yield {
+      Promise.sync { Thread.sleep(250) }.flatMap {
+        Promise.value("high").transform(LoadSheddingTransformer.of(shedder, Priority.HIGH))
+      }
+    }
+
+    then:
+    admitted.value == "admitted"
+    shed.throwable instanceof LoadShedException
+    recovered.value == "recovered"
+    high.value == "high"
+    shedder.shedCount == 2
+  }
+
+  def "sheds low priority work while enough circuit breakers are open"() {
+    given:
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+      .ringBufferSizeInClosedState(1)
+      .build())
+    registry.circuitBreaker("a").onError(Duration.ZERO, new Exception("bad"))
+    registry.circuitBreaker("b")
+    LoadShedder shedder = LoadShedder.of(LoadShedderConfig.custom()
+      .probeInterval(Duration.ofMillis(10))
+      .circuitBreakerRegistry(registry)
+      .openCircuitBreakerRatio(0.5)
+      .build())
+    shedder.start(harness.controller)
+    Thread.sleep(100)
+
+    expect:
+    shedder.overload == 1
+    !shedder.tryAdmit(Priority.LOW)
+    shedder.tryAdmit(Priority.NORMAL)
+  }
+
+}
@@ -3,10 +3,15 @@ package ratpack.resilience4j
 import io.github.robwin.ratelimiter.RateLimiter
 import io.github.robwin.ratelimiter.RateLimiterConfig
 import ratpack.exec.Blocking
+import ratpack.exec.Promise
+import ratpack.resilience4j.internal.AsyncPermission
 import ratpack.test.exec.ExecHarness
 import spock.lang.Specification
 
 import java.time.Duration
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
 
 class RatelimiterTransformerSpec extends Specification {
 
@@ -53,6 +58,75 @@ class RatelimiterTransformerSpec extends Specification {
     values == expected << failure
   }
 
+  def "can wait for permission on the event loop when limit is exceeded"() {
+    given:
+    RateLimiterConfig config = RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofMillis(100))
+      .limitForPeriod(1)
+      .timeoutDuration(Duration.ofSeconds(1))
+      .build()
+    RateLimiter rateLimiter = RateLimiter.of("test", config)
+    RateLimiterTransformer<Integer> transformer = RateLimiterTransformer.of(rateLimiter)
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      Promise.value(1).transform(transformer).flatMap { a ->
+        Promise.value(2).transform(transformer).map { b -> a + b }
+      }
+    }
+
+    then:
+    r.value == 3
+    !r.error
+  }
+
+  def "serves callers waiting for a permission first come, first served"() {
+    given:
+    RateLimiterConfig config = RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofMillis(100))
+      .limitForPeriod(1)
+      .timeoutDuration(Duration.ofSeconds(5))
+      .build()
+    RateLimiter rateLimiter = RateLimiter.of("test", config)
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor()
+    List<Integer> order = Collections.synchronizedList([])
+
+    when:
+    def waiters = (0..3).collect { i ->
+      def permission = AsyncPermission.acquire(rateLimiter, scheduler)
+      permission.thenRun { order << i }
+      permission
+    }
+    // a permission that is free while callers are queued goes to them, not to a new caller
+    while (rateLimiter.metrics.availablePermissions == 0) {
+      Thread.sleep(1)
+    }
+    def newcomer = AsyncPermission.acquire(rateLimiter, scheduler)
+    def immediate = newcomer.done
+    newcomer.thenRun { order << 4 }
+    (waiters + newcomer)*.get(5, TimeUnit.SECONDS)
+
+    then:
+    !immediate
+    order == [0, 1, 2, 3, 4]
+
+    cleanup:
+    scheduler.shutdownNow()
+  }
+
+  def "can ratelimit promise through the extension"() {
+    given:
+    RateLimiter rateLimiter = buildRatelimiter()
+
+    when:
+    def values = (0..100).collect { i ->
+      ExecHarness.yieldSingle { Promise.value(i).rateLimitRecover(rateLimiter) { t -> -1 } }.value
+    }
+
+    then:
+    values == (0..99).toList() << -1
+  }
+
   // 100 events / s
   def buildRatelimiter() {
     RateLimiterConfig config = RateLimiterConfig.custom()
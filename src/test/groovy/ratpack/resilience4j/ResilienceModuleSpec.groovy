@@ -1,5 +1,11 @@
 package ratpack.resilience4j
 
+import com.google.inject.Guice
+import com.google.inject.Injector
+import com.google.inject.Module
+import com.google.inject.multibindings.OptionalBinder
+import com.google.inject.util.Modules
+import groovy.json.JsonSlurper
 import io.github.robwin.circuitbreaker.CircuitBreaker
 import io.github.robwin.circuitbreaker.CircuitBreakerConfig
 import io.github.robwin.circuitbreaker.CircuitBreakerRegistry
@@ -7,7 +13,30 @@ import io.github.robwin.ratelimiter.RateLimiterConfig
 import io.github.robwin.ratelimiter.RateLimiterRegistry
 import io.reactivex.Flowable
 import io.reactivex.functions.Function
+import ratpack.exec.Blocking
+import ratpack.exec.Execution
 import ratpack.exec.Promise
+import ratpack.exec.util.ParallelBatch
+import ratpack.handling.Context
+import ratpack.http.Request
+import ratpack.resilience4j.batch.BatchLoader
+import ratpack.resilience4j.bulkhead.BulkheadConfig
+import ratpack.resilience4j.config.ReloadableRateLimiterRegistry
+import ratpack.resilience4j.bulkhead.BulkheadRegistry
+import ratpack.resilience4j.bulkhead.ThreadPoolBulkheadConfig
+import ratpack.resilience4j.bulkhead.ThreadPoolBulkheadRegistry
+import ratpack.resilience4j.fallback.FallbackCacheRegistry
+import ratpack.resilience4j.limit.AdaptiveLimiterRegistry
+import ratpack.resilience4j.metrics.ResilienceEventsHandler
+import ratpack.resilience4j.metrics.ResilienceMetrics
+import ratpack.resilience4j.metrics.ResilienceMetricsHandler
+import ratpack.resilience4j.shed.LoadShedder
+import ratpack.resilience4j.shed.LoadShedderConfig
+import ratpack.resilience4j.shed.Priority
+import ratpack.resilience4j.window.SlidingWindowCircuitBreakerRegistry
+import ratpack.resilience4j.window.SlidingWindowConfig
+import ratpack.resilience4j.window.SlidingWindowType
+import ratpack.server.ServerConfig
 import ratpack.test.embed.EmbeddedApp
 import ratpack.test.http.TestHttpClient
 import spock.lang.AutoCleanup
@@ -17,10 +46,16 @@ import spock.lang.Unroll
 import java.time.Duration
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.CompletionStage
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 import static ratpack.groovy.test.embed.GroovyEmbeddedApp.ratpack
 
 @Unroll
+
 class ResilienceModuleSpec extends Specification {
 
   @AutoCleanup
@@ -124,11 +159,616 @@ class ResilienceModuleSpec extends Specification {
     where:
     path      | badPath      | recoverPath      | breakerName | expectedText      | badStatus
     'promise' | 'promiseBad' | 'promiseRecover' | 'test'      | 'breaker promise' | 500
-    'stage'   | 'stageBad'   | 'stageRecover'   | 'test'      | 'breaker stage'   | 404
+    'stage'   | 'stageBad'   | 'stageRecover'   | 'test'      | 'breaker stage'   | 500
     'flow'    | 'flowBad'    | 'flowRecover'    | 'test'      | 'breaker flow'    | 500
     'normal'  | 'normalBad'  | 'normalRecover'  | 'test'      | 'breaker normal'  | 404
   }
 
+  def "test recovery function is resolved once per annotated method"() {
+    given:
+    CountingRecoveryFunction.instances.set(0)
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(buildConfig())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, registry)
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('counting') { Something something ->
+          something.breakerPromiseCounting().then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def actual = (1..3).collect { get('counting') }
+
+    then:
+    actual*.body*.text == ["counted", "counted", "counted"]
+    CountingRecoveryFunction.instances.get() == 1
+  }
+
+  def "test bulkhead a method via annotation"() {
+    given:
+    BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(1).build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(BulkheadRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('bulkhead') { Something something ->
+          something.bulkheadPromise().then {
+            render it
+          }
+        }
+        get('bulkheadNormal') { Something something ->
+          render something.bulkheadNormal()
+        }
+      }
+    }
+    client = testHttpClient(app)
+    def bulkhead = registry.bulkhead("test")
+
+    when:
+    def actual = get('bulkhead')
+
+    then:
+    actual.body.text == "bulkhead promise"
+    bulkhead.availableConcurrentCalls == 1
+
+    when:
+    bulkhead.tryAcquire()
+    actual = get('bulkheadNormal')
+
+    then:
+    actual.body.text == "recovered"
+  }
+
+  def "test bulkhead a completion stage method on the calling execution once a permit is released"() {
+    given:
+    BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+      .maxConcurrentCalls(1)
+      .maxWaitingCalls(1)
+      .maxWaitDuration(Duration.ofSeconds(1))
+      .build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(BulkheadRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('bulkheadStage') { Something something ->
+          def bulkhead = registry.bulkhead("test")
+          bulkhead.tryAcquire()
+          Execution.current().controller.executor.schedule({ bulkhead.release() }, 50, TimeUnit.MILLISECONDS)
+          Promise.async { d -> d.accept(something.bulkheadStage()) }.then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def actual = get('bulkheadStage')
+
+    then:
+    actual.body.text == "bulkheadStage"
+    registry.bulkhead("test").availableConcurrentCalls == 1
+  }
+
+  def "test rate limit a completion stage method on the calling execution once a permission is granted"() {
+    given:
+    RateLimiterRegistry registry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofMillis(100))
+      .limitForPeriod(1)
+      .timeoutDuration(Duration.ofSeconds(1))
+      .build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('rateLimiterStage') { Something something ->
+          registry.rateLimiter("test").getPermission(Duration.ZERO)
+          Promise.async { d -> d.accept(something.rateLimiterStage()) }.then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def actual = get('rateLimiterStage')
+
+    then:
+    actual.body.text == "rateLimiterStage"
+  }
+
+  def "test run a method on a dedicated thread pool via annotation"() {
+    given:
+    CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(buildConfig())
+    ThreadPoolBulkheadRegistry registry = ThreadPoolBulkheadRegistry.of(ThreadPoolBulkheadConfig.custom().maxThreads(1).build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, breakers)
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(ThreadPoolBulkheadRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('pool') { Something something ->
+          something.threadPoolPromise().then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+    def breaker = breakers.circuitBreaker("test")
+
+    when:
+    def actual = get('pool')
+
+    then:
+    actual.body.text == "ratpack-bulkhead-db-1"
+    breaker.metrics.numberOfSuccessfulCalls == 1
+
+    when:
+    CountDownLatch latch = new CountDownLatch(1)
+    registry.bulkhead("db").submit { latch.await() }
+    actual = get('pool')
+    latch.countDown()
+
+    then:
+    actual.statusCode == 500
+    // one success and one failure reach the failure rate threshold
+    breaker.state == CircuitBreaker.State.OPEN
+  }
+
+  def "test thread pool methods cannot defer their blocking work to the shared executor"() {
+    given:
+    ThreadPoolBulkheadRegistry registry = ThreadPoolBulkheadRegistry.of(ThreadPoolBulkheadConfig.custom().maxThreads(1).build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(ThreadPoolBulkheadRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('pool') { Something something ->
+          something.threadPoolPromise().then {
+            render it
+          }
+        }
+        get('blocking') { Something something ->
+          something.threadPoolBlockingPromise().onError {
+            render it.class.simpleName
+          }.then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def pool = get('pool')
+    def blocking = get('blocking')
+
+    then:
+    pool.body.text == "ratpack-bulkhead-db-1"
+    blocking.body.text == "IllegalStateException"
+
+    when:
+    app.close()
+
+    then:
+    registry.bulkhead("db").submit { "stopped" }.completedExceptionally
+  }
+
+  def "test completion stage methods are not invoked while the circuit is open and resume on the event loop"() {
+    given:
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(buildConfig())
+    Something.stageCalls.set(0)
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, registry)
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bind(Something)
+        module(ResilienceModule) {
+          it.resumeOnEventLoop(true)
+        }
+      }
+      handlers {
+        get('stage') { Something something ->
+          Promise.async { down ->
+            something.breakerStageCounting().thenAccept { v ->
+              down.success("${v}:${Thread.currentThread().name.startsWith('ratpack-compute')}".toString())
+            }
+          }.then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+    def breaker = registry.circuitBreaker("stage")
+
+    when:
+    def actual = get('stage')
+
+    then:
+    actual.body.text == "counted:true"
+    Something.stageCalls.get() == 1
+
+    when:
+    breaker.onError(Duration.ZERO, new Exception("bad"))
+    breaker.onError(Duration.ZERO, new Exception("bad"))
+    actual = get('stage')
+
+    then:
+    breaker.state == CircuitBreaker.State.OPEN
+    actual.body.text == "recovered:true"
+    Something.stageCalls.get() == 1
+  }
+
+  def "test shed low priority methods via annotation while the server is overloaded"() {
+    given:
+    CircuitBreakerRegistry dependencies = CircuitBreakerRegistry.of(buildConfig())
+    LoadShedder shedder = LoadShedder.of(LoadShedderConfig.custom()
+      .probeInterval(Duration.ofMillis(10))
+      .circuitBreakerRegistry(dependencies)
+      .build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(LoadShedder, shedder)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('shed') { Something something ->
+          something.lowPriorityPromise().then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def actual = get('shed')
+
+    then:
+    actual.body.text == "low priority"
+
+    when:
+    def breaker = dependencies.circuitBreaker("dependency")
+    breaker.onError(Duration.ZERO, new Exception("bad"))
+    breaker.onError(Duration.ZERO, new Exception("bad"))
+    Thread.sleep(100)
+    actual = get('shed')
+
+    then:
+    actual.body.text == "recovered"
+  }
+
+  def "test circuit break a method with a time based sliding window via annotation"() {
+    given:
+    SlidingWindowCircuitBreakerRegistry registry = SlidingWindowCircuitBreakerRegistry.of(SlidingWindowConfig.custom()
+      .minimumNumberOfCalls(2)
+      .build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(SlidingWindowCircuitBreakerRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('window') { Something something ->
+          something.breakerWindow().then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def responses = (1..3).collect { getText('window') }
+
+    then:
+    responses == ["recovered", "recovered", "recovered"]
+    registry.circuitBreaker("window").state == CircuitBreaker.State.OPEN
+    registry.circuitBreaker("window").metrics.numberOfNotPermittedCalls == 1
+  }
+
+  def "test circuit breaker metrics are recorded when enabled"() {
+    given:
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(buildConfig())
+    ResilienceMetrics resilienceMetrics = new ResilienceMetrics()
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, registry)
+        bindInstance(ResilienceMetrics, resilienceMetrics)
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bind(Something)
+        module(ResilienceModule) {
+          it.enableMetrics(true)
+        }
+      }
+      handlers {
+        get('promise') { Something something ->
+          something.breakerPromise().then {
+            render it
+          }
+        }
+        get('promiseBad') { Something something ->
+          something.breakerPromiseBad().then {
+            render it
+          }
+        }
+        get('metrics', new ResilienceMetricsHandler())
+        get('events', new ResilienceEventsHandler())
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    get('promise')
+    get('promiseBad')
+    get('promiseBad')
+    def metrics = resilienceMetrics.circuitBreaker("test")
+
+    then:
+    metrics.successfulCalls == 1
+    metrics.failedCalls == 1
+    metrics.notPermittedCalls == 1
+    metrics.latency.count == 2
+    metrics.stateTransitions == [CLOSED_TO_OPEN: 1L]
+
+    when:
+    def json = new JsonSlurper().parseText(get('metrics').body.text)
+
+    then:
+    json.circuitBreakers.test.successfulCalls == 1
+    json.circuitBreakers.test.notPermittedCalls == 1
+
+    when:
+    def events = new JsonSlurper().parseText(get('events').body.text)
+
+    then:
+    events*.kind == ["SUCCESS", "ERROR", "STATE_TRANSITION", "NOT_PERMITTED"]
+    events[2].fromState == "CLOSED"
+    events[2].toState == "OPEN"
+  }
+
+  def "test rate limit a method per key via annotation"() {
+    given:
+    RateLimiterRegistry registry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofSeconds(10))
+      .limitForPeriod(1)
+      .timeoutDuration(Duration.ZERO)
+      .build())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('keyed/:tenant') { Something something ->
+          something.rateLimiterKeyed(pathTokens.tenant).then {
+            render it
+          }
+        }
+        get('keyedByContext') { Something something ->
+          something.rateLimiterKeyedByContext().then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    expect:
+    get('keyed/a').body.text == "keyed a"
+    get('keyed/a').statusCode == 500
+    get('keyed/b').body.text == "keyed b"
+
+    and:
+    requestSpec { it.headers.set("X-Tenant", "c") }
+    get('keyedByContext').body.text == "keyed by context"
+    get('keyedByContext').statusCode == 500
+    resetRequest()
+    get('keyedByContext').body.text == "keyed by context"
+  }
+
+  def "test combine policies on a method via a single annotation"() {
+    given:
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(buildConfig())
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, registry)
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('resilient') { Something something ->
+          something.resilientPromise().then {
+            render it
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def actual = get('resilient')
+
+    then:
+    actual.body.text == "recovered"
+    Something.resilientCalls.get() == 2
+    registry.circuitBreaker("test").state == CircuitBreaker.State.OPEN
+  }
+
+  def "test adaptively limit a method via annotation"() {
+    given:
+    AdaptiveLimiterRegistry registry = AdaptiveLimiterRegistry.ofDefaults()
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(AdaptiveLimiterRegistry, registry)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('adaptive') { Something something ->
+          something.adaptivePromise().then {
+            render it
+          }
+        }
+        get('adaptive-flow') { Something something ->
+          render something.adaptiveFlow().blockingFirst()
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def flow = get('adaptive-flow')
+
+    then:
+    flow.body.text == "adaptive flow"
+    registry.limiter("test").minLatencyMicros == -1
+
+    when:
+    def actual = get('adaptive')
+
+    then:
+    actual.body.text == "adaptive"
+    registry.limiter("test").inFlight == 0
+    registry.limiter("test").minLatencyMicros >= 0
+  }
+
+  def "test serve the last good value from a fallback cache via annotation"() {
+    given:
+    FallbackCacheRegistry fallbackCaches = FallbackCacheRegistry.ofDefaults()
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, CircuitBreakerRegistry.of(buildConfig()))
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bindInstance(FallbackCacheRegistry, fallbackCaches)
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('cached/:id/:fail') { Something something ->
+          Something.cachedFailing.set(pathTokens.fail == "true")
+          something.cachedPromise(pathTokens.id).then {
+            render it
+          }
+        }
+        get('cachedLength/:id') { Something something ->
+          Something.cachedFailing.set(true)
+          something.cachedLength(pathTokens.id).then {
+            render it.toString()
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def good = get('cached/a/false').body.text
+    def stale = get('cached/a/true').body.text
+    def missing = get('cached/b/true')
+    def otherMethod = get('cachedLength/a')
+
+    then:
+    good == "a at 1"
+    stale == "a at 1"
+    missing.statusCode == 500
+    otherMethod.statusCode == 500
+    fallbackCaches.cache("users").size() == 1
+  }
+
+  def "test batch concurrent invocations of a method via annotation"() {
+    given:
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(buildConfig())
+    UsersLoader.batches.clear()
+    app = ratpack {
+      bindings {
+        bindInstance(CircuitBreakerRegistry, registry)
+        bindInstance(RateLimiterRegistry, RateLimiterRegistry.of(RateLimiterConfig.ofDefaults()))
+        bind(Something)
+        module(ResilienceModule)
+      }
+      handlers {
+        get('batched') { Something something ->
+          ParallelBatch.of(["a", "b", "c"].collect { something.batchedUser(it) }).yield().then {
+            render it.join(",")
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def actual = get('batched')
+
+    then:
+    actual.body.text == "user a,user b,user c"
+    UsersLoader.batches.size() == 1
+    UsersLoader.batches.peek().sort(false) == ["a", "b", "c"]
+    registry.circuitBreaker("users").metrics.numberOfBufferedCalls == 1
+  }
+
+  def "test registries bound by the application replace the defaults in a plain Guice injector"() {
+    given:
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(buildConfig())
+    Module server = { it.bind(ServerConfig).toInstance(ServerConfig.embedded().build()) } as Module
+
+    when:
+    Injector optional = Guice.createInjector(new ResilienceModule(), server, {
+      OptionalBinder.newOptionalBinder(it, CircuitBreakerRegistry).setBinding().toInstance(registry)
+    } as Module)
+    Injector overridden = Guice.createInjector(Modules.override(new ResilienceModule()).with({
+      it.bind(CircuitBreakerRegistry).toInstance(registry)
+    } as Module), server)
+
+    then:
+    optional.getInstance(CircuitBreakerRegistry).is(registry)
+    optional.getInstance(RateLimiterRegistry) instanceof ReloadableRateLimiterRegistry
+    overridden.getInstance(CircuitBreakerRegistry).is(registry)
+  }
+
   def buildConfig() {
     CircuitBreakerConfig.custom()
       .failureRateThreshold(50)
@@ -140,6 +780,58 @@ class ResilienceModuleSpec extends Specification {
 
   static class Something {
 
+    static final AtomicInteger resilientCalls = new AtomicInteger()
+    static final AtomicInteger cachedCalls = new AtomicInteger()
+    static final AtomicBoolean cachedFailing = new AtomicBoolean()
+
+    @Batch(loader = UsersLoader, maxDelay = 50L, circuitBreaker = "users")
+    Promise<String> batchedUser(String id) {
+      Promise.value(null)
+    }
+
+    @CircuitBreak(name = "cached", fallbackCache = "users")
+    Promise<String> cachedPromise(String id) {
+      Promise.async {
+        int call = cachedCalls.incrementAndGet()
+        cachedFailing.get() ? it.error(new Exception("cached promise bad")) : it.success(id + " at " + call)
+      }
+    }
+
+    @CircuitBreak(name = "cached", fallbackCache = "users")
+    Promise<Integer> cachedLength(String id) {
+      Promise.async {
+        cachedFailing.get() ? it.error(new Exception("cached length bad")) : it.success(id.length())
+      }
+    }
+
+    @AdaptiveLimit(name = "test")
+    Flowable<String> adaptiveFlow() {
+      Flowable.just("adaptive flow")
+    }
+
+    @AdaptiveLimit(name = "test")
+    Promise<String> adaptivePromise() {
+      Promise.value("adaptive")
+    }
+
+    @Resilient(circuitBreaker = "test", rateLimiter = "test", retryAttempts = 3, retryWait = 10L, timeout = 1000L, recovery = MyRecoveryFunction)
+    Promise<String> resilientPromise() {
+      Promise.async {
+        resilientCalls.incrementAndGet()
+        it.error(new Exception("resilient promise bad"))
+      }
+    }
+
+    @RateLimit(name = "keyed", key = FirstArgumentKeyFunction)
+    Promise<String> rateLimiterKeyed(String tenant) {
+      Promise.value("keyed " + tenant)
+    }
+
+    @RateLimit(name = "keyed", key = TenantHeaderKeyFunction)
+    Promise<String> rateLimiterKeyedByContext() {
+      Promise.value("keyed by context")
+    }
+
     @CircuitBreak(name = "test")
     Promise<String> breakerPromise() {
       Promise.async {
@@ -154,6 +846,13 @@ class ResilienceModuleSpec extends Specification {
       }
     }
 
+    @CircuitBreak(name = "window", slidingWindow = SlidingWindowType.TIME_BASED, recovery = MyRecoveryFunction)
+    Promise<String> breakerWindow() {
+      Promise.async {
+        it.error(new Exception("window promise bad"))
+      }
+    }
+
     @CircuitBreak(name = "test", recovery = MyRecoveryFunction)
     Promise<String> breakerPromiseRecovery() {
       Promise.async {
@@ -161,6 +860,57 @@ class ResilienceModuleSpec extends Specification {
       }
     }
 
+    @CircuitBreak(name = "counting", recovery = CountingRecoveryFunction)
+    Promise<String> breakerPromiseCounting() {
+      Promise.async {
+        it.error(new Exception("breaker promise bad"))
+      }
+    }
+
+    @Bulkhead(name = "test")
+    Promise<String> bulkheadPromise() {
+      Promise.value("bulkhead promise")
+    }
+
+    @Bulkhead(name = "test", recovery = MyRecoveryFunction)
+    String bulkheadNormal() {
+      "bulkhead normal"
+    }
+
+    @RateLimit(name = "test")
+    CompletionStage<String> rateLimiterStage() {
+      CompletableFuture.completedFuture(Execution.current().get(Request).path)
+    }
+
+    @Bulkhead(name = "test")
+    CompletionStage<String> bulkheadStage() {
+      CompletableFuture.completedFuture(Execution.current().get(Request).path)
+    }
+
+    @CircuitBreak(name = "test")
+    @ThreadPoolBulkhead(name = "db")
+    Promise<String> threadPoolPromise() {
+      Promise.value(Thread.currentThread().name)
+    }
+
+    @ThreadPoolBulkhead(name = "db")
+    Promise<String> threadPoolBlockingPromise() {
+      Blocking.get { Thread.currentThread().name }
+    }
+
+    @ShedLoad(priority = Priority.LOW, recovery = MyRecoveryFunction)
+    Promise<String> lowPriorityPromise() {
+      Promise.value("low priority")
+    }
+
+    static AtomicInteger stageCalls = new AtomicInteger()
+
+    @CircuitBreak(name = "stage", recovery = MyRecoveryFunction)
+    CompletionStage<String> breakerStageCounting() {
+      stageCalls.incrementAndGet()
+      CompletableFuture.supplyAsync { Thread.sleep(10); 'counted' }
+    }
+
     @CircuitBreak(name = "test")
     CompletionStage<String> breakerStage() {
       CompletableFuture.supplyAsync { 'breaker stage' }
@@ -207,6 +957,43 @@ class ResilienceModuleSpec extends Specification {
     }
   }
 
+  static class UsersLoader implements BatchLoader<String, String> {
+    static final Queue<List<String>> batches = new ConcurrentLinkedQueue<>()
+
+    @Override
+    Promise<Map<String, String>> load(List<String> keys) throws Exception {
+      batches.add(keys)
+      Promise.value(keys.collectEntries { [(it): "user " + it] })
+    }
+  }
+
+  static class FirstArgumentKeyFunction implements KeyFunction {
+    @Override
+    Object apply(Object[] arguments) throws Exception {
+      arguments[0]
+    }
+  }
+
+  static class TenantHeaderKeyFunction extends ContextKeyFunction {
+    @Override
+    protected Object apply(Context context) throws Exception {
+      context.request.headers.get("X-Tenant")
+    }
+  }
+
+  static class CountingRecoveryFunction implements RecoveryFunction<String> {
+    static final AtomicInteger instances = new AtomicInteger()
+
+    CountingRecoveryFunction() {
+      instances.incrementAndGet()
+    }
+
+    @Override
+    String apply(Throwable t) throws Exception {
+      "counted"
+    }
+  }
+
   static class MyRecoveryFunction implements RecoveryFunction<String> {
     @Override
     String apply(Throwable t) throws Exception {
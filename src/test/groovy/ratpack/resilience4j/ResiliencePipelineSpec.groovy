@@ -0,0 +1,181 @@
+package ratpack.resilience4j
+
+import io.github.robwin.circuitbreaker.CircuitBreaker
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException
+import io.github.robwin.ratelimiter.RateLimiter
+import io.github.robwin.ratelimiter.RateLimiterConfig
+import io.github.robwin.retry.RetryConfig
+import ratpack.exec.Downstream
+import ratpack.exec.Execution
+import ratpack.exec.Promise
+import ratpack.exec.Upstream
+import ratpack.resilience4j.bulkhead.Bulkhead
+import ratpack.resilience4j.bulkhead.BulkheadConfig
+import ratpack.resilience4j.bulkhead.BulkheadFullException
+import ratpack.resilience4j.metrics.ResilienceMetrics
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicInteger
+
+class ResiliencePipelineSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness()
+
+  def "passes values through all policies"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.ofDefaults("test")
+    Bulkhead bulkhead = Bulkhead.ofDefaults("test")
+    ResiliencePipeline<String> pipeline = ResiliencePipeline.<String>of()
+      .retry(RetryConfig.ofDefaults())
+      .circuitBreaker(breaker)
+      .rateLimiter(RateLimiter.of("test", RateLimiterConfig.custom().limitForPeriod(10).limitRefreshPeriod(Duration.ofSeconds(1)).timeoutDuration(Duration.ZERO).build()))
+      .bulkhead(bulkhead)
+      .timeout(Duration.ofSeconds(1))
+
+    when:
+    def r = harness.yield { Promise.value("foo").transform(pipeline) }
+
+    then:
+    r.value == "foo"
+    breaker.metrics.numberOfSuccessfulCalls == 1
+    bulkhead.availableConcurrentCalls == bulkhead.bulkheadConfig.maxConcurrentCalls
+  }
+
+  def "retries failed attempts and recovers once after the last attempt"() {
+    given:
+    AtomicInteger calls = new AtomicInteger()
+    AtomicInteger recoveries = new AtomicInteger()
+    CircuitBreaker breaker = CircuitBreaker.ofDefaults("test")
+    ResiliencePipeline<String> pipeline = ResiliencePipeline.<String>of()
+      .retry(RetryConfig.custom().maxAttempts(3).waitDuration(Duration.ofMillis(10)).build())
+      .circuitBreaker(breaker)
+      .recover { t -> recoveries.incrementAndGet(); "recovered" }
+
+    when:
+    def r = harness.yield {
+      Promise.<String>async { it.error(new Exception("failed " + calls.incrementAndGet())) }.transform(pipeline)
+    }
+
+    then:
+    r.value == "recovered"
+    calls.get() == 3
+    recoveries.get() == 1
+    breaker.metrics.numberOfFailedCalls == 3
+  }
+
+  def "times out attempts as circuit breaker failures and rejects once open"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+      .failureRateThreshold(50)
+      .ringBufferSizeInClosedState(2)
+      .waitDurationInOpenState(Duration.ofSeconds(10))
+      .build())
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).build())
+    ResiliencePipeline<String> pipeline = ResiliencePipeline.<String>of()
+      .circuitBreaker(breaker)
+      .bulkhead(bulkhead)
+      .timeout(Duration.ofMillis(50))
+    Promise<String> slow = Promise.async { down ->
+      Execution.current().eventLoop.schedule({ down.success("slow") }, 100, TimeUnit.MILLISECONDS)
+    }
+
+    when:
+    def first = harness.yield { slow.transform(pipeline) }
+    Thread.sleep(100)
+    def second = harness.yield { slow.transform(pipeline) }
+    def third = harness.yield { Promise.value("fast").transform(pipeline) }
+
+    then:
+    first.throwable instanceof TimeoutException
+    second.throwable instanceof TimeoutException
+    third.throwable instanceof CircuitBreakerOpenException
+    breaker.state == CircuitBreaker.State.OPEN
+  }
+
+  def "does not record bulkhead rejections as circuit breaker failures"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+      .failureRateThreshold(50)
+      .ringBufferSizeInClosedState(2)
+      .build())
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).build())
+    ResilienceMetrics metrics = new ResilienceMetrics()
+    ResiliencePipeline<String> pipeline = ResiliencePipeline.<String>of()
+      .metrics(metrics)
+      .circuitBreaker(breaker)
+      .bulkhead(bulkhead)
+    bulkhead.tryAcquire()
+
+    when:
+    def rejected = (1..3).collect { harness.yield { Promise.value("foo").transform(pipeline) } }
+    bulkhead.release()
+    def permitted = harness.yield { Promise.value("foo").transform(pipeline) }
+
+    then:
+    rejected.every { it.throwable instanceof BulkheadFullException }
+    permitted.value == "foo"
+    breaker.state == CircuitBreaker.State.CLOSED
+    breaker.metrics.numberOfFailedCalls == 0
+    metrics.circuitBreaker("test").successfulCalls == 1
+    metrics.circuitBreaker("test").failedCalls == 0
+  }
+
+  def "grows the wait between attempts with the backoff"() {
+    given:
+    List<Long> starts = []
+    ResiliencePipeline<String> pipeline = ResiliencePipeline.<String>of()
+      .retry(RetryConfig.custom().maxAttempts(3).waitDuration(Duration.ofMillis(20)).build())
+      .backoff(5, Duration.ofSeconds(1))
+
+    when:
+    def r = harness.yield {
+      Promise.<String>async { down ->
+        starts << System.nanoTime()
+        down.error(new Exception("failed"))
+      }.transform(pipeline)
+    }
+
+    then:
+    r.error
+    starts.size() == 3
+    TimeUnit.NANOSECONDS.toMillis(starts[1] - starts[0]) >= 20
+    TimeUnit.NANOSECONDS.toMillis(starts[2] - starts[1]) >= 100
+  }
+
+  def "returns the bulkhead permit once and signals once when the upstream throws after it signalled"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(2).build())
+    ResiliencePipeline<String> pipeline = ResiliencePipeline.<String>of().bulkhead(bulkhead)
+    if (timed) {
+      pipeline.timeout(Duration.ofSeconds(1))
+    }
+    Upstream<String> upstream = { down ->
+      down.success("foo")
+      throw new IllegalStateException("late")
+    }
+    List<Object> signals = []
+    Downstream<String> down = [
+      success : { signals << it },
+      error   : { signals << it },
+      complete: { signals << "complete" }
+    ] as Downstream<String>
+
+    when:
+    harness.run { pipeline.apply(upstream).connect(down) }
+
+    then:
+    signals == ["foo"]
+    bulkhead.availableConcurrentCalls == 2
+
+    where:
+    timed << [false, true]
+  }
+
+}
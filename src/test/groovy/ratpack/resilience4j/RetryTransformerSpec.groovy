@@ -3,6 +3,9 @@ package ratpack.resilience4j
 import io.github.robwin.retry.Retry
 import io.github.robwin.retry.RetryConfig
 import ratpack.exec.Blocking
+import ratpack.exec.Promise
+import ratpack.resilience4j.budget.RetryBudget
+import ratpack.resilience4j.budget.RetryBudgetConfig
 import ratpack.test.exec.ExecHarness
 import spock.lang.Specification
 
@@ -51,6 +54,161 @@ class RetryTransformerSpec extends Specification {
     times.get() == 3
   }
 
+  def "can retry promise with exponential backoff on the event loop then recover"() {
+    given:
+    RetryConfig config = RetryConfig.custom()
+      .maxAttempts(4)
+      .waitDuration(Duration.ofMillis(50))
+      .build()
+    RetryTransformer<String> transformer = RetryTransformer.<String>of("test", config)
+      .backoff(2, Duration.ofMillis(150))
+      .jitter(0.1)
+      .recover { t -> "bar" }
+    AtomicInteger times = new AtomicInteger(0)
+
+    when:
+    long start = System.nanoTime()
+    def r = ExecHarness.yieldSingle {
+      Promise.<String>sync { times.getAndIncrement() ; throw new Exception("puke") }
+        .transform(transformer)
+    }
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start)
+
+    then:
+    r.value == "bar"
+    !r.error
+    times.get() == 4
+    elapsed >= Duration.ofMillis(45 + 90 + 135)
+  }
+
+  def "can retry promise on the event loop through the extension method"() {
+    given:
+    RetryConfig config = RetryConfig.custom()
+      .maxAttempts(3)
+      .waitDuration(Duration.ofMillis(10))
+      .build()
+    AtomicInteger times = new AtomicInteger(0)
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      Promise.<String>sync { times.getAndIncrement() ; throw new Exception("puke") }
+        .retryRecover("test", config) { t -> "bar" }
+    }
+
+    then:
+    r.value == "bar"
+    times.get() == 3
+  }
+
+  def "does not retry errors with a retry"() {
+    given:
+    RetryTransformer<String> transformer = RetryTransformer.of(buildRetry())
+    Error e = new AssertionError("puke")
+    AtomicInteger times = new AtomicInteger(0)
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      Promise.<String>sync { times.getAndIncrement() ; throw e }
+        .transform(transformer)
+    }
+
+    then:
+    r.throwable == e
+    times.get() == 1
+  }
+
+  def "does not retry exceptions rejected by the retry config"() {
+    given:
+    RetryConfig config = RetryConfig.custom()
+      .maxAttempts(3)
+      .retryOnException { t -> !(t instanceof IllegalArgumentException) }
+      .build()
+    RetryTransformer<String> transformer = RetryTransformer.of("test", config)
+    Exception e = new IllegalArgumentException("puke")
+    AtomicInteger times = new AtomicInteger(0)
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      Promise.<String>sync { times.getAndIncrement() ; throw e }
+        .transform(transformer)
+    }
+
+    then:
+    r.error
+    r.throwable == e
+    times.get() == 1
+  }
+
+  def "stops retrying once the shared retry budget is spent"() {
+    given:
+    RetryBudget budget = RetryBudget.of("test", RetryBudgetConfig.custom()
+      .retryRatio(0.5)
+      .minRetriesPerSecond(0)
+      .build())
+    RetryConfig config = RetryConfig.custom().maxAttempts(3).waitDuration(Duration.ofMillis(1)).build()
+    AtomicInteger times = new AtomicInteger(0)
+    def failing = {
+      ExecHarness.yieldSingle {
+        Promise.<String>async { times.getAndIncrement(); it.error(new Exception("puke")) }
+          .transform(RetryTransformer.<String>of("test", config).budget(budget))
+      }
+    }
+
+    when:
+    def unbudgeted = failing()
+
+    then:
+    unbudgeted.error
+    times.get() == 1
+
+    when:
+    4.times { ExecHarness.yieldSingle { Promise.value("ok").transform(RetryTransformer.<String>of("test", config).budget(budget)) } }
+    times.set(0)
+    def budgeted = failing()
+
+    then:
+    budgeted.error
+    times.get() == 3
+    budget.balance == 0
+  }
+
+  def "does not wait for a retry the budget refuses"() {
+    given:
+    RetryBudget budget = RetryBudget.of("test", RetryBudgetConfig.custom()
+      .retryRatio(0)
+      .minRetriesPerSecond(0)
+      .build())
+    AtomicInteger times = new AtomicInteger(0)
+
+    when:
+    long start = System.nanoTime()
+    def r = ExecHarness.yieldSingle {
+      Blocking.<String>get { times.getAndIncrement(); throw new Exception("puke") }
+        .transform(RetryTransformer.<String>of(buildRetry()).budget(budget))
+    }
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start)
+
+    then:
+    r.error
+    times.get() == 1
+    elapsed < Duration.ofMillis(500)
+  }
+
+  def "allows the minimum retries per second without any deposits, spread over the window"() {
+    given:
+    RetryBudget budget = RetryBudget.of("test", RetryBudgetConfig.custom()
+      .retryRatio(0)
+      .minRetriesPerSecond(2)
+      .timeToLive(Duration.ofSeconds(4))
+      .build())
+
+    expect:
+    budget.balance == 2
+    budget.tryWithdraw()
+    budget.tryWithdraw()
+    !budget.tryWithdraw()
+  }
+
   def buildRetry() {
     RetryConfig config = RetryConfig.custom()
       .maxAttempts(3)
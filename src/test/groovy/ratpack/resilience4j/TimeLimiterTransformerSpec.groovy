@@ -0,0 +1,84 @@
+package ratpack.resilience4j
+
+import io.github.robwin.circuitbreaker.CircuitBreaker
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import ratpack.exec.Execution
+import ratpack.exec.Promise
+import ratpack.test.exec.ExecHarness
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class TimeLimiterTransformerSpec extends Specification {
+
+  def "can complete promise within time limit"() {
+    given:
+    TimeLimiterTransformer<String> transformer = TimeLimiterTransformer.of(Duration.ofSeconds(1))
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      delayed("foo", 10).transform(transformer)
+    }
+
+    then:
+    r.value == "foo"
+    !r.error
+  }
+
+  def "can time out slow promise"() {
+    given:
+    TimeLimiterTransformer<String> transformer = TimeLimiterTransformer.of(Duration.ofMillis(50))
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      delayed("foo", 500).transform(transformer)
+    }
+
+    then:
+    r.error
+    r.throwable instanceof TimeoutException
+  }
+
+  def "can time out slow promise with recovery"() {
+    given:
+    TimeLimiterTransformer<String> transformer = TimeLimiterTransformer.of(Duration.ofMillis(50)).recover { t -> "bar" }
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      delayed("foo", 500).transform(transformer)
+    }
+
+    then:
+    r.value == "bar"
+    !r.error
+  }
+
+  def "can report timeouts to an enclosing circuit breaker"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+      .failureRateThreshold(50)
+      .ringBufferSizeInClosedState(2)
+      .build())
+    TimeLimiterTransformer<String> timeLimiter = TimeLimiterTransformer.of(Duration.ofMillis(50))
+    CircuitBreakerTransformer<String> circuitBreaker = CircuitBreakerTransformer.of(breaker)
+
+    when:
+    2.times {
+      ExecHarness.yieldSingle {
+        delayed("foo", 500).transform(timeLimiter).transform(circuitBreaker)
+      }
+    }
+
+    then:
+    breaker.state == CircuitBreaker.State.OPEN
+  }
+
+  static Promise<String> delayed(String value, long millis) {
+    Promise.async { down ->
+      Execution.current().eventLoop.schedule({ down.success(value) }, millis, TimeUnit.MILLISECONDS)
+    }
+  }
+
+}
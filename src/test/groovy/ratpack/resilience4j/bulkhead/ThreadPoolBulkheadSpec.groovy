@@ -0,0 +1,54 @@
+package ratpack.resilience4j.bulkhead
+
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ThreadPoolBulkheadSpec extends Specification {
+
+  @AutoCleanup
+  ThreadPoolBulkhead bulkhead = ThreadPoolBulkhead.of("test", ThreadPoolBulkheadConfig.custom()
+    .maxThreads(1)
+    .queueCapacity(1)
+    .build())
+
+  def "runs blocking work on the dedicated pool"() {
+    when:
+    def r = ExecHarness.yieldSingle {
+      bulkhead.get { Thread.currentThread().name }
+    }
+
+    then:
+    r.value == "ratpack-bulkhead-test-1"
+  }
+
+  def "queues work up to the capacity and rejects the rest"() {
+    given:
+    CountDownLatch started = new CountDownLatch(1)
+    CountDownLatch latch = new CountDownLatch(1)
+    def running = bulkhead.submit { started.countDown(); latch.await(); "running" }
+    started.await(1, TimeUnit.SECONDS)
+    def queued = bulkhead.submit { "queued" }
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      bulkhead.get { "rejected" }
+    }
+
+    then:
+    r.throwable instanceof BulkheadFullException
+    bulkhead.activeThreads == 1
+    bulkhead.queueDepth == 1
+
+    when:
+    latch.countDown()
+
+    then:
+    running.get(1, TimeUnit.SECONDS) == "running"
+    queued.get(1, TimeUnit.SECONDS) == "queued"
+  }
+
+}
@@ -0,0 +1,229 @@
+package ratpack.resilience4j.config
+
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry
+import io.github.robwin.ratelimiter.RateLimiterRegistry
+import ratpack.config.ConfigData
+import ratpack.exec.Promise
+import ratpack.resilience4j.Batch
+import ratpack.resilience4j.RecoveryFunction
+import ratpack.resilience4j.ResilienceModule
+import ratpack.resilience4j.Resilient
+import ratpack.resilience4j.batch.BatchLoader
+import ratpack.resilience4j.bulkhead.BulkheadRegistry
+import ratpack.resilience4j.keyed.KeyedBulkheadRegistry
+import ratpack.resilience4j.keyed.KeyedCircuitBreakerRegistry
+import ratpack.test.embed.EmbeddedApp
+import ratpack.test.http.TestHttpClient
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+
+import static ratpack.groovy.test.embed.GroovyEmbeddedApp.ratpack
+
+class ResilienceConfigSpec extends Specification {
+
+  @AutoCleanup
+  EmbeddedApp app
+
+  @Delegate
+  TestHttpClient client
+
+  def "creates configured instances at startup"() {
+    given:
+    ResilienceModule.ResilienceConfig config = ConfigData.of { it.props([
+      "resilience.circuitBreakers.payments.failureRateThreshold": "25",
+      "resilience.circuitBreakers.payments.waitDurationInOpenState": "PT10S",
+      "resilience.rateLimiters.search.limitForPeriod": "7",
+      "resilience.retries.inventory.maxAttempts": "4",
+      "resilience.bulkheads.reports.maxConcurrentCalls": "3"
+    ]) }.get("/resilience", ResilienceModule.ResilienceConfig)
+    app = ratpack {
+      bindings {
+        moduleConfig(ResilienceModule, config)
+      }
+      handlers {
+        get { CircuitBreakerRegistry breakers, RateLimiterRegistry limiters, RetryConfigRegistry retries, BulkheadRegistry bulkheads ->
+          render([
+            breakers.allCircuitBreakers.map { it.name }.toJavaList(),
+            limiters.allRateLimiters.map { it.name }.toJavaList(),
+            breakers.circuitBreaker("payments").circuitBreakerConfig.failureRateThreshold,
+            breakers.circuitBreaker("payments").circuitBreakerConfig.waitDurationInOpenState,
+            limiters.rateLimiter("search").rateLimiterConfig.limitForPeriod,
+            retries.retryConfig("inventory").maxAttempts,
+            bulkheads.getAllBulkheads()*.name,
+            bulkheads.bulkhead("reports").availableConcurrentCalls
+          ].join(" "))
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    expect:
+    text == "[payments] [search] 25.0 PT10S 7 4 [reports] 3"
+  }
+
+  def "reloads definitions without restarting"() {
+    given:
+    AtomicReference<ResilienceModule.ResilienceConfig> source = new AtomicReference<>(definitions(2, 2))
+    Something.calls.set(0)
+    app = ratpack {
+      bindings {
+        module(ResilienceModule) {
+          it.retry("flaky", retry(2)).bulkhead("flaky", bulkhead(2)).reloadFrom(Duration.ofMillis(20)) { source.get() }
+        }
+        bind(Something)
+      }
+      handlers {
+        get { Something something ->
+          something.flaky().then {
+            render it
+          }
+        }
+        get('bulkhead') { BulkheadRegistry bulkheads ->
+          render bulkheads.bulkhead("flaky").availableConcurrentCalls.toString()
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    get()
+
+    then:
+    Something.calls.get() == 2
+    getText('bulkhead') == "2"
+
+    when:
+    source.set(definitions(3, 5))
+    sleep 200
+    Something.calls.set(0)
+    get()
+
+    then:
+    Something.calls.get() == 3
+    getText('bulkhead') == "5"
+  }
+
+  def "batches use the circuit breaker of the latest config"() {
+    given:
+    AtomicReference<ResilienceModule.ResilienceConfig> source = new AtomicReference<>(new ResilienceModule.ResilienceConfig().circuitBreaker("users", breaker(50)))
+    app = ratpack {
+      bindings {
+        module(ResilienceModule) {
+          it.circuitBreaker("users", breaker(50)).reloadFrom(Duration.ofMillis(20)) { source.get() }
+        }
+        bind(Something)
+      }
+      handlers {
+        get { Something something, CircuitBreakerRegistry breakers ->
+          something.user("a").then {
+            render "$it ${breakers.circuitBreaker("users").metrics.numberOfBufferedCalls}"
+          }
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def before = text
+    source.set(new ResilienceModule.ResilienceConfig().circuitBreaker("users", breaker(25)))
+    sleep 200
+    def after = getText()
+
+    then:
+    before == "user a 1"
+    after == "user a 1"
+  }
+
+  def "keyed instances take the config of the latest reload"() {
+    given:
+    AtomicReference<ResilienceModule.ResilienceConfig> source = new AtomicReference<>(definitions(2, 2).circuitBreaker("users", breaker(50)))
+    app = ratpack {
+      bindings {
+        module(ResilienceModule) {
+          it.circuitBreaker("users", breaker(50)).bulkhead("flaky", bulkhead(2)).reloadFrom(Duration.ofMillis(20)) { source.get() }
+        }
+        bind(KeyedCircuitBreakerRegistry)
+        bind(KeyedBulkheadRegistry)
+      }
+      handlers {
+        get { KeyedCircuitBreakerRegistry breakers, KeyedBulkheadRegistry bulkheads ->
+          def bulkhead = bulkheads.bulkhead("flaky", "a")
+          render "${breakers.circuitBreaker("users", "a").circuitBreakerConfig.failureRateThreshold} ${bulkhead.availableConcurrentCalls}"
+        }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def before = text
+    source.set(definitions(2, 5).circuitBreaker("users", breaker(25)))
+    sleep 200
+    def after = getText()
+
+    then:
+    before == "50.0 2"
+    after == "25.0 5"
+  }
+
+  private static CircuitBreakerDefinition breaker(float failureRateThreshold) {
+    CircuitBreakerDefinition breaker = new CircuitBreakerDefinition()
+    breaker.failureRateThreshold = failureRateThreshold
+    breaker
+  }
+
+  private static ResilienceModule.ResilienceConfig definitions(int maxAttempts, int maxConcurrentCalls) {
+    new ResilienceModule.ResilienceConfig()
+      .retry("flaky", retry(maxAttempts))
+      .bulkhead("flaky", bulkhead(maxConcurrentCalls))
+  }
+
+  private static BulkheadDefinition bulkhead(int maxConcurrentCalls) {
+    BulkheadDefinition bulkhead = new BulkheadDefinition()
+    bulkhead.maxConcurrentCalls = maxConcurrentCalls
+    bulkhead
+  }
+
+  private static RetryDefinition retry(int maxAttempts) {
+    RetryDefinition retry = new RetryDefinition()
+    retry.maxAttempts = maxAttempts
+    retry.waitDuration = Duration.ofMillis(10)
+    retry
+  }
+
+  static class Something {
+
+    static final AtomicInteger calls = new AtomicInteger()
+
+    @Batch(loader = UsersLoader, circuitBreaker = "users")
+    Promise<String> user(String id) {
+      Promise.value(null)
+    }
+
+    @Resilient(retry = "flaky", bulkhead = "flaky", recovery = Recovery)
+    Promise<String> flaky() {
+      Promise.async {
+        calls.incrementAndGet()
+        it.error(new Exception("flaky"))
+      }
+    }
+  }
+
+  static class UsersLoader implements BatchLoader<String, String> {
+    @Override
+    Promise<Map<String, String>> load(List<String> keys) throws Exception {
+      Promise.value(keys.collectEntries { [(it): "user " + it] })
+    }
+  }
+
+  static class Recovery implements RecoveryFunction<String> {
+    @Override
+    String apply(Throwable t) throws Exception {
+      "recovered"
+    }
+  }
+
+}
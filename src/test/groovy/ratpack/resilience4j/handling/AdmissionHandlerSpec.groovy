@@ -0,0 +1,174 @@
+package ratpack.resilience4j.handling
+
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry
+import io.github.robwin.ratelimiter.RateLimiter
+import io.github.robwin.ratelimiter.RateLimiterConfig
+import io.github.robwin.ratelimiter.RateLimiterRegistry
+import ratpack.exec.Promise
+import ratpack.resilience4j.bulkhead.Bulkhead
+import ratpack.resilience4j.bulkhead.BulkheadConfig
+import ratpack.resilience4j.keyed.KeyedCacheConfig
+import ratpack.resilience4j.keyed.KeyedRateLimiterRegistry
+import ratpack.resilience4j.shed.LoadShedder
+import ratpack.resilience4j.shed.LoadShedderConfig
+import ratpack.resilience4j.shed.Priority
+import ratpack.test.embed.EmbeddedApp
+import ratpack.test.http.TestHttpClient
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+
+import static ratpack.groovy.test.embed.GroovyEmbeddedApp.ratpack
+
+class AdmissionHandlerSpec extends Specification {
+
+  @AutoCleanup
+  EmbeddedApp app
+
+  @Delegate
+  TestHttpClient client
+
+  def "rejects requests over the rate limit with 429 per header key"() {
+    given:
+    RateLimiterRegistry registry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofSeconds(5))
+      .limitForPeriod(1)
+      .timeoutDuration(Duration.ZERO)
+      .build())
+    KeyedRateLimiterRegistry keyed = KeyedRateLimiterRegistry.of(registry, KeyedCacheConfig.ofDefaults())
+    app = ratpack {
+      handlers {
+        all(RateLimitHandler.of(keyed, "api", RequestKeys.header("X-Tenant")))
+        get { render "ok" }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    requestSpec { it.headers.set("X-Tenant", "a") }
+    def first = get()
+    def second = get()
+    requestSpec { it.headers.set("X-Tenant", "b") }
+    def other = get()
+
+    then:
+    first.body.text == "ok"
+    second.statusCode == 429
+    second.headers.get("Retry-After") == "5"
+    other.body.text == "ok"
+  }
+
+  def "rate limits requests without the header under the default key"() {
+    given:
+    RateLimiterRegistry registry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofSeconds(5))
+      .limitForPeriod(1)
+      .timeoutDuration(Duration.ZERO)
+      .build())
+    KeyedRateLimiterRegistry keyed = KeyedRateLimiterRegistry.of(registry, KeyedCacheConfig.ofDefaults())
+    app = ratpack {
+      handlers {
+        all(RateLimitHandler.of(keyed, "api", RequestKeys.header("X-Tenant", "anonymous")))
+        get { render "ok" }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def first = get()
+    def second = get()
+    requestSpec { it.headers.set("X-Tenant", "anonymous") }
+    def named = get()
+
+    then:
+    first.body.text == "ok"
+    second.statusCode == 429
+    named.statusCode == 429
+  }
+
+  def "admits requests through a single rate limiter"() {
+    given:
+    RateLimiter rateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofMillis(500))
+      .limitForPeriod(1)
+      .timeoutDuration(Duration.ZERO)
+      .build())
+    app = ratpack {
+      handlers {
+        all(RateLimitHandler.of(rateLimiter))
+        get { render "ok" }
+      }
+    }
+    client = testHttpClient(app)
+
+    expect:
+    get().body.text == "ok"
+    get().statusCode == 429
+    get().headers.get("Retry-After") == "1"
+  }
+
+  def "rejects requests with 503 while the bulkhead is full and releases on close"() {
+    given:
+    Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).build())
+    CountDownLatch entered = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    app = ratpack {
+      handlers {
+        all(BulkheadHandler.of(bulkhead).retryAfter(Duration.ofSeconds(2)))
+        get('slow') {
+          entered.countDown()
+          Promise.async { down -> Thread.start { release.await(); down.success("slow") } }.then { render it }
+        }
+        get('fast') { render "fast" }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    def slow = Thread.start { testHttpClient(app).get('slow') }
+    entered.await()
+    def rejected = get('fast')
+    release.countDown()
+    slow.join()
+
+    then:
+    rejected.statusCode == 503
+    rejected.headers.get("Retry-After") == "2"
+    get('fast').body.text == "fast"
+  }
+
+  def "sheds low priority requests with 503 while the server is overloaded"() {
+    given:
+    CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+      .ringBufferSizeInClosedState(1)
+      .build())
+    breakers.circuitBreaker("dependency").onError(Duration.ZERO, new Exception("bad"))
+    LoadShedder shedder = LoadShedder.of(LoadShedderConfig.custom()
+      .probeInterval(Duration.ofMillis(10))
+      .circuitBreakerRegistry(breakers)
+      .build())
+    app = ratpack {
+      handlers {
+        all(LoadSheddingHandler.of(shedder, { ctx -> ctx.request.path == "health" ? Priority.CRITICAL : Priority.LOW }))
+        get("health") { render "healthy" }
+        get { render "ok" }
+      }
+    }
+    client = testHttpClient(app)
+
+    when:
+    get()
+    Thread.sleep(100)
+    def shed = get()
+    def health = get("health")
+
+    then:
+    shed.statusCode == 503
+    shed.headers.get("Retry-After") == "1"
+    health.body.text == "healthy"
+  }
+
+}
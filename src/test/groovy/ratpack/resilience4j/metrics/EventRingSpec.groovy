@@ -0,0 +1,125 @@
+package ratpack.resilience4j.metrics
+
+import groovy.json.JsonSlurper
+import io.github.robwin.circuitbreaker.CircuitBreaker
+import ratpack.test.embed.EmbeddedApp
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+
+import static ratpack.groovy.test.embed.GroovyEmbeddedApp.ratpack
+
+class EventRingSpec extends Specification {
+
+  @AutoCleanup
+  EmbeddedApp app
+
+  def "keeps the most recent events"() {
+    given:
+    EventRing ring = new EventRing(ResilienceMetrics.CIRCUIT_BREAKER, "test", 3)
+
+    when:
+    (1..5).each { ring.record(ResilienceEvent.Kind.SUCCESS, it) }
+    ring.recordTransition(CircuitBreaker.State.CLOSED, CircuitBreaker.State.OPEN)
+
+    then:
+    ring.capacity == 4
+    ring.sequence == 6
+    ring.events*.sequence == [2L, 3L, 4L, 5L]
+    ring.events*.durationNanos == [3L, 4L, 5L, 0L]
+    ring.events.last().kind == ResilienceEvent.Kind.STATE_TRANSITION
+    ring.events.last().fromState == CircuitBreaker.State.CLOSED
+    ring.events.last().toState == CircuitBreaker.State.OPEN
+    ring.since(4)*.sequence == [4L, 5L]
+    ring.since(6).empty
+  }
+
+  def "cursor returns new events of all instances"() {
+    given:
+    ResilienceMetrics metrics = new ResilienceMetrics()
+    metrics.circuitBreaker("before").onSuccess(1)
+    EventCursor cursor = metrics.eventCursor()
+
+    when:
+    metrics.circuitBreaker("before").onError(2)
+    metrics.rateLimiter("after").onNotPermitted()
+
+    then:
+    cursor.poll()*.kind as Set == [ResilienceEvent.Kind.ERROR, ResilienceEvent.Kind.NOT_PERMITTED] as Set
+    cursor.poll().empty
+  }
+
+  def "never returns an event mixing the writes of two writers"() {
+    given:
+    EventRing ring = new EventRing(ResilienceMetrics.CIRCUIT_BREAKER, "test", 1)
+    List<ResilienceEvent.Kind> kinds = [ResilienceEvent.Kind.SUCCESS, ResilienceEvent.Kind.ERROR, ResilienceEvent.Kind.NOT_PERMITTED]
+    List<Thread> writers = (0..<8).collect { int w ->
+      Thread.start {
+        10000.times { int i ->
+          ResilienceEvent.Kind kind = kinds[(w + i) % 3]
+          ring.record(kind, kind.ordinal())
+        }
+      }
+    }
+    List<ResilienceEvent> read = []
+
+    when:
+    while (writers.any { it.alive }) {
+      read.addAll(ring.events)
+    }
+
+    then:
+    read.every { it.durationNanos == it.kind.ordinal() }
+  }
+
+  def "cursor resumes at the position of another cursor"() {
+    given:
+    ResilienceMetrics metrics = new ResilienceMetrics()
+    metrics.circuitBreaker("a, b:c").onSuccess(1)
+    EventCursor cursor = metrics.eventCursor()
+    metrics.circuitBreaker("a, b:c").onError(2)
+    metrics.rateLimiter("limiter").onNotPermitted()
+    cursor.poll()
+
+    when:
+    metrics.circuitBreaker("a, b:c").onSuccess(3)
+    EventCursor resumed = metrics.eventCursor(cursor.position)
+
+    then:
+    resumed.poll()*.durationNanos == [3L]
+  }
+
+  def "streams events as server-sent events"() {
+    given:
+    ResilienceMetrics metrics = new ResilienceMetrics()
+    app = ratpack {
+      bindings {
+        bindInstance(ResilienceMetrics, metrics)
+      }
+      handlers {
+        get('events', new ResilienceEventStreamHandler(Duration.ofMillis(20)))
+      }
+    }
+
+    when:
+    URLConnection connection = new URL(app.address.toString() + "events").openConnection()
+    connection.readTimeout = 5000
+    BufferedReader reader = new BufferedReader(new InputStreamReader(connection.inputStream))
+    metrics.circuitBreaker("test").onSuccess(1000)
+    List<String> lines = []
+    while (lines.find { it.startsWith("data:") } == null) {
+      lines << reader.readLine()
+    }
+    reader.close()
+
+    then:
+    connection.contentType.startsWith("text/event-stream")
+    lines.contains("event: resilience")
+    def events = new JsonSlurper().parseText(lines.find { it.startsWith("data:") }.substring(5).trim())
+    events*.name == ["test"]
+    events*.kind == ["SUCCESS"]
+    lines.contains("id: circuitbreaker/test:1")
+  }
+
+}
@@ -0,0 +1,19 @@
+package ratpack.resilience4j.metrics
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class LatencyHistogramSpec extends Specification {
+
+  def "interpolates percentiles within their bucket"() {
+    given:
+    LatencyHistogram histogram = new LatencyHistogram()
+    (1000..1999).each { histogram.record(TimeUnit.MICROSECONDS.toNanos(it)) }
+
+    expect:
+    Math.abs(histogram.getPercentileMicros(0.5) - 1500) < 150
+    Math.abs(histogram.getPercentileMicros(0.9) - 1900) < 150
+  }
+
+}
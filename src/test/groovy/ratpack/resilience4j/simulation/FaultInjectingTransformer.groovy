@@ -0,0 +1,125 @@
+package ratpack.resilience4j.simulation
+
+import ratpack.exec.Downstream
+import ratpack.exec.Upstream
+import ratpack.func.Factory
+import ratpack.func.Function
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A transformer that delays each call by a latency drawn from a {@link LatencyDistribution} on a
+ * {@link VirtualClock}, and then fails it, leaves it hanging forever, or lets it through to its upstream.
+ * <p>
+ * Faults are drawn in the order calls are subscribed to, from a random seeded with {@link #seed(long)}.
+ */
+class FaultInjectingTransformer<T> implements Function<Upstream<? extends T>, Upstream<T>> {
+
+  private final VirtualClock clock
+  private LatencyDistribution latency = LatencyDistribution.fixed(Duration.ZERO)
+  private double errorRate
+  private double hangRate
+  private Factory<? extends Throwable> error = { new InjectedFaultException() }
+  private Random random = new Random(0)
+  private final AtomicLong errorCount = new AtomicLong()
+  private final AtomicLong hangCount = new AtomicLong()
+
+  private FaultInjectingTransformer(VirtualClock clock) {
+    this.clock = clock
+  }
+
+  static <T> FaultInjectingTransformer<T> of(VirtualClock clock) {
+    new FaultInjectingTransformer<T>(clock)
+  }
+
+  FaultInjectingTransformer<T> latency(LatencyDistribution latency) {
+    this.latency = latency
+    this
+  }
+
+  /**
+   * @param errorRate the probability between 0 and 1 that a call fails once its latency has elapsed
+   */
+  FaultInjectingTransformer<T> errorRate(double errorRate) {
+    this.errorRate = errorRate
+    this
+  }
+
+  /**
+   * @param hangRate the probability between 0 and 1 that a call never completes
+   */
+  FaultInjectingTransformer<T> hangRate(double hangRate) {
+    this.hangRate = hangRate
+    this
+  }
+
+  FaultInjectingTransformer<T> error(Factory<? extends Throwable> error) {
+    this.error = error
+    this
+  }
+
+  FaultInjectingTransformer<T> seed(long seed) {
+    this.random = new Random(seed)
+    this
+  }
+
+  /**
+   * @return the number of calls failed so far
+   */
+  long getErrors() {
+    errorCount.get()
+  }
+
+  /**
+   * @return the number of calls left hanging so far
+   */
+  long getHangs() {
+    hangCount.get()
+  }
+
+  @Override
+  Upstream<T> apply(Upstream<? extends T> upstream) throws Exception {
+    return { Downstream<? super T> down ->
+      double fault
+      long delay
+      synchronized (this) {
+        fault = random.nextDouble()
+        delay = latency.sampleNanos(random)
+      }
+      if (fault < hangRate) {
+        hangCount.incrementAndGet()
+        return
+      }
+      boolean fail = fault < hangRate + errorRate
+      clock.sleep(Duration.ofNanos(delay)).connect(new Downstream<Void>() {
+        @Override
+        void success(Void value) {
+          if (fail) {
+            errorCount.incrementAndGet()
+            down.error(error.create())
+          } else {
+            upstream.connect(down)
+          }
+        }
+
+        @Override
+        void error(Throwable throwable) {
+          down.error(throwable)
+        }
+
+        @Override
+        void complete() {
+          down.complete()
+        }
+      })
+    } as Upstream<T>
+  }
+
+  static class InjectedFaultException extends RuntimeException {
+    InjectedFaultException() {
+      super("injected fault", null, false, false)
+    }
+  }
+
+}
@@ -0,0 +1,42 @@
+package ratpack.resilience4j.simulation
+
+import java.time.Duration
+
+/**
+ * A source of injected latencies. Samples are drawn from the given random, so seeded scenarios repeat exactly.
+ */
+abstract class LatencyDistribution {
+
+  /**
+   * @return the latency of the next call in nanoseconds
+   */
+  abstract long sampleNanos(Random random)
+
+  static LatencyDistribution fixed(Duration latency) {
+    return { Random random -> latency.toNanos() } as LatencyDistribution
+  }
+
+  static LatencyDistribution uniform(Duration min, Duration max) {
+    return { Random random -> min.toNanos() + (long) (random.nextDouble() * (max.toNanos() - min.toNanos())) } as LatencyDistribution
+  }
+
+  static LatencyDistribution exponential(Duration mean) {
+    return { Random random -> (long) (-Math.log(1 - random.nextDouble()) * mean.toNanos()) } as LatencyDistribution
+  }
+
+  /**
+   * Log-normal latencies with the given median, where sigma controls the length of the tail.
+   */
+  static LatencyDistribution logNormal(Duration median, double sigma) {
+    return { Random random -> (long) (median.toNanos() * Math.exp(sigma * random.nextGaussian())) } as LatencyDistribution
+  }
+
+  /**
+   * @return a distribution that draws from the given tail with the given probability, and from this one otherwise
+   */
+  LatencyDistribution withTail(double probability, LatencyDistribution tail) {
+    LatencyDistribution body = this
+    return { Random random -> random.nextDouble() < probability ? tail.sampleNanos(random) : body.sampleNanos(random) } as LatencyDistribution
+  }
+
+}
@@ -0,0 +1,187 @@
+package ratpack.resilience4j.simulation
+
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException
+import io.github.robwin.ratelimiter.RequestNotPermitted
+import ratpack.exec.Execution
+import ratpack.exec.Promise
+import ratpack.exec.Upstream
+import ratpack.func.Factory
+import ratpack.func.Function
+import ratpack.func.Predicate
+import ratpack.resilience4j.bulkhead.BulkheadFullException
+import ratpack.resilience4j.limit.LimitExceededException
+import ratpack.resilience4j.shed.LoadShedException
+import ratpack.test.exec.ExecHarness
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+/**
+ * Replays open-loop load against a policy in virtual time.
+ * <p>
+ * Calls arrive at a fixed rate, or as a seeded Poisson process, whether or not earlier calls have completed. Each
+ * call passes through the fault injector and then the policy under test, on a single event loop of an embedded
+ * exec harness, and the virtual clock jumps from one scheduled event to the next. A run of a minute of traffic
+ * takes as long as the work it does, not a minute.
+ * <p>
+ * Runs are repeatable for policies that read time from the virtual clock, such as a
+ * {@link ratpack.resilience4j.window.SlidingWindowCircuitBreaker} created with {@code clock.&nanoTime}. Policies
+ * that read the system clock, such as the default circuit breakers, rate limiters and retry waits, see the wall time
+ * of the run instead.
+ */
+class LoadSimulation<T> {
+
+  private static final Predicate<Throwable> REJECTIONS = { Throwable t ->
+    t instanceof CircuitBreakerOpenException || t instanceof RequestNotPermitted || t instanceof BulkheadFullException ||
+      t instanceof LimitExceededException || t instanceof LoadShedException
+  } as Predicate<Throwable>
+
+  private final Factory<? extends Promise<T>> call
+  private double rate = 100
+  private Duration duration = Duration.ofSeconds(10)
+  private Long poissonSeed
+  private Function<? super VirtualClock, ? extends Function<? super Upstream<? extends T>, ? extends Upstream<T>>> faults = { clock -> FaultInjectingTransformer.of(clock) }
+  private Predicate<? super Throwable> rejected = REJECTIONS
+  private Duration settleTimeout = Duration.ofSeconds(10)
+
+  private LoadSimulation(Factory<? extends Promise<T>> call) {
+    this.call = call
+  }
+
+  /**
+   * @param call the call made by each arrival, before faults are injected
+   */
+  static <T> LoadSimulation<T> of(Factory<? extends Promise<T>> call) {
+    new LoadSimulation<T>(call)
+  }
+
+  /**
+   * @param rate the number of arrivals per virtual second
+   */
+  LoadSimulation<T> rate(double rate) {
+    this.rate = rate
+    this
+  }
+
+  /**
+   * @param duration the virtual time over which calls arrive
+   */
+  LoadSimulation<T> duration(Duration duration) {
+    this.duration = duration
+    this
+  }
+
+  /**
+   * Draw the gaps between arrivals from an exponential distribution rather than spacing them evenly.
+   */
+  LoadSimulation<T> poisson(long seed) {
+    this.poissonSeed = seed
+    this
+  }
+
+  /**
+   * @param faults creates the fault injector of each run from the run's clock
+   */
+  LoadSimulation<T> faults(Function<? super VirtualClock, ? extends Function<? super Upstream<? extends T>, ? extends Upstream<T>>> faults) {
+    this.faults = faults
+    this
+  }
+
+  /**
+   * @param rejected whether an error is a rejection by the policy rather than a failed call
+   */
+  LoadSimulation<T> rejected(Predicate<? super Throwable> rejected) {
+    this.rejected = rejected
+    this
+  }
+
+  /**
+   * @param settleTimeout the wall time to wait for calls that are delayed by the system clock once virtual time has run out
+   */
+  LoadSimulation<T> settleTimeout(Duration settleTimeout) {
+    this.settleTimeout = settleTimeout
+    this
+  }
+
+  /**
+   * Run each policy configuration against the same arrivals and faults.
+   *
+   * @param policies the policy of each configuration by name, created from the run's clock
+   * @return a report per configuration, in the given order
+   */
+  List<SimulationReport> compare(Map<String, Function<? super VirtualClock, ? extends Function<? super Upstream<? extends T>, ? extends Upstream<T>>>> policies) {
+    policies.collect { name, policy -> run(name, policy) }
+  }
+
+  /**
+   * Run the simulation with the given policy.
+   *
+   * @param name the name of the policy configuration in the report
+   * @param policy creates the policy under test from the run's clock
+   * @return the report of the run
+   */
+  SimulationReport run(String name, Function<? super VirtualClock, ? extends Function<? super Upstream<? extends T>, ? extends Upstream<T>>> policy) {
+    VirtualClock clock = new VirtualClock()
+    def injector = faults.apply(clock)
+    def transformer = policy.apply(clock)
+    SimulationReport report = new SimulationReport(name, rejected)
+    ExecHarness harness = ExecHarness.harness(1)
+    try {
+      harness.yield { execution ->
+        Promise.async { down ->
+          scheduleArrivals(clock) {
+            report.arrivals++
+            Execution.fork().start {
+              long start = clock.nanoTime()
+              call.create().transform(injector).transform(transformer).result { result ->
+                report.record(result, clock.nanoTime() - start)
+              }
+            }
+          }
+          long settleDeadline = 0
+          Runnable step
+          step = {
+            if (clock.advance()) {
+              settleDeadline = 0
+              // let the executions resumed at this time run before the clock moves on
+              yieldTimes(execution, 4, step)
+            } else if (report.incomplete > hangs(injector)) {
+              settleDeadline = settleDeadline ?: System.nanoTime() + settleTimeout.toNanos()
+              if (System.nanoTime() < settleDeadline) {
+                execution.eventLoop.schedule(step, 1, TimeUnit.MILLISECONDS)
+              } else {
+                down.success(report)
+              }
+            } else {
+              down.success(report)
+            }
+          } as Runnable
+          execution.eventLoop.execute(step)
+        }
+      }.valueOrThrow
+      report.durationNanos = Math.max(clock.nanoTime(), duration.toNanos())
+      report
+    } finally {
+      harness.close()
+    }
+  }
+
+  private void scheduleArrivals(VirtualClock clock, Runnable arrival) {
+    Random gaps = poissonSeed != null ? new Random(poissonSeed) : null
+    double meanGap = TimeUnit.SECONDS.toNanos(1) / rate
+    double at = 0
+    while (at < duration.toNanos()) {
+      clock.schedule((long) at, arrival)
+      at += gaps != null ? -Math.log(1 - gaps.nextDouble()) * meanGap : meanGap
+    }
+  }
+
+  private static void yieldTimes(Execution execution, int times, Runnable then) {
+    execution.eventLoop.execute(times == 0 ? then : { yieldTimes(execution, times - 1, then) } as Runnable)
+  }
+
+  private static long hangs(Object injector) {
+    injector instanceof FaultInjectingTransformer ? ((FaultInjectingTransformer) injector).hangs : 0
+  }
+
+}
@@ -0,0 +1,107 @@
+package ratpack.resilience4j.simulation
+
+import io.github.robwin.ratelimiter.RateLimiter
+import io.github.robwin.ratelimiter.RateLimiterConfig
+import io.github.robwin.retry.RetryConfig
+import ratpack.exec.Promise
+import ratpack.resilience4j.CircuitBreakerTransformer
+import ratpack.resilience4j.RateLimiterTransformer
+import ratpack.resilience4j.RetryTransformer
+import ratpack.resilience4j.window.SlidingWindowCircuitBreaker
+import ratpack.resilience4j.window.SlidingWindowConfig
+import spock.lang.Specification
+
+import java.time.Duration
+
+class LoadSimulationSpec extends Specification {
+
+  def "replays a seeded scenario identically and faster than real time"() {
+    given:
+    def simulation = LoadSimulation.of { Promise.value("ok") }
+      .rate(200)
+      .duration(Duration.ofSeconds(60))
+      .faults { clock ->
+        FaultInjectingTransformer.of(clock)
+          .latency(LatencyDistribution.logNormal(Duration.ofMillis(20), 0.5).withTail(0.01, LatencyDistribution.fixed(Duration.ofSeconds(2))))
+          .errorRate(0.1)
+          .hangRate(0.01)
+          .seed(7)
+      }
+
+    when:
+    long start = System.nanoTime()
+    def first = simulation.run("none") { clock -> { up -> up } }
+    def second = simulation.run("none") { clock -> { up -> up } }
+    long wallMillis = (System.nanoTime() - start) / 1000000
+
+    then:
+    wallMillis < 30000
+    first.arrivals == 12000
+    first.errorRate > 0.05 && first.errorRate < 0.15
+    first.incomplete > 0
+    first.rejections == 0
+    [first.successes, first.errors, first.incomplete, first.percentileMicros(0.5), first.percentileMicros(0.999)] ==
+      [second.successes, second.errors, second.incomplete, second.percentileMicros(0.5), second.percentileMicros(0.999)]
+    first.percentileMicros(0.999) > first.percentileMicros(0.5)
+  }
+
+  def "compares policy configurations against the same faults"() {
+    given:
+    def simulation = LoadSimulation.of { Promise.value("ok") }
+      .rate(100)
+      .duration(Duration.ofSeconds(30))
+      .faults { clock ->
+        FaultInjectingTransformer.of(clock)
+          .latency(LatencyDistribution.exponential(Duration.ofMillis(10)))
+          .errorRate(0.6)
+          .seed(11)
+      }
+
+    when:
+    def reports = simulation.compare([
+      "none"   : { clock -> { up -> up } },
+      "breaker": { clock ->
+        CircuitBreakerTransformer.of(SlidingWindowCircuitBreaker.of("backend", SlidingWindowConfig.custom()
+          .minimumNumberOfCalls(20)
+          .waitDurationInOpenState(Duration.ofSeconds(5))
+          .build(), clock.&nanoTime))
+      },
+      "limiter": { clock ->
+        RateLimiterTransformer.of(RateLimiter.of("backend", RateLimiterConfig.custom()
+          .limitRefreshPeriod(Duration.ofSeconds(1))
+          .limitForPeriod(10)
+          .timeoutDuration(Duration.ofNanos(1))
+          .build()))
+      },
+      "retry"  : { clock ->
+        RetryTransformer.of("backend", RetryConfig.custom().maxAttempts(3).waitDuration(Duration.ofMillis(10)).build())
+      }
+    ])
+    def (none, breaker, limiter, retry) = reports
+
+    then:
+    reports*.arrivals == [3000] * 4
+    none.rejections == 0
+    breaker.rejectionRate > 0.5
+    breaker.errors < none.errors
+    limiter.rejections > 0
+    retry.errorRate < none.errorRate
+    reports*.incomplete == [0] * 4
+    SimulationReport.table(reports).readLines()*.split(/\s+/)*.getAt(0) == ["policy", "none", "breaker", "limiter", "retry"]
+  }
+
+  def "spreads poisson arrivals over the duration"() {
+    when:
+    def report = LoadSimulation.of { Promise.value("ok") }
+      .rate(1000)
+      .duration(Duration.ofSeconds(10))
+      .poisson(3)
+      .run("none") { clock -> { up -> up } }
+
+    then:
+    report.arrivals > 9500 && report.arrivals < 10500
+    report.successes == report.arrivals
+    report.throughput > 900 && report.throughput < 1100
+  }
+
+}
@@ -0,0 +1,81 @@
+package ratpack.resilience4j.simulation
+
+import ratpack.exec.Result
+import ratpack.func.Predicate
+import ratpack.resilience4j.metrics.LatencyHistogram
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * The outcome of one {@link LoadSimulation} run. Latencies are virtual, and only recorded for calls that reached
+ * the dependency, so that fast rejections do not flatter the percentiles.
+ */
+class SimulationReport {
+
+  final String name
+  final LatencyHistogram latency = new LatencyHistogram()
+  long arrivals
+  long successes
+  long errors
+  long rejections
+  long durationNanos
+  private final Predicate<? super Throwable> rejected
+
+  SimulationReport(String name, Predicate<? super Throwable> rejected) {
+    this.name = name
+    this.rejected = rejected
+  }
+
+  synchronized void record(Result<?> result, long latencyNanos) {
+    if (result.success) {
+      successes++
+      latency.record(latencyNanos)
+    } else if (rejected.apply(result.throwable)) {
+      rejections++
+    } else {
+      errors++
+      latency.record(latencyNanos)
+    }
+  }
+
+  /**
+   * @return the calls that never completed, for example because they hung
+   */
+  synchronized long getIncomplete() {
+    arrivals - successes - errors - rejections
+  }
+
+  /**
+   * @return successful calls per virtual second
+   */
+  synchronized double getThroughput() {
+    durationNanos == 0 ? 0 : successes * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos
+  }
+
+  synchronized double getRejectionRate() {
+    arrivals == 0 ? 0 : rejections / (double) arrivals
+  }
+
+  synchronized double getErrorRate() {
+    arrivals == 0 ? 0 : errors / (double) arrivals
+  }
+
+  long percentileMicros(double percentile) {
+    latency.getPercentileMicros(percentile)
+  }
+
+  @Override
+  String toString() {
+    String.format("%-20s %8d %10.1f %8.2f%% %8.2f%% %8d %10d %10d %10d", name, arrivals, throughput, rejectionRate * 100, errorRate * 100, incomplete,
+      percentileMicros(0.5), percentileMicros(0.99), percentileMicros(0.999))
+  }
+
+  /**
+   * @return the given reports as a table, one row per policy configuration
+   */
+  static String table(List<SimulationReport> reports) {
+    String header = String.format("%-20s %8s %10s %9s %9s %8s %10s %10s %10s", "policy", "arrivals", "ok/s", "rejected", "errors", "hung", "p50 us", "p99 us", "p999 us")
+    ([header] + reports*.toString()).join("\n")
+  }
+
+}
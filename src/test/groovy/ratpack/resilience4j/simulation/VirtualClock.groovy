@@ -0,0 +1,88 @@
+package ratpack.resilience4j.simulation
+
+import ratpack.exec.Promise
+
+import java.time.Duration
+
+/**
+ * A discrete event clock for simulations. Time only moves when {@link #advance()} is called, which jumps to the
+ * earliest scheduled action and runs every action due at that time.
+ * <p>
+ * Pass {@code clock.&nanoTime} to anything that takes a {@code LongSupplier}, such as
+ * {@link ratpack.resilience4j.window.SlidingWindowCircuitBreaker#of(String, ratpack.resilience4j.window.SlidingWindowConfig, java.util.function.LongSupplier)}.
+ */
+class VirtualClock {
+
+  private final PriorityQueue<Timer> timers = new PriorityQueue<>()
+  private long now
+  private long sequence
+
+  /**
+   * @return the virtual time in nanoseconds, starting at 0
+   */
+  synchronized long nanoTime() {
+    now
+  }
+
+  /**
+   * Run the given action once the clock reaches the given time. Actions due at the same time run in the order
+   * they were scheduled.
+   */
+  synchronized void schedule(long atNanos, Runnable action) {
+    timers.add(new Timer(Math.max(atNanos, now), sequence++, action))
+  }
+
+  /**
+   * @return a promise that completes once the clock has moved on by the given delay
+   */
+  Promise<Void> sleep(Duration delay) {
+    Promise.async { down ->
+      schedule(nanoTime() + delay.toNanos()) { down.success(null) }
+    }
+  }
+
+  /**
+   * @return whether any actions are scheduled
+   */
+  synchronized boolean isIdle() {
+    timers.isEmpty()
+  }
+
+  /**
+   * Jump to the time of the earliest scheduled action, and run all actions due at that time.
+   *
+   * @return false if no actions were scheduled
+   */
+  boolean advance() {
+    List<Runnable> due = []
+    synchronized (this) {
+      if (timers.isEmpty()) {
+        return false
+      }
+      now = timers.peek().at
+      while (!timers.isEmpty() && timers.peek().at == now) {
+        due << timers.poll().action
+      }
+    }
+    due*.run()
+    true
+  }
+
+  private static class Timer implements Comparable<Timer> {
+    final long at
+    final long sequence
+    final Runnable action
+
+    Timer(long at, long sequence, Runnable action) {
+      this.at = at
+      this.sequence = sequence
+      this.action = action
+    }
+
+    @Override
+    int compareTo(Timer other) {
+      at == other.at ? Long.compare(sequence, other.sequence) : Long.compare(at, other.at)
+    }
+  }
+
+}
@@ -0,0 +1,125 @@
+package ratpack.resilience4j.stream
+
+import io.github.robwin.circuitbreaker.CircuitBreaker
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException
+import io.github.robwin.ratelimiter.RateLimiter
+import io.github.robwin.ratelimiter.RateLimiterConfig
+import io.github.robwin.retry.RetryConfig
+import org.reactivestreams.Publisher
+import org.reactivestreams.Subscriber
+import ratpack.stream.Streams
+import ratpack.test.exec.ExecHarness
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+class StreamTransformerSpec extends Specification {
+
+  def "rate limits the elements of a stream through backpressure"() {
+    given:
+    RateLimiter rateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofMillis(100))
+      .limitForPeriod(2)
+      .timeoutDuration(Duration.ZERO)
+      .build())
+    List<Long> requests = Collections.synchronizedList([])
+    long start = System.nanoTime()
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      Streams.publish(1..6)
+        .wiretap { if (it.request) { requests << it.requestAmount } }
+        .transform(RateLimiterStreamTransformer.of(rateLimiter))
+        .toList()
+    }
+
+    then:
+    r.value == [1, 2, 3, 4, 5, 6]
+    requests.every { it <= 2 }
+    Duration.ofNanos(System.nanoTime() - start).toMillis() >= 150
+  }
+
+  def "takes no more permissions than the stream delivers"() {
+    given:
+    RateLimiter rateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+      .limitRefreshPeriod(Duration.ofSeconds(10))
+      .limitForPeriod(10)
+      .timeoutDuration(Duration.ZERO)
+      .build())
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      Streams.publish(1..3)
+        .transform(RateLimiterStreamTransformer.of(rateLimiter))
+        .toList()
+    }
+
+    then:
+    r.value == [1, 2, 3]
+    rateLimiter.metrics.availablePermissions >= 6
+  }
+
+  def "records stream errors with the circuit breaker and rejects subscriptions once open"() {
+    given:
+    CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+      .failureRateThreshold(50)
+      .waitDurationInOpenState(Duration.ofMillis(1000))
+      .ringBufferSizeInClosedState(2)
+      .build())
+    AtomicInteger subscriptions = new AtomicInteger()
+    Publisher<Integer> failing = { Subscriber<Integer> s ->
+      subscriptions.incrementAndGet()
+      Streams.publish([1, 2]).map { if (it == 2) { throw new IOException("drop") }; it }.subscribe(s)
+    }
+
+    when:
+    def results = (1..3).collect {
+      ExecHarness.yieldSingle {
+        Streams.transformable(failing).transform(CircuitBreakerStreamTransformer.of(breaker)).toList()
+      }
+    }
+
+    then:
+    results[0].throwable instanceof IOException
+    results[1].throwable instanceof IOException
+    results[2].throwable instanceof CircuitBreakerOpenException
+    subscriptions.get() == 2
+    breaker.state == CircuitBreaker.State.OPEN
+  }
+
+  def "resubscribes to a failed stream and resumes with the outstanding demand"() {
+    given:
+    RetryConfig config = RetryConfig.custom()
+      .maxAttempts(2)
+      .waitDuration(Duration.ofMillis(10))
+      .build()
+    AtomicInteger offset = new AtomicInteger()
+    AtomicInteger subscriptions = new AtomicInteger()
+    Publisher<Integer> resumable = { Subscriber<Integer> s ->
+      // each subscription continues from the offset, the first two drop after making some progress
+      int dropAt = subscriptions.incrementAndGet() * 3 - 1
+      Streams.yield { req ->
+        int i = offset.get()
+        if (i == 8) {
+          return null
+        }
+        if (i == dropAt) {
+          throw new IOException("drop")
+        }
+        offset.getAndIncrement()
+      }.subscribe(s)
+    }
+
+    when:
+    def r = ExecHarness.yieldSingle {
+      Streams.transformable(resumable).transform(RetryStreamTransformer.of(config)).toList()
+    }
+
+    then:
+    r.value == (0..7).toList()
+    subscriptions.get() == 3
+  }
+
+}
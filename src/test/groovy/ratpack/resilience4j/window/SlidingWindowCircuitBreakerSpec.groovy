@@ -0,0 +1,216 @@
+package ratpack.resilience4j.window
+
+import io.github.robwin.circuitbreaker.CircuitBreaker
+import ratpack.exec.Promise
+import ratpack.resilience4j.CircuitBreakerTransformer
+import ratpack.resilience4j.metrics.ResilienceMetrics
+import ratpack.test.exec.ExecHarness
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.LongSupplier
+
+class SlidingWindowCircuitBreakerSpec extends Specification {
+
+  @AutoCleanup
+  ExecHarness harness = ExecHarness.harness()
+
+  AtomicLong now = new AtomicLong()
+
+  def "opens on the failure rate of the window once it holds enough calls"() {
+    given:
+    SlidingWindowCircuitBreaker breaker = breaker()
+
+    when:
+    3.times { breaker.onError(Duration.ofMillis(1), new Exception("bad")) }
+
+    then:
+    breaker.state == CircuitBreaker.State.CLOSED
+    breaker.metrics.failureRate == -1
+
+    when:
+    breaker.onSuccess(Duration.ofMillis(1))
+
+    then:
+    breaker.metrics.failureRate == 75
+    breaker.state == CircuitBreaker.State.CLOSED
+
+    when:
+    breaker.onError(Duration.ofMillis(1), new Exception("bad"))
+
+    then:
+    breaker.state == CircuitBreaker.State.OPEN
+    !breaker.isCallPermitted()
+    breaker.metrics.numberOfNotPermittedCalls == 1
+  }
+
+  def "forgets calls that left the window"() {
+    given:
+    SlidingWindowCircuitBreaker breaker = breaker()
+
+    when:
+    3.times { breaker.onError(Duration.ofMillis(1), new Exception("bad")) }
+    advance(3)
+    4.times { breaker.onSuccess(Duration.ofMillis(1)) }
+    breaker.onError(Duration.ofMillis(1), new Exception("bad"))
+
+    then:
+    breaker.metrics.numberOfBufferedCalls == 5
+    breaker.metrics.failureRate == 20
+    breaker.state == CircuitBreaker.State.CLOSED
+  }
+
+  def "counts slow calls as failures"() {
+    given:
+    SlidingWindowCircuitBreaker breaker = breaker()
+
+    when:
+    2.times { breaker.onSuccess(Duration.ofMillis(1)) }
+    2.times { breaker.onSuccess(Duration.ofMillis(500)) }
+
+    then:
+    breaker.metrics.slowCallRate == 50
+    breaker.metrics.numberOfSuccessfulCalls == 2
+    breaker.state == CircuitBreaker.State.OPEN
+  }
+
+  def "closes or opens again after the trial calls"() {
+    given:
+    SlidingWindowCircuitBreaker breaker = breaker()
+    5.times { breaker.onError(Duration.ofMillis(1), new Exception("bad")) }
+
+    when:
+    advance(5)
+
+    then:
+    breaker.isCallPermitted()
+    breaker.isCallPermitted()
+    !breaker.isCallPermitted()
+    breaker.state == CircuitBreaker.State.HALF_OPEN
+
+    when:
+    breaker.onSuccess(Duration.ofMillis(1))
+    breaker.onError(Duration.ofMillis(1), new Exception("bad"))
+
+    then:
+    breaker.state == CircuitBreaker.State.OPEN
+
+    when:
+    advance(5)
+    2.times {
+      breaker.isCallPermitted()
+      breaker.onSuccess(Duration.ofMillis(1))
+    }
+
+    then:
+    breaker.state == CircuitBreaker.State.CLOSED
+    breaker.metrics.numberOfBufferedCalls == 0
+  }
+
+  def "can be used by the circuit breaker transformer"() {
+    given:
+    SlidingWindowCircuitBreaker breaker = SlidingWindowCircuitBreaker.of("test", SlidingWindowConfig.custom()
+      .minimumNumberOfCalls(2)
+      .slowCallDurationThreshold(Duration.ofMillis(50))
+      .build())
+    CircuitBreakerTransformer<String> transformer = CircuitBreakerTransformer.of(breaker).recover { t -> "recovered" }
+    Promise<String> slow = Promise.async { down -> Thread.start { sleep 100; down.success("slow") } }
+
+    when:
+    def first = harness.yield { slow.transform(transformer) }.value
+    def second = harness.yield { slow.transform(transformer) }.value
+    def third = harness.yield { slow.transform(transformer) }.value
+
+    then:
+    first == "slow"
+    second == "slow"
+    third == "recovered"
+    breaker.state == CircuitBreaker.State.OPEN
+  }
+
+  def "trial calls that complete without a value return their permit"() {
+    given:
+    SlidingWindowCircuitBreaker breaker = breaker()
+    CircuitBreakerTransformer<String> transformer = CircuitBreakerTransformer.of(breaker)
+    4.times { breaker.onError(Duration.ofMillis(1), new Exception("bad")) }
+    advance(5)
+
+    when:
+    2.times { harness.yield { Promise.<String> async { down -> down.complete() }.transform(transformer) } }
+
+    then:
+    breaker.state == CircuitBreaker.State.HALF_OPEN
+    breaker.isCallPermitted()
+    breaker.isCallPermitted()
+    !breaker.isCallPermitted()
+
+    when:
+    2.times { breaker.onSuccess(Duration.ofMillis(1)) }
+
+    then:
+    breaker.state == CircuitBreaker.State.CLOSED
+  }
+
+  def "reports each transition to the metrics, including a half open state that no call observes"() {
+    given:
+    SlidingWindowCircuitBreaker breaker = breaker()
+    ResilienceMetrics metrics = new ResilienceMetrics()
+    CircuitBreakerTransformer<String> transformer = CircuitBreakerTransformer.of(breaker).metrics(metrics)
+    harness.yield { Promise.value("ok").transform(transformer) }
+
+    when:
+    3.times { breaker.onError(Duration.ofMillis(1), new Exception("bad")) }
+    advance(5)
+    2.times {
+      breaker.isCallPermitted()
+      breaker.onSuccess(Duration.ofMillis(1))
+    }
+
+    then:
+    breaker.state == CircuitBreaker.State.CLOSED
+    metrics.circuitBreaker("test").stateTransitions == [CLOSED_TO_OPEN: 1L, OPEN_TO_HALF_OPEN: 1L, HALF_OPEN_TO_CLOSED: 1L]
+  }
+
+  def "a call that loses the race to open the circuit does not extend the open period"() {
+    given:
+    int clockCalls = 0
+    SlidingWindowCircuitBreaker racing
+    // the racing call reads the clock a second time to open the circuit; another call opens it first
+    racing = breaker {
+      if (clockCalls > 0 && ++clockCalls == 3) {
+        racing.onError(Duration.ofMillis(1), new Exception("bad"))
+        advance(4)
+      }
+      now.get()
+    }
+    3.times { racing.onError(Duration.ofMillis(1), new Exception("bad")) }
+
+    when:
+    clockCalls = 1
+    racing.onError(Duration.ofMillis(1), new Exception("bad"))
+    advance(1)
+
+    then:
+    racing.isCallPermitted()
+    racing.state == CircuitBreaker.State.HALF_OPEN
+  }
+
+  private SlidingWindowCircuitBreaker breaker(Closure<Long> clock = { now.get() }) {
+    new SlidingWindowCircuitBreaker("test", SlidingWindowConfig.custom()
+      .windowSize(Duration.ofSeconds(3))
+      .minimumNumberOfCalls(4)
+      .failureRateThreshold(50)
+      .slowCallDurationThreshold(Duration.ofMillis(100))
+      .waitDurationInOpenState(Duration.ofSeconds(5))
+      .permittedNumberOfCallsInHalfOpenState(2)
+      .build(), clock as LongSupplier)
+  }
+
+  private void advance(long seconds) {
+    now.addAndGet(TimeUnit.SECONDS.toNanos(seconds))
+  }
+
+}